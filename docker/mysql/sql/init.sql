@@ -251,6 +251,26 @@ CREATE TABLE `console_kerberos` (
                                     PRIMARY KEY (`id`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8 COLLATE=utf8_bin;
 
+-- ----------------------------
+-- Table structure for console_plugin_info
+-- ----------------------------
+DROP TABLE IF EXISTS `console_plugin_info`;
+CREATE TABLE `console_plugin_info` (
+                                       `id` int(11) NOT NULL AUTO_INCREMENT,
+                                       `cluster_id` int(11) NOT NULL COMMENT '集群id',
+                                       `component_type_code` tinyint(1) NOT NULL COMMENT '计算组件类型',
+                                       `component_version` varchar(25) COLLATE utf8_bin NOT NULL DEFAULT '' COMMENT '组件版本',
+                                       `deploy_mode` tinyint(1) NOT NULL DEFAULT '0' COMMENT '运行模式',
+                                       `md5` char(32) COLLATE utf8_bin NOT NULL COMMENT 'plugin_info的md5',
+                                       `plugin_info` longtext COLLATE utf8_bin NOT NULL COMMENT '提交任务使用的完整集群配置',
+                                       `gmt_create` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '新增时间',
+                                       `gmt_modified` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '修改时间',
+                                       `is_deleted` tinyint(1) NOT NULL DEFAULT '0' COMMENT '0正常 1逻辑删除',
+                                       PRIMARY KEY (`id`),
+                                       UNIQUE KEY `index_cluster_component_md5` (`cluster_id`,`component_type_code`,`component_version`,`deploy_mode`,`md5`),
+                                       KEY `index_md5` (`md5`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8 COLLATE=utf8_bin;
+
 -- ----------------------------
 -- Table structure for console_queue
 -- ----------------------------
@@ -1374,6 +1394,7 @@ CREATE TABLE `schedule_engine_job_cache` (
                                              `job_priority` bigint(20) DEFAULT NULL COMMENT '任务优先级',
                                              `is_failover` tinyint(1) NOT NULL DEFAULT '0' COMMENT '0：不是，1：由故障恢复来的任务',
                                              `wait_reason` text COLLATE utf8_bin COMMENT '任务等待原因',
+                                             `delay_expire_time` bigint(20) DEFAULT NULL COMMENT '重试、资源不足延迟队列的到期时间(ms)',
                                              `tenant_id` int(11) DEFAULT NULL COMMENT '租户id',
                                              `gmt_create` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '新增时间',
                                              `gmt_modified` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '修改时间',
@@ -1448,6 +1469,7 @@ CREATE TABLE `schedule_job` (
                                 `flow_job_id` varchar(64) COLLATE utf8_bin NOT NULL DEFAULT '0' COMMENT '工作流实例id',
                                 `period_type` tinyint(2) DEFAULT NULL COMMENT '周期类型',
                                 `status` tinyint(1) NOT NULL DEFAULT '0' COMMENT '任务状态 UNSUBMIT(0),CREATED(1),SCHEDULED(2),DEPLOYING(3),RUNNING(4),FINISHED(5),CANCELING(6),CANCELED(7),FAILED(8)',
+                                `counted_status` tinyint(1) DEFAULT NULL COMMENT '已经计入状态计数的状态',
                                 `task_type` tinyint(1) NOT NULL COMMENT '任务类型 -1:虚节点, 0:sparksql, 1:spark, 2:数据同步, 3:pyspark, 4:R, 5:深度学习, 6:python, 7:shell, 8:机器学习, 9:hadoopMR, 10:工作流, 12:carbonSQL, 13:notebook, 14:算法实验, 15:libra sql, 16:kylin, 17:hiveSQL',
                                 `fill_id` int(11) DEFAULT '0' COMMENT '补数据id，默认为0',
                                 `exec_start_time` datetime DEFAULT NULL COMMENT '执行开始时间',
@@ -1552,6 +1574,63 @@ CREATE TABLE `schedule_job_job` (
                                     KEY `idx_job_parentJobKey` (`job_key`(255),`parent_job_key`(255))
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8 COLLATE=utf8_bin;
 
+-- ----------------------------
+-- Table structure for schedule_job_status_count
+-- ----------------------------
+DROP TABLE IF EXISTS `schedule_job_status_count`;
+CREATE TABLE `schedule_job_status_count` (
+                                             `id` int(11) NOT NULL AUTO_INCREMENT,
+                                             `tenant_id` int(11) NOT NULL COMMENT '租户id',
+                                             `cyc_day` char(8) COLLATE utf8_bin NOT NULL COMMENT '计划日期 yyyyMMdd',
+                                             `type` tinyint(1) NOT NULL DEFAULT '0' COMMENT '0正常调度 1补数据 2临时运行',
+                                             `task_type` tinyint(1) NOT NULL COMMENT '任务类型',
+                                             `period_type` tinyint(2) NOT NULL DEFAULT '-1' COMMENT '周期类型，-1表示实例没有周期类型',
+                                             `status` tinyint(1) NOT NULL COMMENT '实例状态',
+                                             `job_count` int(11) NOT NULL DEFAULT '0' COMMENT '实例数',
+                                             `gmt_create` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '新增时间',
+                                             `gmt_modified` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '修改时间',
+                                             `is_deleted` tinyint(1) NOT NULL DEFAULT '0' COMMENT '0正常 1逻辑删除',
+                                             PRIMARY KEY (`id`),
+                                             UNIQUE KEY `index_tenant_day_status` (`tenant_id`,`cyc_day`,`type`,`task_type`,`period_type`,`status`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8 COLLATE=utf8_bin;
+
+-- ----------------------------
+-- Table structure for schedule_job_stop_progress
+-- ----------------------------
+DROP TABLE IF EXISTS `schedule_job_stop_progress`;
+CREATE TABLE `schedule_job_stop_progress` (
+                                              `id` int(11) NOT NULL AUTO_INCREMENT,
+                                              `stop_id` varchar(64) COLLATE utf8_bin NOT NULL COMMENT '批量停止id',
+                                              `name` varchar(255) COLLATE utf8_bin DEFAULT NULL COMMENT '批量停止名称',
+                                              `node_address` varchar(255) COLLATE utf8_bin DEFAULT NULL COMMENT '发起停止的节点',
+                                              `total` int(11) NOT NULL DEFAULT '0' COMMENT '已经选出的实例数',
+                                              `canceled` int(11) NOT NULL DEFAULT '0' COMMENT '未提交直接置为取消的实例数',
+                                              `stopping` int(11) NOT NULL DEFAULT '0' COMMENT '需要向集群发送停止请求的实例数',
+                                              `stopped` int(11) NOT NULL DEFAULT '0' COMMENT '集群上已经停止的实例数',
+                                              `failed` int(11) NOT NULL DEFAULT '0' COMMENT '超过重试次数仍未停止的实例数',
+                                              `select_finished` tinyint(1) NOT NULL DEFAULT '0' COMMENT '实例是否已经全部选出 0否 1是',
+                                              `error_msg` varchar(1024) COLLATE utf8_bin DEFAULT NULL COMMENT '选出实例时的异常信息',
+                                              `finish_time` datetime DEFAULT NULL COMMENT '全部停止结束的时间',
+                                              `gmt_create` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '新增时间',
+                                              `gmt_modified` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '修改时间',
+                                              `is_deleted` tinyint(1) NOT NULL DEFAULT '0' COMMENT '0正常 1逻辑删除',
+                                              PRIMARY KEY (`id`),
+                                              UNIQUE KEY `index_stop_id` (`stop_id`),
+                                              KEY `index_gmt_create` (`gmt_create`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8 COLLATE=utf8_bin;
+
+-- ----------------------------
+-- Table structure for schedule_job_archive
+-- ----------------------------
+DROP TABLE IF EXISTS `schedule_job_archive`;
+CREATE TABLE `schedule_job_archive` LIKE `schedule_job`;
+
+-- ----------------------------
+-- Table structure for schedule_job_job_archive
+-- ----------------------------
+DROP TABLE IF EXISTS `schedule_job_job_archive`;
+CREATE TABLE `schedule_job_job_archive` LIKE `schedule_job_job`;
+
 -- ----------------------------
 -- Table structure for schedule_job_operator_record
 -- ----------------------------
@@ -1564,6 +1643,7 @@ CREATE TABLE `schedule_job_operator_record` (
                                                 `operator_type` tinyint(1) NOT NULL DEFAULT '0' COMMENT '操作类型 0杀死 1重跑 2 补数据',
                                                 `force_cancel_flag` tinyint(1) NOT NULL DEFAULT '0' COMMENT '强制标志 0非强制 1强制',
                                                 `node_address` varchar(255) COLLATE utf8_bin DEFAULT NULL COMMENT '节点地址',
+                                                `stop_id` varchar(64) COLLATE utf8_bin DEFAULT NULL COMMENT '所属批量停止的id',
                                                 `gmt_modified` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '修改时间',
                                                 `gmt_create` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '新增时间',
                                                 `is_deleted` tinyint(1) NOT NULL DEFAULT '0' COMMENT '0正常 1逻辑删除',
@@ -1061,4 +1061,72 @@ UPDATE task_template SET value_type = '1.12' WHERE task_type = 2 and type = 0;
 
 alter table develop_resource add compute_type int default 0 null comment '上传组建类型';
 
+DROP TABLE IF EXISTS `console_plugin_info`;
+CREATE TABLE `console_plugin_info` (
+                                       `id` int(11) NOT NULL AUTO_INCREMENT,
+                                       `cluster_id` int(11) NOT NULL COMMENT '集群id',
+                                       `component_type_code` tinyint(1) NOT NULL COMMENT '计算组件类型',
+                                       `component_version` varchar(25) COLLATE utf8_bin NOT NULL DEFAULT '' COMMENT '组件版本',
+                                       `deploy_mode` tinyint(1) NOT NULL DEFAULT '0' COMMENT '运行模式',
+                                       `md5` char(32) COLLATE utf8_bin NOT NULL COMMENT 'plugin_info的md5',
+                                       `plugin_info` longtext COLLATE utf8_bin NOT NULL COMMENT '提交任务使用的完整集群配置',
+                                       `gmt_create` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '新增时间',
+                                       `gmt_modified` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '修改时间',
+                                       `is_deleted` tinyint(1) NOT NULL DEFAULT '0' COMMENT '0正常 1逻辑删除',
+                                       PRIMARY KEY (`id`),
+                                       UNIQUE KEY `index_cluster_component_md5` (`cluster_id`,`component_type_code`,`component_version`,`deploy_mode`,`md5`),
+                                       KEY `index_md5` (`md5`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8 COLLATE=utf8_bin;
+
+DROP TABLE IF EXISTS `schedule_job_status_count`;
+CREATE TABLE `schedule_job_status_count` (
+                                             `id` int(11) NOT NULL AUTO_INCREMENT,
+                                             `tenant_id` int(11) NOT NULL COMMENT '租户id',
+                                             `cyc_day` char(8) COLLATE utf8_bin NOT NULL COMMENT '计划日期 yyyyMMdd',
+                                             `type` tinyint(1) NOT NULL DEFAULT '0' COMMENT '0正常调度 1补数据 2临时运行',
+                                             `task_type` tinyint(1) NOT NULL COMMENT '任务类型',
+                                             `period_type` tinyint(2) NOT NULL DEFAULT '-1' COMMENT '周期类型，-1表示实例没有周期类型',
+                                             `status` tinyint(1) NOT NULL COMMENT '实例状态',
+                                             `job_count` int(11) NOT NULL DEFAULT '0' COMMENT '实例数',
+                                             `gmt_create` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '新增时间',
+                                             `gmt_modified` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '修改时间',
+                                             `is_deleted` tinyint(1) NOT NULL DEFAULT '0' COMMENT '0正常 1逻辑删除',
+                                             PRIMARY KEY (`id`),
+                                             UNIQUE KEY `index_tenant_day_status` (`tenant_id`,`cyc_day`,`type`,`task_type`,`period_type`,`status`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8 COLLATE=utf8_bin;
+
+ALTER TABLE `schedule_job` ADD COLUMN `counted_status` tinyint(1) DEFAULT NULL COMMENT '已经计入状态计数的状态' AFTER `status`;
+
+DROP TABLE IF EXISTS `schedule_job_archive`;
+CREATE TABLE `schedule_job_archive` LIKE `schedule_job`;
+
+DROP TABLE IF EXISTS `schedule_job_job_archive`;
+CREATE TABLE `schedule_job_job_archive` LIKE `schedule_job_job`;
+
+ALTER TABLE `schedule_engine_job_cache` ADD COLUMN `delay_expire_time` bigint(20) DEFAULT NULL COMMENT '重试、资源不足延迟队列的到期时间(ms)' AFTER `wait_reason`;
+
+DROP TABLE IF EXISTS `schedule_job_stop_progress`;
+CREATE TABLE `schedule_job_stop_progress` (
+                                              `id` int(11) NOT NULL AUTO_INCREMENT,
+                                              `stop_id` varchar(64) COLLATE utf8_bin NOT NULL COMMENT '批量停止id',
+                                              `name` varchar(255) COLLATE utf8_bin DEFAULT NULL COMMENT '批量停止名称',
+                                              `node_address` varchar(255) COLLATE utf8_bin DEFAULT NULL COMMENT '发起停止的节点',
+                                              `total` int(11) NOT NULL DEFAULT '0' COMMENT '已经选出的实例数',
+                                              `canceled` int(11) NOT NULL DEFAULT '0' COMMENT '未提交直接置为取消的实例数',
+                                              `stopping` int(11) NOT NULL DEFAULT '0' COMMENT '需要向集群发送停止请求的实例数',
+                                              `stopped` int(11) NOT NULL DEFAULT '0' COMMENT '集群上已经停止的实例数',
+                                              `failed` int(11) NOT NULL DEFAULT '0' COMMENT '超过重试次数仍未停止的实例数',
+                                              `select_finished` tinyint(1) NOT NULL DEFAULT '0' COMMENT '实例是否已经全部选出 0否 1是',
+                                              `error_msg` varchar(1024) COLLATE utf8_bin DEFAULT NULL COMMENT '选出实例时的异常信息',
+                                              `finish_time` datetime DEFAULT NULL COMMENT '全部停止结束的时间',
+                                              `gmt_create` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '新增时间',
+                                              `gmt_modified` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '修改时间',
+                                              `is_deleted` tinyint(1) NOT NULL DEFAULT '0' COMMENT '0正常 1逻辑删除',
+                                              PRIMARY KEY (`id`),
+                                              UNIQUE KEY `index_stop_id` (`stop_id`),
+                                              KEY `index_gmt_create` (`gmt_create`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8 COLLATE=utf8_bin;
+
+ALTER TABLE `schedule_job_operator_record` ADD COLUMN `stop_id` varchar(64) COLLATE utf8_bin DEFAULT NULL COMMENT '所属批量停止的id' AFTER `node_address`;
+
 COMMIT;
@@ -21,11 +21,15 @@ package com.dtstack.taier.common.client;
 import com.alibaba.fastjson.JSONObject;
 import com.dtstack.taier.common.exception.ClientAccessException;
 import com.dtstack.taier.common.exception.RdosDefineException;
+import com.dtstack.taier.pluginapi.CustomThreadFactory;
 import com.dtstack.taier.pluginapi.client.IClient;
 import com.dtstack.taier.pluginapi.constrant.ConfigConstant;
 import com.dtstack.taier.pluginapi.util.MD5Util;
 import com.dtstack.taier.pluginapi.util.MathUtil;
 import com.dtstack.taier.pluginapi.util.PublicUtil;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
 import com.google.common.collect.Maps;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -33,6 +37,9 @@ import org.slf4j.LoggerFactory;
 
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 插件客户端
@@ -48,15 +55,44 @@ public class ClientCache {
 
     private static final String MD5_SUM_KEY = "md5sum";
     private static final String MD5_ZIP_KEY = "md5zip";
+
+    private static final long DEFAULT_MAX_SIZE = 64;
+    private static final long DEFAULT_IDLE_TIMEOUT = 30 * 60 * 1000L;
+    private static final long DEFAULT_CLOSE_DELAY = 10 * 60 * 1000L;
+
     private String pluginPath;
 
     private Map<String, IClient> defaultClientMap = Maps.newConcurrentMap();
 
-    private Map<String, Map<String, IClient>> cache = Maps.newConcurrentMap();
+    /**
+     * md5sum -> client, 超过容量或长时间未使用的 client 会被淘汰, 延迟关闭
+     */
+    private volatile Cache<String, IClient> cache;
+
+    /**
+     * pluginInfo 的 md5(调用方传入的 pluginInfoMd5 或者计算得到) -> md5sum, 已经见过的配置直接命中, 不再解析 json
+     */
+    private volatile Cache<String, String> fingerprints;
+
+    /**
+     * pluginInfo 字符串对象 -> md5sum, 按对象引用比较, 同一个配置字符串重复使用时不用计算 md5
+     */
+    private volatile Cache<String, String> identities;
+
+    /**
+     * 已淘汰等待关闭的 client, 淘汰时可能还有线程在使用(提交、停止任务), 等待 closeDelay 后才关闭,
+     * 期间再次被使用时重新放回缓存
+     */
+    private final Map<String, IClient> retiredClients = Maps.newConcurrentMap();
+
+    private final ScheduledExecutorService closeExecutor = Executors.newSingleThreadScheduledExecutor(new CustomThreadFactory("clientCacheClose"));
+
+    private volatile long closeDelay = DEFAULT_CLOSE_DELAY;
 
     private static ClientCache singleton = new ClientCache();
 
     private ClientCache() {
+        resize(DEFAULT_MAX_SIZE, DEFAULT_IDLE_TIMEOUT, DEFAULT_CLOSE_DELAY);
     }
 
     public static ClientCache getInstance(String pluginPath) {
@@ -64,47 +100,103 @@ public class ClientCache {
         return singleton;
     }
 
+    public static ClientCache getInstance(String pluginPath, long maxSize, long idleTimeout, long closeDelay) {
+        singleton.pluginPath = pluginPath;
+        singleton.resize(maxSize, idleTimeout, closeDelay);
+        return singleton;
+    }
+
+    private synchronized void resize(long maxSize, long idleTimeout, long closeDelay) {
+        this.closeDelay = closeDelay;
+        Cache<String, IClient> oldCache = cache;
+        cache = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterAccess(idleTimeout, TimeUnit.MILLISECONDS)
+                .removalListener((RemovalListener<String, IClient>) notification -> {
+                    if (notification.wasEvicted() && notification.getValue() != null) {
+                        retire(notification.getKey(), notification.getValue(), notification.getCause());
+                    }
+                })
+                .build();
+        fingerprints = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterAccess(idleTimeout, TimeUnit.MILLISECONDS)
+                .build();
+        identities = CacheBuilder.newBuilder()
+                .weakKeys()
+                .maximumSize(maxSize)
+                .expireAfterAccess(idleTimeout, TimeUnit.MILLISECONDS)
+                .build();
+        if (oldCache != null) {
+            cache.putAll(oldCache.asMap());
+        }
+    }
+
     /**
      *
      * @param pluginInfo 集群配置信息
      * @return
      */
     public IClient getClient(String pluginInfo) throws ClientAccessException {
+        return getClient(pluginInfo, null);
+    }
+
+    /**
+     * 先按 pluginInfo 对象引用和 pluginInfoMd5 查找, 都没有命中时才计算 pluginInfo 的 md5
+     *
+     * @param pluginInfo    集群配置信息
+     * @param pluginInfoMd5 pluginInfo 的 md5 引用(console_plugin_info), 没有时为 null
+     * @return
+     */
+    public IClient getClient(String pluginInfo, String pluginInfoMd5) throws ClientAccessException {
         String typeName = "";
         try {
             if (StringUtils.isBlank(pluginInfo)) {
                 throw new RdosDefineException("plugin info is empty");
             }
 
+            IClient cached = getIfPresent(identities.getIfPresent(pluginInfo));
+            if (cached == null && StringUtils.isNotBlank(pluginInfoMd5)) {
+                cached = getIfPresent(fingerprints.getIfPresent(pluginInfoMd5));
+            }
+            if (cached != null) {
+                return cached;
+            }
+
+            String fingerprint = MD5Util.getMd5String(pluginInfo);
+            String md5sum = fingerprints.getIfPresent(fingerprint);
+            IClient fingerprintClient = getIfPresent(md5sum);
+            if (fingerprintClient != null) {
+                remember(pluginInfo, pluginInfoMd5, fingerprint, md5sum);
+                return fingerprintClient;
+            }
+
             Properties properties = PublicUtil.jsonStrToObjectWithOutNull(pluginInfo, Properties.class);
             typeName = properties.getProperty(ConfigConstant.TYPE_NAME_KEY);
             if (StringUtils.isBlank(typeName)) {
                 throw new RdosDefineException("typeName  is empty");
             }
-            String md5plugin = MD5Util.getMd5String(pluginInfo);
-            String md5sum = null;
             if (!properties.containsKey(MD5_SUM_KEY) || (md5sum = MathUtil.getString(properties.get(MD5_SUM_KEY))) == null) {
                 String md5zip = MathUtil.getString(properties.get(MD5_ZIP_KEY));
                 if (md5zip == null) {
                     md5zip = "";
                 }
-                md5sum = md5zip + md5plugin;
+                md5sum = md5zip + fingerprint;
                 properties.setProperty(MD5_SUM_KEY, md5sum);
             }
 
-            Map<String, IClient> clientMap = cache.computeIfAbsent(typeName, k -> Maps.newConcurrentMap());
-            IClient client = clientMap.get(md5sum);
-            if (client == null) {
-                synchronized (clientMap) {
-                    client = clientMap.get(md5sum);
-                    if (client == null) {
-                        client = ClientFactory.buildPluginClient(pluginInfo, pluginPath);
-                        client.init(properties);
-                        clientMap.putIfAbsent(md5sum, client);
-                    }
+            String clientKey = md5sum;
+            IClient client = cache.get(clientKey, () -> {
+                IClient retired = retiredClients.remove(clientKey);
+                if (retired != null) {
+                    LOGGER.info("client {} reused before closed", clientKey);
+                    return retired;
                 }
-            }
-
+                IClient newClient = ClientFactory.buildPluginClient(pluginInfo, pluginPath);
+                newClient.init(properties);
+                return newClient;
+            });
+            remember(pluginInfo, pluginInfoMd5, fingerprint, md5sum);
             return client;
         } catch (Throwable e) {
             LOGGER.error("------- typeName {}  plugin info {} get client error ", typeName, pluginInfo, e);
@@ -112,6 +204,43 @@ public class ClientCache {
         }
     }
 
+    private IClient getIfPresent(String md5sum) {
+        return md5sum == null ? null : cache.getIfPresent(md5sum);
+    }
+
+    private void remember(String pluginInfo, String pluginInfoMd5, String fingerprint, String md5sum) {
+        fingerprints.put(fingerprint, md5sum);
+        if (StringUtils.isNotBlank(pluginInfoMd5)) {
+            fingerprints.put(pluginInfoMd5, md5sum);
+        }
+        identities.put(pluginInfo, md5sum);
+    }
+
+    /**
+     * 淘汰的 client 等待 closeDelay 后关闭, 给正在使用它的线程留出时间; 期间被重新使用则不关闭
+     */
+    private void retire(String md5sum, IClient client, Object cause) {
+        LOGGER.info("client {} evicted by {}, close it after {}ms", md5sum, cause, closeDelay);
+        IClient previous = retiredClients.put(md5sum, client);
+        if (previous != null && previous != client) {
+            closeQuietly(md5sum, previous);
+        }
+        closeExecutor.schedule(() -> {
+            if (retiredClients.remove(md5sum, client)) {
+                closeQuietly(md5sum, client);
+            }
+        }, closeDelay, TimeUnit.MILLISECONDS);
+    }
+
+    private void closeQuietly(String md5sum, IClient client) {
+        try {
+            client.close();
+            LOGGER.info("client {} closed", md5sum);
+        } catch (Throwable e) {
+            LOGGER.error("close client {} error", md5sum, e);
+        }
+    }
+
     public IClient getDefaultPlugin(String typeName) {
         IClient defaultClient = defaultClientMap.get(typeName);
         try {
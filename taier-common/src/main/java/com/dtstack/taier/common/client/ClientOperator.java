@@ -32,7 +32,9 @@ import com.google.common.base.Strings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 /**
@@ -66,6 +68,24 @@ public class ClientOperator {
         return singleton;
     }
 
+    /**
+     * @param maxSize     最多缓存的插件客户端数量
+     * @param idleTimeout 客户端空闲多久后被淘汰(ms)
+     * @param closeDelay  淘汰的客户端等待多久后关闭(ms), 期间正在进行的操作可以继续使用
+     */
+    public static ClientOperator getInstance(String pluginPath, long maxSize, long idleTimeout, long closeDelay) {
+        if (singleton == null) {
+            synchronized (ClientOperator.class) {
+                if (singleton == null) {
+                    clientCache = ClientCache.getInstance(pluginPath, maxSize, idleTimeout, closeDelay);
+                    LOGGER.info("init client operator plugin path {}",pluginPath);
+                    singleton = new ClientOperator();
+                }
+            }
+        }
+        return singleton;
+    }
+
     public TaskStatus getJobStatus(String pluginInfo, JobIdentifier jobIdentifier) {
         checkoutOperator(pluginInfo, jobIdentifier);
 
@@ -89,6 +109,33 @@ public class ClientOperator {
         }
     }
 
+    /**
+     * 批量获取同一集群配置下的任务状态，批量查询失败时逐个查询
+     *
+     * @param pluginInfo     集群配置信息
+     * @param jobIdentifiers 任务
+     * @return jobId -> 任务状态
+     */
+    public Map<String, TaskStatus> getJobStatusBatch(String pluginInfo, List<JobIdentifier> jobIdentifiers) {
+        if (null == pluginInfo || null == jobIdentifiers) {
+            throw new IllegalArgumentException("pluginInfo|jobIdentifiers is null.");
+        }
+        try {
+            IClient client = clientCache.getClient(pluginInfo);
+            Map<String, TaskStatus> statusMap = client.getJobStatusBatch(jobIdentifiers);
+            if (statusMap != null) {
+                return statusMap;
+            }
+        } catch (Exception e) {
+            LOGGER.error("getStatusBatch happens error, size:{}", jobIdentifiers.size(), e);
+        }
+
+        Map<String, TaskStatus> statusMap = new HashMap<>(jobIdentifiers.size());
+        for (JobIdentifier jobIdentifier : jobIdentifiers) {
+            statusMap.put(jobIdentifier.getJobId(), getJobStatus(pluginInfo, jobIdentifier));
+        }
+        return statusMap;
+    }
 
     public String getEngineLog(String pluginInfo, JobIdentifier jobIdentifier) {
         checkoutOperator(pluginInfo, jobIdentifier);
@@ -125,7 +172,7 @@ public class ClientOperator {
         checkoutOperator(jobClient.getPluginInfo(), jobIdentifier);
 
         jobIdentifier.setTimeout(getCheckoutTimeout(jobClient));
-        IClient client = clientCache.getClient(jobClient.getPluginInfo());
+        IClient client = clientCache.getClient(jobClient.getPluginInfo(), jobClient.getPluginInfoMd5());
         return client.cancelJob(jobIdentifier);
     }
 
@@ -150,12 +197,12 @@ public class ClientOperator {
     }
 
     public JudgeResult judgeSlots(JobClient jobClient) throws ClientAccessException {
-        IClient clusterClient = clientCache.getClient(jobClient.getPluginInfo());
+        IClient clusterClient = clientCache.getClient(jobClient.getPluginInfo(), jobClient.getPluginInfoMd5());
         return clusterClient.judgeSlots(jobClient);
     }
 
     public JobResult submitJob(JobClient jobClient) throws ClientAccessException {
-        IClient clusterClient = clientCache.getClient(jobClient.getPluginInfo());
+        IClient clusterClient = clientCache.getClient(jobClient.getPluginInfo(), jobClient.getPluginInfoMd5());
         return clusterClient.submitJob(jobClient);
     }
 
@@ -198,7 +245,7 @@ public class ClientOperator {
     }
 
     public CheckResult grammarCheck(JobClient jobClient) throws ClientAccessException {
-        IClient clusterClient = clientCache.getClient(jobClient.getPluginInfo());
+        IClient clusterClient = clientCache.getClient(jobClient.getPluginInfo(), jobClient.getPluginInfoMd5());
         return clusterClient.grammarCheck(jobClient);
     }
 }
@@ -35,6 +35,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.*;
 
@@ -148,6 +149,27 @@ public class ClientProxy implements IClient {
         }
     }
 
+    @Override
+    public Map<String, TaskStatus> getJobStatusBatch(List<JobIdentifier> jobIdentifiers) throws IOException {
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return ClassLoaderCallBackMethod.callbackAndReset(new CallBack<Map<String, TaskStatus>>() {
+
+                        @Override
+                        public Map<String, TaskStatus> execute() throws Exception {
+                            return targetClient.getJobStatusBatch(jobIdentifiers);
+                        }
+                    }, targetClient.getClass().getClassLoader(), true);
+                } catch (Exception e) {
+                    throw new RdosDefineException(e);
+                }
+            }, executorService).get(timeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException | ExecutionException | TimeoutException e) {
+            throw new RdosDefineException(e);
+        }
+    }
+
     @Override
     public String getJobMaster(JobIdentifier jobIdentifier) {
         try {
@@ -369,4 +391,18 @@ public class ClientProxy implements IClient {
         }
     }
 
+    @Override
+    public void close() {
+        try {
+            ClassLoaderCallBackMethod.callbackAndReset(() -> {
+                targetClient.close();
+                return null;
+            }, targetClient.getClass().getClassLoader(), true);
+        } catch (Exception e) {
+            LOGGER.error("close client {} error", targetClient.getClass().getSimpleName(), e);
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
 }
@@ -88,6 +88,12 @@ public class EnvironmentContext implements InitializingBean {
     @Value("${job.stop.retry:6}")
     private int jobStoppedRetry;
 
+    @Value("${job.stop.resource.concurrency:10}")
+    private int jobStopResourceConcurrency;
+
+    @Value("${job.stop.progress.timeout:86400000}")
+    private long jobStopProgressTimeout;
+
     @Value("${job.restart.delay:120000}")
     private long jobRestartDelay;
 
@@ -106,6 +112,18 @@ public class EnvironmentContext implements InitializingBean {
     @Value("${job.log.delay:5}")
     private long jobLogDelay;
 
+    @Value("${job.log.collect.threads:4}")
+    private int jobLogCollectThreads;
+
+    @Value("${job.log.collect.max.retry:3}")
+    private int jobLogCollectMaxRetry;
+
+    @Value("${job.log.collect.retry.interval:10000}")
+    private long jobLogCollectRetryInterval;
+
+    @Value("${job.engine.log.max.length:4194304}")
+    private int jobEngineLogMaxLength;
+
     @Value("${job.compute.resource.plain:EngineTypeClusterQueueComputeType}")
     private String computeResourcePlain;
 
@@ -130,6 +148,12 @@ public class EnvironmentContext implements InitializingBean {
     @Value("${job.status.check.interval:3500}")
     private Long jobStatusCheckInterVal;
 
+    @Value("${job.dependency.reconcile.interval:60000}")
+    private Long jobDependencyReconcileInterval;
+
+    @Value("${job.dependency.remote.reconcile.interval:5000}")
+    private Long jobDependencyRemoteReconcileInterval;
+
     @Value("${retry.frequency:3}")
     private int retryFrequency;
 
@@ -139,9 +163,36 @@ public class EnvironmentContext implements InitializingBean {
     @Value("${check.job.max.priority.strategy:false}")
     private boolean checkJobMaxPriorityStrategy;
 
+    /**
+     * 节点发布队列信息到 zk 的检查间隔(ms)
+     */
+    @Value("${queue.info.publish.interval:2000}")
+    private long queueInfoPublishInterval;
+
+    /**
+     * 查询结果返回给页面的最大字节数(估算值)
+     */
+    @Value("${select.result.max.bytes:67108864}")
+    private long selectResultMaxBytes;
+
     @Value("${task.status.dealer.pool.size:5}")
     private int taskStatusDealerPoolSize;
 
+    @Value("${task.status.check.batch.size:200}")
+    private int taskStatusCheckBatchSize;
+
+    @Value("${plugin.client.cache.max.size:64}")
+    private long pluginClientCacheMaxSize;
+
+    @Value("${plugin.client.idle.timeout:1800000}")
+    private long pluginClientIdleTimeout;
+
+    @Value("${plugin.client.close.delay:600000}")
+    private long pluginClientCloseDelay;
+
+    @Value("${plugin.info.cache.max.size:256}")
+    private long pluginInfoCacheMaxSize;
+
     @Value("${test.connect.timeout:5}")
     private int testConnectTimeout;
 
@@ -211,6 +262,84 @@ public class EnvironmentContext implements InitializingBean {
     @Value("${fillData.max.level.size:1000}")
     private Integer fillDataRootTaskMaxLevel;
 
+    @Value("${task.dag.check.interval:5000}")
+    private long taskDagCheckInterval;
+
+    @Value("${task.dag.load.batch.size:5000}")
+    private int taskDagLoadBatchSize;
+
+    @Value("${job.status.count.flush.interval:10000}")
+    private long jobStatusCountFlushInterval;
+
+    @Value("${job.status.count.refresh.interval:300000}")
+    private long jobStatusCountRefreshInterval;
+
+    @Value("${job.status.count.dirty.max.size:100000}")
+    private int jobStatusCountDirtyMaxSize;
+
+    @Value("${job.archive.open:false}")
+    private boolean openJobArchive;
+
+    @Value("${job.archive.retention.days:90}")
+    private int jobArchiveRetentionDays;
+
+    @Value("${job.archive.batch.size:1000}")
+    private int jobArchiveBatchSize;
+
+    @Value("${job.archive.batch.interval:200}")
+    private long jobArchiveBatchInterval;
+
+    @Value("${job.archive.max.batches:500}")
+    private int jobArchiveMaxBatches;
+
+    @Value("${job.archive.run.interval:3600000}")
+    private long jobArchiveRunInterval;
+
+    @Value("${job.status.journal.open:true}")
+    private boolean openJobStatusJournal;
+
+    @Value("${job.status.journal.flush.interval:200}")
+    private long jobStatusJournalFlushInterval;
+
+    @Value("${job.status.journal.max.pending:10000}")
+    private int jobStatusJournalMaxPending;
+
+    @Value("${job.delay.wheel.capacity:100000}")
+    private int jobDelayWheelCapacity;
+
+    @Value("${stream.metric.query.thread:8}")
+    private int streamMetricQueryThread;
+
+    @Value("${stream.metric.query.timeout:15000}")
+    private long streamMetricQueryTimeout;
+
+    @Value("${prometheus.query.cache.ttl:5000}")
+    private long prometheusQueryCacheTtl;
+
+    @Value("${prometheus.query.cache.size:2000}")
+    private long prometheusQueryCacheSize;
+
+    /**
+     * 数据源元数据缓存开关
+     */
+    @Value("${datasource.metadata.cache.enable:true}")
+    private boolean datasourceMetadataCacheEnable;
+
+    @Value("${datasource.metadata.cache.table.ttl:300000}")
+    private long datasourceMetadataTableTtl;
+
+    @Value("${datasource.metadata.cache.column.ttl:600000}")
+    private long datasourceMetadataColumnTtl;
+
+    @Value("${datasource.metadata.cache.preview.ttl:60000}")
+    private long datasourcePreviewTtl;
+
+    /**
+     * 每类元数据缓存的最大条数
+     */
+    @Value("${datasource.metadata.cache.size:10000}")
+    private long datasourceMetadataCacheSize;
+
     @Value("${build.pool.core.pool.size:10}")
     private Integer graphBuildPoolCorePoolSize;
 
@@ -226,6 +355,12 @@ public class EnvironmentContext implements InitializingBean {
     @Value("${job.graph.task.limit.size:50}")
     private Integer jobGraphTaskLimitSize;
 
+    @Value("${job.graph.writer.thread:4}")
+    private Integer jobGraphWriterThread;
+
+    @Value("${job.graph.writer.batch.size:2000}")
+    private Integer jobGraphWriterBatchSize;
+
     @Value("${create.table.type:parquet}")
     private String createTableType;
 
@@ -344,6 +479,14 @@ public class EnvironmentContext implements InitializingBean {
         return jobStoppedRetry;
     }
 
+    public int getJobStopResourceConcurrency() {
+        return jobStopResourceConcurrency;
+    }
+
+    public long getJobStopProgressTimeout() {
+        return jobStopProgressTimeout;
+    }
+
     public long getJobRestartDelay() {
         return jobRestartDelay;
     }
@@ -368,6 +511,22 @@ public class EnvironmentContext implements InitializingBean {
         return jobLogDelay;
     }
 
+    public int getJobLogCollectThreads() {
+        return jobLogCollectThreads;
+    }
+
+    public int getJobLogCollectMaxRetry() {
+        return jobLogCollectMaxRetry;
+    }
+
+    public long getJobLogCollectRetryInterval() {
+        return jobLogCollectRetryInterval;
+    }
+
+    public int getJobEngineLogMaxLength() {
+        return jobEngineLogMaxLength;
+    }
+
     public String getComputeResourcePlain() {
         return computeResourcePlain;
     }
@@ -400,6 +559,14 @@ public class EnvironmentContext implements InitializingBean {
         return jobStatusCheckInterVal;
     }
 
+    public Long getJobDependencyReconcileInterval() {
+        return jobDependencyReconcileInterval;
+    }
+
+    public Long getJobDependencyRemoteReconcileInterval() {
+        return jobDependencyRemoteReconcileInterval;
+    }
+
     public int getRetryFrequency() {
         return retryFrequency;
     }
@@ -412,10 +579,38 @@ public class EnvironmentContext implements InitializingBean {
         return checkJobMaxPriorityStrategy;
     }
 
+    public long getQueueInfoPublishInterval() {
+        return queueInfoPublishInterval;
+    }
+
+    public long getSelectResultMaxBytes() {
+        return selectResultMaxBytes;
+    }
+
     public int getTaskStatusDealerPoolSize() {
         return taskStatusDealerPoolSize;
     }
 
+    public int getTaskStatusCheckBatchSize() {
+        return taskStatusCheckBatchSize;
+    }
+
+    public long getPluginClientCacheMaxSize() {
+        return pluginClientCacheMaxSize;
+    }
+
+    public long getPluginClientIdleTimeout() {
+        return pluginClientIdleTimeout;
+    }
+
+    public long getPluginClientCloseDelay() {
+        return pluginClientCloseDelay;
+    }
+
+    public long getPluginInfoCacheMaxSize() {
+        return pluginInfoCacheMaxSize;
+    }
+
     public int getTestConnectTimeout() {
         return testConnectTimeout;
     }
@@ -508,6 +703,102 @@ public class EnvironmentContext implements InitializingBean {
         return fillDataRootTaskMaxLevel;
     }
 
+    public long getTaskDagCheckInterval() {
+        return taskDagCheckInterval;
+    }
+
+    public int getTaskDagLoadBatchSize() {
+        return taskDagLoadBatchSize;
+    }
+
+    public long getJobStatusCountFlushInterval() {
+        return jobStatusCountFlushInterval;
+    }
+
+    public long getJobStatusCountRefreshInterval() {
+        return jobStatusCountRefreshInterval;
+    }
+
+    public int getJobStatusCountDirtyMaxSize() {
+        return jobStatusCountDirtyMaxSize;
+    }
+
+    public boolean isOpenJobArchive() {
+        return openJobArchive;
+    }
+
+    public int getJobArchiveRetentionDays() {
+        return jobArchiveRetentionDays;
+    }
+
+    public int getJobArchiveBatchSize() {
+        return jobArchiveBatchSize;
+    }
+
+    public long getJobArchiveBatchInterval() {
+        return jobArchiveBatchInterval;
+    }
+
+    public int getJobArchiveMaxBatches() {
+        return jobArchiveMaxBatches;
+    }
+
+    public long getJobArchiveRunInterval() {
+        return jobArchiveRunInterval;
+    }
+
+    public boolean isOpenJobStatusJournal() {
+        return openJobStatusJournal;
+    }
+
+    public long getJobStatusJournalFlushInterval() {
+        return jobStatusJournalFlushInterval;
+    }
+
+    public int getJobStatusJournalMaxPending() {
+        return jobStatusJournalMaxPending;
+    }
+
+    public int getJobDelayWheelCapacity() {
+        return jobDelayWheelCapacity;
+    }
+
+    public int getStreamMetricQueryThread() {
+        return streamMetricQueryThread;
+    }
+
+    public long getStreamMetricQueryTimeout() {
+        return streamMetricQueryTimeout;
+    }
+
+    public long getPrometheusQueryCacheTtl() {
+        return prometheusQueryCacheTtl;
+    }
+
+    public long getPrometheusQueryCacheSize() {
+        return prometheusQueryCacheSize;
+    }
+
+    public boolean isDatasourceMetadataCacheEnable() {
+        return datasourceMetadataCacheEnable;
+    }
+
+    public long getDatasourceMetadataTableTtl() {
+        return datasourceMetadataTableTtl;
+    }
+
+    public long getDatasourceMetadataColumnTtl() {
+        return datasourceMetadataColumnTtl;
+    }
+
+    public long getDatasourcePreviewTtl() {
+        return datasourcePreviewTtl;
+    }
+
+    public long getDatasourceMetadataCacheSize() {
+        return datasourceMetadataCacheSize;
+    }
+
     public Integer getGraphBuildPoolCorePoolSize() {
         return graphBuildPoolCorePoolSize;
     }
@@ -528,6 +819,14 @@ public class EnvironmentContext implements InitializingBean {
         return jobGraphTaskLimitSize;
     }
 
+    public Integer getJobGraphWriterThread() {
+        return jobGraphWriterThread;
+    }
+
+    public Integer getJobGraphWriterBatchSize() {
+        return jobGraphWriterBatchSize;
+    }
+
     public String getCreateTableType() {
         return createTableType;
     }
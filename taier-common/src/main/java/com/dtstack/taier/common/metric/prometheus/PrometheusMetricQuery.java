@@ -48,10 +48,20 @@ public class PrometheusMetricQuery implements IMetricQuery {
 
     private String query;
 
+    /**
+     * 范围查询结果缓存，为空时不使用缓存
+     */
+    private PrometheusRangeCache rangeCache;
+
 
     public PrometheusMetricQuery() {
     }
 
+    public PrometheusMetricQuery(String prometheusAddr, PrometheusRangeCache rangeCache) {
+        this(prometheusAddr);
+        this.rangeCache = rangeCache;
+    }
+
     public PrometheusMetricQuery(String prometheusAddr) {
         if (!StringUtils.isEmpty(prometheusAddr)) {
             if (!prometheusAddr.startsWith("http://")) {
@@ -74,6 +84,22 @@ public class PrometheusMetricQuery implements IMetricQuery {
      */
     @Override
     public MetricResult queryRange(String metricName, long startTime, long endTime, QueryInfo queryInfo, String tagName) {
+        long step = PrometheusRangeCache.parseStep(queryInfo.getGranularity());
+        if (rangeCache == null || step <= 0) {
+            return doQueryRange(metricName, startTime, endTime, queryInfo, tagName);
+        }
+
+        String key;
+        try {
+            key = queryRange + AbsHttpQueryParamBuilder.buildQuery(metricName, queryInfo) + "&step=" + queryInfo.getGranularity() + "&tag=" + tagName;
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException("", e);
+        }
+        return rangeCache.queryRange(key, metricName, startTime, endTime, step,
+                (start, end) -> doQueryRange(metricName, start, end, queryInfo, tagName));
+    }
+
+    private MetricResult doQueryRange(String metricName, long startTime, long endTime, QueryInfo queryInfo, String tagName) {
         String urlParam = null;
         try {
             urlParam = HttpQueryRangeParamBuilder.builder(metricName, startTime, endTime, queryInfo);
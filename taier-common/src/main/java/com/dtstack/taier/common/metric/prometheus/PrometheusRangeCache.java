@@ -0,0 +1,208 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dtstack.taier.common.metric.prometheus;
+
+import com.dtstack.taier.common.metric.MetricData;
+import com.dtstack.taier.common.metric.MetricResult;
+import com.dtstack.taier.common.metric.Tuple;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Lists;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * prometheus 范围查询结果缓存
+ * <p>
+ * 按 (查询语句, step) 缓存时间序列，查询时间窗口按 step 对齐。
+ * 刷新时只查询缓存末尾到当前时间的增量数据并追加到序列中，
+ * ttl 内相同的查询直接使用缓存
+ */
+public class PrometheusRangeCache {
+
+    private static final Pattern STEP_PATTERN = Pattern.compile("^(\\d+)([smhdw])$");
+
+    private final long ttl;
+
+    private final Cache<String, Series> seriesCache;
+
+    public PrometheusRangeCache(long ttl, long maxSize) {
+        this.ttl = ttl;
+        this.seriesCache = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterAccess(10, TimeUnit.MINUTES)
+                .build();
+    }
+
+    /**
+     * 查询指定时间范围内的指标，优先使用缓存
+     *
+     * @param key       查询语句
+     * @param metricName 指标名称
+     * @param startTime 开始时间(ms)
+     * @param endTime   结束时间(ms)
+     * @param step      步长(ms)
+     * @param loader    实际查询 prometheus，参数为开始、结束时间
+     * @return 查询结果，查询失败时为 null
+     */
+    public MetricResult queryRange(String key, String metricName, long startTime, long endTime, long step,
+                                   BiFunction<Long, Long, MetricResult> loader) {
+        endTime = Math.min(endTime, System.currentTimeMillis());
+        long start = startTime / step * step;
+        long end = endTime / step * step;
+        if (end < start) {
+            return loader.apply(startTime, endTime);
+        }
+
+        Series series = seriesCache.asMap().computeIfAbsent(key, k -> new Series());
+        synchronized (series) {
+            long now = System.currentTimeMillis();
+            boolean contains = series.loaded && series.start <= start && series.end >= start;
+            if (contains && (series.end >= end || now - series.fetchTime < ttl)) {
+                return series.slice(metricName, start, end);
+            }
+
+            if (contains) {
+                // 增量查询，和缓存重叠最后一个点，覆盖上次查询时可能不完整的数据
+                long fetchStart = series.end;
+                MetricResult result = loader.apply(fetchStart, end);
+                if (result == null) {
+                    return series.slice(metricName, start, end);
+                }
+                series.merge(result, fetchStart);
+            } else {
+                MetricResult result = loader.apply(start, end);
+                if (result == null) {
+                    return null;
+                }
+                series.points.clear();
+                series.merge(result, start);
+            }
+            series.loaded = true;
+            series.start = start;
+            series.end = end;
+            series.fetchTime = now;
+            series.trim(start);
+            return series.slice(metricName, start, end);
+        }
+    }
+
+    /**
+     * 解析查询粒度，eg: 20s, 1m
+     *
+     * @return 步长(ms)，无法解析时返回 -1
+     */
+    public static long parseStep(String granularity) {
+        if (granularity == null) {
+            return -1L;
+        }
+        Matcher matcher = STEP_PATTERN.matcher(granularity.trim());
+        if (!matcher.find()) {
+            return -1L;
+        }
+        long value = Long.parseLong(matcher.group(1));
+        if (value <= 0) {
+            return -1L;
+        }
+        switch (matcher.group(2)) {
+            case "s":
+                return TimeUnit.SECONDS.toMillis(value);
+            case "m":
+                return TimeUnit.MINUTES.toMillis(value);
+            case "h":
+                return TimeUnit.HOURS.toMillis(value);
+            case "d":
+                return TimeUnit.DAYS.toMillis(value);
+            default:
+                return TimeUnit.DAYS.toMillis(value * 7);
+        }
+    }
+
+    private static class Series {
+
+        private boolean loaded;
+
+        private long start;
+
+        private long end;
+
+        private long fetchTime;
+
+        /**
+         * tagName -> 时间 -> 值
+         */
+        private final Map<String, TreeMap<Long, Double>> points = new LinkedHashMap<>();
+
+        @SuppressWarnings("unchecked")
+        private void merge(MetricResult result, long fetchStart) {
+            for (TreeMap<Long, Double> dps : points.values()) {
+                dps.tailMap(fetchStart, true).clear();
+            }
+            if (result.getMetricDataList() == null) {
+                return;
+            }
+            for (MetricData metricData : result.getMetricDataList()) {
+                TreeMap<Long, Double> dps = points.computeIfAbsent(metricData.getTagName(), k -> new TreeMap<>());
+                List<Tuple<Long, Double>> tuples = metricData.getDps();
+                if (tuples == null) {
+                    continue;
+                }
+                for (Tuple<Long, Double> tuple : tuples) {
+                    dps.put(tuple.getOne(), tuple.getTwo());
+                }
+            }
+        }
+
+        private void trim(long start) {
+            points.values().removeIf(dps -> {
+                dps.headMap(start, false).clear();
+                return dps.isEmpty();
+            });
+        }
+
+        private MetricResult slice(String metricName, long start, long end) {
+            List<MetricData> metricDataList = Lists.newArrayList();
+            for (Map.Entry<String, TreeMap<Long, Double>> entry : points.entrySet()) {
+                List<Tuple<Long, Double>> dps = Lists.newArrayList();
+                for (Map.Entry<Long, Double> point : entry.getValue().subMap(start, true, end, true).entrySet()) {
+                    dps.add(new Tuple<>(point.getKey(), point.getValue()));
+                }
+                if (dps.isEmpty()) {
+                    continue;
+                }
+                MetricData<Long, Double> metricData = new MetricData<>();
+                metricData.setTagName(entry.getKey());
+                metricData.setDps(dps);
+                metricDataList.add(metricData);
+            }
+
+            MetricResult metricResult = new MetricResult();
+            metricResult.setMetricName(metricName);
+            metricResult.setMetricDataList(metricDataList);
+            return metricResult;
+        }
+    }
+}
@@ -0,0 +1,366 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dtstack.taier.common.queue;
+
+import com.dtstack.taier.pluginapi.CustomThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 分层时间轮，元素到期后交给 expiredConsumer 处理，插入和取消都是 O(1)。
+ * 第 0 层每格 tickMs，第 n 层每格是第 n-1 层一圈的时长，超出当前层的元素放到上层，
+ * 上层的格子到期时降级到下层。所有时间轮共用一个 ticker 线程推进，
+ * 指定 executor 时到期元素交给 executor 处理，不占用 ticker 线程
+ *
+ * @param <E> 元素类型
+ */
+public class TimerWheel<E> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TimerWheel.class);
+
+    private static final int MAX_LEVELS = 6;
+
+    private static final ScheduledExecutorService TICKER = new ScheduledThreadPoolExecutor(1, new CustomThreadFactory("TimerWheelTicker"));
+
+    private static final Set<TimerWheel<?>> WHEELS = ConcurrentHashMap.newKeySet();
+
+    private final String name;
+
+    private final long tickMs;
+
+    private final int wheelSize;
+
+    /**
+     * 容量，小于等于 0 时不限制
+     */
+    private final int capacity;
+
+    private final Consumer<E> expiredConsumer;
+
+    private final Executor executor;
+
+    /**
+     * 每层一格对应的 tick 数
+     */
+    private final long[] intervals;
+
+    private final List<List<Bucket<E>>> levels = new ArrayList<>();
+
+    private final long startTime;
+
+    private final ScheduledFuture<?> tickFuture;
+
+    private long currentTick = 0L;
+
+    private int size = 0;
+
+    private final AtomicLong addCount = new AtomicLong(0);
+
+    private final AtomicLong expiredCount = new AtomicLong(0);
+
+    private final AtomicLong cancelCount = new AtomicLong(0);
+
+    private final AtomicLong dropCount = new AtomicLong(0);
+
+    private volatile long lastLag = 0L;
+
+    private volatile long maxLag = 0L;
+
+    private volatile long behindTicks = 0L;
+
+    public TimerWheel(String name, long tickMs, int wheelSize, Consumer<E> expiredConsumer) {
+        this(name, tickMs, wheelSize, 0, expiredConsumer, null);
+    }
+
+    /**
+     * @param name            名称
+     * @param tickMs          每格时长(ms)
+     * @param wheelSize       每层格数
+     * @param capacity        容量，小于等于 0 时不限制
+     * @param expiredConsumer 到期处理
+     * @param executor        执行到期处理的线程池，为空时在 ticker 线程处理，处理逻辑需要足够轻
+     */
+    public TimerWheel(String name, long tickMs, int wheelSize, int capacity, Consumer<E> expiredConsumer, Executor executor) {
+        if (tickMs <= 0 || wheelSize < 2) {
+            throw new IllegalArgumentException("tickMs must be positive and wheelSize must be at least 2");
+        }
+        this.name = name;
+        this.tickMs = tickMs;
+        this.wheelSize = wheelSize;
+        this.capacity = capacity;
+        this.expiredConsumer = expiredConsumer;
+        this.executor = executor;
+
+        List<Long> levelIntervals = new ArrayList<>();
+        long interval = 1L;
+        while (levelIntervals.size() < MAX_LEVELS) {
+            levelIntervals.add(interval);
+            if (interval > Long.MAX_VALUE / wheelSize / wheelSize) {
+                break;
+            }
+            interval *= wheelSize;
+        }
+        this.intervals = levelIntervals.stream().mapToLong(Long::longValue).toArray();
+        this.levels.add(newLevel());
+
+        this.startTime = now();
+        this.tickFuture = TICKER.scheduleAtFixedRate(this::advance, tickMs, tickMs, TimeUnit.MILLISECONDS);
+        WHEELS.add(this);
+    }
+
+    /**
+     * @param element 元素
+     * @param delayMs 延迟时间(ms)
+     * @return 定时句柄，可以用来取消；超过容量时返回 null
+     */
+    public Timeout<E> add(E element, long delayMs) {
+        long deadline = now() + Math.max(0L, delayMs);
+        synchronized (this) {
+            if (capacity > 0 && size >= capacity) {
+                dropCount.incrementAndGet();
+                LOGGER.warn("timer wheel {} is full, size:{} capacity:{}", name, size, capacity);
+                return null;
+            }
+            long deadlineTick = Math.max((deadline - startTime + tickMs - 1) / tickMs, currentTick + 1);
+            Timeout<E> timeout = new Timeout<>(this, element, deadline, deadlineTick);
+            place(timeout);
+            size++;
+            addCount.incrementAndGet();
+            return timeout;
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * 停止推进，未到期的元素不再处理
+     */
+    public void stop() {
+        tickFuture.cancel(false);
+        WHEELS.remove(this);
+    }
+
+    private synchronized boolean cancel(Timeout<E> timeout) {
+        if (timeout.bucket == null) {
+            return false;
+        }
+        timeout.bucket.remove(timeout);
+        size--;
+        cancelCount.incrementAndGet();
+        return true;
+    }
+
+    private void place(Timeout<E> timeout) {
+        long ticks = timeout.deadlineTick - currentTick;
+        int level = 0;
+        while (level < intervals.length - 1 && ticks >= intervals[level] * wheelSize) {
+            level++;
+        }
+        while (levels.size() <= level) {
+            levels.add(newLevel());
+        }
+        int index = (int) ((timeout.deadlineTick / intervals[level]) % wheelSize);
+        levels.get(level).get(index).add(timeout);
+    }
+
+    private void advance() {
+        List<Timeout<E>> expired = new ArrayList<>();
+        synchronized (this) {
+            long targetTick = (now() - startTime) / tickMs;
+            behindTicks = Math.max(0L, targetTick - currentTick - 1);
+            List<Timeout<E>> cascade = new ArrayList<>();
+            while (currentTick < targetTick) {
+                currentTick++;
+                // 先把上层当前格子降级，再处理第 0 层
+                for (int level = levels.size() - 1; level > 0; level--) {
+                    if (currentTick % intervals[level] == 0) {
+                        levels.get(level).get((int) ((currentTick / intervals[level]) % wheelSize)).drainTo(cascade);
+                        for (Timeout<E> timeout : cascade) {
+                            place(timeout);
+                        }
+                        cascade.clear();
+                    }
+                }
+                int before = expired.size();
+                levels.get(0).get((int) (currentTick % wheelSize)).drainTo(expired);
+                size -= expired.size() - before;
+            }
+        }
+
+        long now = now();
+        for (Timeout<E> timeout : expired) {
+            long lag = Math.max(0L, now - timeout.deadline);
+            lastLag = lag;
+            if (lag > maxLag) {
+                maxLag = lag;
+            }
+            expiredCount.incrementAndGet();
+            if (executor == null) {
+                consume(timeout.element);
+                continue;
+            }
+            try {
+                executor.execute(() -> consume(timeout.element));
+            } catch (RejectedExecutionException e) {
+                consume(timeout.element);
+            }
+        }
+    }
+
+    private void consume(E element) {
+        try {
+            expiredConsumer.accept(element);
+        } catch (Throwable e) {
+            LOGGER.error("timer wheel {} consume expired element error", name, e);
+        }
+    }
+
+    private List<Bucket<E>> newLevel() {
+        List<Bucket<E>> buckets = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            buckets.add(new Bucket<>());
+        }
+        return buckets;
+    }
+
+    private static long now() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>(16);
+        synchronized (this) {
+            metrics.put("size", size);
+            metrics.put("levels", levels.size());
+        }
+        metrics.put("name", name);
+        metrics.put("capacity", capacity);
+        metrics.put("tickMs", tickMs);
+        metrics.put("wheelSize", wheelSize);
+        metrics.put("addCount", addCount.get());
+        metrics.put("expiredCount", expiredCount.get());
+        metrics.put("cancelCount", cancelCount.get());
+        metrics.put("dropCount", dropCount.get());
+        metrics.put("lastLag", lastLag);
+        metrics.put("maxLag", maxLag);
+        metrics.put("behindTicks", behindTicks);
+        return metrics;
+    }
+
+    /**
+     * 当前进程所有时间轮的指标
+     */
+    public static List<Map<String, Object>> getAllMetrics() {
+        List<Map<String, Object>> metrics = new ArrayList<>(WHEELS.size());
+        for (TimerWheel<?> wheel : WHEELS) {
+            metrics.add(wheel.getMetrics());
+        }
+        return metrics;
+    }
+
+    /**
+     * 定时句柄
+     */
+    public static final class Timeout<E> {
+        private final TimerWheel<E> wheel;
+        private final E element;
+        private final long deadline;
+        private final long deadlineTick;
+        private Bucket<E> bucket;
+        private Timeout<E> prev;
+        private Timeout<E> next;
+
+        private Timeout(TimerWheel<E> wheel, E element, long deadline, long deadlineTick) {
+            this.wheel = wheel;
+            this.element = element;
+            this.deadline = deadline;
+            this.deadlineTick = deadlineTick;
+        }
+
+        public E getElement() {
+            return element;
+        }
+
+        /**
+         * @return 是否取消成功，已经到期或者已经取消时返回 false
+         */
+        public boolean cancel() {
+            return wheel.cancel(this);
+        }
+    }
+
+    /**
+     * 双向链表，head 为哨兵节点
+     */
+    private static final class Bucket<E> {
+        private final Timeout<E> head = new Timeout<>(null, null, 0L, 0L);
+
+        private Bucket() {
+            head.prev = head;
+            head.next = head;
+        }
+
+        private void add(Timeout<E> timeout) {
+            timeout.bucket = this;
+            timeout.prev = head.prev;
+            timeout.next = head;
+            head.prev.next = timeout;
+            head.prev = timeout;
+        }
+
+        private void remove(Timeout<E> timeout) {
+            timeout.prev.next = timeout.next;
+            timeout.next.prev = timeout.prev;
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+
+        private void drainTo(List<Timeout<E>> drained) {
+            Timeout<E> timeout = head.next;
+            while (timeout != head) {
+                Timeout<E> next = timeout.next;
+                remove(timeout);
+                drained.add(timeout);
+                timeout = next;
+            }
+        }
+    }
+}
@@ -39,6 +39,7 @@ public class JobClientUtil {
         if (paramAction.getPluginInfo() != null) {
             jobClient.setPluginInfo(JSONObject.toJSONString(paramAction.getPluginInfo()));
         }
+        jobClient.setPluginInfoMd5(paramAction.getPluginInfoMd5());
         if (jobClient.getTaskParams() != null) {
             jobClient.setConfProperties( PublicUtil.stringToProperties(jobClient.getTaskParams()));
         }
@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dtstack.taier.common.util;
+
+import com.dtstack.taier.common.exception.RdosDefineException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 日志压缩存储：超过阈值的日志 gzip 后 base64 保存，带前缀标识，
+ * 没有前缀的历史日志按原文读取
+ */
+public class LogCompressUtil {
+
+    private static final String COMPRESS_PREFIX = "gzip:";
+
+    /**
+     * 小于该长度的日志不压缩
+     */
+    private static final int COMPRESS_THRESHOLD = 4096;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final String TRUNCATE_TEMPLATE = "\n...... 日志过长，省略 %d 个字符 ......\n";
+
+    public static boolean isCompressed(String value) {
+        return value != null && value.startsWith(COMPRESS_PREFIX);
+    }
+
+    public static String compress(String log) {
+        if (log == null || log.length() < COMPRESS_THRESHOLD || isCompressed(log)) {
+            return log;
+        }
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(log.length() / 4);
+        try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(Base64.getEncoder().wrap(bos), BUFFER_SIZE), StandardCharsets.UTF_8)) {
+            writer.write(log);
+        } catch (IOException e) {
+            throw new RdosDefineException("compress log error", e);
+        }
+        return COMPRESS_PREFIX + new String(bos.toByteArray(), StandardCharsets.ISO_8859_1);
+    }
+
+    public static String decompress(String value) {
+        if (!isCompressed(value)) {
+            return value;
+        }
+        StringBuilder log = new StringBuilder(value.length() * 4);
+        char[] buffer = new char[BUFFER_SIZE];
+        try (Reader reader = openReader(value)) {
+            int len;
+            while ((len = reader.read(buffer)) != -1) {
+                log.append(buffer, 0, len);
+            }
+        } catch (IOException e) {
+            throw new RdosDefineException("decompress log error", e);
+        }
+        return log.toString();
+    }
+
+    /**
+     * 边读边解压，不需要把完整日志放到内存中
+     */
+    public static Reader openReader(String value) throws IOException {
+        if (!isCompressed(value)) {
+            return new StringReader(value == null ? "" : value);
+        }
+        byte[] data = value.substring(COMPRESS_PREFIX.length()).getBytes(StandardCharsets.ISO_8859_1);
+        return new InputStreamReader(new GZIPInputStream(Base64.getDecoder().wrap(new ByteArrayInputStream(data)), BUFFER_SIZE), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 超过最大长度时保留头尾各一半，中间省略
+     *
+     * @param log       日志
+     * @param maxLength 最大字符数，小于等于0不限制
+     */
+    public static String truncate(String log, int maxLength) {
+        if (log == null || maxLength <= 0 || log.length() <= maxLength) {
+            return log;
+        }
+        int half = maxLength / 2;
+        return log.substring(0, half)
+                + String.format(TRUNCATE_TEMPLATE, log.length() - half * 2)
+                + log.substring(log.length() - half);
+    }
+}
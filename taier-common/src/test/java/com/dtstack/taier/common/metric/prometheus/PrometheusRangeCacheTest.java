@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dtstack.taier.common.metric.prometheus;
+
+import com.dtstack.taier.common.metric.MetricData;
+import com.dtstack.taier.common.metric.MetricResult;
+import com.dtstack.taier.common.metric.Tuple;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiFunction;
+
+public class PrometheusRangeCacheTest {
+
+    private static final String KEY = "sum(rate(metric[1m]))";
+
+    private static final String METRIC_NAME = "metric";
+
+    private static final long STEP = 1000L;
+
+    private static final long BASE = 1600000000000L;
+
+    @Test
+    public void testFullLoad() {
+        PrometheusRangeCache cache = new PrometheusRangeCache(60000L, 10L);
+        StubLoader loader = new StubLoader(1.0);
+
+        MetricResult result = cache.queryRange(KEY, METRIC_NAME, BASE + 300, BASE + 10000 + 300, STEP, loader);
+        // 时间窗口按 step 对齐
+        Assert.assertEquals(1, loader.calls.size());
+        Assert.assertArrayEquals(new long[]{BASE, BASE + 10000}, loader.calls.get(0));
+        Assert.assertEquals(METRIC_NAME, result.getMetricName());
+        assertPoints(result, BASE, BASE + 10000, 1.0);
+    }
+
+    @Test
+    public void testHitWithinTtl() {
+        PrometheusRangeCache cache = new PrometheusRangeCache(60000L, 10L);
+        StubLoader loader = new StubLoader(1.0);
+
+        cache.queryRange(KEY, METRIC_NAME, BASE, BASE + 10000, STEP, loader);
+        MetricResult result = cache.queryRange(KEY, METRIC_NAME, BASE, BASE + 10000, STEP, loader);
+        Assert.assertEquals(1, loader.calls.size());
+        assertPoints(result, BASE, BASE + 10000, 1.0);
+
+        // ttl 内窗口向后移动也直接使用缓存
+        result = cache.queryRange(KEY, METRIC_NAME, BASE + 2000, BASE + 12000, STEP, loader);
+        Assert.assertEquals(1, loader.calls.size());
+        assertPoints(result, BASE + 2000, BASE + 10000, 1.0);
+    }
+
+    @Test
+    public void testIncrementalAppendReplaceLastPoint() {
+        PrometheusRangeCache cache = new PrometheusRangeCache(0L, 10L);
+        StubLoader loader = new StubLoader(1.0);
+        cache.queryRange(KEY, METRIC_NAME, BASE, BASE + 10000, STEP, loader);
+
+        loader.value = 2.0;
+        MetricResult result = cache.queryRange(KEY, METRIC_NAME, BASE, BASE + 15000, STEP, loader);
+        // 只查询缓存末尾到结束时间的数据，末尾的点重新查询
+        Assert.assertEquals(2, loader.calls.size());
+        Assert.assertArrayEquals(new long[]{BASE + 10000, BASE + 15000}, loader.calls.get(1));
+
+        List<Tuple<Long, Double>> dps = getDps(result);
+        Assert.assertEquals(16, dps.size());
+        for (Tuple<Long, Double> dp : dps) {
+            Assert.assertEquals(dp.getOne() < BASE + 10000 ? 1.0 : 2.0, dp.getTwo(), 0.0);
+        }
+    }
+
+    @Test
+    public void testShiftedStartTrimOldPoints() {
+        PrometheusRangeCache cache = new PrometheusRangeCache(0L, 10L);
+        StubLoader loader = new StubLoader(1.0);
+        cache.queryRange(KEY, METRIC_NAME, BASE, BASE + 10000, STEP, loader);
+
+        MetricResult result = cache.queryRange(KEY, METRIC_NAME, BASE + 5000, BASE + 15000, STEP, loader);
+        Assert.assertEquals(2, loader.calls.size());
+        Assert.assertArrayEquals(new long[]{BASE + 10000, BASE + 15000}, loader.calls.get(1));
+        assertPoints(result, BASE + 5000, BASE + 15000, 1.0);
+
+        // 开始时间之前的点已经清除，再查询更早的窗口需要全量查询
+        cache.queryRange(KEY, METRIC_NAME, BASE, BASE + 15000, STEP, loader);
+        Assert.assertEquals(3, loader.calls.size());
+        Assert.assertArrayEquals(new long[]{BASE, BASE + 15000}, loader.calls.get(2));
+    }
+
+    @Test
+    public void testLoaderReturnNull() {
+        PrometheusRangeCache cache = new PrometheusRangeCache(0L, 10L);
+        StubLoader loader = new StubLoader(1.0);
+        loader.fail = true;
+        Assert.assertNull(cache.queryRange(KEY, METRIC_NAME, BASE, BASE + 10000, STEP, loader));
+
+        // 全量查询失败不会缓存
+        loader.fail = false;
+        cache.queryRange(KEY, METRIC_NAME, BASE, BASE + 10000, STEP, loader);
+        Assert.assertEquals(2, loader.calls.size());
+        Assert.assertArrayEquals(new long[]{BASE, BASE + 10000}, loader.calls.get(1));
+
+        // 增量查询失败时返回已缓存的数据
+        loader.fail = true;
+        MetricResult result = cache.queryRange(KEY, METRIC_NAME, BASE, BASE + 15000, STEP, loader);
+        Assert.assertEquals(3, loader.calls.size());
+        assertPoints(result, BASE, BASE + 10000, 1.0);
+    }
+
+    private static void assertPoints(MetricResult result, long start, long end, double value) {
+        List<Tuple<Long, Double>> dps = getDps(result);
+        Assert.assertEquals((end - start) / STEP + 1, dps.size());
+        long time = start;
+        for (Tuple<Long, Double> dp : dps) {
+            Assert.assertEquals(Long.valueOf(time), dp.getOne());
+            Assert.assertEquals(value, dp.getTwo(), 0.0);
+            time += STEP;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Tuple<Long, Double>> getDps(MetricResult result) {
+        Assert.assertEquals(1, result.getMetricDataList().size());
+        MetricData<Long, Double> metricData = result.getMetricDataList().get(0);
+        Assert.assertEquals("job", metricData.getTagName());
+        return metricData.getDps();
+    }
+
+    /**
+     * 按 step 生成 [start, end] 内值固定的点，记录每次查询的时间范围
+     */
+    private static class StubLoader implements BiFunction<Long, Long, MetricResult> {
+
+        private final List<long[]> calls = new ArrayList<>();
+
+        private double value;
+
+        private boolean fail;
+
+        private StubLoader(double value) {
+            this.value = value;
+        }
+
+        @Override
+        public MetricResult apply(Long start, Long end) {
+            calls.add(new long[]{start, end});
+            if (fail) {
+                return null;
+            }
+            List<Tuple<Long, Double>> dps = new ArrayList<>();
+            for (long time = start; time <= end; time += STEP) {
+                dps.add(new Tuple<>(time, value));
+            }
+            MetricData<Long, Double> metricData = new MetricData<>();
+            metricData.setTagName("job");
+            metricData.setDps(dps);
+            MetricResult result = new MetricResult();
+            result.setMetricName(METRIC_NAME);
+            result.setMetricDataList(Collections.singletonList(metricData));
+            return result;
+        }
+    }
+}
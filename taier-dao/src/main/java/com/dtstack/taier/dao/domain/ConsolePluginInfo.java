@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dtstack.taier.dao.domain;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+
+import java.sql.Timestamp;
+
+/**
+ * 提交任务使用的完整集群配置，按内容 md5 去重保存，
+ * 实例只保存 md5 引用
+ */
+@TableName("console_plugin_info")
+public class ConsolePluginInfo {
+
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 集群id
+     */
+    private Long clusterId;
+
+    /**
+     * 计算组件类型
+     */
+    private Integer componentTypeCode;
+
+    /**
+     * 组件版本
+     */
+    private String componentVersion;
+
+    /**
+     * 运行模式
+     */
+    private Integer deployMode;
+
+    /**
+     * pluginInfo 的 md5
+     */
+    private String md5;
+
+    /**
+     * 完整的 pluginInfo
+     */
+    private String pluginInfo;
+
+    private Timestamp gmtCreate;
+
+    private Timestamp gmtModified;
+
+    private Integer isDeleted;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getClusterId() {
+        return clusterId;
+    }
+
+    public void setClusterId(Long clusterId) {
+        this.clusterId = clusterId;
+    }
+
+    public Integer getComponentTypeCode() {
+        return componentTypeCode;
+    }
+
+    public void setComponentTypeCode(Integer componentTypeCode) {
+        this.componentTypeCode = componentTypeCode;
+    }
+
+    public String getComponentVersion() {
+        return componentVersion;
+    }
+
+    public void setComponentVersion(String componentVersion) {
+        this.componentVersion = componentVersion;
+    }
+
+    public Integer getDeployMode() {
+        return deployMode;
+    }
+
+    public void setDeployMode(Integer deployMode) {
+        this.deployMode = deployMode;
+    }
+
+    public String getMd5() {
+        return md5;
+    }
+
+    public void setMd5(String md5) {
+        this.md5 = md5;
+    }
+
+    public String getPluginInfo() {
+        return pluginInfo;
+    }
+
+    public void setPluginInfo(String pluginInfo) {
+        this.pluginInfo = pluginInfo;
+    }
+
+    public Timestamp getGmtCreate() {
+        return gmtCreate;
+    }
+
+    public void setGmtCreate(Timestamp gmtCreate) {
+        this.gmtCreate = gmtCreate;
+    }
+
+    public Timestamp getGmtModified() {
+        return gmtModified;
+    }
+
+    public void setGmtModified(Timestamp gmtModified) {
+        this.gmtModified = gmtModified;
+    }
+
+    public Integer getIsDeleted() {
+        return isDeleted;
+    }
+
+    public void setIsDeleted(Integer isDeleted) {
+        this.isDeleted = isDeleted;
+    }
+}
@@ -74,6 +74,11 @@ public class ScheduleEngineJobCache {
      */
     private String waitReason;
 
+    /**
+     * 重试、资源不足延迟队列的到期时间(ms)
+     */
+    private Long delayExpireTime;
+
     /**
      * 租户 id
      */
@@ -182,6 +187,14 @@ public class ScheduleEngineJobCache {
         this.waitReason = waitReason;
     }
 
+    public Long getDelayExpireTime() {
+        return delayExpireTime;
+    }
+
+    public void setDelayExpireTime(Long delayExpireTime) {
+        this.delayExpireTime = delayExpireTime;
+    }
+
     public Timestamp getGmtCreate() {
         return gmtCreate;
     }
@@ -1,8 +1,10 @@
 package com.dtstack.taier.dao.domain;
 
 import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
 import com.baomidou.mybatisplus.annotation.TableId;
 import com.baomidou.mybatisplus.annotation.TableName;
+import com.dtstack.taier.dao.handler.CompressLogTypeHandler;
 
 import java.io.Serializable;
 import java.sql.Timestamp;
@@ -13,7 +15,7 @@ import java.sql.Timestamp;
  * @Email:dazhi@dtstack.com
  * @Description:
  */
-@TableName(value = "schedule_job_expand")
+@TableName(value = "schedule_job_expand", autoResultMap = true)
 public class ScheduleJobExpand implements Serializable {
 
     private static final long serialVersionUID = 228195023307246450L;
@@ -35,8 +37,9 @@ public class ScheduleJobExpand implements Serializable {
     private String jobExtraInfo;
 
     /**
-     * 引擎日志
+     * 引擎日志，压缩保存
      */
+    @TableField(typeHandler = CompressLogTypeHandler.class)
     private String engineLog;
 
     /**
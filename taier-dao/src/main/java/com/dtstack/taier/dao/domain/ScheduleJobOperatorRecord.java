@@ -66,6 +66,11 @@ public class ScheduleJobOperatorRecord {
      */
     private String nodeAddress;
 
+    /**
+     * 所属批量停止的id，为空时不记录停止进度
+     */
+    private String stopId;
+
     /**
      * 创建时间
      */
@@ -137,6 +142,14 @@ public class ScheduleJobOperatorRecord {
         this.nodeAddress = nodeAddress;
     }
 
+    public String getStopId() {
+        return stopId;
+    }
+
+    public void setStopId(String stopId) {
+        this.stopId = stopId;
+    }
+
     public Timestamp getGmtCreate() {
         return gmtCreate;
     }
@@ -166,12 +179,12 @@ public class ScheduleJobOperatorRecord {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         ScheduleJobOperatorRecord that = (ScheduleJobOperatorRecord) o;
-        return Objects.equals(id, that.id) && Objects.equals(jobId, that.jobId) && Objects.equals(version, that.version) && Objects.equals(operatorExpired, that.operatorExpired) && Objects.equals(operatorType, that.operatorType) && Objects.equals(forceCancelFlag, that.forceCancelFlag) && Objects.equals(nodeAddress, that.nodeAddress) && Objects.equals(gmtCreate, that.gmtCreate) && Objects.equals(gmtModified, that.gmtModified) && Objects.equals(isDeleted, that.isDeleted);
+        return Objects.equals(id, that.id) && Objects.equals(jobId, that.jobId) && Objects.equals(version, that.version) && Objects.equals(operatorExpired, that.operatorExpired) && Objects.equals(operatorType, that.operatorType) && Objects.equals(forceCancelFlag, that.forceCancelFlag) && Objects.equals(nodeAddress, that.nodeAddress) && Objects.equals(stopId, that.stopId) && Objects.equals(gmtCreate, that.gmtCreate) && Objects.equals(gmtModified, that.gmtModified) && Objects.equals(isDeleted, that.isDeleted);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, jobId, version, operatorExpired, operatorType, forceCancelFlag, nodeAddress, gmtCreate, gmtModified, isDeleted);
+        return Objects.hash(id, jobId, version, operatorExpired, operatorType, forceCancelFlag, nodeAddress, stopId, gmtCreate, gmtModified, isDeleted);
     }
 
     @Override
@@ -184,6 +197,7 @@ public class ScheduleJobOperatorRecord {
                 ", operatorType=" + operatorType +
                 ", forceCancelFlag=" + forceCancelFlag +
                 ", nodeAddress='" + nodeAddress + '\'' +
+                ", stopId='" + stopId + '\'' +
                 ", gmtCreate=" + gmtCreate +
                 ", gmtModified=" + gmtModified +
                 ", isDeleted=" + isDeleted +
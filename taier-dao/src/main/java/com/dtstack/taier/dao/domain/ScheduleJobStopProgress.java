@@ -0,0 +1,216 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dtstack.taier.dao.domain;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+
+import java.sql.Timestamp;
+
+/**
+ * 批量停止进度，多个节点共用，停止记录容灾迁移到其他节点后仍然可以继续统计
+ */
+@TableName("schedule_job_stop_progress")
+public class ScheduleJobStopProgress {
+
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 批量停止id
+     */
+    private String stopId;
+
+    /**
+     * 批量停止名称
+     */
+    private String name;
+
+    /**
+     * 发起停止的节点
+     */
+    private String nodeAddress;
+
+    /**
+     * 已经选出的实例数
+     */
+    private Integer total;
+
+    /**
+     * 未提交直接置为取消的实例数
+     */
+    private Integer canceled;
+
+    /**
+     * 已提交需要向集群发送停止请求的实例数
+     */
+    private Integer stopping;
+
+    /**
+     * 集群上已经停止的实例数
+     */
+    private Integer stopped;
+
+    /**
+     * 超过重试次数仍未停止的实例数
+     */
+    private Integer failed;
+
+    /**
+     * 实例是否已经全部选出 0否 1是
+     */
+    private Integer selectFinished;
+
+    /**
+     * 选出实例时的异常信息
+     */
+    private String errorMsg;
+
+    /**
+     * 全部停止结束的时间
+     */
+    private Timestamp finishTime;
+
+    private Timestamp gmtCreate;
+
+    private Timestamp gmtModified;
+
+    private Integer isDeleted;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getStopId() {
+        return stopId;
+    }
+
+    public void setStopId(String stopId) {
+        this.stopId = stopId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getNodeAddress() {
+        return nodeAddress;
+    }
+
+    public void setNodeAddress(String nodeAddress) {
+        this.nodeAddress = nodeAddress;
+    }
+
+    public Integer getTotal() {
+        return total;
+    }
+
+    public void setTotal(Integer total) {
+        this.total = total;
+    }
+
+    public Integer getCanceled() {
+        return canceled;
+    }
+
+    public void setCanceled(Integer canceled) {
+        this.canceled = canceled;
+    }
+
+    public Integer getStopping() {
+        return stopping;
+    }
+
+    public void setStopping(Integer stopping) {
+        this.stopping = stopping;
+    }
+
+    public Integer getStopped() {
+        return stopped;
+    }
+
+    public void setStopped(Integer stopped) {
+        this.stopped = stopped;
+    }
+
+    public Integer getFailed() {
+        return failed;
+    }
+
+    public void setFailed(Integer failed) {
+        this.failed = failed;
+    }
+
+    public Integer getSelectFinished() {
+        return selectFinished;
+    }
+
+    public void setSelectFinished(Integer selectFinished) {
+        this.selectFinished = selectFinished;
+    }
+
+    public String getErrorMsg() {
+        return errorMsg;
+    }
+
+    public void setErrorMsg(String errorMsg) {
+        this.errorMsg = errorMsg;
+    }
+
+    public Timestamp getFinishTime() {
+        return finishTime;
+    }
+
+    public void setFinishTime(Timestamp finishTime) {
+        this.finishTime = finishTime;
+    }
+
+    public Timestamp getGmtCreate() {
+        return gmtCreate;
+    }
+
+    public void setGmtCreate(Timestamp gmtCreate) {
+        this.gmtCreate = gmtCreate;
+    }
+
+    public Timestamp getGmtModified() {
+        return gmtModified;
+    }
+
+    public void setGmtModified(Timestamp gmtModified) {
+        this.gmtModified = gmtModified;
+    }
+
+    public Integer getIsDeleted() {
+        return isDeleted;
+    }
+
+    public void setIsDeleted(Integer isDeleted) {
+        this.isDeleted = isDeleted;
+    }
+}
@@ -0,0 +1,91 @@
+package com.dtstack.taier.dao.domain.po;
+
+/**
+ * 实例当前状态和已计数的状态，两者不同时需要调整状态计数
+ */
+public class JobStatusCountChangePO {
+
+    private String jobId;
+
+    private Long tenantId;
+
+    /**计划日期 yyyyMMdd**/
+    private String cycDay;
+
+    private Integer type;
+
+    private Integer taskType;
+
+    /**实例没有周期类型时为 -1**/
+    private Integer periodType;
+
+    /**当前状态**/
+    private Integer status;
+
+    /**已经计入状态计数的状态，为空表示还没有计数**/
+    private Integer countedStatus;
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+
+    public Long getTenantId() {
+        return tenantId;
+    }
+
+    public void setTenantId(Long tenantId) {
+        this.tenantId = tenantId;
+    }
+
+    public String getCycDay() {
+        return cycDay;
+    }
+
+    public void setCycDay(String cycDay) {
+        this.cycDay = cycDay;
+    }
+
+    public Integer getType() {
+        return type;
+    }
+
+    public void setType(Integer type) {
+        this.type = type;
+    }
+
+    public Integer getTaskType() {
+        return taskType;
+    }
+
+    public void setTaskType(Integer taskType) {
+        this.taskType = taskType;
+    }
+
+    public Integer getPeriodType() {
+        return periodType;
+    }
+
+    public void setPeriodType(Integer periodType) {
+        this.periodType = periodType;
+    }
+
+    public Integer getStatus() {
+        return status;
+    }
+
+    public void setStatus(Integer status) {
+        this.status = status;
+    }
+
+    public Integer getCountedStatus() {
+        return countedStatus;
+    }
+
+    public void setCountedStatus(Integer countedStatus) {
+        this.countedStatus = countedStatus;
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dtstack.taier.dao.mapper;
+
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
+import com.baomidou.mybatisplus.core.toolkit.Constants;
+import com.dtstack.taier.dao.domain.ScheduleJob;
+import com.dtstack.taier.dao.domain.ScheduleJobJob;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * 归档表 schedule_job_archive、schedule_job_job_archive 与在线表结构相同，
+ * 查询条件直接复用在线表的 Wrapper
+ */
+public interface ScheduleJobArchiveMapper {
+
+    /**
+     * 查询归档实例
+     */
+    List<ScheduleJob> selectJobList(@Param(Constants.WRAPPER) Wrapper<ScheduleJob> wrapper);
+
+    /**
+     * 统计归档实例数
+     */
+    Long selectJobCount(@Param(Constants.WRAPPER) Wrapper<ScheduleJob> wrapper);
+
+    /**
+     * 查询归档实例的依赖关系
+     */
+    List<ScheduleJobJob> selectJobJobList(@Param(Constants.WRAPPER) Wrapper<ScheduleJobJob> wrapper);
+
+    /**
+     * 查询可以归档的实例，按 id 游标分批
+     *
+     * @param startId      起始 id
+     * @param cycEndTime   计划时间早于该时间的实例
+     * @param type         实例类型
+     * @param statusList   已经结束的状态
+     * @param limit        批次大小
+     * @return 实例 id、jobKey
+     */
+    List<ScheduleJob> listArchivableJob(@Param("startId") Long startId, @Param("cycEndTime") String cycEndTime, @Param("type") Integer type,
+                                        @Param("statusList") List<Integer> statusList, @Param("limit") Integer limit);
+
+    /**
+     * 在事务内重新检查并锁定仍然可以归档的实例，查询之后重跑或者状态变化的实例不会被选中
+     *
+     * @return 实例 id、jobKey
+     */
+    List<ScheduleJob> lockArchivableJob(@Param("ids") List<Long> ids, @Param("cycEndTime") String cycEndTime, @Param("type") Integer type,
+                                        @Param("statusList") List<Integer> statusList);
+
+    Integer copyJob(@Param("ids") List<Long> ids, @Param("cycEndTime") String cycEndTime, @Param("type") Integer type,
+                    @Param("statusList") List<Integer> statusList);
+
+    Integer copyJobJob(@Param("jobKeys") List<String> jobKeys);
+
+    Integer deleteJob(@Param("ids") List<Long> ids, @Param("cycEndTime") String cycEndTime, @Param("type") Integer type,
+                      @Param("statusList") List<Integer> statusList);
+
+    Integer deleteJobJob(@Param("jobKeys") List<String> jobKeys);
+
+    /**
+     * 表的估算行数
+     */
+    Long getTableRows(@Param("tableName") String tableName);
+}
@@ -18,4 +18,9 @@ public interface ScheduleJobExpandMapper extends BaseMapper<ScheduleJobExpand> {
                               @Param("isDeleted") Integer isDeleted,
                               @Param("logInfo") String logInfo,
                               @Param("engineLog") String engineLog);
+
+    /**
+     * 查询库中保存的原始引擎日志，可能是压缩后的内容
+     */
+    String getStoredEngineLog(@Param("jobId") String jobId);
 }
@@ -31,6 +31,17 @@ public interface ScheduleJobMapper extends BaseMapper<ScheduleJob> {
 
     Integer updateJobStatusByJobIds(@Param("jobIds") List<String> jobIds, @Param("status") Integer status);
 
+    /**
+     * 延迟写入的中间状态，实例当前状态在 ignoreStatus 中时不覆盖
+     *
+     * @param jobIds       实例id
+     * @param status       状态
+     * @param ignoreStatus 不能被覆盖的状态
+     * @return 更新数
+     */
+    Integer updateJournalStatusByJobIds(@Param("jobIds") List<String> jobIds, @Param("status") Integer status,
+                                        @Param("ignoreStatus") List<Integer> ignoreStatus);
+
     /**
      * 获得补数据实例运行的全部状态
      *
@@ -92,6 +103,18 @@ public interface ScheduleJobMapper extends BaseMapper<ScheduleJob> {
      */
     List<ScheduleJob> listAfterOrBeforeJobs(@Param("taskId") Long taskId, @Param("isAfter") Boolean isAfter, @Param("cycTime") String cycTime, @Param("type") Integer type);
 
+    /**
+     * 按计划时间范围分页查询实例key，用于生成周期实例时预加载上游实例
+     *
+     * @param startId      开始id
+     * @param cycStartTime 开始计划时间(包含)
+     * @param cycEndTime   结束计划时间(不包含)
+     * @param type         实例类型
+     * @param limit        每页大小
+     * @return 只包含 id 和 job_key 的实例
+     */
+    List<ScheduleJob> listJobKeyByCycTime(@Param("startId") Long startId, @Param("cycStartTime") String cycStartTime, @Param("cycEndTime") String cycEndTime, @Param("type") Integer type, @Param("limit") Integer limit);
+
     /**
      * 更新实例队列状态，队列状态字段JobPhaseStatus，用于控制周期实例扫描时实例进队出队
      *
@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dtstack.taier.dao.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.dtstack.taier.dao.domain.ScheduleJobStatusCount;
+import com.dtstack.taier.dao.domain.po.JobStatusCountChangePO;
+import com.dtstack.taier.dao.domain.po.JobsStatusStatisticsPO;
+import com.dtstack.taier.dao.domain.po.StatusCountPO;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface ScheduleJobStatusCountMapper extends BaseMapper<ScheduleJobStatusCount> {
+
+    /**
+     * 从实例表按租户、计划日期、实例类型、任务类型、周期类型、状态重新统计
+     *
+     * @param tenantId     租户id，为空时统计所有租户
+     * @param cycStartTime 开始计划时间
+     * @param cycEndTime   结束计划时间
+     * @param fillTypeList 统计的补数据类型
+     * @return 计数
+     */
+    List<ScheduleJobStatusCount> countFromScheduleJob(@Param("tenantId") Long tenantId, @Param("cycStartTime") String cycStartTime,
+                                                      @Param("cycEndTime") String cycEndTime, @Param("fillTypeList") List<Integer> fillTypeList);
+
+    /**
+     * 计数已存在时覆盖
+     */
+    Integer upsertBatch(@Param("list") List<ScheduleJobStatusCount> list);
+
+    /**
+     * 计数已存在时累加，jobCount 可以为负数
+     */
+    Integer addBatch(@Param("list") List<ScheduleJobStatusCount> list);
+
+    /**
+     * 查询当前状态和已计数状态不同的实例
+     */
+    List<JobStatusCountChangePO> listCountChange(@Param("jobIds") Collection<String> jobIds, @Param("fillTypeList") List<Integer> fillTypeList);
+
+    /**
+     * 实例状态已经计入计数，countedStatus 与读取时不一致或状态已经变化时不更新
+     *
+     * @return 更新条数，0 表示状态已经变化
+     */
+    Integer markCounted(@Param("jobId") String jobId, @Param("countedStatus") Integer countedStatus, @Param("status") Integer status);
+
+    /**
+     * 计划时间范围内的实例全部标记为已计数，重新统计前调用，同时锁住这些实例
+     */
+    Integer markCountedByCycTime(@Param("tenantId") Long tenantId, @Param("cycStartTime") String cycStartTime,
+                                 @Param("cycEndTime") String cycEndTime, @Param("fillTypeList") List<Integer> fillTypeList);
+
+    /**
+     * 查询已经有计数的计划日期
+     */
+    List<String> listCountedDay(@Param("tenantId") Long tenantId, @Param("startDay") String startDay, @Param("endDay") String endDay);
+
+    /**
+     * 按状态汇总计数
+     */
+    List<StatusCountPO> sumStatusCount(@Param("statistics") JobsStatusStatisticsPO statistics, @Param("startDay") String startDay, @Param("endDay") String endDay);
+}
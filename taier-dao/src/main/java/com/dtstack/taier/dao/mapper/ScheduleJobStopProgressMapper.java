@@ -0,0 +1,48 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dtstack.taier.dao.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.dtstack.taier.dao.domain.ScheduleJobStopProgress;
+import org.apache.ibatis.annotations.Param;
+
+import java.sql.Timestamp;
+
+public interface ScheduleJobStopProgressMapper extends BaseMapper<ScheduleJobStopProgress> {
+
+    /**
+     * 累加选出的实例数
+     */
+    Integer addSelected(@Param("stopId") String stopId, @Param("total") int total, @Param("canceled") int canceled, @Param("stopping") int stopping);
+
+    /**
+     * 累加停止结果，实例全部选出并且停止全部结束时记录结束时间
+     */
+    Integer addStopped(@Param("stopId") String stopId, @Param("stopped") int stopped, @Param("failed") int failed);
+
+    /**
+     * 实例全部选出
+     */
+    Integer selectFinish(@Param("stopId") String stopId, @Param("errorMsg") String errorMsg);
+
+    /**
+     * 删除创建时间早于 expiredTime 的进度
+     */
+    Integer deleteExpired(@Param("expiredTime") Timestamp expiredTime);
+}
@@ -20,6 +20,9 @@ package com.dtstack.taier.dao.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.dtstack.taier.dao.domain.ScheduleTaskTaskShade;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
 
 /**
  * company: www.dtstack.com
@@ -27,4 +30,20 @@ import com.dtstack.taier.dao.domain.ScheduleTaskTaskShade;
  * create: 2019/10/22
  */
 public interface ScheduleTaskTaskShadeMapper extends BaseMapper<ScheduleTaskTaskShade> {
+
+    /**
+     * 按 id 分批查询所有依赖关系，只查询 id、task_id、parent_task_id
+     *
+     * @param startId 上一批最大 id
+     * @param limit   每批条数
+     * @return 依赖关系
+     */
+    List<ScheduleTaskTaskShade> listEdgeByStartId(@Param("startId") Long startId, @Param("limit") Integer limit);
+
+    /**
+     * 依赖关系表的版本标识：条数、最大 id、最大修改时间，任意一个变化说明依赖关系有修改
+     *
+     * @return 版本标识
+     */
+    String getEdgeVersion();
 }
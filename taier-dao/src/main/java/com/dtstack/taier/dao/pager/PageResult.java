@@ -14,6 +14,10 @@ public class PageResult<T> {
     private long totalCount;
     private int totalPage;
     private T data;
+    /**
+     * 游标翻页时下一页的游标，没有下一页时为空
+     */
+    private Long nextCursorId;
 
     private PageResult() {
     }
@@ -105,6 +109,15 @@ public class PageResult<T> {
     }
 
 
+    public Long getNextCursorId() {
+        return nextCursorId;
+    }
+
+    public PageResult<T> setNextCursorId(Long nextCursorId) {
+        this.nextCursorId = nextCursorId;
+        return this;
+    }
+
     @Override
     public String toString() {
         return "PageResult{" +
@@ -112,6 +125,7 @@ public class PageResult<T> {
                 ", pageSize=" + pageSize +
                 ", totalCount=" + totalCount +
                 ", totalPage=" + totalPage +
+                ", nextCursorId=" + nextCursorId +
                 ", data=" + data +
                 '}';
     }
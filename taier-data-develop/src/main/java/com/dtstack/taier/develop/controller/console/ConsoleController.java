@@ -72,6 +72,42 @@ public class ConsoleController {
         return R.ok(consoleService.jobResources());
     }
 
+    @PostMapping(value="/submitMetrics")
+    @ApiOperation(value = "当前节点任务提交队列指标")
+    public R<List<Map<String, Object>>> submitMetrics() {
+        return R.ok(consoleService.submitMetrics());
+    }
+
+    @PostMapping(value="/jobCacheIndexMetrics")
+    @ApiOperation(value = "当前节点任务缓存索引指标")
+    public R<Map<String, Object>> jobCacheIndexMetrics() {
+        return R.ok(consoleService.jobCacheIndexMetrics());
+    }
+
+    @PostMapping(value="/queueInfoMetrics")
+    @ApiOperation(value = "各节点队列信息同步指标")
+    public R<Map<String, Object>> queueInfoMetrics() {
+        return R.ok(consoleService.queueInfoMetrics());
+    }
+
+    @PostMapping(value="/jobArchiveMetrics")
+    @ApiOperation(value = "实例在线表大小和归档指标")
+    public R<Map<String, Object>> jobArchiveMetrics() {
+        return R.ok(consoleService.jobArchiveMetrics());
+    }
+
+    @PostMapping(value="/jobStatusJournalMetrics")
+    @ApiOperation(value = "当前节点实例状态延迟写入指标")
+    public R<Map<String, Object>> jobStatusJournalMetrics() {
+        return R.ok(consoleService.jobStatusJournalMetrics());
+    }
+
+    @PostMapping(value="/timerWheelMetrics")
+    @ApiOperation(value = "当前节点延迟时间轮指标")
+    public R<Map<String, Object>> timerWheelMetrics() {
+        return R.ok(consoleService.timerWheelMetrics());
+    }
+
     @PostMapping(value="/overview")
     @ApiOperation(value = "根据计算引擎类型显示任务")
     public R<Collection<Map<String, Object>>> overview(@RequestParam("nodeAddress") String nodeAddress, @RequestParam("clusterName") String clusterName) {
@@ -15,6 +15,7 @@ import com.dtstack.taier.develop.common.convert.DataSourceParam2SourceVOConverte
 import com.dtstack.taier.develop.dto.devlop.DataSourceVO;
 import com.dtstack.taier.develop.service.datasource.impl.DatasourceService;
 import com.dtstack.taier.develop.service.datasource.impl.DsClassifyService;
+import com.dtstack.taier.develop.service.datasource.impl.DsMetadataCacheService;
 import com.dtstack.taier.develop.service.datasource.impl.DsTypeService;
 import com.dtstack.taier.develop.service.datasource.impl.DsVersionService;
 import com.dtstack.taier.develop.utils.Asserts;
@@ -72,6 +73,9 @@ public class AddDatasourceController {
     @Autowired
     private DsVersionService dsVersionService;
 
+    @Autowired
+    private DsMetadataCacheService dsMetadataCacheService;
+
     @ApiOperation("获取数据源分类类目列表")
     @PostMapping("/queryDsClassifyList")
     public R<List<DsClassifyVO>> queryDsClassifyList() {
@@ -254,6 +258,34 @@ public class AddDatasourceController {
         }.execute();
     }
 
+    @PostMapping(value = "refreshMetadata")
+    @ApiOperation(value = "刷新元数据缓存，表名为空时刷新schema下所有表")
+    public R<Boolean> refreshMetadata(@RequestBody BatchDataSourcePreviewVO vo) {
+        return new APITemplate<Boolean>() {
+            @Override
+            protected void checkParams() throws IllegalArgumentException {
+                Asserts.notNull(vo.getSourceId(), "数据源id不能为空");
+            }
+
+            @Override
+            protected Boolean process() {
+                dsMetadataCacheService.invalidate(vo.getSourceId(), vo.getSchema(), vo.getTableName());
+                return true;
+            }
+        }.execute();
+    }
+
+    @PostMapping(value = "metadataCacheStats")
+    @ApiOperation(value = "获取元数据缓存统计")
+    public R<Map<String, Map<String, Object>>> metadataCacheStats() {
+        return new APITemplate<Map<String, Map<String, Object>>>() {
+            @Override
+            protected Map<String, Map<String, Object>> process() {
+                return dsMetadataCacheService.getStats();
+            }
+        }.execute();
+    }
+
     @PostMapping(value = "getAllSchemas")
     @ApiOperation(value = "获取所有schema")
     public R<List<String>> getAllSchemas(@RequestBody BatchDataSourceGetVO vo) {
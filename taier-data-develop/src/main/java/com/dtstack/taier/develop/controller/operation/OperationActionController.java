@@ -23,6 +23,7 @@ import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
 import java.util.List;
+import java.util.Map;
 
 /**
  * @Auther: dazhi
@@ -84,6 +85,21 @@ public class OperationActionController {
         return R.ok(actionService.stopJobByCondition(ActionMapStructTransfer.INSTANCE.actionJobKillVOToActionJobKillDTO(vo)));
     }
 
+    @ApiOperation(value = "按照条件异步停止任务，返回停止id")
+    @PostMapping(value = "/submitStopJobs")
+    public R<String> submitStopJobs(@RequestBody ActionJobKillVO vo) {
+        return R.ok(actionService.submitStopJobs(ActionMapStructTransfer.INSTANCE.actionJobKillVOToActionJobKillDTO(vo)));
+    }
+
+    @ApiOperation(value = "查看异步停止进度")
+    @PostMapping(value = "/stopProgress")
+    @ApiImplicitParams({
+            @ApiImplicitParam(name = "stopId", value = "停止id", required = true, dataType = "String")
+    })
+    public R<Map<String, Object>> stopProgress(@RequestParam("stopId") String stopId) {
+        return R.ok(actionService.getStopProgress(stopId));
+    }
+
     @ApiOperation(value = "查看实例日志")
     @PostMapping(value = "/queryJobLog")
     public R<ReturnJobLogVO> queryJobLog(@RequestBody @Valid QueryJobLogVO vo, BindingResult bindingResult) {
@@ -25,6 +25,7 @@ import com.dtstack.taier.common.enums.ForceCancelFlag;
 import com.dtstack.taier.common.enums.OperatorType;
 import com.dtstack.taier.common.exception.ErrorCode;
 import com.dtstack.taier.common.exception.RdosDefineException;
+import com.dtstack.taier.common.queue.TimerWheel;
 import com.dtstack.taier.common.util.ComponentVersionUtil;
 import com.dtstack.taier.dao.domain.*;
 import com.dtstack.taier.dao.mapper.*;
@@ -40,11 +41,15 @@ import com.dtstack.taier.pluginapi.util.DateUtil;
 import com.dtstack.taier.pluginapi.util.PublicUtil;
 import com.dtstack.taier.scheduler.WorkerOperator;
 import com.dtstack.taier.scheduler.jobdealer.JobDealer;
+import com.dtstack.taier.scheduler.jobdealer.cache.ShardCache;
+import com.dtstack.taier.scheduler.server.JobArchiveTrigger;
+import com.dtstack.taier.scheduler.server.listener.QueueListener;
 import com.dtstack.taier.scheduler.server.queue.GroupPriorityQueue;
 import com.dtstack.taier.scheduler.service.ComponentService;
 import com.dtstack.taier.develop.vo.console.ConsoleJobInfoVO;
 import com.dtstack.taier.develop.vo.console.ConsoleJobVO;
 import com.dtstack.taier.scheduler.service.ScheduleJobService;
+import com.dtstack.taier.scheduler.service.ScheduleJobStatusJournal;
 import com.dtstack.taier.scheduler.zookeeper.ZkService;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
@@ -77,6 +82,18 @@ public class ConsoleService {
     @Autowired
     private ScheduleJobMapper scheduleJobMapper;
 
+    @Autowired
+    private ShardCache shardCache;
+
+    @Autowired
+    private QueueListener queueListener;
+
+    @Autowired
+    private JobArchiveTrigger jobArchiveTrigger;
+
+    @Autowired
+    private ScheduleJobStatusJournal scheduleJobStatusJournal;
+
     @Autowired
     private ScheduleEngineJobCacheMapper scheduleEngineJobCacheMapper;
 
@@ -153,6 +170,50 @@ public class ConsoleService {
         return scheduleEngineJobCacheMapper.getJobResources();
     }
 
+    /**
+     * 当前节点各计算资源队列的排队、挂起和等待提交指标
+     */
+    public List<Map<String, Object>> submitMetrics() {
+        return jobDealer.getSubmitMetrics();
+    }
+
+    /**
+     * 当前节点 jobId 索引大小、命中率和各计算资源的内存任务数
+     */
+    public Map<String, Object> jobCacheIndexMetrics() {
+        return shardCache.getIndexMetrics();
+    }
+
+    /**
+     * 各节点发布到 zk 的队列信息陈旧程度
+     */
+    public Map<String, Object> queueInfoMetrics() {
+        return queueListener.getQueueInfoMetrics();
+    }
+
+    /**
+     * 实例在线表、归档表大小和当前节点的归档情况
+     */
+    public Map<String, Object> jobArchiveMetrics() {
+        return jobArchiveTrigger.getArchiveMetrics();
+    }
+
+    /**
+     * 当前节点实例状态延迟写入的合并比例和刷新耗时
+     */
+    public Map<String, Object> jobStatusJournalMetrics() {
+        return scheduleJobStatusJournal.getJournalMetrics();
+    }
+
+    /**
+     * 当前节点所有延迟时间轮的容量、延迟和丢弃数
+     */
+    public Map<String, Object> timerWheelMetrics() {
+        Map<String, Object> metrics = new HashMap<>(4);
+        metrics.put("wheels", TimerWheel.getAllMetrics());
+        return metrics;
+    }
+
     /**
      * 根据计算引擎类型显示任务
      */
@@ -348,6 +409,7 @@ public class ConsoleService {
             //杀死指定jobIdList的任务
             if (EJobCacheStage.unSubmitted().contains(stage)) {
                 Integer deleted = scheduleEngineJobCacheMapper.deleteByJobIds(jobIdList);
+                jobIdList.forEach(shardCache::removeJobResource);
                 Integer updated = scheduleJobMapper.updateJobStatusByJobIds(jobIdList, TaskStatus.CANCELED.getStatus());
                 LOGGER.info("delete job size:{}, update job size:{}, deal jobIds:{}", deleted, updated, jobIdList);
             } else {
@@ -391,6 +453,7 @@ public class ConsoleService {
 
                 if (EJobCacheStage.unSubmitted().contains(stage)) {
                     Integer deleted = scheduleEngineJobCacheMapper.deleteByJobIds(jobIds);
+                    jobIds.forEach(shardCache::removeJobResource);
                     Integer updated = scheduleJobMapper.updateJobStatusByJobIds(jobIds, TaskStatus.CANCELED.getStatus());
                     LOGGER.info("delete job size:{}, update job size:{}, query job size:{}, jobIds:{}", deleted, updated, jobCaches.size(), jobIds);
                 } else {
@@ -148,6 +148,9 @@ public class DatasourceService {
     @Autowired
     private DsInfoService dsInfoService;
 
+    @Autowired
+    private DsMetadataCacheService dsMetadataCacheService;
+
     @Autowired
     private DsFormFieldService formFieldService;
 
@@ -627,6 +630,8 @@ public class DatasourceService {
             }
             dsInfo.setGmtCreate(DateTime.now().toDate());
             dsInfoService.updateById(dsInfo);
+            // 连接信息可能变化，清除元数据缓存
+            dsMetadataCacheService.invalidate(dsInfo.getId());
         } else {
             // add 存在授权产品操作
             dsInfo.setCreateUserId(dataSourceVO.getUserId());
@@ -2121,7 +2126,8 @@ public class DatasourceService {
                     .filterPartitionColumns(part)
                     .build();
             ISourceDTO iSourceDTO = SourceDTOType.getSourceDTO(dataJson, source.getType(), kerberosConfig, Maps.newHashMap());
-            List<ColumnMetaDTO> columnMetaData = iClient.getColumnMetaData(iSourceDTO, sqlQueryDTO);
+            List<ColumnMetaDTO> columnMetaData = dsMetadataCacheService.getColumnMetaData(source.getId(), source.getDataJson(), schema, tableName, part,
+                    () -> iClient.getColumnMetaData(iSourceDTO, sqlQueryDTO));
             List<JSONObject> list = new ArrayList<>();
             if (CollectionUtils.isNotEmpty(columnMetaData)) {
                 for (ColumnMetaDTO columnMetaDTO : columnMetaData) {
@@ -2333,7 +2339,8 @@ public class DatasourceService {
         sqlQueryDTO.setView(true);
         sqlQueryDTO.setSchema(dataSource);
         //如果是hive类型的数据源  过滤脏数据表 和 临时表
-        tables = client.getTableList(sourceDTO, sqlQueryDTO);
+        tables = dsMetadataCacheService.getTableList(sourceId, dataJson, dataSource, name, 5000, true,
+                () -> client.getTableList(sourceDTO, sqlQueryDTO));
         return tables;
     }
 
@@ -2549,6 +2556,8 @@ public class DatasourceService {
     public JSONObject preview(Long sourceId, String tableName, String schema) {
 
         BatchDataSource source = getOne(sourceId);
+        // 缓存按原始表名保存，和按表刷新元数据时的 key 保持一致
+        String cacheTableName = tableName;
         StringBuffer newTableName = new StringBuffer();
         if (DataSourceType.SQLServer.getVal().equals(source.getType()) && StringUtils.isNotBlank(tableName)){
             if (tableName.indexOf("[") == -1){
@@ -2576,7 +2585,8 @@ public class DatasourceService {
             IClient iClient = ClientCache.getClient(source.getType());
             ISourceDTO iSourceDTO = SourceDTOType.getSourceDTO(json, source.getType(), kerberosConfig, Maps.newHashMap());
             SqlQueryDTO sqlQueryDTO = SqlQueryDTO.builder().schema(schema).tableName(tableName).previewNum(3).build();
-            dataList = iClient.getPreview(iSourceDTO, sqlQueryDTO);
+            dataList = dsMetadataCacheService.getPreview(sourceId, dataJson, schema, cacheTableName,
+                    () -> iClient.getPreview(iSourceDTO, sqlQueryDTO));
             if (DataSourceType.getRDBMS().contains(source.getType())) {
                 //因为会把字段名也会返回 所以要去除第一行
                 dataList = dataList.subList(1, dataList.size());
@@ -2933,7 +2943,9 @@ public class DatasourceService {
         }
         BatchDataSource batchDataSource = datasourceService.getOne(sourceId);
         if (DataSourceType.Oracle.getVal().equals(batchDataSource.getType())) {
-            return dealOracleCreateSql(sourceId, sql);
+            String tableName = dealOracleCreateSql(sourceId, sql);
+            dsMetadataCacheService.invalidateTableList(sourceId);
+            return tableName;
         }
         onlyNeedOneSql(sql);
         if (!SqlFormatUtil.isCreateSql(sql)) {
@@ -2942,6 +2954,8 @@ public class DatasourceService {
         sql = SqlFormatUtil.init(sql).removeEndChar().getSql();
         String tableName = CreateTableSqlParseUtil.parseTableName(sql);
         executeOnSpecifySourceWithOutResult(sourceId, Lists.newArrayList(sql));
+        // 新建表后表列表需要重新查询
+        dsMetadataCacheService.invalidateTableList(sourceId);
         return tableName;
     }
 
@@ -80,6 +80,9 @@ public class DsInfoService  extends ServiceImpl<DsInfoMapper, DsInfo> {
     @Autowired
     private SourceLoaderService sourceLoaderService;
 
+    @Autowired
+    private DsMetadataCacheService dsMetadataCacheService;
+
     // 数据源是否是默认数据源
     private static final Long IS_META = 1L;
 
@@ -165,6 +168,7 @@ public class DsInfoService  extends ServiceImpl<DsInfoMapper, DsInfo> {
         if (Objects.equals(dsInfo.getIsMeta(), 1)) {
             throw new PubSvcDefineException(ErrorCode.CAN_NOT_DEL_META_DS);
         }
+        dsMetadataCacheService.invalidate(dataInfoId);
         return this.getBaseMapper().deleteById(dataInfoId) > 0;
     }
     /**
@@ -359,10 +363,12 @@ public class DsInfoService  extends ServiceImpl<DsInfoMapper, DsInfo> {
                     if (null == tables || tables.size() < 1) {
                         continue;
                     }
-                    String tName = dealSpecialTableName(tables.get(0).toString().trim(), source.getDataTypeCode(), schema);
+                    String rawTableName = tables.get(0).toString().trim();
+                    String tName = dealSpecialTableName(rawTableName, source.getDataTypeCode(), schema);
                     SqlQueryDTO sqlQueryDTO = SqlQueryDTO.builder().tableName(tName).build();
                     sqlQueryDTO.setFilterPartitionColumns(true);
-                    List<ColumnMetaDTO> columnMetaDTOList = ClientCache.getClient(source.getDataTypeCode()).getColumnMetaData(sourceDTO, sqlQueryDTO);
+                    List<ColumnMetaDTO> columnMetaDTOList = dsMetadataCacheService.getColumnMetaData(source.getId(), source.getDataJson(), schema, rawTableName, true,
+                        () -> ClientCache.getClient(source.getDataTypeCode()).getColumnMetaData(sourceDTO, sqlQueryDTO));
                     List<JSONObject> list = new ArrayList<>();
                     if (org.apache.commons.collections.CollectionUtils.isNotEmpty(columnMetaDTOList)) {
                         for (ColumnMetaDTO columnMetaDTO : columnMetaDTOList) {
@@ -385,7 +391,8 @@ public class DsInfoService  extends ServiceImpl<DsInfoMapper, DsInfo> {
                 String tName = dealSpecialTableName(singleTablesName.trim(),  source.getDataTypeCode(), schema);
                 SqlQueryDTO sqlQueryDTO = SqlQueryDTO.builder().tableName(tName).build();
                 sqlQueryDTO.setFilterPartitionColumns(true);
-                List<ColumnMetaDTO> columnMetaDTOList = ClientCache.getClient(source.getDataTypeCode()).getColumnMetaData(sourceDTO, sqlQueryDTO);
+                List<ColumnMetaDTO> columnMetaDTOList = dsMetadataCacheService.getColumnMetaData(source.getId(), source.getDataJson(), schema, singleTablesName.trim(), true,
+                        () -> ClientCache.getClient(source.getDataTypeCode()).getColumnMetaData(sourceDTO, sqlQueryDTO));
                 List<JSONObject> list = new ArrayList<>();
                 if (org.apache.commons.collections.CollectionUtils.isNotEmpty(columnMetaDTOList)) {
                     for (ColumnMetaDTO columnMetaDTO : columnMetaDTOList) {
@@ -402,12 +409,14 @@ public class DsInfoService  extends ServiceImpl<DsInfoMapper, DsInfo> {
 
     public List<String> tableList(Long sourceId, String tableNamePattern, boolean isAll) {
         try {
+            DsInfo dsInfo = getOneById(sourceId);
             ISourceDTO sourceDTO = getSourceDTO(sourceId);
             SqlQueryDTO queryDTO = SqlQueryDTO.builder().tableNamePattern(tableNamePattern).build();
             if (!isAll) {
                 queryDTO.setLimit(LIMIT_COUNT);
             }
-            List<String> tables = ClientCache.getClient(sourceDTO.getSourceType()).getTableList(sourceDTO, queryDTO);
+            List<String> tables = dsMetadataCacheService.getTableList(sourceId, dsInfo.getDataJson(), null, tableNamePattern, isAll ? null : LIMIT_COUNT, false,
+                    () -> ClientCache.getClient(sourceDTO.getSourceType()).getTableList(sourceDTO, queryDTO));
             // 对表名按照字典表排序
             if (CollectionUtils.isNotEmpty(tables)) {
                 tables.sort(String::compareTo);
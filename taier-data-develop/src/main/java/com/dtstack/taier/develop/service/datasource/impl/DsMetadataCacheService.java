@@ -0,0 +1,200 @@
+package com.dtstack.taier.develop.service.datasource.impl;
+
+import com.dtstack.dtcenter.loader.dto.ColumnMetaDTO;
+import com.dtstack.taier.common.env.EnvironmentContext;
+import com.dtstack.taier.common.exception.RdosDefineException;
+import com.dtstack.taier.common.util.MD5Util;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 数据源元数据缓存，缓存表列表、字段信息和预览数据，减少对源库的访问
+ * <p>
+ * 按 (数据源id, schema, 表, ..., 数据源配置版本) 缓存，每类元数据单独设置过期时间和容量。
+ * 版本取数据源 dataJson 的 md5 放在 key 的最后，其他节点修改数据源后本节点不会再命中旧配置的缓存，
+ * 按 (数据源id, schema, 表) 前缀清除时也不受版本影响。
+ * 同一个 key 并发查询时只有一个线程访问源库，其他线程等待结果
+ */
+@Service
+public class DsMetadataCacheService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DsMetadataCacheService.class);
+
+    private static final String SEPARATOR = "|";
+
+    @Autowired
+    private EnvironmentContext environmentContext;
+
+    private Cache<String, List<String>> tableCache;
+
+    private Cache<String, List<ColumnMetaDTO>> columnCache;
+
+    private Cache<String, List<?>> previewCache;
+
+    @PostConstruct
+    public void init() {
+        long maxSize = environmentContext.getDatasourceMetadataCacheSize();
+        tableCache = buildCache(environmentContext.getDatasourceMetadataTableTtl(), maxSize);
+        columnCache = buildCache(environmentContext.getDatasourceMetadataColumnTtl(), maxSize);
+        previewCache = buildCache(environmentContext.getDatasourcePreviewTtl(), maxSize);
+    }
+
+    private static <V> Cache<String, V> buildCache(long ttl, long maxSize) {
+        return CacheBuilder.newBuilder()
+                .expireAfterWrite(ttl, TimeUnit.MILLISECONDS)
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * 表列表，limit 和是否包含视图不同的查询分开缓存
+     */
+    public List<String> getTableList(Long sourceId, String dataJson, String schema, String tableNamePattern, Integer limit, Boolean view, Callable<List<String>> loader) {
+        String key = buildKey(sourceId, schema, tableNamePattern, limit, view, version(dataJson));
+        return new ArrayList<>(get(tableCache, key, loader));
+    }
+
+    /**
+     * 字段信息
+     */
+    public List<ColumnMetaDTO> getColumnMetaData(Long sourceId, String dataJson, String schema, String tableName, Boolean filterPartitionColumns, Callable<List<ColumnMetaDTO>> loader) {
+        String key = buildKey(sourceId, schema, tableName, filterPartitionColumns, version(dataJson));
+        return get(columnCache, key, loader);
+    }
+
+    /**
+     * 预览数据
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<List<T>> getPreview(Long sourceId, String dataJson, String schema, String tableName, Callable<List<List<T>>> loader) {
+        String key = buildKey(sourceId, schema, tableName, version(dataJson));
+        return (List<List<T>>) get(previewCache, key, (Callable) loader);
+    }
+
+    /**
+     * 清除数据源的所有元数据缓存，数据源修改、删除或者手动刷新时调用
+     */
+    public void invalidate(Long sourceId) {
+        String prefix = buildKey(sourceId);
+        invalidateByPrefix(tableCache, prefix);
+        invalidateByPrefix(columnCache, prefix);
+        invalidateByPrefix(previewCache, prefix);
+    }
+
+    /**
+     * 清除数据源的表列表缓存，建表、删表后调用
+     */
+    public void invalidateTableList(Long sourceId) {
+        invalidateByPrefix(tableCache, buildKey(sourceId));
+    }
+
+    /**
+     * 清除表的元数据缓存，表名为空时清除 schema 下所有表的缓存，表列表总是清除
+     */
+    public void invalidate(Long sourceId, String schema, String tableName) {
+        if (StringUtils.isBlank(schema) && StringUtils.isBlank(tableName)) {
+            invalidate(sourceId);
+            return;
+        }
+        String prefix = StringUtils.isNotBlank(tableName) ? buildKey(sourceId, schema, tableName) : buildKey(sourceId, schema);
+        invalidateTableList(sourceId);
+        invalidateByPrefix(columnCache, prefix);
+        invalidateByPrefix(previewCache, prefix);
+    }
+
+    /**
+     * 缓存命中、加载统计
+     */
+    public Map<String, Map<String, Object>> getStats() {
+        Map<String, Map<String, Object>> stats = new LinkedHashMap<>(4);
+        stats.put("table", toStats(tableCache));
+        stats.put("column", toStats(columnCache));
+        stats.put("preview", toStats(previewCache));
+        return stats;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <V> V get(Cache<String, V> cache, String key, Callable<V> loader) {
+        try {
+            if (!environmentContext.isDatasourceMetadataCacheEnable()) {
+                V result = loader.call();
+                return result == null ? (V) Collections.emptyList() : result;
+            }
+            return cache.get(key, () -> {
+                long startTime = System.currentTimeMillis();
+                V result = loader.call();
+                LOGGER.info("load datasource metadata key:{} cost:{}ms", key, System.currentTimeMillis() - startTime);
+                // 查询结果为空时按空列表缓存
+                return result == null ? (V) Collections.emptyList() : (V) Collections.unmodifiableList(new ArrayList<>((List<?>) result));
+            });
+        } catch (ExecutionException | UncheckedExecutionException | ExecutionError e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RdosDefineException(cause == null ? e.getMessage() : cause.getMessage(), e);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RdosDefineException(e.getMessage(), e);
+        }
+    }
+
+    private static void invalidateByPrefix(Cache<String, ?> cache, String prefix) {
+        cache.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    private static Map<String, Object> toStats(Cache<String, ?> cache) {
+        CacheStats cacheStats = cache.stats();
+        Map<String, Object> stats = new LinkedHashMap<>(8);
+        stats.put("size", cache.size());
+        stats.put("hitCount", cacheStats.hitCount());
+        stats.put("missCount", cacheStats.missCount());
+        stats.put("hitRate", cacheStats.hitRate());
+        stats.put("loadSuccessCount", cacheStats.loadSuccessCount());
+        stats.put("loadExceptionCount", cacheStats.loadExceptionCount());
+        stats.put("averageLoadTime", TimeUnit.NANOSECONDS.toMillis((long) cacheStats.averageLoadPenalty()));
+        stats.put("evictionCount", cacheStats.evictionCount());
+        return stats;
+    }
+
+    /**
+     * 数据源配置版本，dataJson 为空时不区分版本
+     */
+    static String version(String dataJson) {
+        return StringUtils.isEmpty(dataJson) ? "" : MD5Util.getMD5String(dataJson);
+    }
+
+    /**
+     * 每段后都加分隔符，按前缀清除时不会误删 id 或表名有相同前缀的缓存
+     */
+    static String buildKey(Object... parts) {
+        StringBuilder key = new StringBuilder();
+        for (Object part : parts) {
+            key.append(part == null ? "" : part).append(SEPARATOR);
+        }
+        return key.toString();
+    }
+}
@@ -20,6 +20,7 @@ package com.dtstack.taier.develop.service.develop.impl;
 
 import com.dtstack.taier.common.enums.DownloadType;
 import com.dtstack.taier.common.exception.RdosDefineException;
+import com.dtstack.taier.common.util.LogCompressUtil;
 import com.dtstack.taier.dao.domain.ScheduleJobExpand;
 import com.dtstack.taier.develop.service.develop.IDataDownloadService;
 import com.dtstack.taier.develop.service.develop.MultiEngineServiceFactory;
@@ -34,9 +35,14 @@ import org.springframework.stereotype.Service;
 
 import javax.servlet.http.HttpServletResponse;
 import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
 import java.io.UnsupportedEncodingException;
+import java.io.Writer;
 import java.net.URLEncoder;
 import java.util.Objects;
 import java.util.UUID;
@@ -192,40 +198,74 @@ public class BatchDownloadService {
      */
     private void writeFileWithEngineLog(HttpServletResponse response, String jobId) {
         //hdfs没有日志就下载engine里的日志
-        try (OutputStream os = response.getOutputStream(); BufferedOutputStream bos = new BufferedOutputStream(os)) {
-            String log = getLog(jobId);
-            if (StringUtils.isNotBlank(log)) {
-                bos.write(log.getBytes());
-            }
+        try (OutputStream os = response.getOutputStream(); Writer writer = new BufferedWriter(new OutputStreamWriter(os))) {
+            writeLog(writer, jobId);
         }catch (Exception e) {
             LOGGER.error("下载engineLog异常，{}", e);
         }
     }
 
     /**
-     * 获取log
+     * 输出log，引擎日志边解压边输出
      *
+     * @param writer
      * @param jobId
      */
-    private String getLog(String jobId){
-        StringBuilder log = new StringBuilder();
+    private void writeLog(Writer writer, String jobId) throws IOException {
         //hdfs没有日志就下载engine里的日志
-        if (StringUtils.isNotBlank(jobId)) {
-            ScheduleJobExpand scheduleJobExpand = jobExpandService.selectOneByJobId(jobId);
-            if (Objects.nonNull(scheduleJobExpand)) {
-                log.append("=====================提交日志========================\n");
-                if (StringUtils.isNotBlank(scheduleJobExpand.getLogInfo())) {
-                    log.append(scheduleJobExpand.getLogInfo().replace("\\n", "\n").replace("\\t", " "));
+        if (StringUtils.isBlank(jobId)) {
+            return;
+        }
+        ScheduleJobExpand scheduleJobExpand = jobExpandService.selectLogInfoByJobId(jobId);
+        if (Objects.isNull(scheduleJobExpand)) {
+            return;
+        }
+        writer.write("=====================提交日志========================\n");
+        if (StringUtils.isNotBlank(scheduleJobExpand.getLogInfo())) {
+            writer.write(scheduleJobExpand.getLogInfo().replace("\\n", "\n").replace("\\t", " "));
+        }
+        writer.write("\n\n\n");
+        String engineLog = jobExpandService.getStoredEngineLog(jobId);
+        if (StringUtils.isNotBlank(engineLog)) {
+            writer.write("=====================运行日志========================\n");
+            try (Reader reader = LogCompressUtil.openReader(engineLog)) {
+                writeUnescaped(reader, writer);
+            }
+            writer.write("\n\n\n");
+        }
+    }
+
+    /**
+     * 把日志中转义的 \\n 还原为换行，\\t 替换为空格
+     */
+    private void writeUnescaped(Reader reader, Writer writer) throws IOException {
+        char[] buffer = new char[8192];
+        boolean escape = false;
+        int len;
+        while ((len = reader.read(buffer)) != -1) {
+            for (int i = 0; i < len; i++) {
+                char c = buffer[i];
+                if (escape) {
+                    escape = false;
+                    if (c == 'n') {
+                        writer.write('\n');
+                        continue;
+                    } else if (c == 't') {
+                        writer.write(' ');
+                        continue;
+                    }
+                    writer.write('\\');
                 }
-                log.append("\n\n\n");
-                if (StringUtils.isNotBlank(scheduleJobExpand.getEngineLog())) {
-                    log.append("=====================运行日志========================\n");
-                    log.append(scheduleJobExpand.getEngineLog().replace("\\n", "\n").replace("\\t", " "));
-                    log.append("\n\n\n");
+                if (c == '\\') {
+                    escape = true;
+                } else {
+                    writer.write(c);
                 }
             }
         }
-        return log.toString();
+        if (escape) {
+            writer.write('\\');
+        }
     }
 
     /**
@@ -46,7 +46,6 @@ import com.dtstack.taier.scheduler.service.ScheduleJobService;
 import com.dtstack.taier.scheduler.vo.action.ActionJobEntityVO;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.Preconditions;
-import com.google.common.collect.Lists;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.BooleanUtils;
 import org.apache.commons.lang.StringUtils;
@@ -519,20 +518,10 @@ public class BatchHadoopSelectSqlService implements IBatchSelectSqlService {
      * @throws Exception
      */
     private List<Object> queryData(Long tenantId, String sql, Integer taskType) throws Exception {
-        List<Object> queryResult = Lists.newArrayList();
         IDownload resultDownload = hadoopDataDownloadService.getSimpleSelectDownLoader(tenantId, sql, taskType);
         Integer num = getMaxQueryNum(sql, tenantId, taskType);
-        int readCounter = 0;
         // 第一行插入传字段信息
-        queryResult.add(resultDownload.getMetaInfo());
-        while (!resultDownload.reachedEnd()) {
-            if (readCounter >= num) {
-                break;
-            }
-            queryResult.add(resultDownload.readNext());
-            readCounter++;
-        }
-        return queryResult;
+        return hadoopDataDownloadService.readData(resultDownload, num);
     }
 
     /**
@@ -34,6 +34,7 @@ import com.dtstack.taier.develop.utils.develop.hive.service.LogPluginDownload;
 import com.dtstack.taier.develop.utils.develop.mapping.DataSourceTypeJobTypeMapping;
 import com.dtstack.taier.develop.utils.develop.mapping.JobTypeDataSourceTypeMapping;
 import com.dtstack.taier.develop.utils.develop.service.impl.Engine2DTOService;
+import com.dtstack.taier.pluginapi.client.AbstractQueryCursor;
 import com.dtstack.taier.pluginapi.util.RetryUtil;
 import com.dtstack.taier.scheduler.service.ClusterService;
 import com.dtstack.taier.scheduler.service.ScheduleActionService;
@@ -102,15 +103,40 @@ public class HadoopDataDownloadService implements IDataDownloadService {
     public List<Object> queryDataFromTempTable(Long tenantId, String tableName, String db) throws Exception {
         DataSourceType dataSourceType = datasourceService.getHadoopDefaultDataSourceByTenantId(tenantId);
         IDownload downloader = getDownloader(tenantId, tableName, db, dataSourceType.getVal());
-        List<Object> result = new ArrayList<>();
-        List<String> alias = downloader.getMetaInfo();
-        result.add(alias);
         JdbcInfo jdbcInfo = Engine2DTOService.getJdbcInfo(tenantId, null, DataSourceTypeJobTypeMapping.getTaskTypeByDataSourceType(dataSourceType.getVal()));
+        return readData(downloader, jdbcInfo.getMaxRows());
+    }
+
+    /**
+     * 逐行读取下载器中的数据，超过行数或字节数上限后停止，读取结束后关闭下载器
+     *
+     * @param downloader 下载器
+     * @param maxRows    最大行数
+     * @return 第一行为字段信息
+     */
+    public List<Object> readData(IDownload downloader, Integer maxRows) throws Exception {
+        List<Object> result = new ArrayList<>();
+        long maxBytes = environmentContext.getSelectResultMaxBytes();
+        long readBytes = 0L;
         int readCounter = 0;
-        while (!downloader.reachedEnd() && readCounter < jdbcInfo.getMaxRows()) {
-            List<String> row = (List<String>) downloader.readNext();
-            result.add(row);
-            readCounter++;
+        try {
+            result.add(downloader.getMetaInfo());
+            while (!downloader.reachedEnd() && (maxRows == null || readCounter < maxRows)) {
+                List<String> row = (List<String>) downloader.readNext();
+                readBytes += AbstractQueryCursor.estimateBytes(row);
+                if (maxBytes > 0 && readBytes > maxBytes) {
+                    LOGGER.warn("select result truncated, readRows:{}, maxBytes:{}", readCounter, maxBytes);
+                    break;
+                }
+                result.add(row);
+                readCounter++;
+            }
+        } finally {
+            try {
+                downloader.close();
+            } catch (Exception e) {
+                LOGGER.error("close downloader error", e);
+            }
         }
         return result;
     }
@@ -304,19 +330,9 @@ public class HadoopDataDownloadService implements IDataDownloadService {
      * @throws Exception
      */
     public List<Object> queryDataFromHiveServerTempTable(Long tenantId, String tableName, String db) throws Exception {
-        List<Object> result = new ArrayList<>();
         IDownload downloader = getHiveServerDownloader(tenantId, tableName, db);
-        List<String> alias = downloader.getMetaInfo();
-        result.add(alias);
-
         JdbcInfo jdbcInfo = Engine2DTOService.getJdbcInfo(tenantId,null, EScheduleJobType.HIVE_SQL);
-        int readCounter = 0;
-        while (!downloader.reachedEnd() && readCounter < jdbcInfo.getMaxRows()) {
-            List<String> row = (List<String>) downloader.readNext();
-            result.add(row);
-            readCounter++;
-        }
-        return result;
+        return readData(downloader, jdbcInfo.getMaxRows());
     }
 
     public IDownload getHiveServerDownloader(Long tenantId, String tableName, String db){
@@ -5,9 +5,11 @@ import com.alibaba.fastjson.JSONObject;
 import com.dtstack.taier.common.enums.EMetricTag;
 import com.dtstack.taier.common.enums.EScheduleJobType;
 import com.dtstack.taier.common.enums.ETimeCarry;
+import com.dtstack.taier.common.env.EnvironmentContext;
 import com.dtstack.taier.common.exception.RdosDefineException;
 import com.dtstack.taier.common.metric.batch.IMetric;
 import com.dtstack.taier.common.metric.prometheus.PrometheusMetricQuery;
+import com.dtstack.taier.common.metric.prometheus.PrometheusRangeCache;
 import com.dtstack.taier.common.metric.stream.CustomMetric;
 import com.dtstack.taier.common.metric.stream.StreamMetricBuilder;
 import com.dtstack.taier.common.metric.stream.prometheus.CustomPrometheusMetricQuery;
@@ -20,6 +22,7 @@ import com.dtstack.taier.develop.dto.devlop.StreamTaskMetricDTO;
 import com.dtstack.taier.develop.dto.devlop.TimespanVO;
 import com.dtstack.taier.develop.service.schedule.JobService;
 import com.dtstack.taier.develop.utils.TimeUtil;
+import com.dtstack.taier.pluginapi.CustomThreadFactory;
 import com.dtstack.taier.pluginapi.enums.ComputeType;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.math3.util.Pair;
@@ -28,12 +31,22 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Service
 public class StreamJobMetricService {
@@ -49,6 +62,17 @@ public class StreamJobMetricService {
     @Autowired
     private StreamMetricSupportService streamMetricSupportService;
 
+    @Autowired
+    private EnvironmentContext environmentContext;
+
+    /**
+     * 指标查询线程池，所有请求共享，队列满时直接取消查询，对应图表返回空数据，
+     * 不在请求线程中查询，请求的总耗时始终受 stream.metric.query.timeout 限制
+     */
+    private ThreadPoolExecutor metricQueryPool;
+
+    private PrometheusRangeCache prometheusRangeCache;
+
     private static Map<String,List<String>> chartMetricMap = new HashMap<>();
 
     private static final String TOPIC_LAG_112 = "flink_taskmanager_job_task_operator_flinkx_KafkaConsumer_topic_partition_lag";
@@ -61,12 +85,35 @@ public class StreamJobMetricService {
         chartMetricMap.put("dirtyErrors",Arrays.asList("nErrors","conversionErrors","duplicateErrors","nullErrors","otherErrors"));
     }
 
+    @PostConstruct
+    public void init() {
+        int thread = Math.max(1, environmentContext.getStreamMetricQueryThread());
+        metricQueryPool = new ThreadPoolExecutor(thread, thread, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(thread * 16), new CustomThreadFactory("streamMetricQuery"),
+                (r, executor) -> {
+                    LOGGER.warn("stream metric query pool is full, discard query");
+                    if (r instanceof Future) {
+                        ((Future<?>) r).cancel(false);
+                    }
+                });
+        metricQueryPool.allowCoreThreadTimeOut(true);
+        if (environmentContext.getPrometheusQueryCacheSize() > 0) {
+            prometheusRangeCache = new PrometheusRangeCache(environmentContext.getPrometheusQueryCacheTtl(),
+                    environmentContext.getPrometheusQueryCacheSize());
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        metricQueryPool.shutdownNow();
+    }
+
     public PrometheusMetricQuery buildPrometheusMetric(Long dtUicTenantId, String componentVersion) {
         Pair<String, String> prometheusHostAndPort = serverLogService.getPrometheusHostAndPort(dtUicTenantId, null, ComputeType.STREAM);
         if (prometheusHostAndPort == null){
             throw new RdosDefineException("promethues配置为空");
         }
-        return new PrometheusMetricQuery(String.format("%s:%s", prometheusHostAndPort.getKey(), prometheusHostAndPort.getValue()));
+        return new PrometheusMetricQuery(String.format("%s:%s", prometheusHostAndPort.getKey(), prometheusHostAndPort.getValue()), prometheusRangeCache);
     }
 
     /**
@@ -112,21 +159,45 @@ public class StreamJobMetricService {
         String jobId = scheduleJob.getEngineJobId();
         Long dtuicTenantId = task.getTenantId();
         PrometheusMetricQuery prometheusMetricQuery = buildPrometheusMetric(dtuicTenantId, task.getComponentVersion());
+        String granularity = buildGranularity(span);
+
+        // 所有图表的指标并发查询，再按图表顺序组装
+        List<Pair<String, List<Future<Object>>>> chartFutures = new ArrayList<>(metricDTO.getChartNames().size());
         for (String chartName : metricDTO.getChartNames()) {
+            List<String> metricNames = chartMetricMap.getOrDefault(chartName, Collections.singletonList(chartName));
+            List<Future<Object>> futures = new ArrayList<>(metricNames.size());
+            for (String metricName : metricNames) {
+                IMetric metric = StreamMetricBuilder.buildMetric(metricName, startTime, endTime, jobName, jobId, granularity, prometheusMetricQuery, task.getComponentVersion());
+                if (metric != null) {
+                    futures.add(metricQueryPool.submit(metric::getMetric));
+                }
+            }
+            chartFutures.add(new Pair<>(chartName, futures));
+        }
+
+        long deadline = System.currentTimeMillis() + environmentContext.getStreamMetricQueryTimeout();
+        for (Pair<String, List<Future<Object>>> entry : chartFutures) {
+            String chartName = entry.getKey();
             if (chartMetricMap.containsKey(chartName)) {
                 List<JSONObject> metricDatas = new ArrayList<>();
-                for (String metricName : chartMetricMap.get(chartName)) {
-                    IMetric metric = StreamMetricBuilder.buildMetric(metricName, startTime, endTime, jobName, jobId, buildGranularity(span), prometheusMetricQuery, task.getComponentVersion());
-                    if (metric != null) {
-                        metricDatas.add((JSONObject) metric.getMetric());
+                for (Future<Object> future : entry.getValue()) {
+                    Object metricData = getMetricResult(future, chartName, deadline);
+                    if (metricData != null) {
+                        metricDatas.add((JSONObject) metricData);
                     }
                 }
 
-                chartDatas.add(StreamMetricBuilder.mergeMetric(metricDatas, chartName, buildGranularity(span)));
+                chartDatas.add(StreamMetricBuilder.mergeMetric(metricDatas, chartName, granularity));
             } else {
-                IMetric metric = StreamMetricBuilder.buildMetric(chartName, startTime, endTime, jobName, jobId, buildGranularity(span), prometheusMetricQuery, task.getComponentVersion());
-                if (metric != null) {
-                    chartDatas.add(metric.getMetric());
+                for (Future<Object> future : entry.getValue()) {
+                    Object metricData = getMetricResult(future, chartName, deadline);
+                    if (metricData == null) {
+                        JSONObject emptyData = new JSONObject();
+                        emptyData.put("chartName", chartName);
+                        emptyData.put("data", new JSONArray());
+                        metricData = emptyData;
+                    }
+                    chartDatas.add(metricData);
                 }
             }
         }
@@ -134,6 +205,26 @@ public class StreamJobMetricService {
         return chartDatas;
     }
 
+    /**
+     * 等待指标查询结果，超时或失败时返回 null
+     */
+    private Object getMetricResult(Future<Object> future, String chartName, long deadline) {
+        try {
+            return future.get(Math.max(0L, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+        } catch (TimeoutException e) {
+            LOGGER.warn("query metric of chart {} timeout", chartName);
+            future.cancel(true);
+        } catch (CancellationException e) {
+            LOGGER.warn("query metric of chart {} cancelled", chartName);
+        } catch (ExecutionException e) {
+            LOGGER.error("query metric of chart {} error", chartName, e.getCause());
+        }
+        return null;
+    }
+
     /**
      * 根据时间跨度构建时间粒度，最多返回 300 个点
      * @param timespan 时间跨度
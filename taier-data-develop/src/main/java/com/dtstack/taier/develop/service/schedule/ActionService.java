@@ -4,6 +4,7 @@ import com.alibaba.fastjson.JSONObject;
 import com.dtstack.taier.common.constant.CommonConstant;
 import com.dtstack.taier.common.enums.Deleted;
 import com.dtstack.taier.common.enums.EScheduleJobType;
+import com.dtstack.taier.common.enums.ForceCancelFlag;
 import com.dtstack.taier.common.env.EnvironmentContext;
 import com.dtstack.taier.common.exception.RdosDefineException;
 import com.dtstack.taier.dao.domain.ScheduleEngineJobRetry;
@@ -13,6 +14,7 @@ import com.dtstack.taier.dao.domain.ScheduleTaskShade;
 import com.dtstack.taier.dao.dto.ScheduleTaskParamShade;
 import com.dtstack.taier.develop.service.develop.impl.BatchServerLogService;
 import com.dtstack.taier.develop.vo.schedule.ReturnJobLogVO;
+import com.dtstack.taier.pluginapi.enums.TaskStatus;
 import com.dtstack.taier.scheduler.dto.schedule.ActionJobKillDTO;
 import com.dtstack.taier.scheduler.enums.RestartType;
 import com.dtstack.taier.scheduler.jobdealer.JobStopDealer;
@@ -29,6 +31,7 @@ import org.springframework.stereotype.Service;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 
@@ -129,6 +132,48 @@ public class ActionService {
         return jobStopDealer.addStopJobs(scheduleJobList);
     }
 
+    /**
+     * 按照条件异步停止实例，不限制实例数量
+     *
+     * @param dto 条件dto，补数据id、任务id、实例状态等
+     * @return stopId，用于查询停止进度
+     */
+    public String submitStopJobs(ActionJobKillDTO dto) {
+        if (dto.getFillId() == null && CollectionUtils.isEmpty(dto.getTaskIds())
+                && (dto.getCycStartDay() == null || dto.getCycEndTimeDay() == null)) {
+            throw new RdosDefineException("please choose fillId, taskIds or cycTime range to stop");
+        }
+        List<Integer> statusList = CollectionUtils.isNotEmpty(dto.getStatusList()) ? dto.getStatusList() : TaskStatus.getUnfinishedStatuses();
+        return jobStopDealer.submitStopJobs(String.format("tenantId:%s fillId:%s", dto.getTenantId(), dto.getFillId()), startId -> jobService.lambdaQuery()
+                .select(ScheduleJob::getId, ScheduleJob::getJobId, ScheduleJob::getStatus, ScheduleJob::getTaskType)
+                .gt(ScheduleJob::getId, startId)
+                .eq(dto.getTenantId() != null, ScheduleJob::getTenantId, dto.getTenantId())
+                .eq(dto.getFillId() != null, ScheduleJob::getFillId, dto.getFillId())
+                .between(dto.getCycStartDay() != null && dto.getCycEndTimeDay() != null, ScheduleJob::getCycTime, jobService.getCycTime(dto.getCycStartDay()), jobService.getCycTime(dto.getCycEndTimeDay()))
+                .eq(dto.getType() != null, ScheduleJob::getType, dto.getType())
+                .in(CollectionUtils.isNotEmpty(dto.getTaskPeriodList()), ScheduleJob::getPeriodType, dto.getTaskPeriodList())
+                .in(CollectionUtils.isNotEmpty(dto.getTaskIds()), ScheduleJob::getTaskId, dto.getTaskIds())
+                .in(ScheduleJob::getStatus, statusList)
+                .eq(ScheduleJob::getIsDeleted, Deleted.NORMAL.getStatus())
+                .orderByAsc(ScheduleJob::getId)
+                .last("limit " + JobStopDealer.JOB_STOP_BATCH_SIZE)
+                .list(), ForceCancelFlag.NO.getFlag());
+    }
+
+    /**
+     * 查询异步停止进度
+     *
+     * @param stopId 停止id
+     * @return 停止进度
+     */
+    public Map<String, Object> getStopProgress(String stopId) {
+        Map<String, Object> progress = jobStopDealer.getStopProgress(stopId);
+        if (progress == null) {
+            throw new RdosDefineException("stopId:" + stopId + " not exist or expired");
+        }
+        return progress;
+    }
+
     /**
      * 查看周期实例日志
      *
@@ -23,4 +23,22 @@ public class JobExpandService extends ServiceImpl<ScheduleJobExpandMapper, Sched
                 .one();
     }
 
+    /**
+     * 查询提交日志，不加载引擎日志
+     */
+    public ScheduleJobExpand selectLogInfoByJobId(String jobId) {
+        return this.lambdaQuery()
+                .select(ScheduleJobExpand::getJobId, ScheduleJobExpand::getLogInfo)
+                .eq(ScheduleJobExpand::getIsDeleted, Deleted.NORMAL.getStatus())
+                .eq(ScheduleJobExpand::getJobId, jobId)
+                .one();
+    }
+
+    /**
+     * 库中保存的原始引擎日志，读取时通过 {@link com.dtstack.taier.common.util.LogCompressUtil#openReader} 边读边解压
+     */
+    public String getStoredEngineLog(String jobId) {
+        return getBaseMapper().getStoredEngineLog(jobId);
+    }
+
 }
@@ -1,5 +1,7 @@
 package com.dtstack.taier.develop.service.schedule;
 
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.dtstack.taier.common.enums.Deleted;
 import com.dtstack.taier.common.enums.DisplayDirect;
@@ -17,6 +19,7 @@ import com.dtstack.taier.develop.vo.schedule.ReturnJobDisplayVO;
 import com.dtstack.taier.pluginapi.util.DateUtil;
 import com.dtstack.taier.scheduler.dto.schedule.QueryJobDisplayDTO;
 import com.dtstack.taier.scheduler.enums.RelyType;
+import com.dtstack.taier.scheduler.service.ScheduleJobArchiveService;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
@@ -52,15 +55,15 @@ public class JobJobService extends ServiceImpl<ScheduleJobJobMapper, ScheduleJob
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private ScheduleJobArchiveService scheduleJobArchiveService;
+
     public ReturnJobDisplayVO displayOffSpring(QueryJobDisplayDTO dto) {
         // 设置层级 0<level< max.level
         dto.setLevel(JobUtils.checkLevel(dto.getLevel(), context.getMaxLevel()));
 
         // 查询实例是否存在,如不不存在，直接抛异常，下面的逻辑不需要在走了
-        ScheduleJob scheduleJob = jobService.lambdaQuery()
-                .eq(ScheduleJob::getJobId, dto.getJobId())
-                .eq(ScheduleJob::getIsDeleted, Deleted.NORMAL.getStatus())
-                .one();
+        ScheduleJob scheduleJob = findJobByJobId(dto.getJobId());
 
         if (scheduleJob == null) {
             throw new RdosDefineException("job does not exist");
@@ -87,10 +90,7 @@ public class JobJobService extends ServiceImpl<ScheduleJobJobMapper, ScheduleJob
 
     public ReturnJobDisplayVO displayOffSpringWorkFlowJob(String jobId) {
         // 查询实例是否存在,如不不存在，直接抛异常，下面的逻辑不需要在走了
-        ScheduleJob scheduleJob = jobService.lambdaQuery()
-                .eq(ScheduleJob::getJobId, jobId)
-                .eq(ScheduleJob::getIsDeleted, Deleted.NORMAL.getStatus())
-                .one();
+        ScheduleJob scheduleJob = findJobByJobId(jobId);
 
         if (scheduleJob == null) {
             throw new RdosDefineException("job does not exist");
@@ -109,14 +109,19 @@ public class JobJobService extends ServiceImpl<ScheduleJobJobMapper, ScheduleJob
                 .eq(ScheduleJob::getFlowJobId, scheduleJob.getJobId())
                 .eq(ScheduleJob::getIsDeleted, Deleted.NORMAL.getStatus())
                 .list();
+        if (CollectionUtils.isEmpty(scheduleJobList)) {
+            scheduleJobList = scheduleJobArchiveService.listJob(Wrappers.lambdaQuery(ScheduleJob.class)
+                    .eq(ScheduleJob::getFlowJobId, scheduleJob.getJobId())
+                    .eq(ScheduleJob::getIsDeleted, Deleted.NORMAL.getStatus()));
+        }
         Map<String, ScheduleJob> jobMap = scheduleJobList.stream().collect(Collectors.toMap(ScheduleJob::getJobKey,g->(g)));
 
         // 查询实例直接的关系
-        Set<String> jobKeySet = jobMap.keySet();
+        Set<String> jobKeySet = Sets.newHashSet(jobMap.keySet());
         jobKeySet.add(scheduleJob.getJobKey());
-        List<ScheduleJobJob> scheduleJobJobs = this.lambdaQuery().in(ScheduleJobJob::getJobKey, jobKeySet)
-                .in(ScheduleJobJob::getIsDeleted, Deleted.NORMAL.getStatus())
-                .list();
+        List<ScheduleJobJob> scheduleJobJobs = listJobJob(Wrappers.lambdaQuery(ScheduleJobJob.class)
+                .in(ScheduleJobJob::getJobKey, jobKeySet)
+                .in(ScheduleJobJob::getIsDeleted, Deleted.NORMAL.getStatus()));
         Map<String, List<String>> jobJobMaps = scheduleJobJobs.stream().collect(Collectors.groupingBy(ScheduleJobJob::getParentJobKey, Collectors.mapping(ScheduleJobJob::getJobKey, Collectors.toList())));
 
         // 查询任务信息
@@ -256,11 +261,50 @@ public class JobJobService extends ServiceImpl<ScheduleJobJobMapper, ScheduleJob
         if (CollectionUtils.isEmpty(jobKeySet)) {
             return Lists.newArrayList();
         }
-        return jobService.lambdaQuery()
+        List<ScheduleJob> scheduleJobList = jobService.lambdaQuery()
                 .in(ScheduleJob::getJobKey, jobKeySet)
                 .eq(ScheduleJob::getIsDeleted, Deleted.NORMAL.getStatus())
                 .eq(ScheduleJob::getFlowJobId, 0)
                 .list();
+
+        // 在线表查不到的实例可能已经归档
+        scheduleJobList.forEach(scheduleJob -> jobKeySet.remove(scheduleJob.getJobKey()));
+        if (CollectionUtils.isNotEmpty(jobKeySet)) {
+            scheduleJobList.addAll(scheduleJobArchiveService.listJob(Wrappers.lambdaQuery(ScheduleJob.class)
+                    .in(ScheduleJob::getJobKey, jobKeySet)
+                    .eq(ScheduleJob::getIsDeleted, Deleted.NORMAL.getStatus())
+                    .eq(ScheduleJob::getFlowJobId, 0)));
+        }
+        return scheduleJobList;
+    }
+
+    /**
+     * 查询实例，在线表查不到时查询归档表
+     *
+     * @param jobId 实例id
+     * @return 实例
+     */
+    private ScheduleJob findJobByJobId(String jobId) {
+        ScheduleJob scheduleJob = jobService.lambdaQuery()
+                .eq(ScheduleJob::getJobId, jobId)
+                .eq(ScheduleJob::getIsDeleted, Deleted.NORMAL.getStatus())
+                .one();
+        if (scheduleJob != null) {
+            return scheduleJob;
+        }
+        List<ScheduleJob> archiveJobs = scheduleJobArchiveService.listJob(Wrappers.lambdaQuery(ScheduleJob.class)
+                .eq(ScheduleJob::getJobId, jobId)
+                .eq(ScheduleJob::getIsDeleted, Deleted.NORMAL.getStatus()));
+        return CollectionUtils.isEmpty(archiveJobs) ? null : archiveJobs.get(0);
+    }
+
+    /**
+     * 同时查询在线表和归档表的实例关系
+     */
+    private List<ScheduleJobJob> listJobJob(LambdaQueryWrapper<ScheduleJobJob> query) {
+        List<ScheduleJobJob> jobJobList = Lists.newArrayList(this.list(query));
+        jobJobList.addAll(scheduleJobArchiveService.listJobJob(query));
+        return jobJobList;
     }
 
     /**
@@ -281,21 +325,19 @@ public class JobJobService extends ServiceImpl<ScheduleJobJobMapper, ScheduleJob
             }
             if (DisplayDirect.CHILD.getType().equals(directType)) {
                 // 向下查询
-                List<ScheduleJobJob> jobJobList = this.lambdaQuery()
+                List<ScheduleJobJob> jobJobList = listJobJob(Wrappers.lambdaQuery(ScheduleJobJob.class)
                         .in(ScheduleJobJob::getParentJobKey, jobKeys)
                         .eq(ScheduleJobJob::getJobKeyType, RelyType.UPSTREAM.getType())
-                        .eq(ScheduleJobJob::getIsDeleted, Deleted.NORMAL.getStatus())
-                        .list();
+                        .eq(ScheduleJobJob::getIsDeleted, Deleted.NORMAL.getStatus()));
 
                 jobJobKeyMap.putAll(jobJobList.stream().collect(Collectors.groupingBy(ScheduleJobJob::getParentJobKey, Collectors.mapping(ScheduleJobJob::getJobKey, Collectors.toList()))));
                 jobKeys = jobJobList.stream().map(ScheduleJobJob::getJobKey).collect(Collectors.toList());
             } else {
                 // 向上查询
-                List<ScheduleJobJob> jobJobList = this.lambdaQuery()
+                List<ScheduleJobJob> jobJobList = listJobJob(Wrappers.lambdaQuery(ScheduleJobJob.class)
                         .in(ScheduleJobJob::getJobKey, jobKeys)
                         .eq(ScheduleJobJob::getJobKeyType, RelyType.UPSTREAM.getType())
-                        .eq(ScheduleJobJob::getIsDeleted, Deleted.NORMAL.getStatus())
-                        .list();
+                        .eq(ScheduleJobJob::getIsDeleted, Deleted.NORMAL.getStatus()));
 
                 jobJobKeyMap.putAll(jobJobList.stream().collect(Collectors.groupingBy(ScheduleJobJob::getJobKey, Collectors.mapping(ScheduleJobJob::getParentJobKey, Collectors.toList()))));
                 jobKeys = jobJobList.stream().map(ScheduleJobJob::getParentJobKey).collect(Collectors.toList());
@@ -1,6 +1,7 @@
 package com.dtstack.taier.develop.service.schedule;
 
 import com.alibaba.fastjson.JSON;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
@@ -41,6 +42,8 @@ import com.dtstack.taier.scheduler.enums.FillJobTypeEnum;
 import com.dtstack.taier.scheduler.enums.JobPhaseStatus;
 import com.dtstack.taier.scheduler.server.action.fill.FillDataRunnable;
 import com.dtstack.taier.scheduler.server.action.fill.FillDataThreadPoolExecutor;
+import com.dtstack.taier.scheduler.service.ScheduleJobArchiveService;
+import com.dtstack.taier.scheduler.service.ScheduleJobStatusCountService;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.apache.commons.collections.CollectionUtils;
@@ -85,6 +88,12 @@ public class JobService extends ServiceImpl<ScheduleJobMapper, ScheduleJob> {
     @Autowired
     private FillStatusUpdateFinishEvent fillStatusUpdateFinishEvent;
 
+    @Autowired
+    private ScheduleJobStatusCountService scheduleJobStatusCountService;
+
+    @Autowired
+    private ScheduleJobArchiveService scheduleJobArchiveService;
+
     /**
      * 查询周期实例列表
      *
@@ -106,8 +115,71 @@ public class JobService extends ServiceImpl<ScheduleJobMapper, ScheduleJob> {
         }
 
         // 查询实例表
+        if (dto.getCursorId() != null && !isCustomSort(dto)) {
+            return queryJobsByCursor(dto, taskIds, returnJobListVOS);
+        }
+
         Page<ScheduleJob> page = new Page<>(dto.getCurrentPage(), dto.getPageSize());
-        page = this.lambdaQuery()
+        page = this.page(page, orderByJobListSort(buildJobListQuery(dto, taskIds), dto));
+        List<ScheduleJob> records = Lists.newArrayList(page.getRecords());
+        long total = page.getTotal();
+
+        // 在线实例在前，归档实例在后，在线实例不够一页时从归档表补齐
+        if (scheduleJobArchiveService.mayContainArchived(getJobListCycStartTime(dto), dto.getIncludeArchive())) {
+            long archiveTotal = scheduleJobArchiveService.countJob(buildJobListQuery(dto, taskIds));
+            int need = dto.getPageSize() - records.size();
+            if (archiveTotal > 0 && need > 0) {
+                long archiveOffset = Math.max(0L, (long) (dto.getCurrentPage() - 1) * dto.getPageSize() - page.getTotal());
+                records.addAll(scheduleJobArchiveService.listJob(orderByJobListSort(buildJobListQuery(dto, taskIds), dto)
+                        .last("limit " + archiveOffset + "," + need)));
+            }
+            total += archiveTotal;
+        }
+
+        // 处理查询出来的结果集
+        if (CollectionUtils.isNotEmpty(records)) {
+            // 查询实例对应的任务
+            buildReturnJobListVO(returnJobListVOS, records);
+        }
+
+        int totalPage = (int) ((total + dto.getPageSize() - 1) / dto.getPageSize());
+        return new PageResult<>(dto.getCurrentPage(), dto.getPageSize(), total, totalPage, returnJobListVOS);
+    }
+
+    /**
+     * 按实例 id 倒序游标翻页，每页从上一页最后一个实例开始 seek，不使用 OFFSET，也不统计总数。
+     * 归档实例保留原 id，和在线实例按 id 合并
+     *
+     * @param dto 查询条件，cursorId 小于等于 0 时查询第一页
+     * @param taskIds 关联的任务
+     * @param returnJobListVOS 结果集
+     * @return 当前页实例和下一页的游标
+     */
+    private PageResult<List<ReturnJobListVO>> queryJobsByCursor(QueryJobListDTO dto, List<Long> taskIds, List<ReturnJobListVO> returnJobListVOS) {
+        int pageSize = dto.getPageSize();
+        // 多查一条判断是否还有下一页
+        List<ScheduleJob> records = Lists.newArrayList(this.list(orderByCursor(buildJobListQuery(dto, taskIds), dto.getCursorId(), pageSize + 1)));
+        if (scheduleJobArchiveService.mayContainArchived(getJobListCycStartTime(dto), dto.getIncludeArchive())) {
+            records.addAll(scheduleJobArchiveService.listJob(orderByCursor(buildJobListQuery(dto, taskIds), dto.getCursorId(), pageSize + 1)));
+            records.sort(Comparator.comparing(ScheduleJob::getId).reversed());
+        }
+
+        Long nextCursorId = null;
+        if (records.size() > pageSize) {
+            records = records.subList(0, pageSize);
+            nextCursorId = records.get(pageSize - 1).getId();
+        }
+        if (CollectionUtils.isNotEmpty(records)) {
+            buildReturnJobListVO(returnJobListVOS, records);
+        }
+        return new PageResult<>(dto.getCurrentPage(), pageSize, 0L, 0, returnJobListVOS).setNextCursorId(nextCursorId);
+    }
+
+    /**
+     * 周期实例列表的过滤条件，在线表和归档表共用
+     */
+    private LambdaQueryWrapper<ScheduleJob> buildJobListQuery(QueryJobListDTO dto, List<Long> taskIds) {
+        return Wrappers.lambdaQuery(ScheduleJob.class)
                 .eq(ScheduleJob::getFlowJobId, 0)
                 .eq(ScheduleJob::getIsDeleted, Deleted.NORMAL.getStatus())
                 .in(ScheduleJob::getFillType, Lists.newArrayList(FillJobTypeEnum.DEFAULT.getType(),FillJobTypeEnum.RUN_JOB.getType()))
@@ -117,23 +189,37 @@ public class JobService extends ServiceImpl<ScheduleJobMapper, ScheduleJob> {
                 .between((dto.getCycStartDay() != null && dto.getCycEndDay() != null), ScheduleJob::getCycTime, getCycTime(dto.getCycStartDay()), getCycTime(dto.getCycEndDay()))
                 .in(CollectionUtils.isNotEmpty(dto.getTaskTypeList()), ScheduleJob::getTaskType, dto.getTaskTypeList())
                 .in(CollectionUtils.isNotEmpty(dto.getJobStatusList()), ScheduleJob::getStatus, transform(dto.getJobStatusList()))
-                .in(CollectionUtils.isNotEmpty(dto.getTaskPeriodTypeList()), ScheduleJob::getPeriodType, dto.getTaskPeriodTypeList())
+                .in(CollectionUtils.isNotEmpty(dto.getTaskPeriodTypeList()), ScheduleJob::getPeriodType, dto.getTaskPeriodTypeList());
+    }
+
+    /**
+     * 自定义排序之后按 id 倒序，和游标翻页的顺序一致，两种翻页方式切换时不会重复或遗漏
+     */
+    private LambdaQueryWrapper<ScheduleJob> orderByJobListSort(LambdaQueryWrapper<ScheduleJob> query, QueryJobListDTO dto) {
+        return query
                 .orderBy(StringUtils.isNotBlank(dto.getCycSort()),isAsc(dto.getCycSort()),ScheduleJob::getCycTime)
                 .orderBy(StringUtils.isNotBlank(dto.getExecStartSort()),isAsc(dto.getExecStartSort()),ScheduleJob::getExecStartTime)
                 .orderBy(StringUtils.isNotBlank(dto.getExecEndSort()),isAsc(dto.getExecEndSort()),ScheduleJob::getExecEndTime)
                 .orderBy(StringUtils.isNotBlank(dto.getExecTimeSort()),isAsc(dto.getExecTimeSort()),ScheduleJob::getExecTime)
                 .orderBy(StringUtils.isNotBlank(dto.getRetryNumSort()),isAsc(dto.getRetryNumSort()),ScheduleJob::getRetryNum)
-                .orderBy(Boolean.TRUE,Boolean.FALSE,ScheduleJob::getGmtCreate)
-                .page(page);
+                .orderByDesc(ScheduleJob::getId);
+    }
 
-        // 处理查询出来的结果集
-        List<ScheduleJob> records = page.getRecords();
-        if (CollectionUtils.isNotEmpty(records)) {
-            // 查询实例对应的任务
-            buildReturnJobListVO(returnJobListVOS, records);
-        }
+    private LambdaQueryWrapper<ScheduleJob> orderByCursor(LambdaQueryWrapper<ScheduleJob> query, Long cursorId, int limit) {
+        return query
+                .lt(cursorId > 0, ScheduleJob::getId, cursorId)
+                .orderByDesc(ScheduleJob::getId)
+                .last("limit " + limit);
+    }
+
+    private String getJobListCycStartTime(QueryJobListDTO dto) {
+        return dto.getCycStartDay() != null && dto.getCycEndDay() != null ? getCycTime(dto.getCycStartDay()) : null;
+    }
 
-        return new PageResult<>(dto.getCurrentPage(), dto.getPageSize(), page.getTotal(), (int) page.getPages(), returnJobListVOS);
+    private boolean isCustomSort(QueryJobListDTO dto) {
+        return StringUtils.isNotBlank(dto.getCycSort()) || StringUtils.isNotBlank(dto.getExecStartSort())
+                || StringUtils.isNotBlank(dto.getExecEndSort()) || StringUtils.isNotBlank(dto.getExecTimeSort())
+                || StringUtils.isNotBlank(dto.getRetryNumSort());
     }
 
     /**
@@ -161,7 +247,11 @@ public class JobService extends ServiceImpl<ScheduleJobMapper, ScheduleJob> {
         jobsStatusStatistics.setFillTypeList(Lists.newArrayList(FillJobTypeEnum.DEFAULT.getType(),FillJobTypeEnum.RUN_JOB.getType()));
         jobsStatusStatistics.setTaskIdList(taskIdList);
 
-        List<StatusCountPO> statusCountList = this.baseMapper.queryJobsStatusStatistics(jobsStatusStatistics);
+        // 优先汇总按天维护的状态计数，条件不满足时再统计实例表
+        List<StatusCountPO> statusCountList = scheduleJobStatusCountService.queryStatusCount(jobsStatusStatistics);
+        if (statusCountList == null) {
+            statusCountList = this.baseMapper.queryJobsStatusStatistics(jobsStatusStatistics);
+        }
         // 封装结果集
         return mergeStatusAndShow(statusCountList);
     }
@@ -173,6 +263,10 @@ public class JobService extends ServiceImpl<ScheduleJobMapper, ScheduleJob> {
      */
     public List<ReturnJobListVO> queryFlowWorkSubJobs(String jobId) {
         List<ScheduleJob> jobs = this.lambdaQuery().eq(ScheduleJob::getFlowJobId, jobId).eq(ScheduleJob::getIsDeleted, Deleted.NORMAL.getStatus()).list();
+        if (CollectionUtils.isEmpty(jobs)) {
+            // 工作流实例可能已经归档
+            jobs = scheduleJobArchiveService.listJob(Wrappers.lambdaQuery(ScheduleJob.class).eq(ScheduleJob::getFlowJobId, jobId).eq(ScheduleJob::getIsDeleted, Deleted.NORMAL.getStatus()));
+        }
         List<ReturnJobListVO> returnJobListVOS = Lists.newArrayList();
         buildReturnJobListVO(returnJobListVOS,jobs);
         return returnJobListVOS;
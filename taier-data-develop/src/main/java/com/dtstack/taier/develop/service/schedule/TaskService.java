@@ -19,6 +19,7 @@ import com.dtstack.taier.pluginapi.enums.ComputeType;
 import com.dtstack.taier.scheduler.dto.schedule.QueryTaskListDTO;
 import com.dtstack.taier.scheduler.dto.schedule.SavaTaskDTO;
 import com.dtstack.taier.scheduler.service.ScheduleTaskShadeInfoService;
+import com.dtstack.taier.scheduler.service.ScheduleTaskTaskService;
 import com.google.common.collect.Lists;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
@@ -50,6 +51,9 @@ public class TaskService extends ServiceImpl<ScheduleTaskShadeMapper, ScheduleTa
     @Autowired
     private TaskTaskService tasktaskService;
 
+    @Autowired
+    private ScheduleTaskTaskService scheduleTaskTaskService;
+
     @Autowired
     private ScheduleTaskShadeInfoService scheduleTaskShadeInfoService;
 
@@ -110,7 +114,9 @@ public class TaskService extends ServiceImpl<ScheduleTaskShadeMapper, ScheduleTa
         this.lambdaUpdate().eq(ScheduleTaskShade::getTaskId, taskId).update(scheduleTaskShade);
 
         // 直接删除任务依赖
-        return tasktaskService.lambdaUpdate().eq(ScheduleTaskTaskShade::getTaskId, taskId).remove();
+        boolean remove = tasktaskService.lambdaUpdate().eq(ScheduleTaskTaskShade::getTaskId, taskId).remove();
+        scheduleTaskTaskService.invalidateTaskDag();
+        return remove;
     }
 
     /**
@@ -120,16 +126,12 @@ public class TaskService extends ServiceImpl<ScheduleTaskShadeMapper, ScheduleTa
      * @return
      */
     public List<ScheduleTaskShade> listRelyCurrentTask(Long taskId) {
-        List<ScheduleTaskTaskShade> scheduleTaskTaskShadeList = tasktaskService.lambdaQuery()
-                .eq(ScheduleTaskTaskShade::getParentTaskId, taskId)
-                .eq(ScheduleTaskTaskShade::getIsDeleted, Deleted.NORMAL.getStatus())
-                .list();
+        List<Long> childTaskIdList = scheduleTaskTaskService.getTaskDag().getChildren(taskId);
 
-        if (CollectionUtils.isEmpty(scheduleTaskTaskShadeList)) {
+        if (CollectionUtils.isEmpty(childTaskIdList)) {
             return Lists.newArrayList();
         }
 
-        List<Long> childTaskIdList = scheduleTaskTaskShadeList.stream().map(ScheduleTaskTaskShade::getTaskId).collect(Collectors.toList());
         return this.lambdaQuery().in(ScheduleTaskShade::getTaskId,childTaskIdList).eq(ScheduleTaskShade::getIsDeleted, Deleted.NORMAL.getStatus()).list();
     }
 
@@ -175,7 +177,9 @@ public class TaskService extends ServiceImpl<ScheduleTaskShadeMapper, ScheduleTa
         // TODO 这块后面还需要考虑成环判断
         // 删除任务依赖
         tasktaskService.lambdaUpdate().eq(ScheduleTaskTaskShade::getTaskId, scheduleTaskShade.getTaskId()).remove();
-        return tasktaskService.saveBatch(scheduleTaskTaskShadeList);
+        boolean save = tasktaskService.saveBatch(scheduleTaskTaskShadeList);
+        scheduleTaskTaskService.invalidateTaskDag();
+        return save;
     }
 
     /**
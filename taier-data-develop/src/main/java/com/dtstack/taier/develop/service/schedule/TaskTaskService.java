@@ -15,6 +15,8 @@ import com.dtstack.taier.develop.utils.JobUtils;
 import com.dtstack.taier.develop.vo.schedule.ReturnTaskDisplayVO;
 import com.dtstack.taier.develop.vo.schedule.TaskNodeVO;
 import com.dtstack.taier.scheduler.dto.schedule.QueryTaskDisplayDTO;
+import com.dtstack.taier.scheduler.server.builder.dependency.TaskDag;
+import com.dtstack.taier.scheduler.service.ScheduleTaskTaskService;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import org.apache.commons.collections.CollectionUtils;
@@ -41,6 +43,9 @@ public class TaskTaskService extends ServiceImpl<ScheduleTaskTaskShadeMapper, Sc
     @Autowired
     private TaskService taskService;
 
+    @Autowired
+    private ScheduleTaskTaskService scheduleTaskTaskService;
+
     @Autowired
     private EnvironmentContext context;
 
@@ -134,27 +139,18 @@ public class TaskTaskService extends ServiceImpl<ScheduleTaskTaskShadeMapper, Sc
             return taskNodeVOS;
         }
 
-        List<ScheduleTaskTaskShade> taskTaskShades;
+        // 从任务依赖索引查询上下游
+        TaskDag taskDag = scheduleTaskTaskService.getTaskDag();
         List<Long> taskIdList;
-
-        // 查询节点
         if (DisplayDirect.CHILD.getType().equals(directType)) {
             // 向下
-            taskTaskShades = this.lambdaQuery()
-                    .eq(ScheduleTaskTaskShade::getParentTaskId, taskShade.getTaskId())
-                    .eq(ScheduleTaskTaskShade::getIsDeleted, Deleted.NORMAL.getStatus())
-                    .list();
-            taskIdList = taskTaskShades.stream().map(ScheduleTaskTaskShade::getTaskId).collect(Collectors.toList());
+            taskIdList = taskDag.getChildren(taskShade.getTaskId());
         } else {
             // 向上
-            taskTaskShades = this.lambdaQuery()
-                    .eq(ScheduleTaskTaskShade::getTaskId, taskShade.getTaskId())
-                    .eq(ScheduleTaskTaskShade::getIsDeleted, Deleted.NORMAL.getStatus())
-                    .list();
-            taskIdList = taskTaskShades.stream().map(ScheduleTaskTaskShade::getParentTaskId).collect(Collectors.toList());
+            taskIdList = taskDag.getParents(taskShade.getTaskId());
         }
 
-        if (CollectionUtils.isEmpty(taskTaskShades)) {
+        if (CollectionUtils.isEmpty(taskIdList)) {
             return taskNodeVOS;
         }
 
@@ -166,13 +162,8 @@ public class TaskTaskService extends ServiceImpl<ScheduleTaskTaskShadeMapper, Sc
                 .list();
         Map<Long, ScheduleTaskShade> taskShadeMap = taskShadeList.stream().collect(Collectors.toMap(ScheduleTaskShade::getTaskId, Function.identity()));
 
-        for (ScheduleTaskTaskShade taskTaskShade : taskTaskShades) {
-            ScheduleTaskShade taskShadeSon;
-            if (DisplayDirect.CHILD.getType().equals(directType)) {
-                taskShadeSon = taskShadeMap.get(taskTaskShade.getTaskId());
-            } else {
-                taskShadeSon = taskShadeMap.get(taskTaskShade.getParentTaskId());
-            }
+        for (Long taskId : taskIdList) {
+            ScheduleTaskShade taskShadeSon = taskShadeMap.get(taskId);
 
             TaskNodeVO vo = new TaskNodeVO();
             if (taskShadeSon != null) {
@@ -212,46 +203,35 @@ public class TaskTaskService extends ServiceImpl<ScheduleTaskTaskShadeMapper, Sc
         Map<Long, ScheduleTaskShade> taskMaps = taskShadeList.stream().collect(Collectors.toMap(ScheduleTaskShade::getTaskId,g->(g)));
         Set<Long> taskSet = Sets.newHashSet(taskMaps.keySet());
         taskSet.add(taskShade.getTaskId());
-        List<ScheduleTaskTaskShade> taskTaskShades = this.lambdaQuery()
-                .in(ScheduleTaskTaskShade::getTaskId, taskSet)
-                .eq(ScheduleTaskTaskShade::getIsDeleted, Deleted.NORMAL.getStatus())
-                .list();
-        if (CollectionUtils.isEmpty(taskTaskShades)) {
-            return vo;
-        }
-
         // 递归工作流任务的关系
-        Map<Long, List<ScheduleTaskTaskShade>> taskTaskMap = taskTaskShades.stream().collect(Collectors.groupingBy(ScheduleTaskTaskShade::getParentTaskId));
-        root.setChildNode(findChildNode(root,taskMaps,taskTaskMap));
+        root.setChildNode(findChildNode(root, taskMaps, scheduleTaskTaskService.getTaskDag(), taskSet));
         return vo;
     }
 
     /**
      * 查询孩子节点
      *
-     * @param root        顶节点
-     * @param taskTaskMap 节点关系集合
+     * @param root    顶节点
+     * @param taskDag 任务依赖索引
+     * @param taskSet 工作流内的任务
      * @return 节点列表
      */
-    private List<TaskNodeVO> findChildNode(TaskNodeVO root, Map<Long, ScheduleTaskShade> taskMaps, Map<Long, List<ScheduleTaskTaskShade>> taskTaskMap) {
-        List<ScheduleTaskTaskShade> scheduleTaskTaskShades = taskTaskMap.get(root.getTaskId());
-
+    private List<TaskNodeVO> findChildNode(TaskNodeVO root, Map<Long, ScheduleTaskShade> taskMaps, TaskDag taskDag, Set<Long> taskSet) {
         List<TaskNodeVO> taskNodeVOS = Lists.newArrayList();
 
-        if (CollectionUtils.isEmpty(scheduleTaskTaskShades)) {
-            return taskNodeVOS;
-        }
-
-        for (ScheduleTaskTaskShade taskTaskShade : scheduleTaskTaskShades) {
-            ScheduleTaskShade taskShade = taskMaps.get(taskTaskShade.getTaskId());
+        for (Long taskId : taskDag.getChildren(root.getTaskId())) {
+            if (!taskSet.contains(taskId)) {
+                continue;
+            }
+            ScheduleTaskShade taskShade = taskMaps.get(taskId);
             TaskNodeVO vo = new TaskNodeVO();
-            vo.setTaskId(taskTaskShade.getTaskId());
+            vo.setTaskId(taskId);
 
             if (taskShade != null) {
                 setNode(taskShade,vo);
             }
 
-            vo.setChildNode(findChildNode(vo, taskMaps, taskTaskMap));
+            vo.setChildNode(findChildNode(vo, taskMaps, taskDag, taskSet));
             taskNodeVOS.add(vo);
         }
 
@@ -47,6 +47,12 @@ public class ActionJobKillVO {
     @ApiModelProperty(value = "选择指定任务时，需要传该字段")
     private List<Long> taskIds;
 
+    @ApiModelProperty(value = "选择指定补数据时，需要传该字段")
+    private Long fillId;
+
+    @ApiModelProperty(value = "实例状态，不传时停止所有未结束的实例")
+    private List<Integer> statusList;
+
     public Long getUserId() {
         return userId;
     }
@@ -116,4 +122,20 @@ public class ActionJobKillVO {
     public void setTaskIds(List<Long> taskIds) {
         this.taskIds = taskIds;
     }
+
+    public Long getFillId() {
+        return fillId;
+    }
+
+    public void setFillId(Long fillId) {
+        this.fillId = fillId;
+    }
+
+    public List<Integer> getStatusList() {
+        return statusList;
+    }
+
+    public void setStatusList(List<Integer> statusList) {
+        this.statusList = statusList;
+    }
 }
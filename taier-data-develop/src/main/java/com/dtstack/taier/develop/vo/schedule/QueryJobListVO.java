@@ -97,6 +97,18 @@ public class QueryJobListVO extends PageVO {
     @ApiModelProperty(value = "按重试次数排序")
     private String retryNumSort;
 
+    /**
+     * 上一页最后一个实例的 id，不为空且没有指定排序时按 id 游标翻页，不再统计总数
+     */
+    @ApiModelProperty(value = "上一页返回的 nextCursorId，游标翻页时使用")
+    private Long cursorId;
+
+    /**
+     * 是否同时查询归档实例，计划时间范围早于归档保留天数时总会查询归档实例
+     */
+    @ApiModelProperty(value = "是否同时查询归档实例")
+    private Boolean includeArchive;
+
     public Long getTenantId() {
         return tenantId;
     }
@@ -200,4 +212,20 @@ public class QueryJobListVO extends PageVO {
     public void setRetryNumSort(String retryNumSort) {
         this.retryNumSort = retryNumSort;
     }
+
+    public Long getCursorId() {
+        return cursorId;
+    }
+
+    public void setCursorId(Long cursorId) {
+        this.cursorId = cursorId;
+    }
+
+    public Boolean getIncludeArchive() {
+        return includeArchive;
+    }
+
+    public void setIncludeArchive(Boolean includeArchive) {
+        this.includeArchive = includeArchive;
+    }
 }
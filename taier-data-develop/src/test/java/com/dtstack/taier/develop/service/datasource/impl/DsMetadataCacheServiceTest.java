@@ -0,0 +1,150 @@
+package com.dtstack.taier.develop.service.datasource.impl;
+
+import com.dtstack.dtcenter.loader.dto.ColumnMetaDTO;
+import com.dtstack.taier.common.env.EnvironmentContext;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DsMetadataCacheServiceTest {
+
+    private static final String DATA_JSON = "{\"jdbcUrl\":\"jdbc:mysql://127.0.0.1:3306/test\"}";
+
+    private EnvironmentContext environmentContext;
+
+    private DsMetadataCacheService cacheService;
+
+    @Before
+    public void setUp() {
+        environmentContext = new EnvironmentContext();
+        ReflectionTestUtils.setField(environmentContext, "datasourceMetadataCacheEnable", true);
+        ReflectionTestUtils.setField(environmentContext, "datasourceMetadataTableTtl", 60000L);
+        ReflectionTestUtils.setField(environmentContext, "datasourceMetadataColumnTtl", 60000L);
+        ReflectionTestUtils.setField(environmentContext, "datasourcePreviewTtl", 60000L);
+        ReflectionTestUtils.setField(environmentContext, "datasourceMetadataCacheSize", 100L);
+        cacheService = new DsMetadataCacheService();
+        ReflectionTestUtils.setField(cacheService, "environmentContext", environmentContext);
+        cacheService.init();
+    }
+
+    @Test
+    public void testBuildKey() {
+        Assert.assertEquals("1||t|", DsMetadataCacheService.buildKey(1L, null, "t"));
+        Assert.assertEquals("1|s|t|true|", DsMetadataCacheService.buildKey(1L, "s", "t", true));
+        // 前缀带分隔符，id 或表名有相同前缀时不会匹配
+        Assert.assertFalse(DsMetadataCacheService.buildKey(11L, "s", "t").startsWith(DsMetadataCacheService.buildKey(1L)));
+        Assert.assertFalse(DsMetadataCacheService.buildKey(1L, "s", "t2").startsWith(DsMetadataCacheService.buildKey(1L, "s", "t")));
+        Assert.assertEquals("", DsMetadataCacheService.version(null));
+        Assert.assertNotEquals(DsMetadataCacheService.version(DATA_JSON), DsMetadataCacheService.version(DATA_JSON + " "));
+    }
+
+    @Test
+    public void testHitAndVersionChange() {
+        AtomicInteger loadCount = new AtomicInteger();
+        loadColumn(1L, DATA_JSON, "s", "t", loadCount);
+        loadColumn(1L, DATA_JSON, "s", "t", loadCount);
+        Assert.assertEquals(1, loadCount.get());
+
+        // 其他节点修改了数据源配置，版本不同不再命中
+        loadColumn(1L, DATA_JSON + " ", "s", "t", loadCount);
+        Assert.assertEquals(2, loadCount.get());
+    }
+
+    @Test
+    public void testInvalidateByPrefix() {
+        AtomicInteger t = new AtomicInteger();
+        AtomicInteger t2 = new AtomicInteger();
+        AtomicInteger otherSchema = new AtomicInteger();
+        AtomicInteger otherSource = new AtomicInteger();
+        AtomicInteger tables = new AtomicInteger();
+        loadColumn(1L, DATA_JSON, "s", "t", t);
+        loadColumn(1L, DATA_JSON, "s", "t2", t2);
+        loadColumn(1L, DATA_JSON, "s2", "t", otherSchema);
+        loadColumn(11L, DATA_JSON, "s", "t", otherSource);
+        loadTables(1L, tables);
+
+        cacheService.invalidate(1L, "s", "t");
+        loadColumn(1L, DATA_JSON, "s", "t", t);
+        loadColumn(1L, DATA_JSON, "s", "t2", t2);
+        loadColumn(1L, DATA_JSON, "s2", "t", otherSchema);
+        loadColumn(11L, DATA_JSON, "s", "t", otherSource);
+        loadTables(1L, tables);
+        Assert.assertEquals(2, t.get());
+        Assert.assertEquals(1, t2.get());
+        Assert.assertEquals(1, otherSchema.get());
+        Assert.assertEquals(1, otherSource.get());
+        Assert.assertEquals(2, tables.get());
+
+        cacheService.invalidate(1L);
+        loadColumn(1L, DATA_JSON, "s", "t2", t2);
+        loadColumn(1L, DATA_JSON, "s2", "t", otherSchema);
+        loadColumn(11L, DATA_JSON, "s", "t", otherSource);
+        Assert.assertEquals(2, t2.get());
+        Assert.assertEquals(2, otherSchema.get());
+        Assert.assertEquals(1, otherSource.get());
+    }
+
+    @Test
+    public void testSingleFlight() throws Exception {
+        int threads = 8;
+        AtomicInteger loadCount = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<ColumnMetaDTO>>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return cacheService.getColumnMetaData(1L, DATA_JSON, "s", "t", true, () -> {
+                        loadCount.incrementAndGet();
+                        Thread.sleep(200);
+                        return Collections.singletonList(new ColumnMetaDTO());
+                    });
+                }));
+            }
+            start.countDown();
+            for (Future<List<ColumnMetaDTO>> future : futures) {
+                Assert.assertEquals(1, future.get(10, TimeUnit.SECONDS).size());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assert.assertEquals(1, loadCount.get());
+    }
+
+    @Test
+    public void testNullLoaderResult() {
+        Assert.assertTrue(cacheService.getTableList(1L, DATA_JSON, null, null, null, false, () -> null).isEmpty());
+        Assert.assertTrue(cacheService.getColumnMetaData(1L, DATA_JSON, "s", "t", true, () -> null).isEmpty());
+
+        ReflectionTestUtils.setField(environmentContext, "datasourceMetadataCacheEnable", false);
+        Assert.assertTrue(cacheService.getTableList(1L, DATA_JSON, null, null, null, false, () -> null).isEmpty());
+        Assert.assertTrue(cacheService.getColumnMetaData(1L, DATA_JSON, "s", "t", true, () -> null).isEmpty());
+        Assert.assertTrue(cacheService.getPreview(1L, DATA_JSON, "s", "t", () -> null).isEmpty());
+    }
+
+    private void loadColumn(Long sourceId, String dataJson, String schema, String tableName, AtomicInteger loadCount) {
+        cacheService.getColumnMetaData(sourceId, dataJson, schema, tableName, true, () -> {
+            loadCount.incrementAndGet();
+            return Collections.singletonList(new ColumnMetaDTO());
+        });
+    }
+
+    private void loadTables(Long sourceId, AtomicInteger loadCount) {
+        cacheService.getTableList(sourceId, DATA_JSON, null, null, null, false, () -> {
+            loadCount.incrementAndGet();
+            return Collections.singletonList("t");
+        });
+    }
+}
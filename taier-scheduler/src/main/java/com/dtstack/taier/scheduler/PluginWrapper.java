@@ -25,6 +25,7 @@ import com.dtstack.taier.pluginapi.JobClient;
 import com.dtstack.taier.pluginapi.enums.EDeployMode;
 import com.dtstack.taier.pluginapi.enums.EJobType;
 import com.dtstack.taier.scheduler.service.ClusterService;
+import com.dtstack.taier.scheduler.service.PluginInfoService;
 import com.dtstack.taier.scheduler.service.ScheduleDictService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -40,12 +41,11 @@ public class PluginWrapper {
     private ClusterService clusterService;
     @Autowired
     private ScheduleDictService scheduleDictService;
+    @Autowired
+    private PluginInfoService pluginInfoService;
 
     public Map<String, Object> wrapperPluginInfo(Integer taskType, String taskParam, Integer computeType, String componentVersion, Long tenantId) {
-        EDeployMode deployMode = EDeployMode.PERJOB;
-        if (EScheduleJobType.SYNC.getType().equals(taskType)) {
-            deployMode = TaskParamsUtils.parseDeployTypeByTaskParams(taskParam, computeType);
-        }
+        EDeployMode deployMode = parseDeployMode(taskType, taskParam, computeType);
         String componentVersionValue = scheduleDictService.convertVersionNameToValue(componentVersion, taskType);
         JSONObject pluginInfo = clusterService.pluginInfoJSON(tenantId, taskType, deployMode.getType(), componentVersionValue);
         pluginInfo.put(DEPLOY_MODEL,deployMode.getType());
@@ -56,13 +56,39 @@ public class PluginWrapper {
         return clusterService.pluginInfoJSON(tenantId, taskType, deployMode, componentVersionValue);
     }
 
+    /**
+     * 提交任务时填充 pluginInfo 及其 md5 引用
+     */
     public void wrapperJobClient(JobClient jobClient) {
-        Map<String, Object> pluginInfo = wrapperPluginInfo(jobClient.getTaskType(), jobClient.getTaskParams(), jobClient.getComputeType().getType(),
-                jobClient.getComponentVersion(), jobClient.getTenantId());
-        jobClient.setPluginInfo(JSONObject.toJSONString(pluginInfo));
+        wrapperJobClient(jobClient, true);
+    }
+
+    /**
+     * 填充 pluginInfo
+     *
+     * @param useSnapshot true: 同一次提交在入队、重新加载队列、容灾时使用入队时确定的配置，没有时组装并保存；
+     *                    false: 停止等控制操作总是使用集群当前的配置，管理员修改组件后立即生效
+     */
+    public void wrapperJobClient(JobClient jobClient, boolean useSnapshot) {
+        Integer deployMode = parseDeployMode(jobClient.getTaskType(), jobClient.getTaskParams(), jobClient.getComputeType().getType()).getType();
+        String pluginInfo = useSnapshot ? pluginInfoService.getPluginInfo(jobClient.getPluginInfoMd5()) : null;
+        if (pluginInfo == null) {
+            Map<String, Object> pluginInfoMap = wrapperPluginInfo(jobClient.getTaskType(), jobClient.getTaskParams(), jobClient.getComputeType().getType(),
+                    jobClient.getComponentVersion(), jobClient.getTenantId());
+            pluginInfo = JSONObject.toJSONString(pluginInfoMap);
+            // 不使用快照时 md5 引用和当前配置不一致，清除后客户端缓存不会按旧的 md5 命中旧配置的 client
+            jobClient.setPluginInfoMd5(useSnapshot ? pluginInfoService.save(jobClient.getTenantId(), jobClient.getTaskType(), deployMode,
+                    jobClient.getComponentVersion(), pluginInfo) : null);
+        }
+        jobClient.setPluginInfo(pluginInfo);
         jobClient.setJobType(EJobType.getEjobType(EScheduleJobType.getByTaskType(jobClient.getTaskType()).getEngineJobType()));
-        if (pluginInfo.containsKey(DEPLOY_MODEL)) {
-            jobClient.setDeployMode((Integer) pluginInfo.get(DEPLOY_MODEL));
+        jobClient.setDeployMode(deployMode);
+    }
+
+    private EDeployMode parseDeployMode(Integer taskType, String taskParam, Integer computeType) {
+        if (EScheduleJobType.SYNC.getType().equals(taskType)) {
+            return TaskParamsUtils.parseDeployTypeByTaskParams(taskParam, computeType);
         }
+        return EDeployMode.PERJOB;
     }
 }
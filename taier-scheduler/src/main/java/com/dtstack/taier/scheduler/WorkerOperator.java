@@ -34,6 +34,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -48,13 +50,16 @@ public class WorkerOperator {
     @Autowired
     private ClientOperator clientOperator;
 
-    private void buildPluginInfo(JobClient jobClient) {
+    /**
+     * 提交使用入队时确定的集群配置，停止等控制操作使用集群当前的配置
+     */
+    private void buildPluginInfo(JobClient jobClient, boolean useSnapshot) {
         try {
             JSONObject info = JSONObject.parseObject(jobClient.getPluginInfo());
             if (null != info && !info.isEmpty()) {
                 return;
             }
-            pluginWrapper.wrapperJobClient(jobClient);
+            pluginWrapper.wrapperJobClient(jobClient, useSnapshot);
         } catch (Exception e) {
             LOGGER.error("{} buildPluginInfo failed!", jobClient.getJobId(), e);
             throw new RdosDefineException("buildPluginInfo error", e);
@@ -86,12 +91,12 @@ public class WorkerOperator {
     }
 
     public JudgeResult judgeSlots(JobClient jobClient) throws Exception {
-        this.buildPluginInfo(jobClient);
+        this.buildPluginInfo(jobClient, true);
         return clientOperator.judgeSlots(jobClient);
     }
 
     public JobResult submitJob(JobClient jobClient) throws Exception {
-        this.buildPluginInfo(jobClient);
+        this.buildPluginInfo(jobClient, true);
         return clientOperator.submitJob(jobClient);
     }
 
@@ -103,6 +108,44 @@ public class WorkerOperator {
         return status;
     }
 
+    /**
+     * 批量获取任务状态，相同集群配置的任务合并成一次插件调用，
+     * 租户、任务类型、组件版本、运行模式相同的任务只组装一次集群配置
+     *
+     * @param jobIdentifiers 任务
+     * @return jobId -> 任务状态
+     */
+    public Map<String, TaskStatus> getJobStatusBatch(List<JobIdentifier> jobIdentifiers) {
+        Map<String, String> pluginInfoCache = new HashMap<>();
+        Map<String, List<JobIdentifier>> pluginJobs = new HashMap<>();
+        Map<String, TaskStatus> statusMap = new HashMap<>(jobIdentifiers.size());
+        for (JobIdentifier jobIdentifier : jobIdentifiers) {
+            try {
+                String pluginKey = jobIdentifier.getTenantId() + "_" + jobIdentifier.getTaskType() + "_"
+                        + jobIdentifier.getComponentVersion() + "_" + jobIdentifier.getDeployMode();
+                String pluginInfo = StringUtils.isNotBlank(jobIdentifier.getPluginInfo()) ? this.getPluginInfo(jobIdentifier)
+                        : pluginInfoCache.computeIfAbsent(pluginKey, k -> this.getPluginInfo(jobIdentifier));
+                if (null == pluginInfo) {
+                    statusMap.put(jobIdentifier.getJobId(), TaskStatus.NOTFOUND);
+                    continue;
+                }
+                pluginJobs.computeIfAbsent(pluginInfo, k -> new ArrayList<>()).add(jobIdentifier);
+            } catch (Exception e) {
+                LOGGER.error("jobId:{} get pluginInfo error:", jobIdentifier.getJobId(), e);
+                statusMap.put(jobIdentifier.getJobId(), TaskStatus.NOTFOUND);
+            }
+        }
+
+        for (Map.Entry<String, List<JobIdentifier>> entry : pluginJobs.entrySet()) {
+            Map<String, TaskStatus> pluginStatus = clientOperator.getJobStatusBatch(entry.getKey(), entry.getValue());
+            for (JobIdentifier jobIdentifier : entry.getValue()) {
+                TaskStatus status = pluginStatus.get(jobIdentifier.getJobId());
+                statusMap.put(jobIdentifier.getJobId(), null == status ? TaskStatus.NOTFOUND : status);
+            }
+        }
+        return statusMap;
+    }
+
     public String getEngineLog(JobIdentifier jobIdentifier) {
         String engineLog = clientOperator.getEngineLog(this.getPluginInfo(jobIdentifier), jobIdentifier);
         if (null == engineLog) {
@@ -128,7 +171,7 @@ public class WorkerOperator {
     }
 
     public JobResult stopJob(JobClient jobClient) throws Exception {
-        this.buildPluginInfo(jobClient);
+        this.buildPluginInfo(jobClient, false);
         return clientOperator.stopJob(jobClient);
     }
 
@@ -158,7 +201,7 @@ public class WorkerOperator {
     }
 
     public CheckResult grammarCheck(JobClient jobClient) throws Exception {
-        this.buildPluginInfo(jobClient);
+        this.buildPluginInfo(jobClient, false);
         return clientOperator.grammarCheck(jobClient);
     }
 }
@@ -37,7 +37,8 @@ public class MasterServerBeanConfig {
 
     @Bean
     public ClientOperator clientOperator(){
-        return ClientOperator.getInstance(environmentContext.getPluginPath());
+        return ClientOperator.getInstance(environmentContext.getPluginPath(), environmentContext.getPluginClientCacheMaxSize(), environmentContext.getPluginClientIdleTimeout(),
+                environmentContext.getPluginClientCloseDelay());
     }
 
     @Bean
@@ -45,6 +45,16 @@ public class ActionJobKillDTO {
      */
     private List<Long> taskIds;
 
+    /**
+     * 指定补数据
+     */
+    private Long fillId;
+
+    /**
+     * 指定实例状态，为空时停止所有未结束的实例
+     */
+    private List<Integer> statusList;
+
     public Long getTenantId() {
         return tenantId;
     }
@@ -100,4 +110,20 @@ public class ActionJobKillDTO {
     public void setTaskIds(List<Long> taskIds) {
         this.taskIds = taskIds;
     }
+
+    public Long getFillId() {
+        return fillId;
+    }
+
+    public void setFillId(Long fillId) {
+        this.fillId = fillId;
+    }
+
+    public List<Integer> getStatusList() {
+        return statusList;
+    }
+
+    public void setStatusList(List<Integer> statusList) {
+        this.statusList = statusList;
+    }
 }
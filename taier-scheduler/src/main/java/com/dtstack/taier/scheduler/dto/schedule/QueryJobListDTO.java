@@ -87,6 +87,16 @@ public class QueryJobListDTO {
      */
     private Integer pageSize;
 
+    /**
+     * 上一页最后一个实例的 id
+     */
+    private Long cursorId;
+
+    /**
+     * 是否同时查询归档实例
+     */
+    private Boolean includeArchive;
+
     public Long getTenantId() {
         return tenantId;
     }
@@ -206,4 +216,20 @@ public class QueryJobListDTO {
     public void setPageSize(Integer pageSize) {
         this.pageSize = pageSize;
     }
+
+    public Long getCursorId() {
+        return cursorId;
+    }
+
+    public void setCursorId(Long cursorId) {
+        this.cursorId = cursorId;
+    }
+
+    public Boolean getIncludeArchive() {
+        return includeArchive;
+    }
+
+    public void setIncludeArchive(Boolean includeArchive) {
+        this.includeArchive = includeArchive;
+    }
 }
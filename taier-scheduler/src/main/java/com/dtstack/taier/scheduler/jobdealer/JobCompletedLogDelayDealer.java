@@ -18,9 +18,10 @@
 
 package com.dtstack.taier.scheduler.jobdealer;
 
-import com.dtstack.taier.common.queue.DelayBlockingQueue;
+import com.dtstack.taier.common.env.EnvironmentContext;
+import com.dtstack.taier.common.queue.TimerWheel;
+import com.dtstack.taier.common.util.LogCompressUtil;
 import com.dtstack.taier.pluginapi.CustomThreadFactory;
-import com.dtstack.taier.pluginapi.JobIdentifier;
 import com.dtstack.taier.pluginapi.exception.ExceptionUtil;
 import com.dtstack.taier.scheduler.WorkerOperator;
 import com.dtstack.taier.scheduler.jobdealer.bo.JobCompletedInfo;
@@ -35,60 +36,74 @@ import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 
-public class JobCompletedLogDelayDealer implements Runnable {
+/**
+ * 任务结束后延迟获取引擎日志，多个线程并行获取，线程数即该 jobResource 同时请求引擎的上限，
+ * 获取失败时按间隔指数退避重试
+ */
+public class JobCompletedLogDelayDealer {
     private static final Logger LOGGER = LoggerFactory.getLogger(JobCompletedLogDelayDealer.class);
 
     private ApplicationContext applicationContext;
     private WorkerOperator workerOperator;
     private ScheduleJobExpandService scheduleJobExpandService;
+    private EnvironmentContext environmentContext;
+
+    private static final long TICK_MS = 100L;
+    private static final int WHEEL_SIZE = 512;
 
-    private DelayBlockingQueue<JobCompletedInfo> delayBlockingQueue = new DelayBlockingQueue<JobCompletedInfo>(1000);
-    private ExecutorService taskStatusPool = new ThreadPoolExecutor(1, 1, 60L, TimeUnit.SECONDS,
-            new LinkedBlockingQueue<>(1), new CustomThreadFactory(this.getClass().getSimpleName()));
+    private TimerWheel<JobCompletedInfo> delayWheel;
+    private ExecutorService taskStatusPool;
 
     public JobCompletedLogDelayDealer(ApplicationContext applicationContext) {
         this.applicationContext = applicationContext;
         setBean();
-        taskStatusPool.execute(this);
-    }
-
-    @Override
-    public void run() {
-        while (true) {
-            try {
-                JobCompletedInfo taskInfo = delayBlockingQueue.take();
-                updateJobEngineLog(taskInfo.getJobId(), taskInfo.getJobIdentifier());
-            } catch (Exception e) {
-                LOGGER.error("", e);
-            }
-        }
+        int threads = Math.max(1, environmentContext.getJobLogCollectThreads());
+        taskStatusPool = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new CustomThreadFactory(this.getClass().getSimpleName()));
+        // 到期后交给线程池获取日志，不占用时间轮的 ticker 线程
+        delayWheel = new TimerWheel<>(this.getClass().getSimpleName(), TICK_MS, WHEEL_SIZE,
+                environmentContext.getJobDelayWheelCapacity(), this::updateJobEngineLog, taskStatusPool);
     }
 
     public void addCompletedTaskInfo(JobCompletedInfo taskInfo) {
-        try {
-            delayBlockingQueue.put(taskInfo);
-        } catch (InterruptedException e) {
-            LOGGER.error("", e);
+        if (delayWheel.add(taskInfo, taskInfo.getDelay(TimeUnit.MILLISECONDS)) == null) {
+            LOGGER.warn("jobId:{} delayWheel is full, skip collect engine log.", taskInfo.getJobId());
         }
     }
 
-    private void updateJobEngineLog(String jobId, JobIdentifier jobIdentifier) {
-
+    private void updateJobEngineLog(JobCompletedInfo taskInfo) {
+        String jobId = taskInfo.getJobId();
         try {
-            String jobLog = workerOperator.getEngineLog(jobIdentifier);
+            String jobLog = workerOperator.getEngineLog(taskInfo.getJobIdentifier());
             if (jobLog != null) {
-                scheduleJobExpandService.updateEngineLog(jobId, jobLog);
+                scheduleJobExpandService.updateEngineLog(jobId, LogCompressUtil.truncate(jobLog, environmentContext.getJobEngineLogMaxLength()));
             }
         } catch (Throwable e) {
+            if (retry(taskInfo)) {
+                LOGGER.warn("get JobEngine Log error jobId:{}, retry count:{}", jobId, taskInfo.getRetryCount() + 1, e);
+                return;
+            }
             String errorLog = ExceptionUtil.getErrorMessage(e);
             LOGGER.error("update JobEngine Log error jobId:{} ,error info {}..", jobId, errorLog);
             scheduleJobExpandService.updateEngineLog(jobId, errorLog);
         }
     }
 
+    /**
+     * 第 n 次重试延迟 retryInterval * 2^(n-1)，队列已满时不再重试
+     */
+    private boolean retry(JobCompletedInfo taskInfo) {
+        int retryCount = taskInfo.getRetryCount();
+        if (retryCount >= environmentContext.getJobLogCollectMaxRetry()) {
+            return false;
+        }
+        long delay = environmentContext.getJobLogCollectRetryInterval() << retryCount;
+        return delayWheel.add(new JobCompletedInfo(taskInfo.getJobId(), taskInfo.getJobIdentifier(), taskInfo.getComputeType(), delay, retryCount + 1), delay) != null;
+    }
 
     private void setBean() {
         scheduleJobExpandService = applicationContext.getBean(ScheduleJobExpandService.class);
         this.workerOperator = applicationContext.getBean(WorkerOperator.class);
+        this.environmentContext = applicationContext.getBean(EnvironmentContext.class);
     }
 }
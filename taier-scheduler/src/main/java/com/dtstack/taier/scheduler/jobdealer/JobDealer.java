@@ -22,6 +22,7 @@ import com.alibaba.fastjson.JSONObject;
 import com.dtstack.taier.common.enums.EJobCacheStage;
 import com.dtstack.taier.common.env.EnvironmentContext;
 import com.dtstack.taier.common.util.GenerateErrorMsgUtil;
+import com.dtstack.taier.common.util.LogCompressUtil;
 import com.dtstack.taier.common.util.SystemPropertyUtil;
 import com.dtstack.taier.common.util.TaskParamsUtils;
 import com.dtstack.taier.dao.domain.ScheduleEngineJobCache;
@@ -33,6 +34,7 @@ import com.dtstack.taier.pluginapi.enums.TaskStatus;
 import com.dtstack.taier.pluginapi.exception.ExceptionUtil;
 import com.dtstack.taier.pluginapi.pojo.ParamAction;
 import com.dtstack.taier.pluginapi.util.PublicUtil;
+import com.dtstack.taier.scheduler.PluginWrapper;
 import com.dtstack.taier.scheduler.WorkerOperator;
 import com.dtstack.taier.scheduler.enums.JobPhaseStatus;
 import com.dtstack.taier.scheduler.jobdealer.cache.ShardCache;
@@ -41,6 +43,7 @@ import com.dtstack.taier.scheduler.server.queue.GroupInfo;
 import com.dtstack.taier.scheduler.server.queue.GroupPriorityQueue;
 import com.dtstack.taier.scheduler.service.ScheduleJobCacheService;
 import com.dtstack.taier.scheduler.service.ScheduleJobService;
+import com.dtstack.taier.scheduler.service.ScheduleJobStatusJournal;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.apache.commons.collections.CollectionUtils;
@@ -88,6 +91,9 @@ public class JobDealer implements InitializingBean, ApplicationContextAware {
     @Autowired
     private ScheduleJobService scheduleJobService;
 
+    @Autowired
+    private ScheduleJobStatusJournal scheduleJobStatusJournal;
+
     @Autowired
     private EnvironmentContext environmentContext;
 
@@ -97,6 +103,9 @@ public class JobDealer implements InitializingBean, ApplicationContextAware {
     @Autowired
     private WorkerOperator workerOperator;
 
+    @Autowired
+    private PluginWrapper pluginWrapper;
+
     /**
      * key: jobResource, 计算引擎类型
      * value: queue
@@ -125,38 +134,36 @@ public class JobDealer implements InitializingBean, ApplicationContextAware {
     }
 
     /**
-     * 获取所有节点的队列大小信息（job已经submitted的除外）
-     * key1: nodeAddress,
-     * key2: jobResource
+     * 本节点的队列大小信息（job已经submitted的除外），由本节点发布到 zk
+     * key: jobResource
      */
-    public Map<String, Map<String, GroupInfo>> getAllNodesGroupQueueInfo() {
-        List<String> allNodeAddress = scheduleJobCacheService.getAllNodeAddress();
-        Map<String, Map<String, GroupInfo>> allNodeGroupInfo = Maps.newHashMap();
-        for (String nodeAddress : allNodeAddress) {
-            if (StringUtils.isBlank(nodeAddress)) {
-                continue;
-            }
-            allNodeGroupInfo.computeIfAbsent(nodeAddress, na -> {
-                Map<String, GroupInfo> nodeGroupInfo = Maps.newHashMap();
-                priorityQueueMap.forEach((jobResource, priorityQueue) -> {
-                    int groupSize = scheduleJobCacheService.countByStage(jobResource, EJobCacheStage.unSubmitted(), nodeAddress);
-                    Long minPriority = scheduleJobCacheService.minPriorityByStage(jobResource, Lists.newArrayList(EJobCacheStage.PRIORITY.getStage(), EJobCacheStage.LACKING.getStage()), nodeAddress);
-                    minPriority = minPriority == null ? 0 : minPriority;
-                    GroupInfo groupInfo = new GroupInfo();
-                    groupInfo.setSize(groupSize);
-                    groupInfo.setPriority(minPriority);
-                    nodeGroupInfo.put(jobResource, groupInfo);
-                });
-                return nodeGroupInfo;
-            });
+    public Map<String, GroupInfo> getLocalGroupQueueInfo() {
+        return getGroupQueueInfo(environmentContext.getLocalAddress());
+    }
+
+    /**
+     * 指定节点的队列大小信息，用于宕机节点容灾完成前保留其队列信息
+     * key: jobResource
+     */
+    public Map<String, GroupInfo> getGroupQueueInfo(String nodeAddress) {
+        Map<String, GroupInfo> nodeGroupInfo = Maps.newHashMap();
+        for (String jobResource : priorityQueueMap.keySet()) {
+            int groupSize = scheduleJobCacheService.countByStage(jobResource, EJobCacheStage.unSubmitted(), nodeAddress);
+            Long minPriority = scheduleJobCacheService.minPriorityByStage(jobResource, Lists.newArrayList(EJobCacheStage.PRIORITY.getStage(), EJobCacheStage.LACKING.getStage()), nodeAddress);
+            GroupInfo groupInfo = new GroupInfo();
+            groupInfo.setSize(groupSize);
+            groupInfo.setPriority(minPriority == null ? 0 : minPriority);
+            nodeGroupInfo.put(jobResource, groupInfo);
         }
-        return allNodeGroupInfo;
+        return nodeGroupInfo;
     }
 
     /**
      * 提交优先级队列->最终提交到具体执行组件
      */
     public void addSubmitJob(JobClient jobClient) {
+        //入库前确定集群配置，job_info 只保存配置的 md5 引用
+        pluginWrapper.wrapperJobClient(jobClient);
         String jobResource = jobComputeResourcePlain.getJobResource(jobClient);
         jobClient.setCallBack((jobStatus) -> {
             updateJobStatus(jobClient.getJobId(), jobStatus);
@@ -226,13 +233,25 @@ public class JobDealer implements InitializingBean, ApplicationContextAware {
         return groupPriorityQueue;
     }
 
+    /**
+     * 本节点各 jobResource 队列的提交指标
+     */
+    public List<Map<String, Object>> getSubmitMetrics() {
+        List<Map<String, Object>> metrics = new ArrayList<>(priorityQueueMap.size());
+        for (GroupPriorityQueue groupPriorityQueue : priorityQueueMap.values()) {
+            metrics.add(groupPriorityQueue.getSubmitMetrics());
+        }
+        return metrics;
+    }
+
     public void updateJobStatus(String jobId, Integer status) {
-        scheduleJobService.updateJobStatusByJobIds(Lists.newArrayList(jobId), status,null);
+        scheduleJobStatusJournal.updateStatus(jobId, status);
         LOGGER.info("jobId:{} update job status:{}.", jobId, status);
     }
 
     public void saveCache(JobClient jobClient, String jobResource, int stage, boolean insert) {
         String nodeAddress = environmentContext.getLocalAddress();
+        shardCache.putJobResource(jobClient.getJobId(), jobResource);
         if (insert) {
             scheduleJobCacheService.insert(jobClient.getJobId(), jobClient.getComputeType().getType(), stage, jobClient.getParamAction().toString(), nodeAddress, jobClient.getJobName(), jobClient.getPriority(), jobResource, jobClient.getTenantId());
             jobClient.doStatusCallBack(TaskStatus.WAITENGINE.getStatus());
@@ -270,7 +289,7 @@ public class JobDealer implements InitializingBean, ApplicationContextAware {
             //从engine获取log
             engineLog = workerOperator.getEngineLog(jobIdentifier);
             if (engineLog != null) {
-                scheduleJobService.updateExpandByJobId(jobId,engineLog,null);
+                scheduleJobService.updateExpandByJobId(jobId, LogCompressUtil.truncate(engineLog, environmentContext.getJobEngineLogMaxLength()), null);
             }
         } catch (Throwable e) {
             LOGGER.error("getAndUpdateEngineLog error jobId:{} error:.", jobId, e);
@@ -289,6 +308,18 @@ public class JobDealer implements InitializingBean, ApplicationContextAware {
         LOGGER.info("jobId:{} update job status:{}, job is finished.", jobId, TaskStatus.SUBMITFAILD.getStatus());
     }
 
+    private boolean isDelayStage(ScheduleEngineJobCache jobCache) {
+        return jobCache.getDelayExpireTime() != null
+                && (EJobCacheStage.RESTART.getStage() == jobCache.getStage() || EJobCacheStage.LACKING.getStage() == jobCache.getStage());
+    }
+
+    private void addDelayJob(JobClient jobClient, ScheduleEngineJobCache jobCache, long delay) {
+        jobClient.setCallBack((jobStatus) -> {
+            updateJobStatus(jobClient.getJobId(), jobStatus);
+        });
+        getGroupPriorityQueue(jobCache.getJobResource()).addDelayJob(jobClient, jobCache.getStage(), delay);
+    }
+
     class RecoverDealer implements Runnable {
         @Override
         public void run() {
@@ -306,11 +337,16 @@ public class JobDealer implements InitializingBean, ApplicationContextAware {
                     }
                     List<JobClient> unSubmitClients = new ArrayList<>();
                     List<JobClient> submitClients = new ArrayList<>();
+                    long now = System.currentTimeMillis();
                     for (ScheduleEngineJobCache jobCache : jobCaches) {
                         try {
                             ParamAction paramAction = PublicUtil.jsonStrToObject(jobCache.getJobInfo(), ParamAction.class);
                             JobClient jobClient = new JobClient(paramAction);
-                            if (EJobCacheStage.unSubmitted().contains(jobCache.getStage())) {
+                            shardCache.putJobResource(jobCache.getJobId(), jobCache.getJobResource());
+                            if (isDelayStage(jobCache) && jobCache.getDelayExpireTime() > now) {
+                                // 重试、资源不足的任务按剩余时间继续等待
+                                addDelayJob(jobClient, jobCache, jobCache.getDelayExpireTime() - now);
+                            } else if (EJobCacheStage.unSubmitted().contains(jobCache.getStage())) {
                                 unSubmitClients.add(jobClient);
                             } else {
                                 submitClients.add(jobClient);
@@ -114,7 +114,14 @@ public class JobRestartDealer {
      * @return
      */
     public boolean checkAndRestart(Integer status, ScheduleJob scheduleJob, ScheduleEngineJobCache jobCache, BiConsumer<ScheduleJob,JobClient> saveRetryFunction){
-        Pair<Boolean, JobClient> checkResult = checkJobInfo(scheduleJob.getJobId(), jobCache, status);
+        return checkAndRestart(status, scheduleJob, jobCache, null, saveRetryFunction);
+    }
+
+    /**
+     * @param paramAction 调用方已经解析过的 jobInfo，为空时从 jobCache 解析
+     */
+    public boolean checkAndRestart(Integer status, ScheduleJob scheduleJob, ScheduleEngineJobCache jobCache, ParamAction paramAction, BiConsumer<ScheduleJob,JobClient> saveRetryFunction){
+        Pair<Boolean, JobClient> checkResult = checkJobInfo(scheduleJob.getJobId(), jobCache, paramAction, status);
         if(!checkResult.getKey()){
             return false;
         }
@@ -142,7 +149,7 @@ public class JobRestartDealer {
 
 
 
-    private Pair<Boolean, JobClient> checkJobInfo(String jobId, ScheduleEngineJobCache jobCache, Integer status) {
+    private Pair<Boolean, JobClient> checkJobInfo(String jobId, ScheduleEngineJobCache jobCache, ParamAction paramAction, Integer status) {
         Pair<Boolean, JobClient> check = new Pair<>(false, null);
 
         if(!TaskStatus.FAILED.getStatus().equals(status) && !TaskStatus.SUBMITFAILD.getStatus().equals(status)){
@@ -150,8 +157,9 @@ public class JobRestartDealer {
         }
 
         try {
-            String jobInfo = jobCache.getJobInfo();
-            ParamAction paramAction = PublicUtil.jsonStrToObject(jobInfo, ParamAction.class);
+            if (paramAction == null) {
+                paramAction = PublicUtil.jsonStrToObject(jobCache.getJobInfo(), ParamAction.class);
+            }
             JobClient jobClient = new JobClient(paramAction);
 
             if(!jobClient.getIsFailRetry()){
@@ -177,6 +185,9 @@ public class JobRestartDealer {
         try {
             ParamAction paramAction = PublicUtil.jsonStrToObject(jobInfo, ParamAction.class);
             jobClient.setSql(paramAction.getSqlText());
+            // 重试是新的一次提交，使用集群当前的配置
+            jobClient.setPluginInfo(null);
+            jobClient.setPluginInfoMd5(null);
             //添加到重试队列中
             boolean isAdd = jobDealer.addRestartJob(jobClient);
             if (isAdd) {
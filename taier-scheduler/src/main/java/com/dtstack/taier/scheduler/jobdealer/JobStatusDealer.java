@@ -42,6 +42,8 @@ import com.dtstack.taier.scheduler.jobdealer.cache.ShardCache;
 import com.dtstack.taier.scheduler.jobdealer.cache.ShardManager;
 import com.dtstack.taier.scheduler.service.ScheduleJobCacheService;
 import com.dtstack.taier.scheduler.service.ScheduleJobService;
+import com.dtstack.taier.scheduler.service.ScheduleJobStatusJournal;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -51,6 +53,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationContext;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.*;
@@ -86,6 +89,7 @@ public class JobStatusDealer implements Runnable {
     private ShardCache shardCache;
     private String jobResource;
     private ScheduleJobService scheduleJobService;
+    private ScheduleJobStatusJournal scheduleJobStatusJournal;
     private ScheduleJobCacheService scheduleJobCacheService;
     private JobRestartDealer jobRestartDealer;
     private WorkerOperator workerOperator;
@@ -96,6 +100,8 @@ public class JobStatusDealer implements Runnable {
 
     private int taskStatusDealerPoolSize;
 
+    private int taskStatusCheckBatchSize;
+
     /**
      * 记录job 连续某个状态的频次
      */
@@ -115,27 +121,17 @@ public class JobStatusDealer implements Runnable {
                 return;
             }
 
-            jobs = jobs.stream().filter(job -> !TaskStatus.needClean(job.getValue())).collect(Collectors.toList());
+            List<String> jobIds = jobs.stream()
+                    .filter(job -> !TaskStatus.needClean(job.getValue()))
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toList());
 
             Semaphore buildSemaphore = new Semaphore(taskStatusDealerPoolSize);
-            for (Map.Entry<String, Integer> job : jobs) {
+            for (List<String> partition : Lists.partition(jobIds, taskStatusCheckBatchSize)) {
                 try {
-                    buildSemaphore.acquire();
-                    taskStatusPool.submit(() -> {
-                        try {
-                            if (LOGGER.isDebugEnabled()) {
-                                LOGGER.debug("jobId:{} before dealJob status:{}", job.getKey(), job.getValue());
-                            }
-                            dealJob(job.getKey());
-                        } catch (Throwable e) {
-                            LOGGER.error("jobId:{}", job.getKey(), e);
-                        } finally {
-                            buildSemaphore.release();
-                        }
-                    });
+                    dealJobs(partition, buildSemaphore);
                 } catch (Throwable e) {
-                    LOGGER.error("jobId:{} [acquire pool error]:",job.getKey(), e);
-                    buildSemaphore.release();
+                    LOGGER.error("jobResource:{} deal jobs size:{} error:", jobResource, partition.size(), e);
                 }
             }
 
@@ -144,77 +140,128 @@ public class JobStatusDealer implements Runnable {
         }
     }
 
+    /**
+     * 批量处理一批任务：实例和缓存各查询一次，jobInfo 只解析一次，相同集群的任务状态合并为一次插件调用，
+     * 状态回写仍然交给线程池逐个处理
+     */
+    private void dealJobs(List<String> jobIds, Semaphore buildSemaphore) {
+        Map<String, ScheduleJob> scheduleJobMap = scheduleJobService.getByJobIds(jobIds)
+                .stream()
+                .collect(Collectors.toMap(ScheduleJob::getJobId, g -> (g), (o, n) -> n));
+        Map<String, ScheduleEngineJobCache> engineJobCacheMap = scheduleJobCacheService.getByJobIds(jobIds)
+                .stream()
+                .collect(Collectors.toMap(ScheduleEngineJobCache::getJobId, g -> (g), (o, n) -> n));
+
+        Map<String, ParamAction> paramActionMap = new HashMap<>(jobIds.size());
+        List<JobIdentifier> jobIdentifiers = new ArrayList<>(jobIds.size());
+        for (String jobId : jobIds) {
+            ScheduleJob scheduleJob = scheduleJobMap.get(jobId);
+            ScheduleEngineJobCache engineJobCache = engineJobCacheMap.get(jobId);
+            try {
+                if (scheduleJob == null || engineJobCache == null ||
+                        (StringUtils.isBlank(scheduleJob.getApplicationId()) && StringUtils.isBlank(scheduleJob.getEngineJobId()))) {
+                    dealMissingJob(jobId, scheduleJob, engineJobCache);
+                } else {
+                    ParamAction paramAction = PublicUtil.jsonStrToObject(engineJobCache.getJobInfo(), ParamAction.class);
+                    paramActionMap.put(jobId, paramAction);
+                    jobIdentifiers.add(buildJobIdentifier(scheduleJob, paramAction));
+                }
+            } catch (Throwable e) {
+                LOGGER.error("jobId:{}", jobId, e);
+            }
+        }
+        if (jobIdentifiers.isEmpty()) {
+            return;
+        }
+
+        Map<String, TaskStatus> statusMap = workerOperator.getJobStatusBatch(jobIdentifiers);
+        for (JobIdentifier jobIdentifier : jobIdentifiers) {
+            String jobId = jobIdentifier.getJobId();
+            try {
+                buildSemaphore.acquire();
+                taskStatusPool.submit(() -> {
+                    try {
+                        dealJobStatus(scheduleJobMap.get(jobId), engineJobCacheMap.get(jobId), paramActionMap.get(jobId), jobIdentifier, statusMap.get(jobId));
+                    } catch (Throwable e) {
+                        LOGGER.error("jobId:{}", jobId, e);
+                    } finally {
+                        buildSemaphore.release();
+                    }
+                });
+            } catch (Throwable e) {
+                LOGGER.error("jobId:{} [acquire pool error]:", jobId, e);
+                buildSemaphore.release();
+            }
+        }
+    }
 
-    private void dealJob(String jobId) throws Exception {
-        ScheduleJob scheduleJob = scheduleJobService.getByJobId(jobId);
-        ScheduleEngineJobCache engineJobCache = scheduleJobCacheService.getJobCacheByJobId(jobId);
-        if (scheduleJob == null || engineJobCache == null ||
-                (StringUtils.isBlank(scheduleJob.getApplicationId()) && StringUtils.isBlank(scheduleJob.getEngineJobId()))) {
-            shardCache.updateLocalMemTaskStatus(jobId, TaskStatus.CANCELED.getStatus());
+    private void dealMissingJob(String jobId, ScheduleJob scheduleJob, ScheduleEngineJobCache engineJobCache) {
+        shardCache.updateLocalMemTaskStatus(jobId, TaskStatus.CANCELED.getStatus());
 
-            Integer status = TaskStatus.CANCELED.getStatus();
-            String engineJobId = null;
-            if (scheduleJob != null) {
-                engineJobId = scheduleJob.getEngineJobId();
+        Integer status = TaskStatus.CANCELED.getStatus();
+        String engineJobId = null;
+        if (scheduleJob != null) {
+            engineJobId = scheduleJob.getEngineJobId();
 
-                if (TaskStatus.getStoppedStatus().contains(scheduleJob.getStatus())) {
-                    status = scheduleJob.getStatus();
-                } else {
-                    scheduleJobService.updateJobStatusAndExecTime(jobId, status);
-                }
+            if (TaskStatus.getStoppedStatus().contains(scheduleJob.getStatus())) {
+                status = scheduleJob.getStatus();
             } else {
                 scheduleJobService.updateJobStatusAndExecTime(jobId, status);
             }
-
-            scheduleJobCacheService.deleteByJobId(jobId);
-            LOGGER.info("jobId:{} set job finished, status:{}, scheduleJob is {} null, engineJobCache is {} null, engineJobId is {} blank.",
-                    jobId, status, scheduleJob == null ? "" : "not", engineJobCache == null ? "" : "not", engineJobId == null ? "" : "not");
         } else {
-            String engineTaskId = scheduleJob.getEngineJobId();
-            String appId = scheduleJob.getApplicationId();
-            ParamAction paramAction = PublicUtil.jsonStrToObject(engineJobCache.getJobInfo(), ParamAction.class);
-            Integer taskType = paramAction.getTaskType();
-            Map<String, Object> pluginInfo = paramAction.getPluginInfo();
-            JobIdentifier jobIdentifier = new JobIdentifier(engineTaskId, appId, jobId,scheduleJob.getTenantId(),taskType,
-                    TaskParamsUtils.parseDeployTypeByTaskParams(paramAction.getTaskParams(),scheduleJob.getComputeType()).getType(),
-                    null,  MapUtils.isEmpty(pluginInfo) ? null : JSONObject.toJSONString(pluginInfo),paramAction.getComponentVersion());
+            scheduleJobService.updateJobStatusAndExecTime(jobId, status);
+        }
 
-            TaskStatus taskStatus = workerOperator.getJobStatus(jobIdentifier);
+        scheduleJobCacheService.deleteByJobId(jobId);
+        LOGGER.info("jobId:{} set job finished, status:{}, scheduleJob is {} null, engineJobCache is {} null, engineJobId is {} blank.",
+                jobId, status, scheduleJob == null ? "" : "not", engineJobCache == null ? "" : "not", engineJobId == null ? "" : "not");
+    }
 
-            if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug("------ jobId:{} dealJob status:{}", jobId, taskStatus);
-            }
+    private JobIdentifier buildJobIdentifier(ScheduleJob scheduleJob, ParamAction paramAction) {
+        Integer taskType = paramAction.getTaskType();
+        Map<String, Object> pluginInfo = paramAction.getPluginInfo();
+        return new JobIdentifier(scheduleJob.getEngineJobId(), scheduleJob.getApplicationId(), scheduleJob.getJobId(), scheduleJob.getTenantId(), taskType,
+                TaskParamsUtils.parseDeployTypeByTaskParams(paramAction.getTaskParams(), scheduleJob.getComputeType()).getType(),
+                null, MapUtils.isEmpty(pluginInfo) ? null : JSONObject.toJSONString(pluginInfo), paramAction.getComponentVersion());
+    }
 
-            if (taskStatus != null) {
-
-                taskStatus = checkNotFoundStatus(taskStatus, jobId);
-                Integer status = taskStatus.getStatus();
-                // 重试状态 先不更新状态
-                boolean isRestart = jobRestartDealer.checkAndRestart(status, scheduleJob, engineJobCache, (job, client) -> ForkJoinPool.commonPool().execute(() -> {
-                    String engineLog = workerOperator.getEngineLog(jobIdentifier);
-                    jobRestartDealer.jobRetryRecord(job, client, engineLog);
-                }));
-                if (isRestart) {
-                    LOGGER.info("----- jobId:{} after dealJob status:{}", jobId, taskStatus);
-                    return;
-                }
+    private void dealJobStatus(ScheduleJob scheduleJob, ScheduleEngineJobCache engineJobCache, ParamAction paramAction, JobIdentifier jobIdentifier, TaskStatus taskStatus) {
+        String jobId = scheduleJob.getJobId();
+        String appId = scheduleJob.getApplicationId();
 
-                shardCache.updateLocalMemTaskStatus(jobId, status);
-                updateJobStatusWithPredicate(scheduleJob, jobId, status);
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("------ jobId:{} dealJob status:{}", jobId, taskStatus);
+        }
 
-                //数据的更新顺序，先更新job_cache，再更新engine_batch_job
-                if (TaskStatus.getStoppedStatus().contains(status)) {
-                    jobLogDelayDealer(jobId, jobIdentifier, engineJobCache.getComputeType(),scheduleJob.getType());
-                    jobStatusFrequency.remove(jobId);
-                    scheduleJobCacheService.deleteByJobId(jobId);
-                    updateHistoryEndTime(jobId,appId);
-                    LOGGER.info("------ jobId:{} is stop status {} delete jobCache", jobId, status);
-                }
+        if (taskStatus != null) {
+
+            taskStatus = checkNotFoundStatus(taskStatus, jobId);
+            Integer status = taskStatus.getStatus();
+            // 重试状态 先不更新状态
+            boolean isRestart = jobRestartDealer.checkAndRestart(status, scheduleJob, engineJobCache, paramAction, (job, client) -> ForkJoinPool.commonPool().execute(() -> {
+                String engineLog = workerOperator.getEngineLog(jobIdentifier);
+                jobRestartDealer.jobRetryRecord(job, client, engineLog);
+            }));
+            if (isRestart) {
+                LOGGER.info("----- jobId:{} after dealJob status:{}", jobId, taskStatus);
+                return;
+            }
 
+            shardCache.updateLocalMemTaskStatus(jobId, status);
+            updateJobStatusWithPredicate(scheduleJob, jobId, status);
 
-                if (LOGGER.isDebugEnabled()) {
-                    LOGGER.debug("------ jobId:{} after dealJob status:{}", jobId, taskStatus);
-                }
+            //数据的更新顺序，先更新job_cache，再更新engine_batch_job
+            if (TaskStatus.getStoppedStatus().contains(status)) {
+                jobLogDelayDealer(jobId, jobIdentifier, engineJobCache.getComputeType(),scheduleJob.getType());
+                jobStatusFrequency.remove(jobId);
+                scheduleJobCacheService.deleteByJobId(jobId);
+                updateHistoryEndTime(jobId,appId);
+                LOGGER.info("------ jobId:{} is stop status {} delete jobCache", jobId, status);
+            }
+
+
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("------ jobId:{} after dealJob status:{}", jobId, taskStatus);
             }
         }
     }
@@ -247,7 +294,8 @@ public class JobStatusDealer implements Runnable {
                 // 如果是停止状态 更新停止时间
                 scheduleJobService.updateJobStatusAndExecTime(jobId, status);
             } else {
-                scheduleJobService.updateStatus(jobId, status);
+                // 运行中的状态延迟批量写入
+                scheduleJobStatusJournal.updateStatus(jobId, status);
             }
         }
     }
@@ -306,6 +354,7 @@ public class JobStatusDealer implements Runnable {
         createLogDelayDealer();
 
         this.taskStatusDealerPoolSize = environmentContext.getTaskStatusDealerPoolSize();
+        this.taskStatusCheckBatchSize = environmentContext.getTaskStatusCheckBatchSize();
         this.taskStatusPool = new ThreadPoolExecutor(taskStatusDealerPoolSize, taskStatusDealerPoolSize, 60L, TimeUnit.SECONDS,
                 new LinkedBlockingQueue<>(1000), new CustomThreadFactory(jobResource + this.getClass().getSimpleName() + "DealJob"), new BlockCallerPolicy());
     }
@@ -315,6 +364,7 @@ public class JobStatusDealer implements Runnable {
         this.jobRestartDealer = applicationContext.getBean(JobRestartDealer.class);
         this.workerOperator = applicationContext.getBean(WorkerOperator.class);
         this.scheduleJobService = applicationContext.getBean(ScheduleJobService.class);
+        this.scheduleJobStatusJournal = applicationContext.getBean(ScheduleJobStatusJournal.class);
         this.scheduleJobCacheService = applicationContext.getBean(ScheduleJobCacheService.class);
         this.scheduleJobHistoryMapper = applicationContext.getBean(ScheduleJobHistoryMapper.class);
     }
@@ -23,8 +23,7 @@ import com.baomidou.mybatisplus.extension.conditions.update.LambdaUpdateChainWra
 import com.dtstack.taier.common.CustomThreadRunsPolicy;
 import com.dtstack.taier.common.enums.*;
 import com.dtstack.taier.common.env.EnvironmentContext;
-import com.dtstack.taier.common.exception.RdosDefineException;
-import com.dtstack.taier.common.queue.DelayBlockingQueue;
+import com.dtstack.taier.common.queue.TimerWheel;
 import com.dtstack.taier.dao.domain.ScheduleEngineJobCache;
 import com.dtstack.taier.dao.domain.ScheduleJob;
 import com.dtstack.taier.dao.domain.ScheduleJobOperatorRecord;
@@ -40,6 +39,7 @@ import com.dtstack.taier.scheduler.jobdealer.cache.ShardCache;
 import com.dtstack.taier.scheduler.service.ScheduleJobCacheService;
 import com.dtstack.taier.scheduler.service.ScheduleJobOperatorRecordService;
 import com.dtstack.taier.scheduler.service.ScheduleJobService;
+import com.dtstack.taier.scheduler.service.ScheduleJobStopProgressService;
 import com.google.common.collect.Lists;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
@@ -53,6 +53,7 @@ import org.springframework.stereotype.Component;
 import java.sql.Timestamp;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -83,19 +84,35 @@ public class JobStopDealer implements InitializingBean, DisposableBean {
     @Autowired
     private ScheduleJobOperatorRecordService scheduleJobOperatorRecordService;
 
-    private static final int JOB_STOP_LIMIT = 1000;
+    @Autowired
+    private ScheduleJobStopProgressService scheduleJobStopProgressService;
+
+    /**
+     * 每批处理的实例数，选出的实例不限数量，按批写入停止记录
+     */
+    public static final int JOB_STOP_BATCH_SIZE = 1000;
     private static final int WAIT_INTERVAL = 3000;
     private static final int OPERATOR_EXPIRED_INTERVAL = 60000;
-    private final int asyncDealStopJobQueueSize = 100;
-    private final int asyncDealStopJobPoolSize = 10;
+    private static final long STOP_PROGRESS_CLEAN_INTERVAL = TimeUnit.HOURS.toMillis(1);
+    private static final String DEFAULT_JOB_RESOURCE = "default";
+    private final int asyncDealStopJobQueueSize = 1000;
     private int jobStoppedRetry;
     private long jobStoppedDelay;
 
-    private final DelayBlockingQueue<StoppedJob<JobElement>> stopJobQueue = new DelayBlockingQueue<StoppedJob<JobElement>>(1000);
+    private static final long STOP_WHEEL_TICK_MS = 100L;
+    private static final int STOP_WHEEL_SIZE = 512;
+
+    private TimerWheel<StoppedJob<JobElement>> stopJobWheel;
     private final ExecutorService delayStopProcessorService = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), new CustomThreadFactory("delayStopProcessor"));
-    private final ExecutorService asyncDealStopJobService = new ThreadPoolExecutor(asyncDealStopJobPoolSize, asyncDealStopJobPoolSize, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(asyncDealStopJobQueueSize), new CustomThreadFactory("asyncDealStopJob"), new CustomThreadRunsPolicy("asyncDealStopJob", "stop", 180));
+    private final ExecutorService stopJobSelectService = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), new CustomThreadFactory("stopJobSelect"));
+
+    /**
+     * jobResource(计算引擎+集群+队列) -> 停止线程池，每个集群队列的并发停止数单独限制，
+     * 一个集群大量停止不会占满其他集群的停止线程
+     */
+    private final Map<String, ExecutorService> asyncDealStopJobServices = new ConcurrentHashMap<>();
+
     private final ScheduledExecutorService scheduledService = new ScheduledThreadPoolExecutor(1, new CustomThreadFactory(this.getClass().getSimpleName()));
-    private final DelayStopProcessor delayStopProcessor = new DelayStopProcessor();
     private final AcquireStopJob acquireStopJob = new AcquireStopJob();
 
     private static final List<Integer> SPECIAL_TASK_TYPES = Lists.newArrayList(EScheduleJobType.WORK_FLOW.getVal());
@@ -122,10 +139,59 @@ public class JobStopDealer implements InitializingBean, DisposableBean {
             return 0;
         }
 
-        if (scheduleJobList.size() > JOB_STOP_LIMIT) {
-            throw new RdosDefineException("please don't stop too many tasks at once, limit:" + JOB_STOP_LIMIT);
+        for (List<ScheduleJob> partition : Lists.partition(scheduleJobList, JOB_STOP_BATCH_SIZE)) {
+            addStopJobs(partition, isForce, null);
         }
+        return scheduleJobList.size();
+    }
 
+    /**
+     * 异步批量停止，按 id 分页选出实例，每页写入停止记录，不限制实例数
+     *
+     * @param name      批量停止名称
+     * @param jobLoader 分页查询实例，参数为上一页最大 id，返回按 id 升序的实例，返回空时结束
+     * @param isForce   是否强制杀死
+     * @return stopId，用于查询停止进度
+     */
+    public String submitStopJobs(String name, Function<Long, List<ScheduleJob>> jobLoader, Integer isForce) {
+        String stopId = UUID.randomUUID().toString();
+        scheduleJobStopProgressService.create(stopId, name, environmentContext.getLocalAddress());
+        stopJobSelectService.submit(() -> {
+            String errorMsg = null;
+            try {
+                long startId = 0L;
+                List<ScheduleJob> scheduleJobs = jobLoader.apply(startId);
+                while (CollectionUtils.isNotEmpty(scheduleJobs)) {
+                    addStopJobs(scheduleJobs, isForce, stopId);
+                    startId = scheduleJobs.get(scheduleJobs.size() - 1).getId();
+                    scheduleJobs = jobLoader.apply(startId);
+                }
+            } catch (Throwable e) {
+                LOGGER.error("stopId:{} name:{} select stop jobs error", stopId, name, e);
+                errorMsg = e.getMessage();
+            } finally {
+                try {
+                    scheduleJobStopProgressService.selectFinish(stopId, errorMsg);
+                    LOGGER.info("stopId:{} name:{} select stop jobs finish, progress:{}", stopId, name, scheduleJobStopProgressService.getProgress(stopId));
+                } catch (Throwable e) {
+                    LOGGER.error("stopId:{} name:{} update select finish error", stopId, name, e);
+                }
+            }
+        });
+        return stopId;
+    }
+
+    /**
+     * 查询批量停止进度
+     *
+     * @param stopId {@link #submitStopJobs} 返回的 stopId
+     * @return 停止进度，过期或不存在时返回 null
+     */
+    public Map<String, Object> getStopProgress(String stopId) {
+        return scheduleJobStopProgressService.getProgress(stopId);
+    }
+
+    private void addStopJobs(List<ScheduleJob> scheduleJobList, Integer isForce, String stopId) {
         // 分离实例是否提交到yarn上，如果提交到yarn上，需要发送请求stop，如果未提交，直接更新db
         List<ScheduleJob> needSendStopJobs = new ArrayList<>(scheduleJobList.size());
         List<String> unSubmitJobList= new ArrayList<>(scheduleJobList.size());
@@ -137,13 +203,14 @@ public class JobStopDealer implements InitializingBean, DisposableBean {
             }
         }
 
+        int stoppingSize = 0;
         // 查询一遍Operator表，过滤数据
         List<ScheduleJobOperatorRecord> scheduleJobOperatorRecordList = scheduleJobOperatorRecordService.lambdaQuery()
                 .in(ScheduleJobOperatorRecord::getJobId, scheduleJobList.stream().map(ScheduleJob::getJobId).collect(Collectors.toList()))
                 .eq(ScheduleJobOperatorRecord::getIsDeleted, Deleted.NORMAL.getStatus())
                 .eq(ScheduleJobOperatorRecord::getOperatorType,OperatorType.STOP.getType())
                 .list();
-        List<String> alreadyExistJobIds = scheduleJobOperatorRecordList.stream().map(ScheduleJobOperatorRecord::getJobId).collect(Collectors.toList());
+        Set<String> alreadyExistJobIds = scheduleJobOperatorRecordList.stream().map(ScheduleJobOperatorRecord::getJobId).collect(Collectors.toSet());
 
 
         // 处理已经提交到yarn的实例状态
@@ -152,16 +219,22 @@ public class JobStopDealer implements InitializingBean, DisposableBean {
             Integer finalIsForce = isForce;
             List<ScheduleJobOperatorRecord> jobOperatorRecordList = needSendStopJobs.stream()
                     .filter(scheduleJob -> !alreadyExistJobIds.contains(scheduleJob.getJobId()))
-                    .map(scheduleJob -> buildScheduleJobOperatorRecord(finalIsForce, scheduleJob)).collect(Collectors.toList());
+                    .map(scheduleJob -> buildScheduleJobOperatorRecord(finalIsForce, scheduleJob, stopId)).collect(Collectors.toList());
 
             scheduleJobOperatorRecordService.saveBatch(jobOperatorRecordList);
+            // 已经有停止记录的实例由之前的停止统计，实例全部选出前进度不会结束，停止记录先处理完也不影响
+            stoppingSize = jobOperatorRecordList.size();
         }
 
         // 更新未提交到yarn实例状态
         if (CollectionUtils.isNotEmpty(unSubmitJobList)) {
             cancellingJob(scheduleJobService.lambdaUpdate().in(ScheduleJob::getJobId, unSubmitJobList));
         }
-        return scheduleJobList.size();
+
+        if (stopId != null) {
+            scheduleJobStopProgressService.addSelected(stopId, scheduleJobList.size(), unSubmitJobList.size(), stoppingSize);
+        }
+
     }
 
     /**
@@ -169,14 +242,16 @@ public class JobStopDealer implements InitializingBean, DisposableBean {
      *
      * @param finalIsForce 是否强制
      * @param scheduleJob 周期实例
+     * @param stopId 所属批量停止的id
      * @return ScheduleJobOperatorRecord
      */
-    private ScheduleJobOperatorRecord buildScheduleJobOperatorRecord(Integer finalIsForce, ScheduleJob scheduleJob) {
+    private ScheduleJobOperatorRecord buildScheduleJobOperatorRecord(Integer finalIsForce, ScheduleJob scheduleJob, String stopId) {
         ScheduleJobOperatorRecord jobStopRecord = new ScheduleJobOperatorRecord();
         jobStopRecord.setJobId(scheduleJob.getJobId());
         jobStopRecord.setOperatorType(OperatorType.STOP.getType());
         jobStopRecord.setForceCancelFlag(finalIsForce);
         jobStopRecord.setNodeAddress(environmentContext.getLocalAddress());
+        jobStopRecord.setStopId(stopId);
         return jobStopRecord;
     }
 
@@ -211,20 +286,41 @@ public class JobStopDealer implements InitializingBean, DisposableBean {
         jobStoppedRetry = environmentContext.getJobStoppedRetry();
         jobStoppedDelay = environmentContext.getJobStoppedDelay();
 
-        delayStopProcessorService.submit(delayStopProcessor);
+        // 停止重试挂到时间轮上，到期后由 delayStopProcessor 线程分发到各 jobResource 的停止线程池
+        stopJobWheel = new TimerWheel<>(this.getClass().getSimpleName(), STOP_WHEEL_TICK_MS, STOP_WHEEL_SIZE,
+                environmentContext.getJobDelayWheelCapacity(), this::submitStopJob, delayStopProcessorService);
         scheduledService.scheduleWithFixedDelay(
                 acquireStopJob,
                 WAIT_INTERVAL,
                 WAIT_INTERVAL,
                 TimeUnit.MILLISECONDS);
+        scheduledService.scheduleWithFixedDelay(
+                this::cleanStopProgress,
+                STOP_PROGRESS_CLEAN_INTERVAL,
+                STOP_PROGRESS_CLEAN_INTERVAL,
+                TimeUnit.MILLISECONDS);
+    }
+
+    private void cleanStopProgress() {
+        try {
+            int deleted = scheduleJobStopProgressService.deleteExpired(environmentContext.getJobStopProgressTimeout());
+            if (deleted > 0) {
+                LOGGER.info("clean expired stop progress:{}", deleted);
+            }
+        } catch (Throwable e) {
+            LOGGER.error("clean expired stop progress error:", e);
+        }
     }
 
     @Override
     public void destroy() throws Exception {
-        delayStopProcessor.close();
+        if (stopJobWheel != null) {
+            stopJobWheel.stop();
+        }
         delayStopProcessorService.shutdownNow();
         scheduledService.shutdownNow();
-        asyncDealStopJobService.shutdownNow();
+        stopJobSelectService.shutdownNow();
+        asyncDealStopJobServices.values().forEach(ExecutorService::shutdownNow);
         LOGGER.info("job stop process thread is shutdown...");
     }
 
@@ -271,12 +367,13 @@ public class JobStopDealer implements InitializingBean, DisposableBean {
                             //停止任务的时效性，发起停止操作要比任务存入jobCache表的时间要迟
                             if (jobCache.getGmtCreate().after(jobStopRecord.getGmtCreate())) {
                                 scheduleJobOperatorRecordService.removeById(jobStopRecord.getId());
+                                finishStopping(jobStopRecord.getStopId(), true);
                                 continue;
                             }
 
                             boolean forceCancelFlag = ForceCancelFlag.YES.getFlag().equals(jobStopRecord.getForceCancelFlag());
-                            JobElement jobElement = new JobElement(jobCache.getJobId(), jobStopRecord.getId(), forceCancelFlag );
-                            asyncDealStopJobService.submit(() -> asyncDealStopJob(new StoppedJob<>(jobElement, jobStoppedRetry, jobStoppedDelay)));
+                            JobElement jobElement = new JobElement(jobCache.getJobId(), jobStopRecord.getId(), forceCancelFlag, jobCache.getJobResource(), jobStopRecord.getStopId());
+                            submitStopJob(new StoppedJob<>(jobElement, jobStoppedRetry, jobStoppedDelay));
                         } else {
                             //jobCache表没有记录，可能任务已经停止。在update表时增加where条件不等于stopped
                             ScheduleJob scheduleJob = new ScheduleJob();
@@ -288,7 +385,9 @@ public class JobStopDealer implements InitializingBean, DisposableBean {
                                     .update(scheduleJob);
                             LOGGER.info("[Unnormal Job] jobId:{} update job status:{}, job is finished.", jobStopRecord.getJobId(), TaskStatus.CANCELED.getStatus());
                             shardCache.updateLocalMemTaskStatus(jobStopRecord.getJobId(), TaskStatus.CANCELED.getStatus());
+                            shardCache.removeJobResource(jobStopRecord.getJobId());
                             scheduleJobOperatorRecordService.removeById(jobStopRecord.getId());
+                            finishStopping(jobStopRecord.getStopId(), true);
                         }
                     }
 
@@ -300,40 +399,39 @@ public class JobStopDealer implements InitializingBean, DisposableBean {
         }
     }
 
-    private class DelayStopProcessor implements Runnable {
-        private volatile Boolean open = Boolean.TRUE;
-
-        @Override
-        public void run() {
-            LOGGER.info("DelayStopProcessor thread is start...");
-            while (open) {
-                try {
-                    StoppedJob<JobElement> stoppedJob = stopJobQueue.take();
-                    asyncDealStopJobService.submit(() -> asyncDealStopJob(stoppedJob));
-                } catch (InterruptedException ie){
-                    LOGGER.warn("interruption of stopJobQueue.take...");
-                    break;
-                } catch (Exception e) {
-                    LOGGER.error("", e);
-                }
-            }
-        }
-
-        public void close(){
-            open = Boolean.FALSE;
-        }
+    /**
+     * 按 jobResource 分组提交停止，同一个集群队列的停止请求并发数受限
+     */
+    private void submitStopJob(StoppedJob<JobElement> stoppedJob) {
+        String jobResource = StringUtils.isBlank(stoppedJob.getJob().jobResource) ? DEFAULT_JOB_RESOURCE : stoppedJob.getJob().jobResource;
+        ExecutorService executorService = asyncDealStopJobServices.computeIfAbsent(jobResource, resource -> {
+            int concurrency = environmentContext.getJobStopResourceConcurrency();
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(concurrency, concurrency, 60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(asyncDealStopJobQueueSize), new CustomThreadFactory("asyncDealStopJob_" + resource),
+                    new CustomThreadRunsPolicy("asyncDealStopJob_" + resource, "stop", 180));
+            executor.allowCoreThreadTimeOut(true);
+            return executor;
+        });
+        executorService.submit(() -> asyncDealStopJob(stoppedJob));
+    }
 
+    /**
+     * 停止记录处理结束，更新所属批量停止的进度
+     */
+    private void finishStopping(String stopId, boolean success) {
+        scheduleJobStopProgressService.finishStopping(stopId, success);
     }
 
     private void asyncDealStopJob(StoppedJob<JobElement> stoppedJob) {
         try {
-            if (!checkExpired(stoppedJob.getJob())) {
-                ScheduleEngineJobCache jobCache = ScheduleJobCacheService.getByJobId(stoppedJob.getJob().jobId);
-                StoppedStatus stoppedStatus = this.stopJob(stoppedJob.getJob());
+            ScheduleEngineJobCache jobCache = ScheduleJobCacheService.getByJobId(stoppedJob.getJob().jobId);
+            if (!checkExpired(stoppedJob.getJob(), jobCache)) {
+                StoppedStatus stoppedStatus = this.stopJob(stoppedJob.getJob(), jobCache);
                 switch (stoppedStatus) {
                     case STOPPED:
                     case MISSED:
                         scheduleJobOperatorRecordService.removeById(stoppedJob.getJob().stopJobId);
+                        finishStopping(stoppedJob.getJob().stopId, true);
                         break;
                     case STOPPING:
                     case RETRY:
@@ -344,14 +442,19 @@ public class JobStopDealer implements InitializingBean, DisposableBean {
                                 stoppedJob.resetDelay(jobStoppedDelay);
                             }
                             stoppedJob.incrCount();
-                            stopJobQueue.put(stoppedJob);
+                            if (stopJobWheel.add(stoppedJob, stoppedJob.getDelay(TimeUnit.MILLISECONDS)) == null) {
+                                // 停止记录保留，操作超时后会被重新选出
+                                LOGGER.warn("jobId:{} stopJobWheel is full, retry after stop record expired.", stoppedJob.getJob().jobId);
+                            }
                         } else {
                             if (EComputeType.STREAM.getType() == jobCache.getComputeType()) {
                                 // stream 任务 超过停止最大限制不更改状态
                                 scheduleJobOperatorRecordService.deleteById(stoppedJob.getJob().stopJobId);
+                                finishStopping(stoppedJob.getJob().stopId, false);
                                 LOGGER.warn("stream jobId:{} retry limited ,job status can not change!", stoppedJob.getJob().jobId);
                             } else {
                                 removeMemStatusAndJobCache(stoppedJob.getJob().jobId);
+                                finishStopping(stoppedJob.getJob().stopId, false);
                                 LOGGER.warn("jobId:{} retry limited!", stoppedJob.getJob().jobId);
                             }
                         }
@@ -359,6 +462,7 @@ public class JobStopDealer implements InitializingBean, DisposableBean {
                 }
             } else {
                 scheduleJobOperatorRecordService.removeById(stoppedJob.getJob().stopJobId);
+                finishStopping(stoppedJob.getJob().stopId, true);
                 LOGGER.warn("delete stop record jobId {} stopJobId {} ", stoppedJob.getJob().jobId, stoppedJob.getJob().stopJobId);
             }
 
@@ -367,8 +471,7 @@ public class JobStopDealer implements InitializingBean, DisposableBean {
         }
     }
 
-    private StoppedStatus stopJob(JobElement jobElement) throws Exception {
-        ScheduleEngineJobCache jobCache = ScheduleJobCacheService.getByJobId(jobElement.jobId);
+    private StoppedStatus stopJob(JobElement jobElement, ScheduleEngineJobCache jobCache) throws Exception {
         ScheduleJob scheduleJob = scheduleJobService.lambdaQuery()
                 .eq(ScheduleJob::getJobId, jobElement.jobId)
                 .eq(ScheduleJob::getIsDeleted, Deleted.NORMAL.getStatus())
@@ -434,8 +537,7 @@ public class JobStopDealer implements InitializingBean, DisposableBean {
         LOGGER.info("jobId:{} delete jobCache and update job status:{}, job set finished.", jobId, TaskStatus.CANCELED.getStatus());
     }
 
-    private boolean checkExpired(JobElement jobElement) {
-        ScheduleEngineJobCache jobCache = ScheduleJobCacheService.getByJobId(jobElement.jobId);
+    private boolean checkExpired(JobElement jobElement, ScheduleEngineJobCache jobCache) {
         ScheduleJobOperatorRecord scheduleJobOperatorRecord = scheduleJobOperatorRecordService.getById(jobElement.stopJobId);
 
         if (jobCache != null && scheduleJobOperatorRecord != null && scheduleJobOperatorRecord.getGmtCreate() != null) {
@@ -450,12 +552,16 @@ public class JobStopDealer implements InitializingBean, DisposableBean {
         public String jobId;
         public long stopJobId;
         public boolean isForceCancel;
+        public String jobResource;
+        public String stopId;
 
 
-        public JobElement(String jobId, long stopJobId, boolean isForceCancel) {
+        public JobElement(String jobId, long stopJobId, boolean isForceCancel, String jobResource, String stopId) {
             this.jobId = jobId;
             this.stopJobId = stopJobId;
             this.isForceCancel = isForceCancel;
+            this.jobResource = jobResource;
+            this.stopId = stopId;
         }
     }
 }
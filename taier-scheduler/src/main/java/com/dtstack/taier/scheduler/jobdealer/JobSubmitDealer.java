@@ -19,15 +19,13 @@
 package com.dtstack.taier.scheduler.jobdealer;
 
 import com.alibaba.fastjson.JSONObject;
-import com.dtstack.taier.common.BlockCallerPolicy;
 import com.dtstack.taier.common.enums.EJobCacheStage;
 import com.dtstack.taier.common.enums.EScheduleJobType;
 import com.dtstack.taier.common.env.EnvironmentContext;
 import com.dtstack.taier.common.exception.ClientAccessException;
 import com.dtstack.taier.common.exception.RdosDefineException;
 import com.dtstack.taier.common.exception.WorkerAccessException;
-import com.dtstack.taier.common.queue.DelayBlockingQueue;
-import com.dtstack.taier.common.util.SleepUtil;
+import com.dtstack.taier.common.queue.TimerWheel;
 import com.dtstack.taier.dao.domain.ScheduleEngineJobCache;
 import com.dtstack.taier.pluginapi.CustomThreadFactory;
 import com.dtstack.taier.pluginapi.JobClient;
@@ -43,6 +41,7 @@ import com.dtstack.taier.scheduler.jobdealer.cache.ShardCache;
 import com.dtstack.taier.scheduler.server.JobPartitioner;
 import com.dtstack.taier.scheduler.server.queue.GroupInfo;
 import com.dtstack.taier.scheduler.server.queue.GroupPriorityQueue;
+import com.dtstack.taier.scheduler.server.queue.TenantFairQueue;
 import com.dtstack.taier.scheduler.service.ScheduleJobCacheService;
 import com.dtstack.taier.scheduler.service.ScheduleJobExpandService;
 import org.apache.commons.lang3.StringUtils;
@@ -50,9 +49,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationContext;
 
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * company: www.dtstack.com
@@ -68,6 +69,12 @@ public class JobSubmitDealer implements Runnable {
      */
     private static LinkedBlockingQueue<JobClient> submittedQueue = new LinkedBlockingQueue<>();
 
+    /**
+     * 资源不足等待的任务挂在时间轮上，时间轮精度
+     */
+    private static final long PARKING_TICK_MS = 100L;
+    private static final int PARKING_WHEEL_SIZE = 512;
+
     private JobPartitioner jobPartitioner;
     private WorkerOperator workerOperator;
     private ScheduleJobCacheService ScheduleJobCacheService;
@@ -86,11 +93,19 @@ public class JobSubmitDealer implements Runnable {
     private String jobResource = null;
     private GroupPriorityQueue priorityQueue;
     private PriorityBlockingQueue<JobClient> queue = null;
-    private DelayBlockingQueue<SimpleJobDelay<JobClient>> delayJobQueue = null;
+    private TimerWheel<SimpleJobDelay<JobClient>> delayJobWheel = null;
+    private TimerWheel<ParkedJob> parkingWheel = null;
+    private TenantFairQueue fairQueue = null;
     private JudgeResult workerNotFindResult = JudgeResult.notOk( "worker not find");
     private ExecutorService jobSubmitConcurrentService;
     private ScheduleJobExpandService scheduleJobExpandService;
 
+    private final AtomicLong submittedCount = new AtomicLong();
+    private final AtomicLong totalWaitTime = new AtomicLong();
+    private final AtomicLong maxWaitTime = new AtomicLong();
+    private final AtomicLong parkedCount = new AtomicLong();
+    private final AtomicLong totalParkTime = new AtomicLong();
+
     public JobSubmitDealer(String localAddress, GroupPriorityQueue priorityQueue, ApplicationContext applicationContext) {
         this.jobPartitioner = applicationContext.getBean(JobPartitioner.class);
         this.workerOperator = applicationContext.getBean(WorkerOperator.class);
@@ -115,66 +130,159 @@ public class JobSubmitDealer implements Runnable {
         this.priorityQueue = priorityQueue;
         this.jobResource = priorityQueue.getJobResource();
         this.queue = priorityQueue.getQueue();
-        this.delayJobQueue = new DelayBlockingQueue<>(priorityQueue.getQueueSizeLimited());
-
-        ExecutorService executorService = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
-                new LinkedBlockingQueue<>(), new CustomThreadFactory(this.getClass().getSimpleName() + "_" + jobResource + "_DelayJobProcessor"));
-        executorService.submit(new RestartJobProcessor());
-
-        this.jobSubmitConcurrentService = new ThreadPoolExecutor(jobSubmitConcurrent, jobSubmitConcurrent, 60L, TimeUnit.SECONDS,
-                new SynchronousQueue<>(true), new CustomThreadFactory(this.getClass().getSimpleName() + "_" + jobResource + "_JobSubmitConcurrent"), new BlockCallerPolicy());
+        this.fairQueue = new TenantFairQueue(jobSubmitConcurrent * 2);
+        this.parkingWheel = new TimerWheel<>(this.getClass().getSimpleName() + "_" + jobResource, PARKING_TICK_MS, PARKING_WHEEL_SIZE, this::unparkJob);
+        this.delayJobWheel = new TimerWheel<>(this.getClass().getSimpleName() + "_" + jobResource + "_Delay", PARKING_TICK_MS, PARKING_WHEEL_SIZE,
+                environmentContext.getJobDelayWheelCapacity(), this::delayJobExpired, null);
+
+        this.jobSubmitConcurrentService = new ThreadPoolExecutor(jobSubmitConcurrent, jobSubmitConcurrent, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), new CustomThreadFactory(this.getClass().getSimpleName() + "_" + jobResource + "_JobSubmitConcurrent"));
+        for (int i = 0; i < jobSubmitConcurrent; i++) {
+            jobSubmitConcurrentService.submit(new SubmitWorker());
+        }
     }
 
-    private class RestartJobProcessor implements Runnable {
+    /**
+     * 提交线程，按租户轮询从 fairQueue 中取任务提交
+     */
+    private class SubmitWorker implements Runnable {
         @Override
         public void run() {
             while (true) {
-                SimpleJobDelay<JobClient> simpleJobDelay = null;
-                JobClient jobClient = null;
                 try {
-                    simpleJobDelay = delayJobQueue.take();
-                    jobClient = simpleJobDelay.getJob();
-                    if (jobClient != null) {
-                        jobClient.setQueueSourceType(EQueueSourceType.DELAY.getCode());
-                        queue.put(jobClient);
-                        LOGGER.info("jobId:{} stage:{} take job from delayJobQueue queue size:{} and add to priorityQueue.", jobClient.getJobId(), simpleJobDelay.getStage(), delayJobQueue.size());
+                    TenantFairQueue.SubmitTask submitTask = fairQueue.take();
+                    long waitTime = System.currentTimeMillis() - submitTask.getEnqueueTime();
+                    totalWaitTime.addAndGet(waitTime);
+                    maxWaitTime.accumulateAndGet(waitTime, Math::max);
+                    submittedCount.incrementAndGet();
+                    JobClient jobClient = submitTask.getJobClient();
+                    if (checkIsFinished(jobClient)) {
+                        continue;
                     }
-                } catch (Exception e) {
-                    if (simpleJobDelay != null && jobClient != null) {
-                        LOGGER.error("jobId:{} stage:{}", jobClient.getJobId(), simpleJobDelay.getStage(), e);
-                    } else {
-                        LOGGER.error("", e);
+                    if (checkJobSubmitExpired(jobClient)) {
+                        shardCache.updateLocalMemTaskStatus(jobClient.getJobId(), TaskStatus.AUTOCANCELED.getStatus());
+                        jobClient.doStatusCallBack(TaskStatus.AUTOCANCELED.getStatus());
+                        ScheduleJobCacheService.deleteByJobId(jobClient.getJobId());
+                        LOGGER.info("jobId:{} checkJobSubmitExpired is true, job ignore to submit.", jobClient.getJobId());
+                        continue;
                     }
+                    submitJob(jobClient);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (Throwable e) {
+                    LOGGER.error("", e);
                 }
             }
         }
     }
 
+    private static class ParkedJob {
+        private final JobClient jobClient;
+        private final long parkTime;
+
+        private ParkedJob(JobClient jobClient) {
+            this.jobClient = jobClient;
+            this.parkTime = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * 资源不足或者其他节点有更高优先级任务时，任务挂到时间轮上等待，不阻塞分发线程
+     */
+    private void parkJob(JobClient jobClient, long delay) {
+        parkingWheel.add(new ParkedJob(jobClient), delay);
+    }
+
+    private void unparkJob(ParkedJob parkedJob) {
+        parkedCount.incrementAndGet();
+        totalParkTime.addAndGet(System.currentTimeMillis() - parkedJob.parkTime);
+        queue.put(parkedJob.jobClient);
+    }
+
+    /**
+     * 重试、资源不足的任务到期后放回优先级队列
+     */
+    private void delayJobExpired(SimpleJobDelay<JobClient> simpleJobDelay) {
+        JobClient jobClient = simpleJobDelay.getJob();
+        if (jobClient != null) {
+            jobClient.setQueueSourceType(EQueueSourceType.DELAY.getCode());
+            queue.put(jobClient);
+            LOGGER.info("jobId:{} stage:{} take job from delayJobWheel size:{} and add to priorityQueue.", jobClient.getJobId(), simpleJobDelay.getStage(), delayJobWheel.size());
+        }
+    }
+
     public boolean tryPutRestartJob(JobClient jobClient) {
-        boolean tryPut = delayJobQueue.tryPut(new SimpleJobDelay<>(jobClient, EJobCacheStage.RESTART.getStage(), Objects.isNull(jobClient.getRetryIntervalTime()) ? jobRestartDelay : jobClient.getRetryIntervalTime()));
-        LOGGER.info("jobId:{} {} add job to restart delayJobQueue.", jobClient.getJobId(), tryPut ? "success" : "failed");
+        long delay = Objects.isNull(jobClient.getRetryIntervalTime()) ? jobRestartDelay : jobClient.getRetryIntervalTime();
+        SimpleJobDelay<JobClient> jobDelay = new SimpleJobDelay<>(jobClient, EJobCacheStage.RESTART.getStage(), delay);
+        boolean tryPut = delayJobWheel.add(jobDelay, delay) != null;
+        LOGGER.info("jobId:{} {} add job to restart delayJobWheel.", jobClient.getJobId(), tryPut ? "success" : "failed");
         if (tryPut) {
-            //restart的状态修改会在外面处理，这里只需要set stage
-            ScheduleJobCacheService.updateStage(jobClient.getJobId(), EJobCacheStage.RESTART.getStage(), localAddress, jobClient.getPriority(), null);
+            //restart的状态修改会在外面处理，这里只需要set stage，记录到期时间，节点重启后继续等待
+            ScheduleJobCacheService.updateStage(jobClient.getJobId(), EJobCacheStage.RESTART.getStage(), localAddress, jobClient.getPriority(), null, jobDelay.getExpireTime());
         }
         return tryPut;
     }
 
     private void putLackingJob(JobClient jobClient, JudgeResult judgeResult) {
-        try {
-            delayJobQueue.put(new SimpleJobDelay<>(jobClient, EJobCacheStage.LACKING.getStage(), jobLackingDelay));
-            jobClient.lackingCountIncrement();
-            ScheduleJobCacheService.updateStage(jobClient.getJobId(), EJobCacheStage.LACKING.getStage(), localAddress, jobClient.getPriority(), judgeResult.getReason());
-            jobClient.doStatusCallBack(TaskStatus.LACKING.getStatus());
-        } catch (InterruptedException e) {
+        SimpleJobDelay<JobClient> jobDelay = new SimpleJobDelay<>(jobClient, EJobCacheStage.LACKING.getStage(), jobLackingDelay);
+        if (delayJobWheel.add(jobDelay, jobLackingDelay) == null) {
+            queue.put(jobClient);
+            LOGGER.warn("jobId:{} delayJobWheel is full, add to priorityQueue.", jobClient.getJobId());
+            return;
+        }
+        jobClient.lackingCountIncrement();
+        ScheduleJobCacheService.updateStage(jobClient.getJobId(), EJobCacheStage.LACKING.getStage(), localAddress, jobClient.getPriority(), judgeResult.getReason(), jobDelay.getExpireTime());
+        jobClient.doStatusCallBack(TaskStatus.LACKING.getStatus());
+        LOGGER.info("jobId:{} success add job to lacking delayJobWheel, job's lackingCount:{}.", jobClient.getJobId(), jobClient.getLackingCount());
+    }
+
+    /**
+     * 节点重启后恢复还在等待重试、资源不足的任务，按剩余时间重新放入延迟队列
+     *
+     * @param jobClient 任务
+     * @param stage     所处阶段
+     * @param delay     剩余等待时间(ms)
+     */
+    public void putDelayJob(JobClient jobClient, int stage, long delay) {
+        SimpleJobDelay<JobClient> jobDelay = new SimpleJobDelay<>(jobClient, stage, delay);
+        if (delayJobWheel.add(jobDelay, delay) == null) {
+            jobClient.setQueueSourceType(EQueueSourceType.DELAY.getCode());
             queue.put(jobClient);
-            LOGGER.error("jobId:{} delayJobQueue.put failed.",jobClient.getJobId(), e);
+            LOGGER.warn("jobId:{} delayJobWheel is full, add to priorityQueue.", jobClient.getJobId());
+            return;
         }
-        LOGGER.info("jobId:{} success add job to lacking delayJobQueue, job's lackingCount:{}.", jobClient.getJobId(), jobClient.getLackingCount());
+        LOGGER.info("jobId:{} stage:{} recover job to delayJobWheel, delay:{}ms.", jobClient.getJobId(), stage, delay);
     }
 
     public int getDelayJobQueueSize() {
-        return delayJobQueue.size();
+        return delayJobWheel.size();
+    }
+
+    /**
+     * 已从优先级队列取出但还没有提交的任务数，包括等待资源挂起的和等待提交线程的
+     */
+    public int getParkedJobSize() {
+        return parkingWheel.size() + fairQueue.size();
+    }
+
+    public Map<String, Object> getSubmitMetrics() {
+        Map<String, Object> metrics = new HashMap<>(16);
+        long submitted = submittedCount.get();
+        long parked = parkedCount.get();
+        metrics.put("jobResource", jobResource);
+        metrics.put("queueSize", queue.size());
+        metrics.put("delayQueueSize", delayJobWheel.size());
+        metrics.put("parkingSize", parkingWheel.size());
+        metrics.put("delayWheel", delayJobWheel.getMetrics());
+        metrics.put("parkingWheel", parkingWheel.getMetrics());
+        metrics.put("dispatchedSize", fairQueue.size());
+        metrics.put("submittedCount", submitted);
+        metrics.put("avgWaitTime", submitted == 0 ? 0 : totalWaitTime.get() / submitted);
+        metrics.put("maxWaitTime", maxWaitTime.get());
+        metrics.put("parkedCount", parked);
+        metrics.put("avgParkTime", parked == 0 ? 0 : totalParkTime.get() / parked);
+        return metrics;
     }
 
     @Override
@@ -185,27 +293,14 @@ public class JobSubmitDealer implements Runnable {
                 if(LOGGER.isDebugEnabled()){
                     LOGGER.debug("jobId:{} jobResource:{} queue size:{} take job from priorityQueue.", jobClient.getJobId(), jobResource, queue.size());
                 }
-                if (checkIsFinished(jobClient)) {
-                    continue;
-                }
-                if (checkJobSubmitExpired(jobClient)){
-                    shardCache.updateLocalMemTaskStatus(jobClient.getJobId(), TaskStatus.AUTOCANCELED.getStatus());
-                    jobClient.doStatusCallBack(TaskStatus.AUTOCANCELED.getStatus());
-                    ScheduleJobCacheService.deleteByJobId(jobClient.getJobId());
-                    LOGGER.info("jobId:{} checkJobSubmitExpired is true, job ignore to submit.", jobClient.getJobId());
-                    continue;
-                }
                 if (!checkMaxPriority(jobResource)) {
                     LOGGER.info("jobId:{} checkMaxPriority is false, wait other node job which priority higher.", jobClient.getJobId());
-                    queue.put(jobClient);
-                    SleepUtil.sleep(jobLackingInterval);
+                    parkJob(jobClient, jobLackingInterval);
                     continue;
                 }
 
-                //提交任务
-                jobSubmitConcurrentService.submit(()->{
-                    submitJob(jobClient);
-                });
+                //分发给提交线程
+                fairQueue.put(jobClient);
             } catch (Exception e) {
                 LOGGER.error("", e);
             }
@@ -226,7 +321,7 @@ public class JobSubmitDealer implements Runnable {
                 if (null == engineJobCache) {
                     //如果任务出现资源不足 一直deploy加大延时  界面杀死重跑立马完成之后 deployQueue数据未移除
                     //重新放入之后直接取消 导致状态更新waitEngine 状态不一致 所以需要判断下数据是否存在
-                    LOGGER.info("jobId:{} stage:{} take job from delayJobQueue  but engine job cache has deleted", jobClient.getJobId(), delayJobQueue.size());
+                    LOGGER.info("jobId:{} stage:{} take job from delayJobWheel  but engine job cache has deleted", jobClient.getJobId(), delayJobWheel.size());
                     return true;
                 } else {
                     //如果任务存在 还需要判断cache表数据是否为重跑后插入生成的
@@ -387,13 +482,12 @@ public class JobSubmitDealer implements Runnable {
         jobClient.setPriority(jobClient.getPriority() + jobPriorityStep);
 
         //delayQueue的任务比重过大时，直接放入优先级队列重试
-        if (jobClient.lackingCountIncrement() > jobLackingCountLimited && delayJobQueue.size() < priorityQueue.getQueueSizeLimited()) {
+        if (jobClient.lackingCountIncrement() > jobLackingCountLimited && delayJobWheel.size() < priorityQueue.getQueueSizeLimited()) {
             putLackingJob(jobClient, judgeResult);
         } else {
             ScheduleJobCacheService.updateStage(jobClient.getJobId(), EJobCacheStage.PRIORITY.getStage(), localAddress, jobClient.getPriority(), null);
-            queue.put(jobClient);
-            SleepUtil.sleep(jobLackingInterval);
-            LOGGER.info("jobId:{} unlimited_lackingCount:{} add to priorityQueue.", jobClient.getJobId(), jobClient.getLackingCount());
+            parkJob(jobClient, jobLackingInterval);
+            LOGGER.info("jobId:{} unlimited_lackingCount:{} park {}ms and add to priorityQueue.", jobClient.getJobId(), jobClient.getLackingCount(), jobLackingInterval);
 
         }
     }
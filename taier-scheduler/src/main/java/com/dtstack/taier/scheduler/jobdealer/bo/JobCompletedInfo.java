@@ -29,12 +29,21 @@ public class JobCompletedInfo implements Delayed {
     private JobIdentifier jobIdentifier;
     private int computeType;
     private long expired;
+    /**
+     * 已重试获取日志的次数
+     */
+    private int retryCount;
 
     public JobCompletedInfo(String jobId, JobIdentifier jobIdentifier, int computeType, long delay){
+        this(jobId, jobIdentifier, computeType, delay, 0);
+    }
+
+    public JobCompletedInfo(String jobId, JobIdentifier jobIdentifier, int computeType, long delay, int retryCount){
         this.jobId = jobId;
         this.jobIdentifier = jobIdentifier;
         this.computeType = computeType;
         this.expired = System.currentTimeMillis() + delay;
+        this.retryCount = retryCount;
     }
 
     public String getJobId() {
@@ -54,6 +63,10 @@ public class JobCompletedInfo implements Delayed {
         this.computeType = computeType;
     }
 
+    public int getRetryCount() {
+        return retryCount;
+    }
+
     public JobIdentifier getJobIdentifier() {
         return jobIdentifier;
     }
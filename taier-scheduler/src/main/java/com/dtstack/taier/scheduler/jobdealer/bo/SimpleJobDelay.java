@@ -46,6 +46,10 @@ public class SimpleJobDelay<T> implements Delayed {
         return stage;
     }
 
+    public long getExpireTime() {
+        return expired;
+    }
+
     @Override
     public long getDelay(TimeUnit unit) {
         return unit.convert(this.expired - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
@@ -0,0 +1,361 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dtstack.taier.scheduler.jobdealer.cache;
+
+import com.dtstack.taier.common.enums.Deleted;
+import com.dtstack.taier.common.env.EnvironmentContext;
+import com.dtstack.taier.dao.domain.ScheduleJob;
+import com.dtstack.taier.dao.domain.ScheduleJobJob;
+import com.dtstack.taier.pluginapi.CustomThreadFactory;
+import com.dtstack.taier.pluginapi.enums.TaskStatus;
+import com.dtstack.taier.scheduler.event.ScheduleJobBatchEvent;
+import com.dtstack.taier.scheduler.event.ScheduleJobEventLister;
+import com.dtstack.taier.scheduler.event.ScheduleJobEventPublisher;
+import com.dtstack.taier.scheduler.server.ScheduleJobDetails;
+import com.dtstack.taier.scheduler.service.ScheduleJobService;
+import com.google.common.collect.Lists;
+import org.apache.commons.collections.CollectionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 实例依赖就绪索引
+ * <p>
+ * 子实例第一次被扫描到时，根据 schedule_job_job 和父实例状态登记还未结束的父实例，
+ * 之后由实例状态变更事件驱动递减，只有未结束父实例数为 0 的子实例才会再去数据库做完整的上游校验，
+ * 避免每次扫描都按 parentJobKey 反复查询 schedule_job。
+ * <p>
+ * 父实例可能运行在其他节点上，本地收不到它的状态事件，这些父实例按较短的间隔单独批量对账；
+ * 所有等待中的父实例再按较长的间隔整体对账一次，兜底漏掉的事件。
+ */
+@Component
+public class JobDependencyCache implements ScheduleJobEventLister, InitializingBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JobDependencyCache.class);
+
+    /**
+     * 对账时单次查询的父实例个数
+     */
+    private static final int RECONCILE_BATCH_SIZE = 500;
+
+    /**
+     * 子实例超过多少个对账周期没有被扫描到就移出索引
+     */
+    private static final int EXPIRE_RECONCILE_TIMES = 10;
+
+    @Autowired
+    private ScheduleJobService scheduleJobService;
+
+    @Autowired
+    private EnvironmentContext environmentContext;
+
+    /**
+     * 子实例 jobKey -> 等待信息
+     */
+    private final Map<String, WaitingJob> waitingJobs = new ConcurrentHashMap<>();
+
+    /**
+     * 父实例 jobKey -> 子实例 jobKey
+     */
+    private final Map<String, Set<String>> parentChildren = new ConcurrentHashMap<>();
+
+    /**
+     * 实例 jobId -> jobKey，状态事件只带 jobId
+     */
+    private final Map<String, String> jobKeyIndex = new ConcurrentHashMap<>();
+
+    /**
+     * 不在本节点运行的父实例 jobKey，本地收不到它们的状态事件
+     */
+    private final Set<String> remoteParents = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 登记扫描出的实例，已经登记过的实例不再查询父实例状态
+     *
+     * @param scheduleJobDetails 扫描出的实例
+     */
+    public void register(List<ScheduleJobDetails> scheduleJobDetails) {
+        if (CollectionUtils.isEmpty(scheduleJobDetails)) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        List<ScheduleJobDetails> unregistered = new ArrayList<>();
+        for (ScheduleJobDetails scheduleJobDetail : scheduleJobDetails) {
+            if (CollectionUtils.isEmpty(scheduleJobDetail.getJobJobList())) {
+                continue;
+            }
+            WaitingJob waitingJob = waitingJobs.get(scheduleJobDetail.getScheduleJob().getJobKey());
+            if (waitingJob != null) {
+                waitingJob.lastScanTime = now;
+            } else {
+                unregistered.add(scheduleJobDetail);
+            }
+        }
+        if (unregistered.isEmpty()) {
+            return;
+        }
+
+        List<String> parentJobKeys = unregistered.stream()
+                .flatMap(detail -> detail.getJobJobList().stream())
+                .map(ScheduleJobJob::getParentJobKey)
+                .distinct()
+                .collect(Collectors.toList());
+        Map<String, ScheduleJob> parentJobMap = listParentJob(parentJobKeys);
+
+        for (ScheduleJobDetails scheduleJobDetail : unregistered) {
+            ScheduleJob scheduleJob = scheduleJobDetail.getScheduleJob();
+            WaitingJob waitingJob = new WaitingJob(scheduleJob.getJobId(), now);
+            for (ScheduleJobJob scheduleJobJob : scheduleJobDetail.getJobJobList()) {
+                ScheduleJob parentJob = parentJobMap.get(scheduleJobJob.getParentJobKey());
+                // 父实例没有生成也算作就绪，交给拦截器按调度类型处理
+                if (parentJob != null && !TaskStatus.isStopped(parentJob.getStatus())) {
+                    waitingJob.pendingParents.add(parentJob.getJobKey());
+                    jobKeyIndex.put(parentJob.getJobId(), parentJob.getJobKey());
+                    markRemote(parentJob);
+                }
+            }
+            waitingJobs.put(scheduleJob.getJobKey(), waitingJob);
+            jobKeyIndex.put(scheduleJob.getJobId(), scheduleJob.getJobKey());
+            for (String parentJobKey : waitingJob.pendingParents) {
+                parentChildren.computeIfAbsent(parentJobKey, k -> ConcurrentHashMap.newKeySet()).add(scheduleJob.getJobKey());
+            }
+        }
+    }
+
+    /**
+     * 实例的父实例是否都已经结束，未登记的实例视为就绪
+     *
+     * @param jobKey 实例key
+     * @return true 需要做上游校验，false 还有父实例没有结束
+     */
+    public boolean isReady(String jobKey) {
+        WaitingJob waitingJob = waitingJobs.get(jobKey);
+        return waitingJob == null || waitingJob.pendingParents.isEmpty();
+    }
+
+    /**
+     * 上游校验后父实例仍未结束，重新登记等待
+     *
+     * @param jobKey    实例key
+     * @param parentJob 未结束的父实例
+     */
+    public void await(String jobKey, ScheduleJob parentJob) {
+        WaitingJob waitingJob = waitingJobs.get(jobKey);
+        if (waitingJob == null || parentJob == null) {
+            return;
+        }
+        jobKeyIndex.put(parentJob.getJobId(), parentJob.getJobKey());
+        markRemote(parentJob);
+        parentChildren.computeIfAbsent(parentJob.getJobKey(), k -> ConcurrentHashMap.newKeySet()).add(jobKey);
+        waitingJob.pendingParents.add(parentJob.getJobKey());
+    }
+
+    /**
+     * 节点地址未知时也按其他节点处理
+     */
+    private void markRemote(ScheduleJob parentJob) {
+        if (environmentContext.getLocalAddress().equals(parentJob.getNodeAddress())) {
+            remoteParents.remove(parentJob.getJobKey());
+        } else {
+            remoteParents.add(parentJob.getJobKey());
+        }
+    }
+
+    /**
+     * 实例已经出队或者被置为结束状态，移出索引
+     *
+     * @param jobKey 实例key
+     */
+    public void remove(String jobKey) {
+        WaitingJob waitingJob = waitingJobs.remove(jobKey);
+        if (waitingJob == null) {
+            return;
+        }
+        if (!parentChildren.containsKey(jobKey)) {
+            jobKeyIndex.remove(waitingJob.jobId);
+        }
+        for (String parentJobKey : waitingJob.pendingParents) {
+            Set<String> children = parentChildren.get(parentJobKey);
+            if (children != null) {
+                children.remove(jobKey);
+            }
+        }
+    }
+
+    /**
+     * 清空索引，下一次扫描时会根据 schedule_job_job 重新构建
+     */
+    public void clear() {
+        waitingJobs.clear();
+        parentChildren.clear();
+        jobKeyIndex.clear();
+        remoteParents.clear();
+        LOGGER.info("job dependency cache cleared, it will be rebuilt by next scanning");
+    }
+
+    public int size() {
+        return waitingJobs.size();
+    }
+
+    @Override
+    public void publishBatchEvent(ScheduleJobBatchEvent event) {
+        for (String jobId : event.getJobIds()) {
+            String jobKey = jobKeyIndex.get(jobId);
+            if (jobKey != null) {
+                onStatusChange(jobKey, event.getStatus());
+            }
+        }
+    }
+
+    private void onStatusChange(String jobKey, Integer status) {
+        boolean stopped = TaskStatus.isStopped(status);
+        // 子实例自身被停止，不再需要等待
+        if (stopped && waitingJobs.containsKey(jobKey)) {
+            remove(jobKey);
+        }
+
+        Set<String> children = parentChildren.get(jobKey);
+        if (children == null) {
+            return;
+        }
+        for (String childJobKey : children) {
+            WaitingJob waitingJob = waitingJobs.get(childJobKey);
+            if (waitingJob == null) {
+                continue;
+            }
+            if (stopped) {
+                waitingJob.pendingParents.remove(jobKey);
+            } else {
+                // 父实例被重跑，子实例重新等待
+                waitingJob.pendingParents.add(jobKey);
+            }
+        }
+    }
+
+    /**
+     * 批量对账等待中的父实例状态，并清理长时间没有被扫描到的子实例
+     */
+    private void reconcile() {
+        try {
+            long expireTime = System.currentTimeMillis() - environmentContext.getJobDependencyReconcileInterval() * EXPIRE_RECONCILE_TIMES;
+            waitingJobs.entrySet().stream()
+                    .filter(entry -> entry.getValue().lastScanTime < expireTime)
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toList())
+                    .forEach(this::remove);
+
+            parentChildren.values().forEach(children -> children.removeIf(child -> !waitingJobs.containsKey(child)));
+            parentChildren.entrySet().removeIf(entry -> entry.getValue().isEmpty());
+            jobKeyIndex.entrySet().removeIf(entry -> !waitingJobs.containsKey(entry.getValue()) && !parentChildren.containsKey(entry.getValue()));
+            remoteParents.removeIf(parentJobKey -> !parentChildren.containsKey(parentJobKey));
+
+            List<String> parentJobKeys = new ArrayList<>(parentChildren.keySet());
+            reconcileParents(parentJobKeys);
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("job dependency cache reconcile, waitingJobs:{} parentJobs:{}", waitingJobs.size(), parentJobKeys.size());
+            }
+        } catch (Throwable e) {
+            LOGGER.error("job dependency cache reconcile error:", e);
+        }
+    }
+
+    /**
+     * 对账在其他节点运行的父实例
+     */
+    private void reconcileRemote() {
+        try {
+            List<String> parentJobKeys = remoteParents.stream()
+                    .filter(parentChildren::containsKey)
+                    .collect(Collectors.toList());
+            reconcileParents(parentJobKeys);
+        } catch (Throwable e) {
+            LOGGER.error("job dependency cache reconcile remote parents error:", e);
+        }
+    }
+
+    private void reconcileParents(List<String> parentJobKeys) {
+        for (List<String> partition : Lists.partition(parentJobKeys, RECONCILE_BATCH_SIZE)) {
+            Map<String, ScheduleJob> parentJobMap = listParentJob(partition);
+            for (String parentJobKey : partition) {
+                ScheduleJob parentJob = parentJobMap.get(parentJobKey);
+                if (parentJob != null) {
+                    // 父实例可能因为容灾迁移到其他节点
+                    markRemote(parentJob);
+                }
+                // 父实例被删除，交给拦截器处理
+                onStatusChange(parentJobKey, parentJob == null ? TaskStatus.FAILED.getStatus() : parentJob.getStatus());
+            }
+        }
+    }
+
+    private Map<String, ScheduleJob> listParentJob(List<String> parentJobKeys) {
+        if (CollectionUtils.isEmpty(parentJobKeys)) {
+            return new HashMap<>();
+        }
+        return scheduleJobService.lambdaQuery()
+                .select(ScheduleJob::getStatus, ScheduleJob::getJobId, ScheduleJob::getJobKey, ScheduleJob::getNodeAddress)
+                .in(ScheduleJob::getJobKey, parentJobKeys)
+                .eq(ScheduleJob::getIsDeleted, Deleted.NORMAL.getStatus())
+                .list()
+                .stream()
+                .collect(Collectors.toMap(ScheduleJob::getJobKey, g -> (g), (o, n) -> n));
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        ScheduleJobEventPublisher.getInstance().register(this);
+        long interval = environmentContext.getJobDependencyReconcileInterval();
+        long remoteInterval = environmentContext.getJobDependencyRemoteReconcileInterval();
+        ScheduledExecutorService scheduledService = new ScheduledThreadPoolExecutor(1, new CustomThreadFactory(this.getClass().getSimpleName()));
+        scheduledService.scheduleWithFixedDelay(this::reconcile, interval, interval, TimeUnit.MILLISECONDS);
+        scheduledService.scheduleWithFixedDelay(this::reconcileRemote, remoteInterval, remoteInterval, TimeUnit.MILLISECONDS);
+        LOGGER.info("Initializing JobDependencyCache reconcileInterval:{} remoteReconcileInterval:{}", interval, remoteInterval);
+    }
+
+    private static class WaitingJob {
+
+        private final String jobId;
+
+        /**
+         * 还没有结束的父实例 jobKey
+         */
+        private final Set<String> pendingParents = ConcurrentHashMap.newKeySet();
+
+        private volatile long lastScanTime;
+
+        private WaitingJob(String jobId, long lastScanTime) {
+            this.jobId = jobId;
+            this.lastScanTime = lastScanTime;
+        }
+    }
+}
@@ -18,19 +18,30 @@
 
 package com.dtstack.taier.scheduler.jobdealer.cache;
 
+import com.dtstack.taier.common.env.EnvironmentContext;
 import com.dtstack.taier.dao.domain.ScheduleEngineJobCache;
-import com.dtstack.taier.pluginapi.exception.ExceptionUtil;
+import com.dtstack.taier.pluginapi.CustomThreadFactory;
 import com.dtstack.taier.scheduler.jobdealer.JobStatusDealer;
 import com.dtstack.taier.scheduler.service.ScheduleJobCacheService;
+import com.google.common.collect.Lists;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
 /**
@@ -39,24 +50,108 @@ import java.util.function.Consumer;
  * create: 2018/9/6
  */
 @Component
-public class ShardCache implements ApplicationContextAware {
+public class ShardCache implements ApplicationContextAware, InitializingBean {
 
     private static Logger LOGGER = LoggerFactory.getLogger(ShardCache.class);
 
+    /**
+     * 索引对账间隔，清理被其他节点删除或迁移走的 job cache 对应的索引
+     */
+    private static final long INDEX_RECONCILE_INTERVAL = TimeUnit.MINUTES.toMillis(5);
+
+    private static final int INDEX_RECONCILE_BATCH_SIZE = 500;
+
     private ApplicationContext applicationContext;
 
     private Map<String, ShardManager> jobResourceShardManager = new ConcurrentHashMap<>();
 
+    /**
+     * 本节点 jobId -> jobResource 索引，由写入和删除 job cache 时维护，
+     * 更新内存状态时不需要再查询 job cache 表
+     */
+    private Map<String, String> jobResourceIndex = new ConcurrentHashMap<>();
+
+    private final AtomicLong indexHitCount = new AtomicLong();
+
+    private final AtomicLong indexMissCount = new AtomicLong();
+
+    private final AtomicLong indexReconcileRemoveCount = new AtomicLong();
+
+    public void putJobResource(String jobId, String jobResource) {
+        if (jobId == null || jobResource == null) {
+            return;
+        }
+        jobResourceIndex.put(jobId, jobResource);
+    }
+
+    public void removeJobResource(String jobId) {
+        if (jobId == null) {
+            return;
+        }
+        jobResourceIndex.remove(jobId);
+    }
+
+    public void removeJobResources(Collection<String> jobIds) {
+        if (jobIds == null) {
+            return;
+        }
+        jobIds.forEach(this::removeJobResource);
+    }
+
+    /**
+     * 对账：job cache 已经不存在或者已经不属于本节点的索引需要清除，
+     * 覆盖其他节点上的批量删除、容灾迁移等本节点感知不到的变更。
+     * 刚写入索引还没有落库的任务可能被误删，之后查询时未命中会重新补充
+     */
+    private void reconcileIndex() {
+        try {
+            if (jobResourceIndex.isEmpty()) {
+                return;
+            }
+            String localAddress = applicationContext.getBean(EnvironmentContext.class).getLocalAddress();
+            ScheduleJobCacheService scheduleJobCacheService = applicationContext.getBean(ScheduleJobCacheService.class);
+            List<String> jobIds = new ArrayList<>(jobResourceIndex.keySet());
+            int removed = 0;
+            for (List<String> partition : Lists.partition(jobIds, INDEX_RECONCILE_BATCH_SIZE)) {
+                Map<String, String> localJobs = new HashMap<>(partition.size());
+                for (ScheduleEngineJobCache engineJobCache : scheduleJobCacheService.getByJobIds(partition)) {
+                    localJobs.put(engineJobCache.getJobId(), engineJobCache.getNodeAddress());
+                }
+                for (String jobId : partition) {
+                    if (!Objects.equals(localAddress, localJobs.get(jobId))) {
+                        jobResourceIndex.remove(jobId);
+                        removed++;
+                    }
+                }
+            }
+            if (removed > 0) {
+                indexReconcileRemoveCount.addAndGet(removed);
+                LOGGER.info("reconcile jobResource index, remove:{} size:{}", removed, jobResourceIndex.size());
+            }
+        } catch (Throwable e) {
+            LOGGER.error("reconcile jobResource index error:", e);
+        }
+    }
+
     private ShardManager getShardManager(String jobId) {
-        ScheduleJobCacheService ScheduleJobCacheService = applicationContext.getBean(ScheduleJobCacheService.class);
-        ScheduleEngineJobCache engineJobCache = ScheduleJobCacheService.getByJobId(jobId);
-        if (engineJobCache == null) {
-            return null;
+        String jobResource = jobResourceIndex.get(jobId);
+        if (jobResource != null) {
+            indexHitCount.incrementAndGet();
+        } else {
+            // 索引中没有(其他节点容灾过来的任务等)，查询 job cache 后补充索引
+            indexMissCount.incrementAndGet();
+            ScheduleJobCacheService scheduleJobCacheService = applicationContext.getBean(ScheduleJobCacheService.class);
+            ScheduleEngineJobCache engineJobCache = scheduleJobCacheService.getByJobId(jobId);
+            if (engineJobCache == null) {
+                return null;
+            }
+            jobResource = engineJobCache.getJobResource();
+            jobResourceIndex.put(jobId, jobResource);
         }
-        return jobResourceShardManager.computeIfAbsent(engineJobCache.getJobResource(), jr -> {
-            ShardManager shardManager = new ShardManager(engineJobCache.getJobResource());
+        return jobResourceShardManager.computeIfAbsent(jobResource, jr -> {
+            ShardManager shardManager = new ShardManager(jr);
             JobStatusDealer jobStatusDealer = new JobStatusDealer();
-            jobStatusDealer.setJobResource(engineJobCache.getJobResource());
+            jobStatusDealer.setJobResource(jr);
             jobStatusDealer.setShardManager(shardManager);
             jobStatusDealer.setShardCache(this);
             jobStatusDealer.setApplicationContext(applicationContext);
@@ -65,6 +160,26 @@ public class ShardCache implements ApplicationContextAware {
         });
     }
 
+    /**
+     * jobId 索引指标
+     */
+    public Map<String, Object> getIndexMetrics() {
+        long hit = indexHitCount.get();
+        long miss = indexMissCount.get();
+        Map<String, Object> metrics = new HashMap<>(8);
+        metrics.put("indexSize", jobResourceIndex.size());
+        metrics.put("hitCount", hit);
+        metrics.put("missCount", miss);
+        metrics.put("hitRatio", hit + miss == 0 ? 0D : (double) hit / (hit + miss));
+        metrics.put("reconcileRemoveCount", indexReconcileRemoveCount.get());
+        Map<String, Integer> shardSize = new HashMap<>(jobResourceShardManager.size());
+        for (ShardManager shardManager : jobResourceShardManager.values()) {
+            shardSize.put(shardManager.getJobResource(), shardManager.getShard().size());
+        }
+        metrics.put("shardSize", shardSize);
+        return metrics;
+    }
+
     public boolean updateLocalMemTaskStatus(String jobId, Integer status) {
         if (jobId == null || status == null) {
             throw new IllegalArgumentException("jobId or status must not null.");
@@ -104,7 +219,7 @@ public class ShardCache implements ApplicationContextAware {
     }
 
     private boolean removeWithForeach(String jobId) {
-        LOGGER.warn("jobId:{} stackTrace:{}", jobId, ExceptionUtil.stackTrack());
+        LOGGER.warn("jobId:{} not found in job cache, remove from all shards", jobId);
         for (ShardManager shardManager : jobResourceShardManager.values()) {
             if (shardManager.getShard().remove(jobId) != null) {
                 return true;
@@ -117,4 +232,10 @@ public class ShardCache implements ApplicationContextAware {
     public void setApplicationContext(ApplicationContext applicationContext) throws BeansException {
         this.applicationContext = applicationContext;
     }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        ScheduledThreadPoolExecutor scheduledService = new ScheduledThreadPoolExecutor(1, new CustomThreadFactory(this.getClass().getSimpleName()));
+        scheduledService.scheduleWithFixedDelay(this::reconcileIndex, INDEX_RECONCILE_INTERVAL, INDEX_RECONCILE_INTERVAL, TimeUnit.MILLISECONDS);
+    }
 }
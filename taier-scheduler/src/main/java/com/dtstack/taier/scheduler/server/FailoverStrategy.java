@@ -37,6 +37,7 @@ import com.dtstack.taier.scheduler.server.builder.CycleJobBuilder;
 import com.dtstack.taier.scheduler.service.NodeRecoverService;
 import com.dtstack.taier.scheduler.service.ScheduleJobCacheService;
 import com.dtstack.taier.scheduler.service.ScheduleJobOperatorRecordService;
+import com.dtstack.taier.scheduler.service.ScheduleJobStatusCountService;
 import com.dtstack.taier.scheduler.service.ScheduleJobService;
 import com.dtstack.taier.scheduler.zookeeper.ZkService;
 import com.dtstack.taier.scheduler.zookeeper.data.BrokerHeartNode;
@@ -87,9 +88,15 @@ public class FailoverStrategy {
     @Autowired
     private JobGraphBuilderTrigger jobGraphBuilderTrigger;
 
+    @Autowired
+    private JobArchiveTrigger jobArchiveTrigger;
+
     @Autowired
     private ScheduleJobOperatorRecordService scheduleJobOperatorRecordService;
 
+    @Autowired
+    private ScheduleJobStatusCountService scheduleJobStatusCountService;
+
 
     private static final String MASTER_TRIGGER_NODE = "/node/nodeRecover/masterTriggerNode";
 
@@ -111,6 +118,8 @@ public class FailoverStrategy {
             currIsMaster = true;
 
             jobGraphBuilderTrigger.dealMaster(true);
+            jobArchiveTrigger.dealMaster(true);
+            scheduleJobStatusCountService.dealMaster(true);
             LOGGER.warn("---start jobMaster change listener------");
 
             if (masterNodeDealer.isShutdown()) {
@@ -124,6 +133,8 @@ public class FailoverStrategy {
             currIsMaster = false;
 
             jobGraphBuilderTrigger.dealMaster(false);
+            jobArchiveTrigger.dealMaster(false);
+            scheduleJobStatusCountService.dealMaster(false);
             LOGGER.warn("---stop jobMaster change listener------");
 
             faultTolerantDealer.stop();
@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dtstack.taier.scheduler.server;
+
+import com.dtstack.taier.common.env.EnvironmentContext;
+import com.dtstack.taier.dao.domain.ScheduleJob;
+import com.dtstack.taier.pluginapi.CustomThreadFactory;
+import com.dtstack.taier.scheduler.service.ScheduleJobArchiveService;
+import org.apache.commons.collections.CollectionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 主节点定时归档已经结束的历史周期实例，每批归档后暂停一段时间，
+ * 单次最多归档固定批数，避免长时间占用数据库影响调度
+ */
+@Component
+public class JobArchiveTrigger implements Runnable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JobArchiveTrigger.class);
+
+    private static final AtomicBoolean RUNNING = new AtomicBoolean(false);
+
+    @Autowired
+    private EnvironmentContext environmentContext;
+
+    @Autowired
+    private ScheduleJobArchiveService scheduleJobArchiveService;
+
+    private ScheduledExecutorService scheduledService;
+
+    private final AtomicLong totalArchiveCount = new AtomicLong();
+
+    private volatile long lastArchiveTime = 0L;
+
+    private volatile long lastArchiveCount = 0L;
+
+    private volatile long lastArchiveCost = 0L;
+
+    private volatile String lastArchiveCycEndTime;
+
+    public JobArchiveTrigger() {
+        scheduledService = new ScheduledThreadPoolExecutor(1, new CustomThreadFactory("JobArchiveTrigger"));
+    }
+
+    public void dealMaster(boolean isMaster) {
+        try {
+            if (isMaster) {
+                startArchive();
+            } else {
+                stopArchive();
+            }
+        } catch (Throwable e) {
+            LOGGER.error("JobArchiveTrigger.dealMaster error:", e);
+        }
+    }
+
+    private void startArchive() {
+        if (!environmentContext.isOpenJobArchive() || RUNNING.get()) {
+            return;
+        }
+        if (scheduledService.isShutdown()) {
+            scheduledService = new ScheduledThreadPoolExecutor(1, new CustomThreadFactory("JobArchiveTrigger"));
+        }
+        long interval = environmentContext.getJobArchiveRunInterval();
+        scheduledService.scheduleWithFixedDelay(this, interval, interval, TimeUnit.MILLISECONDS);
+        RUNNING.compareAndSet(false, true);
+        LOGGER.info("start job archive trigger, retentionDays:{} interval:{}", environmentContext.getJobArchiveRetentionDays(), interval);
+    }
+
+    private void stopArchive() {
+        if (scheduledService != null) {
+            scheduledService.shutdownNow();
+        }
+        RUNNING.compareAndSet(true, false);
+        LOGGER.info("stop job archive trigger...");
+    }
+
+    @Override
+    public void run() {
+        long startTime = System.currentTimeMillis();
+        long archiveCount = 0L;
+        String cycEndTime = scheduleJobArchiveService.getArchiveCycEndTime();
+        try {
+            int batchSize = environmentContext.getJobArchiveBatchSize();
+            long startId = 0L;
+            for (int batch = 0; batch < environmentContext.getJobArchiveMaxBatches() && RUNNING.get(); batch++) {
+                List<ScheduleJob> scheduleJobs = scheduleJobArchiveService.listArchivableJob(startId, cycEndTime, batchSize);
+                if (CollectionUtils.isEmpty(scheduleJobs)) {
+                    break;
+                }
+                startId = scheduleJobs.get(scheduleJobs.size() - 1).getId();
+                int archived = scheduleJobArchiveService.archiveBatch(scheduleJobs, cycEndTime);
+                archiveCount += archived;
+                totalArchiveCount.addAndGet(archived);
+                if (scheduleJobs.size() < batchSize) {
+                    break;
+                }
+                Thread.sleep(environmentContext.getJobArchiveBatchInterval());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Throwable e) {
+            LOGGER.error("archive job before cycTime {} error", cycEndTime, e);
+        } finally {
+            lastArchiveTime = startTime;
+            lastArchiveCount = archiveCount;
+            lastArchiveCost = System.currentTimeMillis() - startTime;
+            lastArchiveCycEndTime = cycEndTime;
+            LOGGER.info("archive job before cycTime {} count:{} cost:{}ms", cycEndTime, archiveCount, lastArchiveCost);
+        }
+    }
+
+    /**
+     * 在线表大小和当前节点的归档情况
+     */
+    public Map<String, Object> getArchiveMetrics() {
+        Map<String, Object> metrics = new HashMap<>(16);
+        metrics.put("open", environmentContext.isOpenJobArchive());
+        metrics.put("running", RUNNING.get());
+        metrics.put("retentionDays", environmentContext.getJobArchiveRetentionDays());
+        metrics.put("totalArchiveCount", totalArchiveCount.get());
+        metrics.put("lastArchiveTime", lastArchiveTime);
+        metrics.put("lastArchiveCount", lastArchiveCount);
+        metrics.put("lastArchiveCost", lastArchiveCost);
+        metrics.put("lastArchiveCycEndTime", lastArchiveCycEndTime);
+        metrics.put("tableRows", scheduleJobArchiveService.getTableRows());
+        return metrics;
+    }
+}
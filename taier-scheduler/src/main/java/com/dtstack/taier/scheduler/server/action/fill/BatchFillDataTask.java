@@ -1,19 +1,17 @@
 package com.dtstack.taier.scheduler.server.action.fill;
 
-import com.dtstack.taier.dao.domain.ScheduleTaskTaskShade;
 import com.dtstack.taier.scheduler.dto.fill.FillDataChooseTaskDTO;
 import com.dtstack.taier.scheduler.dto.fill.FillDataInfoDTO;
 import com.dtstack.taier.scheduler.enums.FillDataTypeEnum;
+import com.dtstack.taier.scheduler.server.builder.dependency.TaskDag;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
-import org.apache.commons.collections.CollectionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationContext;
 
 import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 /**
  * @Auther: dazhi
@@ -21,7 +19,7 @@ import java.util.stream.Collectors;
  * @Email:dazhi@dtstack.com
  * @Description:
  */
-public class BatchFillDataTask extends AbstractRecursionFillDataTask {
+public class BatchFillDataTask extends AbstractFillDataTask {
 
     private final static Logger LOGGER = LoggerFactory.getLogger(BatchFillDataTask.class);
 
@@ -43,22 +41,11 @@ public class BatchFillDataTask extends AbstractRecursionFillDataTask {
             List<FillDataChooseTaskDTO> taskIds = this.fillDataInfoBO.getTaskChooseList();
             taskIds.forEach(task -> runList.add(task.getTaskId()));
         } else {
-            List<Long> taskIds = Lists.newArrayList(rootTaskId.getTaskId());
-            runList.addAll(taskIds);
-            int level = 0;
-            List<ScheduleTaskTaskShade> scheduleTaskTaskShades = getScheduleTaskTaskShades(taskIds);
-            while (CollectionUtils.isNotEmpty(scheduleTaskTaskShades)) {
-                List<Long> taskId = scheduleTaskTaskShades.stream().map(ScheduleTaskTaskShade::getTaskId).collect(Collectors.toList());
-                runList.addAll(taskId);
-
-                level++;
-                if (level > environmentContext.getFillDataRootTaskMaxLevel()) {
-                    LOGGER.warn("rootTaskId:{} max:{} break cycle",rootTaskId.getTaskId(),level);
-                    break;
-                }
-
-                scheduleTaskTaskShades = getScheduleTaskTaskShades(taskId);
-            }
+            // 根节点及其所有下游，按上游在前排序
+            TaskDag taskDag = scheduleTaskTaskService.getTaskDag();
+            Set<Long> descendants = taskDag.getDescendants(Lists.newArrayList(rootTaskId.getTaskId()), environmentContext.getFillDataRootTaskMaxLevel());
+            LOGGER.info("rootTaskId:{} descendants:{} dagVersion:{}", rootTaskId.getTaskId(), descendants.size(), taskDag.getVersion());
+            return taskDag.topologicalSort(descendants);
         }
 
         return runList;
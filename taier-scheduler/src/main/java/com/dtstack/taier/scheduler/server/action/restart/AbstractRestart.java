@@ -4,20 +4,26 @@ import com.dtstack.taier.common.enums.EScheduleJobType;
 import com.dtstack.taier.common.enums.Deleted;
 import com.dtstack.taier.common.env.EnvironmentContext;
 import com.dtstack.taier.dao.domain.ScheduleJob;
+import com.dtstack.taier.dao.domain.ScheduleJobJob;
 import com.dtstack.taier.pluginapi.enums.TaskStatus;
 import com.dtstack.taier.scheduler.service.ScheduleJobJobService;
 import com.dtstack.taier.scheduler.service.ScheduleJobService;
+import com.dtstack.taier.scheduler.utils.JobKeyUtils;
+import com.google.common.collect.Lists;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.MapUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationContext;
 
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.*;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -30,6 +36,8 @@ public abstract class AbstractRestart {
 
     private final static Logger LOGGER = LoggerFactory.getLogger(AbstractRestart.class);
 
+    private static final int QUERY_BATCH_SIZE = 500;
+
     protected final ScheduleJobService scheduleJobService;
 
     protected final ScheduleJobJobService scheduleJobJobService;
@@ -89,23 +97,113 @@ public abstract class AbstractRestart {
     }
 
     /**
-     * 递归查找当前jobId下的子任务
+     * 按层查找当前jobId下同一天的所有子任务，每层只查询一次实例依赖和实例，
+     * 不再每个实例单独查询
      *
-     * @param jobId
-     * @param isOnlyNextChild
-     * @return
+     * @param jobId           实例id
+     * @param isOnlyNextChild 是否只查询直接下游
+     * @return jobId -> cycTime
+     */
+    protected Map<String,String> getAllChildJobWithSameDay(String jobId, boolean isOnlyNextChild) {
+        Map<String, String> results = new HashMap<>();
+        ScheduleJob scheduleJob = scheduleJobService.lambdaQuery()
+                .eq(ScheduleJob::getJobId, jobId)
+                .eq(ScheduleJob::getIsDeleted, Deleted.NORMAL.getStatus())
+                .one();
+        if (null == scheduleJob) {
+            return results;
+        }
+
+        Set<String> visitedJobKeys = new HashSet<>();
+        visitedJobKeys.add(scheduleJob.getJobKey());
+        List<ScheduleJob> currentLevel = Lists.newArrayList(scheduleJob);
+        while (CollectionUtils.isNotEmpty(currentLevel)) {
+            Set<String> childJobKeys = getSameDayChildJobKeys(currentLevel);
+            childJobKeys.removeAll(visitedJobKeys);
+            if (childJobKeys.isEmpty()) {
+                break;
+            }
+            visitedJobKeys.addAll(childJobKeys);
+
+            List<ScheduleJob> nextLevel = Lists.newArrayList();
+            for (List<String> partition : Lists.partition(Lists.newArrayList(childJobKeys), QUERY_BATCH_SIZE)) {
+                nextLevel.addAll(scheduleJobService.lambdaQuery()
+                        .in(ScheduleJob::getJobKey, partition)
+                        .eq(ScheduleJob::getIsDeleted, Deleted.NORMAL.getStatus())
+                        .list());
+            }
+            for (ScheduleJob childJob : nextLevel) {
+                results.put(childJob.getJobId(), childJob.getCycTime());
+            }
+            if (isOnlyNextChild) {
+                break;
+            }
+            currentLevel = nextLevel;
+        }
+        LOGGER.info("jobId {} same day child job size {} isOnlyNextChild {}", jobId, results.size(), isOnlyNextChild);
+        return results;
+    }
+
+    /**
+     * 一层实例的下游实例key：工作流的子节点，以及同一天执行的下游实例(排除自依赖)
+     *
+     * @param jobs 一层实例
+     * @return 下游实例key
      */
-    protected Map<String,String> getAllChildJobWithSameDayByForkJoin(String jobId, boolean isOnlyNextChild) {
-        ForkJoinPool forkJoinPool = ForkJoinPool.commonPool();
-        ConcurrentHashMap<String,String> results = new ConcurrentHashMap<>();
-        ForkJoinJobTask forkJoinJobTask = new ForkJoinJobTask(jobId, results, scheduleJobService, scheduleJobJobService, isOnlyNextChild);
-        ForkJoinTask<Map<String,String>> submit = forkJoinPool.submit(forkJoinJobTask);
-        try {
-            return submit.get(environmentContext.getForkJoinResultTimeOut(), TimeUnit.SECONDS);
-        } catch (InterruptedException | ExecutionException | TimeoutException e) {
-            LOGGER.error("get all child job {} error ", jobId, e);
+    private Set<String> getSameDayChildJobKeys(List<ScheduleJob> jobs) {
+        Set<String> childJobKeys = new HashSet<>();
+        Map<String, ScheduleJob> jobKeyMap = new HashMap<>(jobs.size());
+        List<String> flowJobIds = Lists.newArrayList();
+        for (ScheduleJob job : jobs) {
+            jobKeyMap.put(job.getJobKey(), job);
+            if (EScheduleJobType.WORK_FLOW.getType().equals(job.getTaskType())) {
+                flowJobIds.add(job.getJobId());
+            }
+        }
+
+        // 工作流把子节点全部添加进来
+        Set<String> flowSubJobKeys = new HashSet<>();
+        for (List<String> partition : Lists.partition(flowJobIds, QUERY_BATCH_SIZE)) {
+            scheduleJobService.lambdaQuery()
+                    .select(ScheduleJob::getJobKey)
+                    .in(ScheduleJob::getFlowJobId, partition)
+                    .eq(ScheduleJob::getIsDeleted, Deleted.NORMAL.getStatus())
+                    .list()
+                    .forEach(job -> flowSubJobKeys.add(job.getJobKey()));
+        }
+        childJobKeys.addAll(flowSubJobKeys);
+
+        for (List<String> partition : Lists.partition(Lists.newArrayList(jobKeyMap.keySet()), QUERY_BATCH_SIZE)) {
+            List<ScheduleJobJob> scheduleJobJobList = scheduleJobJobService.lambdaQuery()
+                    .in(ScheduleJobJob::getParentJobKey, partition)
+                    .eq(ScheduleJobJob::getIsDeleted, Deleted.NORMAL.getStatus())
+                    .list();
+            for (ScheduleJobJob scheduleJobJob : scheduleJobJobList) {
+                String childJobKey = scheduleJobJob.getJobKey();
+                String parentJobKey = scheduleJobJob.getParentJobKey();
+                //jobKey 解析不出任务id时不处理该实例的下游
+                Long parentTaskId = JobKeyUtils.getTaskShadeIdFromJobKey(parentJobKey);
+                if (null == parentTaskId) {
+                    continue;
+                }
+                //排除自依赖
+                Long childTaskId = JobKeyUtils.getTaskShadeIdFromJobKey(childJobKey);
+                if (null != childTaskId && childTaskId.equals(parentTaskId)) {
+                    continue;
+                }
+                //排除不是同一天执行的
+                String parentJobDayStr = JobKeyUtils.getJobTriggerTimeFromJobKey(parentJobKey);
+                if (StringUtils.isBlank(parentJobDayStr) || !parentJobDayStr.equals(JobKeyUtils.getJobTriggerTimeFromJobKey(childJobKey))) {
+                    continue;
+                }
+                //工作流内部子任务已经添加
+                if (flowSubJobKeys.contains(childJobKey)) {
+                    continue;
+                }
+                childJobKeys.add(childJobKey);
+            }
         }
-        return null;
+        return childJobKeys;
     }
 
     /**
@@ -122,9 +220,12 @@ public abstract class AbstractRestart {
         ScheduleJob scheduleJob = new ScheduleJob();
         scheduleJob.setStatus(TaskStatus.MANUALSUCCESS.getStatus());
         scheduleJob.setGmtModified(new Timestamp(System.currentTimeMillis()));
-        scheduleJobService.lambdaUpdate().in(ScheduleJob::getJobId,jobIds)
+        boolean update = scheduleJobService.lambdaUpdate().in(ScheduleJob::getJobId,jobIds)
                 .eq(ScheduleJob::getIsDeleted, Deleted.NORMAL.getStatus())
                 .update(scheduleJob);
+        if (update) {
+            scheduleJobService.publishStatusEvent(jobIds, TaskStatus.MANUALSUCCESS.getStatus());
+        }
 
         LOGGER.info("jobIds {} manual success", jobIds);
         // 置成功并恢复调度,要把当前置成功任务去除掉
@@ -29,9 +29,9 @@ public class RestartCurrentAndDownStreamNodeRestartJob extends AbstractRestartJo
         Map<String, String> resumeBatchJobs = new HashMap<>(jobs.stream().collect(Collectors.toMap(ScheduleJob::getJobId, ScheduleJob::getCycTime)));
 
         for (ScheduleJob job : jobs) {
-            Map<String, String> allChildJobWithSameDayByForkJoin = getAllChildJobWithSameDayByForkJoin(job.getJobId(), false);
-            if (MapUtils.isNotEmpty(allChildJobWithSameDayByForkJoin)) {
-                resumeBatchJobs.putAll(allChildJobWithSameDayByForkJoin);
+            Map<String, String> allChildJobWithSameDay = getAllChildJobWithSameDay(job.getJobId(), false);
+            if (MapUtils.isNotEmpty(allChildJobWithSameDay)) {
+                resumeBatchJobs.putAll(allChildJobWithSameDay);
             }
         }
 
@@ -77,9 +77,26 @@ public abstract class AbstractJobBuilder implements JobBuilder, InitializingBean
                                              String endTime,
                                              Long fillId,
                                              JobSortWorker jobSortWorker) throws Exception{
+        return buildJob(scheduleTaskShade, name, triggerDay, beginTime, endTime, fillId, jobSortWorker, null);
+    }
+
+    /**
+     * 构建周期实例
+     *
+     * @param buildContext 生成上下文，为空时不使用缓存和预加载的实例key
+     */
+    protected List<ScheduleJobDetails> buildJob(ScheduleTaskShade scheduleTaskShade,
+                                                String name,
+                                                String triggerDay,
+                                                String beginTime,
+                                                String endTime,
+                                                Long fillId,
+                                                JobSortWorker jobSortWorker,
+                                                JobGraphBuildContext buildContext) throws Exception{
 
         // 解析周期信息
-        ScheduleCorn corn = ScheduleConfManager.parseFromJson(scheduleTaskShade.getScheduleConf());
+        ScheduleCorn corn = buildContext != null ? buildContext.getCorn(scheduleTaskShade.getScheduleConf())
+                : ScheduleConfManager.parseFromJson(scheduleTaskShade.getScheduleConf());
         ScheduleConf scheduleConf = corn.getScheduleConf();
 
         // 校验时间是否符合规范，且获得时间范围
@@ -91,31 +108,41 @@ public abstract class AbstractJobBuilder implements JobBuilder, InitializingBean
 
         List<ScheduleJobDetails> jobBuilderBeanList = Lists.newArrayList();
 
-        Date next = corn.isMatch(startDate) ? startDate : corn.next(startDate);
-        while (next != null) {
-            // 如下下一次执行时间已经在结束时间之后，停止生成实例
-            if (next.after(endDate)) {
-                break;
-            }
-            ScheduleJobDetails jobBuilderBean = buildJobBuilderBean(scheduleTaskShade, name, fillId, jobSortWorker, corn, scheduleConf, next, NORMAL_TASK_FLOW_ID);
+        // 依赖处理器和工作流子任务与实例的计划时间无关，每个任务只查询一次
+        String keyPreStr = getKeyPreStr(name);
+        JobDependency dependencyHandler = dependencyManager.getDependencyHandler(keyPreStr, scheduleTaskShade, corn, buildContext);
+        List<ScheduleTaskShade> subTasks = null;
+        List<JobDependency> subTaskDependencyHandlers = null;
+
+        // 一次展开范围内的所有执行时间，后一个执行时间即前一个实例的 nextCycTime
+        List<Date> fireTimes = corn.fireTimes(startDate, endDate);
+        for (int index = 0; index < fireTimes.size(); index++) {
+            Date next = fireTimes.get(index);
+            Date nextCycDate = index + 1 < fireTimes.size() ? fireTimes.get(index + 1) : corn.next(next);
+            ScheduleJobDetails jobBuilderBean = buildJobBuilderBean(scheduleTaskShade, name, fillId, jobSortWorker, corn, scheduleConf, next, nextCycDate, NORMAL_TASK_FLOW_ID, dependencyHandler);
 
             if (EScheduleJobType.WORK_FLOW.getVal().equals(scheduleTaskShade.getTaskType())) {
                 // 该任务是工作流任务 先生成子任务
-                List<ScheduleTaskShade> subTasks = scheduleTaskService.lambdaQuery()
-                        .eq(ScheduleTaskShade::getFlowId, scheduleTaskShade.getTaskId())
-                        .eq(ScheduleTaskShade::getIsDeleted, Deleted.NORMAL.getStatus())
-                        .list();
+                if (subTasks == null) {
+                    subTasks = scheduleTaskService.lambdaQuery()
+                            .eq(ScheduleTaskShade::getFlowId, scheduleTaskShade.getTaskId())
+                            .eq(ScheduleTaskShade::getIsDeleted, Deleted.NORMAL.getStatus())
+                            .list();
+                    subTaskDependencyHandlers = Lists.newArrayListWithCapacity(subTasks.size());
+                    for (ScheduleTaskShade subTask : subTasks) {
+                        subTaskDependencyHandlers.add(dependencyManager.getDependencyHandler(keyPreStr, subTask, corn, buildContext));
+                    }
+                }
                 List<ScheduleJobDetails> flowBean = Lists.newArrayList();
                 ScheduleJob scheduleJob = jobBuilderBean.getScheduleJob();
-                for (ScheduleTaskShade subTask : subTasks) {
-                    flowBean.add(buildJobBuilderBean(subTask, name, fillId, jobSortWorker, corn, scheduleConf, next, scheduleJob.getJobId()));
+                for (int i = 0; i < subTasks.size(); i++) {
+                    flowBean.add(buildJobBuilderBean(subTasks.get(i), name, fillId, jobSortWorker, corn, scheduleConf, next, nextCycDate, scheduleJob.getJobId(), subTaskDependencyHandlers.get(i)));
                 }
                 jobBuilderBean.setFlowBean(flowBean);
             }
 
 
             jobBuilderBeanList.add(jobBuilderBean);
-            next = corn.next(next);
         }
         return jobBuilderBeanList;
     }
@@ -130,6 +157,17 @@ public abstract class AbstractJobBuilder implements JobBuilder, InitializingBean
         return buildJob(batchTaskShade, "",triggerDay,"00:00","23:59",0L,sortWorker);
     }
 
+    /**
+     * 周期实例生成bean方法
+     * @param batchTaskShade 任务
+     * @param triggerDay 目标天
+     * @param sortWorker 排序器
+     * @param buildContext 生成上下文
+     */
+    public List<ScheduleJobDetails> buildJob(ScheduleTaskShade batchTaskShade, String triggerDay, AtomicJobSortWorker sortWorker, JobGraphBuildContext buildContext) throws Exception {
+        return buildJob(batchTaskShade, "",triggerDay,"00:00","23:59",0L,sortWorker, buildContext);
+    }
+
     /**
      * 获得实例名称
      * @param scheduleTaskShade 任务
@@ -150,6 +188,8 @@ public abstract class AbstractJobBuilder implements JobBuilder, InitializingBean
      * @param corn 周期实例
      * @param scheduleConf 调度配置
      * @param currentData 当前时间
+     * @param nextCycDate 下一次执行时间
+     * @param dependencyHandler 依赖处理器
      * @return
      */
     private ScheduleJobDetails buildJobBuilderBean(ScheduleTaskShade scheduleTaskShade,
@@ -159,7 +199,9 @@ public abstract class AbstractJobBuilder implements JobBuilder, InitializingBean
                                                    ScheduleCorn corn,
                                                    ScheduleConf scheduleConf,
                                                    Date currentData,
-                                                   String flowJobId) {
+                                                   Date nextCycDate,
+                                                   String flowJobId,
+                                                   JobDependency dependencyHandler) {
         String triggerTime = DateUtil.getDate(currentData,DateUtil.STANDARD_DATETIME_FORMAT);
         String cycTime = DateUtil.getTimeStrWithoutSymbol(triggerTime);
         String jobKey = JobKeyUtils.generateJobKey(getKeyPreStr(name), scheduleTaskShade.getTaskId(), cycTime);
@@ -186,12 +228,11 @@ public abstract class AbstractJobBuilder implements JobBuilder, InitializingBean
         scheduleJob.setMaxRetryNum(scheduleConf.getMaxRetryNum());
         scheduleJob.setVersionId(scheduleTaskShade.getVersionId());
         scheduleJob.setComputeType(scheduleTaskShade.getComputeType());
-        scheduleJob.setNextCycTime(DateUtil.getDate(corn.next(currentData), DateUtil.STANDARD_DATETIME_FORMAT));
+        scheduleJob.setNextCycTime(DateUtil.getDate(nextCycDate, DateUtil.STANDARD_DATETIME_FORMAT));
         scheduleJob.setJobExecuteOrder(JobExecuteOrderUtil.buildJobExecuteOrder(cycTime,jobSortWorker.getSort()));
 
         // 获得依赖
         List<ScheduleJobJob> jobJobList = Lists.newArrayList();
-        JobDependency dependencyHandler = dependencyManager.getDependencyHandler(getKeyPreStr(name), scheduleTaskShade, corn);
         jobJobList.addAll(dependencyHandler.generationJobJobForTask(corn, currentData,jobKey));
 
         ScheduleJobDetails jobBuilderBean = new ScheduleJobDetails();
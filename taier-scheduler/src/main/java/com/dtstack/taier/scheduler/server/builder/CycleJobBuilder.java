@@ -14,14 +14,18 @@ import com.dtstack.taier.scheduler.utils.JobExecuteOrderUtil;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang3.time.DateUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.sql.Timestamp;
+import java.util.Date;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.locks.Lock;
@@ -40,9 +44,14 @@ public class CycleJobBuilder extends AbstractJobBuilder {
 
     private static final String CRON_JOB_NAME = "cronJob";
 
+    private static final int PRELOAD_PAGE_SIZE = 5000;
+
     @Autowired
     protected JobGraphTriggerService jobGraphTriggerService;
 
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     private final Lock lock = new ReentrantLock();
 
     public void buildTaskJobGraph(String triggerDay) {
@@ -51,6 +60,7 @@ public class CycleJobBuilder extends AbstractJobBuilder {
         }
 
         lock.lock();
+        JobGraphWriter writer = null;
         try {
             String triggerTimeStr = triggerDay + " 00:00:00";
             Timestamp triggerTime = Timestamp.valueOf(triggerTimeStr);
@@ -71,12 +81,22 @@ public class CycleJobBuilder extends AbstractJobBuilder {
                 return;
             }
             clearInterruptJob(triggerTime);
+            long startTime = System.currentTimeMillis();
+            JobGraphBuildContext buildContext = createBuildContext(triggerTime);
+            // 写线程直接调用 savaJobList 不经过代理，@Transactional 不生效，这里显式开启事务
+            writer = new JobGraphWriter(CRON_JOB_NAME, environmentContext.getJobGraphWriterThread(),
+                    environmentContext.getJobGraphWriterBatchSize(), environmentContext.getJobGraphTaskLimitSize() * environmentContext.getMaxTaskBuildThread(),
+                    scheduleJobDetails -> transactionTemplate.execute(status -> {
+                        savaJobList(scheduleJobDetails);
+                        return null;
+                    }));
             // 2. 切割总数 限制 thread 并发
             int totalBatch = totalTask / environmentContext.getJobGraphTaskLimitSize();
             if (totalTask % environmentContext.getJobGraphTaskLimitSize() != 0) {
                 totalBatch++;
             }
 
+            JobGraphWriter jobGraphWriter = writer;
             Semaphore sph = new Semaphore(environmentContext.getMaxTaskBuildThread());
             CountDownLatch ctl = new CountDownLatch(totalBatch);
             AtomicJobSortWorker sortWorker = new AtomicJobSortWorker();
@@ -91,6 +111,7 @@ public class CycleJobBuilder extends AbstractJobBuilder {
 
                 // 如果取出来的任务集合是空的
                 if (CollectionUtils.isEmpty(batchTaskShades)) {
+                    ctl.countDown();
                     continue;
                 }
 
@@ -103,10 +124,11 @@ public class CycleJobBuilder extends AbstractJobBuilder {
                         try {
                             for (ScheduleTaskShade batchTaskShade : batchTaskShades) {
                                 try {
-                                    List<ScheduleJobDetails> scheduleJobDetails = RetryUtil.executeWithRetry(() -> buildJob(batchTaskShade, triggerDay, sortWorker),
+                                    List<ScheduleJobDetails> scheduleJobDetails = RetryUtil.executeWithRetry(() -> buildJob(batchTaskShade, triggerDay, sortWorker, buildContext),
                                             environmentContext.getBuildJobErrorRetry(), 200, false);
-                                    // 插入周期实例
-                                    savaJobList(scheduleJobDetails);
+                                    buildContext.incrementTask(JobGraphWriter.countJob(scheduleJobDetails));
+                                    // 交给写线程批量插入周期实例
+                                    jobGraphWriter.put(scheduleJobDetails);
                                 } catch (Throwable e) {
                                     LOGGER.error("build task failure taskId:{}",batchTaskShade.getTaskId(), e);
                                 }
@@ -124,17 +146,56 @@ public class CycleJobBuilder extends AbstractJobBuilder {
                 }
             }
             ctl.await();
+            // 等待写线程把剩余实例写完
+            finishWriter(writer);
+            logBuildSpeed(triggerDay, buildContext, jobGraphWriter, startTime);
 
             // 循环已经结束，说明周期实例已经全部生成了
             saveJobGraph(triggerDay);
         } catch (Exception e) {
             LOGGER.error("buildTaskJobGraph ！！！", e);
         } finally {
+            finishWriter(writer);
             LOGGER.info("buildTaskJobGraph exit & unlock ...");
             lock.unlock();
         }
     }
 
+    /**
+     * 创建生成上下文，预加载前一天的周期实例key，跨天的依赖边直接在内存中判断上游实例是否存在
+     *
+     * @param triggerTime 目标天
+     * @return 生成上下文
+     */
+    private JobGraphBuildContext createBuildContext(Timestamp triggerTime) {
+        Date preloadEnd = new Date(triggerTime.getTime());
+        Date preloadStart = DateUtils.addDays(preloadEnd, -1);
+        Set<String> jobKeys = scheduleJobService.listJobKeyByCycTime(DateUtil.getUnStandardFormattedDate(preloadStart.getTime()),
+                DateUtil.getUnStandardFormattedDate(preloadEnd.getTime()), getType(), PRELOAD_PAGE_SIZE);
+        LOGGER.info("preload job key from {} to {} size:{}", preloadStart, preloadEnd, jobKeys.size());
+        return new JobGraphBuildContext(preloadStart, preloadEnd, jobKeys);
+    }
+
+    private void finishWriter(JobGraphWriter writer) {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.finish();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void logBuildSpeed(String triggerDay, JobGraphBuildContext buildContext, JobGraphWriter writer, long startTime) {
+        long cost = Math.max(1L, System.currentTimeMillis() - startTime);
+        long taskCount = buildContext.getTaskCount();
+        long instanceCount = buildContext.getInstanceCount();
+        LOGGER.info("buildTaskJobGraph {} cost:{}ms task:{} instance:{} written:{} failedTask:{} task/s:{} instance/s:{}",
+                triggerDay, cost, taskCount, instanceCount, writer.getWrittenCount(), writer.getFailedTaskCount(),
+                taskCount * 1000 / cost, instanceCount * 1000 / cost);
+    }
+
     private void clearInterruptJob(Timestamp triggerDay) {
         String date = DateUtil.getUnStandardFormattedDate(triggerDay.getTime());
         Long startExecuteOrder = JobExecuteOrderUtil.buildJobExecuteOrder(date, 0);
@@ -0,0 +1,97 @@
+package com.dtstack.taier.scheduler.server.builder;
+
+import com.dtstack.taier.scheduler.server.builder.cron.ScheduleConfManager;
+import com.dtstack.taier.scheduler.server.builder.cron.ScheduleCorn;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 一次生成周期实例过程中共享的上下文，所有生成线程共用：
+ * 1. 按调度配置缓存解析好的 ScheduleCorn，同一个任务作为上游被多次引用时不再重复解析
+ * 2. 预加载的跨天上游实例key，替代每条依赖边一次的数据库查询
+ * 3. 生成的任务数、实例数统计
+ */
+public class JobGraphBuildContext {
+
+    private final Map<String, ScheduleCorn> cornCache = new ConcurrentHashMap<>();
+
+    /**
+     * 预加载实例key的计划时间范围 [preloadStart, preloadEnd)
+     */
+    private final Date preloadStart;
+
+    private final Date preloadEnd;
+
+    private final Set<String> preloadJobKeys;
+
+    private final AtomicLong taskCount = new AtomicLong();
+
+    private final AtomicLong instanceCount = new AtomicLong();
+
+    public JobGraphBuildContext() {
+        this(null, null, Collections.emptySet());
+    }
+
+    public JobGraphBuildContext(Date preloadStart, Date preloadEnd, Set<String> preloadJobKeys) {
+        this.preloadStart = preloadStart;
+        this.preloadEnd = preloadEnd;
+        this.preloadJobKeys = preloadJobKeys;
+    }
+
+    /**
+     * 获得调度配置对应的 ScheduleCorn，同一个配置只解析一次
+     *
+     * @param scheduleConf 调度配置
+     * @return ScheduleCorn
+     */
+    public ScheduleCorn getCorn(String scheduleConf) throws Exception {
+        ScheduleCorn corn = cornCache.get(scheduleConf);
+        if (corn == null) {
+            corn = ScheduleConfManager.parseFromJson(scheduleConf);
+            ScheduleCorn exist = cornCache.putIfAbsent(scheduleConf, corn);
+            if (exist != null) {
+                corn = exist;
+            }
+        }
+        return corn;
+    }
+
+    /**
+     * 判断实例key是否存在
+     *
+     * @param cycDate 实例计划时间
+     * @param jobKey  实例key
+     * @return 不在预加载范围内时返回 null，需要调用方自己查询
+     */
+    public Boolean containsJobKey(Date cycDate, String jobKey) {
+        if (preloadStart == null || preloadEnd == null || cycDate == null) {
+            return null;
+        }
+        if (cycDate.before(preloadStart) || !cycDate.before(preloadEnd)) {
+            return null;
+        }
+        return preloadJobKeys.contains(jobKey);
+    }
+
+    public void incrementTask(int instanceSize) {
+        taskCount.incrementAndGet();
+        instanceCount.addAndGet(instanceSize);
+    }
+
+    public long getTaskCount() {
+        return taskCount.get();
+    }
+
+    public long getInstanceCount() {
+        return instanceCount.get();
+    }
+
+    public int getPreloadJobKeySize() {
+        return preloadJobKeys.size();
+    }
+}
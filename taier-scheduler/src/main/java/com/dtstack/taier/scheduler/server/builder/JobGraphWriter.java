@@ -0,0 +1,161 @@
+package com.dtstack.taier.scheduler.server.builder;
+
+import com.dtstack.taier.pluginapi.CustomThreadFactory;
+import com.dtstack.taier.scheduler.server.ScheduleJobDetails;
+import com.google.common.collect.Lists;
+import org.apache.commons.collections.CollectionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 周期实例写入器：生成线程只负责把实例放入队列，
+ * 由多个写线程攒够一批后统一入库，生成和写库互不阻塞
+ */
+public class JobGraphWriter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JobGraphWriter.class);
+
+    private static final long POLL_TIMEOUT_MS = 100L;
+
+    private final BlockingQueue<List<ScheduleJobDetails>> queue;
+
+    private final ExecutorService writerPool;
+
+    private final int batchSize;
+
+    private final Consumer<List<ScheduleJobDetails>> saver;
+
+    private final AtomicLong writtenCount = new AtomicLong();
+
+    private final AtomicLong failedTaskCount = new AtomicLong();
+
+    private volatile boolean finished = false;
+
+    /**
+     * @param name          线程名称
+     * @param writerThreads 写线程数
+     * @param batchSize     每批写入的实例数
+     * @param queueSize     待写入的任务数上限，超过后生成线程等待
+     * @param saver         入库方法
+     */
+    public JobGraphWriter(String name, int writerThreads, int batchSize, int queueSize, Consumer<List<ScheduleJobDetails>> saver) {
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.batchSize = batchSize;
+        this.saver = saver;
+        this.writerPool = Executors.newFixedThreadPool(writerThreads, new CustomThreadFactory(name + "_JobGraphWriter"));
+        for (int i = 0; i < writerThreads; i++) {
+            writerPool.submit(this::write);
+        }
+    }
+
+    /**
+     * 提交一个任务生成的实例，队列满时阻塞
+     *
+     * @param scheduleJobDetails 实例
+     */
+    public void put(List<ScheduleJobDetails> scheduleJobDetails) throws InterruptedException {
+        if (CollectionUtils.isEmpty(scheduleJobDetails)) {
+            return;
+        }
+        queue.put(scheduleJobDetails);
+    }
+
+    /**
+     * 不再提交新实例，等待队列中的实例全部写完
+     */
+    public void finish() throws InterruptedException {
+        finished = true;
+        writerPool.shutdown();
+        while (!writerPool.awaitTermination(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+            LOGGER.debug("wait job graph writer finish, remain task:{}", queue.size());
+        }
+    }
+
+    private void write() {
+        List<List<ScheduleJobDetails>> batch = Lists.newArrayList();
+        int batchJobSize = 0;
+        while (true) {
+            List<ScheduleJobDetails> scheduleJobDetails;
+            try {
+                scheduleJobDetails = queue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+
+            if (scheduleJobDetails == null) {
+                if (finished && queue.isEmpty()) {
+                    break;
+                }
+                continue;
+            }
+
+            batch.add(scheduleJobDetails);
+            batchJobSize += countJob(scheduleJobDetails);
+            if (batchJobSize >= batchSize) {
+                flush(batch);
+                batch = Lists.newArrayList();
+                batchJobSize = 0;
+            }
+        }
+        flush(batch);
+    }
+
+    private void flush(List<List<ScheduleJobDetails>> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<ScheduleJobDetails> batchJobDetails = Lists.newArrayList();
+        for (List<ScheduleJobDetails> scheduleJobDetails : batch) {
+            batchJobDetails.addAll(scheduleJobDetails);
+        }
+
+        try {
+            saver.accept(batchJobDetails);
+            writtenCount.addAndGet(countJob(batchJobDetails));
+        } catch (Throwable e) {
+            // 整批写入失败时按任务逐个写入，避免一个任务的异常导致整批实例丢失
+            LOGGER.error("batch insert job graph failure, retry by task", e);
+            for (List<ScheduleJobDetails> scheduleJobDetails : batch) {
+                try {
+                    saver.accept(scheduleJobDetails);
+                    writtenCount.addAndGet(countJob(scheduleJobDetails));
+                } catch (Throwable ex) {
+                    failedTaskCount.incrementAndGet();
+                    LOGGER.error("insert job graph failure taskId:{}", scheduleJobDetails.get(0).getScheduleJob().getTaskId(), ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * 实例数，包含工作流子任务实例
+     */
+    public static int countJob(List<ScheduleJobDetails> scheduleJobDetails) {
+        int count = 0;
+        for (ScheduleJobDetails scheduleJobDetail : scheduleJobDetails) {
+            count++;
+            if (CollectionUtils.isNotEmpty(scheduleJobDetail.getFlowBean())) {
+                count += scheduleJobDetail.getFlowBean().size();
+            }
+        }
+        return count;
+    }
+
+    public long getWrittenCount() {
+        return writtenCount.get();
+    }
+
+    public long getFailedTaskCount() {
+        return failedTaskCount.get();
+    }
+}
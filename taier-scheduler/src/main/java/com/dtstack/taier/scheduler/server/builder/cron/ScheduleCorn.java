@@ -6,10 +6,14 @@ import com.cronutils.model.definition.CronDefinitionBuilder;
 import com.cronutils.model.time.ExecutionTime;
 import com.cronutils.parser.CronParser;
 import com.dtstack.taier.scheduler.server.builder.ScheduleConf;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Lists;
 
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.Date;
+import java.util.List;
 
 import static com.cronutils.model.CronType.QUARTZ;
 
@@ -21,7 +25,17 @@ import static com.cronutils.model.CronType.QUARTZ;
  */
 public class ScheduleCorn {
 
-    private final CronDefinition CRON_DEFINITION = CronDefinitionBuilder.instanceDefinitionFor(QUARTZ);
+    private static final CronDefinition CRON_DEFINITION = CronDefinitionBuilder.instanceDefinitionFor(QUARTZ);
+
+    private static final int COMPILED_CACHE_SIZE = 10000;
+
+    /**
+     * 编译后的执行时间，按 cron 表达式共享。ExecutionTime 无状态可以并发使用，
+     * 相同周期配置的任务只解析一次
+     */
+    private static final Cache<String, ExecutionTime> COMPILED_CACHE = CacheBuilder.newBuilder()
+            .maximumSize(COMPILED_CACHE_SIZE)
+            .build();
 
     /**
      * cron表达式
@@ -33,6 +47,11 @@ public class ScheduleCorn {
      */
     private ScheduleConf scheduleConf;
 
+    /**
+     * 当前 cron 编译后的执行时间
+     */
+    private volatile ExecutionTime executionTime;
+
     /**
      * 获得距离date的上一次执行最近的时间
      * @param date 时间
@@ -43,10 +62,7 @@ public class ScheduleCorn {
             return null;
         }
 
-        CronParser parser = new CronParser(CRON_DEFINITION);
-        Cron quartzCron = parser.parse(cron);
-
-        ExecutionTime executionTime = ExecutionTime.forCron(quartzCron);
+        ExecutionTime executionTime = getExecutionTime();
         ZonedDateTime zonedDateTime = executionTime.lastExecution(ZonedDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault())).orElse(null);
 
         if (zonedDateTime == null) {
@@ -66,10 +82,7 @@ public class ScheduleCorn {
             return null;
         }
 
-        CronParser parser = new CronParser(CRON_DEFINITION);
-        Cron quartzCron = parser.parse(cron);
-
-        ExecutionTime executionTime = ExecutionTime.forCron(quartzCron);
+        ExecutionTime executionTime = getExecutionTime();
         ZonedDateTime zonedDateTime = executionTime.nextExecution(ZonedDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault())).orElse(null);
 
         if (zonedDateTime == null) {
@@ -87,19 +100,62 @@ public class ScheduleCorn {
             return null;
         }
 
-        CronParser parser = new CronParser(CRON_DEFINITION);
-        Cron quartzCron = parser.parse(cron);
-
-        ExecutionTime executionTime = ExecutionTime.forCron(quartzCron);
+        ExecutionTime executionTime = getExecutionTime();
         return executionTime.isMatch(ZonedDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault()));
     }
 
+    /**
+     * 获得 [start, end] 范围内的所有执行时间，一次遍历展开，不在 Date 和 ZonedDateTime 之间来回转换
+     *
+     * @param start 开始时间，包含
+     * @param end   结束时间，包含
+     * @return 按时间升序的执行时间
+     */
+    public List<Date> fireTimes(Date start, Date end) {
+        List<Date> fireTimes = Lists.newArrayList();
+        if (start == null || end == null || start.after(end)) {
+            return fireTimes;
+        }
+
+        ExecutionTime executionTime = getExecutionTime();
+        ZonedDateTime endTime = ZonedDateTime.ofInstant(end.toInstant(), ZoneId.systemDefault());
+        ZonedDateTime current = ZonedDateTime.ofInstant(start.toInstant(), ZoneId.systemDefault());
+        if (!executionTime.isMatch(current)) {
+            current = executionTime.nextExecution(current).orElse(null);
+        }
+        while (current != null && !current.isAfter(endTime)) {
+            fireTimes.add(Date.from(current.toInstant()));
+            current = executionTime.nextExecution(current).orElse(null);
+        }
+        return fireTimes;
+    }
+
+    private ExecutionTime getExecutionTime() {
+        ExecutionTime compiled = executionTime;
+        if (compiled == null) {
+            compiled = compile(cron);
+            executionTime = compiled;
+        }
+        return compiled;
+    }
+
+    private static ExecutionTime compile(String cron) {
+        ExecutionTime compiled = COMPILED_CACHE.getIfPresent(cron);
+        if (compiled == null) {
+            Cron quartzCron = new CronParser(CRON_DEFINITION).parse(cron);
+            compiled = ExecutionTime.forCron(quartzCron);
+            COMPILED_CACHE.put(cron, compiled);
+        }
+        return compiled;
+    }
+
     public String getCron() {
         return cron;
     }
 
     public void setCron(String cron) {
         this.cron = cron;
+        this.executionTime = null;
     }
 
     public ScheduleConf getScheduleConf() {
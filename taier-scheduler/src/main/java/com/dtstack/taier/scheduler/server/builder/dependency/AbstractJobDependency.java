@@ -6,7 +6,10 @@ import com.dtstack.taier.dao.domain.ScheduleJob;
 import com.dtstack.taier.dao.domain.ScheduleTaskShade;
 import com.dtstack.taier.pluginapi.util.DateUtil;
 import com.dtstack.taier.scheduler.enums.RelyRule;
+import com.dtstack.taier.scheduler.server.builder.JobGraphBuildContext;
 import com.dtstack.taier.scheduler.server.builder.ScheduleConf;
+import com.dtstack.taier.scheduler.server.builder.cron.ScheduleConfManager;
+import com.dtstack.taier.scheduler.server.builder.cron.ScheduleCorn;
 import com.dtstack.taier.scheduler.service.ScheduleJobService;
 
 import java.util.Date;
@@ -40,6 +43,11 @@ public abstract class AbstractJobDependency implements JobDependency {
 
     protected ScheduleJobService scheduleJobService;
 
+    /**
+     * 生成上下文，为空时每次都解析调度配置、查询数据库
+     */
+    protected JobGraphBuildContext buildContext;
+
     public AbstractJobDependency(String keyPreStr,
                                  ScheduleTaskShade currentTaskShade,
                                  ScheduleJobService scheduleJobService,
@@ -50,6 +58,23 @@ public abstract class AbstractJobDependency implements JobDependency {
         this.scheduleJobService = scheduleJobService;
     }
 
+    public void setBuildContext(JobGraphBuildContext buildContext) {
+        this.buildContext = buildContext;
+    }
+
+    /**
+     * 获得任务的执行周期
+     *
+     * @param scheduleTaskShade 任务
+     * @return 执行周期
+     */
+    protected ScheduleCorn getCorn(ScheduleTaskShade scheduleTaskShade) throws Exception {
+        if (buildContext != null) {
+            return buildContext.getCorn(scheduleTaskShade.getScheduleConf());
+        }
+        return ScheduleConfManager.parseFromJson(scheduleTaskShade.getScheduleConf());
+    }
+
     /**
      * 获得依赖规则
      *
@@ -79,7 +104,11 @@ public abstract class AbstractJobDependency implements JobDependency {
      */
     protected String needCreateKey(Date lastDate,Date currentDate,String lastJobKey) {
         if (!DateUtil.isSameDay(lastDate,currentDate)) {
-            // 不是同一天
+            // 不是同一天，优先从预加载的实例key中判断
+            Boolean exist = buildContext != null ? buildContext.containsJobKey(lastDate, lastJobKey) : null;
+            if (exist != null) {
+                return exist ? lastJobKey : null;
+            }
             ScheduleJob scheduleJob = scheduleJobService.lambdaQuery()
                     .select(ScheduleJob::getJobId)
                     .eq(ScheduleJob::getJobKey, lastJobKey)
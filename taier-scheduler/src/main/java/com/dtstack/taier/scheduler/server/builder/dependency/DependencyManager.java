@@ -3,7 +3,7 @@ package com.dtstack.taier.scheduler.server.builder.dependency;
 import com.dtstack.taier.common.enums.DependencyType;
 import com.dtstack.taier.common.enums.Deleted;
 import com.dtstack.taier.dao.domain.ScheduleTaskShade;
-import com.dtstack.taier.dao.domain.ScheduleTaskTaskShade;
+import com.dtstack.taier.scheduler.server.builder.JobGraphBuildContext;
 import com.dtstack.taier.scheduler.server.builder.ScheduleConf;
 import com.dtstack.taier.scheduler.server.builder.cron.ScheduleCorn;
 import com.dtstack.taier.scheduler.service.ScheduleJobService;
@@ -14,7 +14,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * @Auther: dazhi
@@ -43,13 +42,21 @@ public class DependencyManager {
      * @return 依赖处理器链
      */
     public JobDependency getDependencyHandler(String keyPreStr, ScheduleTaskShade currentTaskShade, ScheduleCorn corn) {
-        // 查询上游任务
-        List<ScheduleTaskTaskShade> scheduleTaskTaskShadeList = scheduleTaskTaskService.lambdaQuery()
-                .eq(ScheduleTaskTaskShade::getTaskId, currentTaskShade.getTaskId())
-                .eq(ScheduleTaskTaskShade::getIsDeleted, Deleted.NORMAL.getStatus())
-                .list();
+        return getDependencyHandler(keyPreStr, currentTaskShade, corn, null);
+    }
 
-        List<Long> parentTaskIds = scheduleTaskTaskShadeList.stream().map(ScheduleTaskTaskShade::getParentTaskId).collect(Collectors.toList());
+    /**
+     * 获得依赖处理器链
+     *
+     * @param keyPreStr        前缀
+     * @param currentTaskShade 任务
+     * @param corn             执行周期
+     * @param buildContext     生成上下文，可以为空
+     * @return 依赖处理器链
+     */
+    public JobDependency getDependencyHandler(String keyPreStr, ScheduleTaskShade currentTaskShade, ScheduleCorn corn, JobGraphBuildContext buildContext) {
+        // 查询上游任务
+        List<Long> parentTaskIds = scheduleTaskTaskService.getTaskDag().getParents(currentTaskShade.getTaskId());
 
         // 如果没有上游任务，就不需要UpstreamDependencyHandler
         List<ScheduleTaskShade> taskShadeList = null;
@@ -62,7 +69,8 @@ public class DependencyManager {
         }
 
         // 上游任务的依赖处理器
-        JobDependency jobDependency = new UpstreamDependencyHandler(keyPreStr, currentTaskShade,scheduleJobService,taskShadeList);
+        AbstractJobDependency jobDependency = new UpstreamDependencyHandler(keyPreStr, currentTaskShade,scheduleJobService,taskShadeList);
+        jobDependency.setBuildContext(buildContext);
 
         // 判断是否设置自依赖
         ScheduleConf scheduleConf = corn.getScheduleConf();
@@ -70,11 +78,13 @@ public class DependencyManager {
                 || DependencyType.SELF_DEPENDENCY_END.getType().equals(scheduleConf.getSelfReliance())) {
             // 需要自依赖任务, 对上游依赖做增强，生成自依赖
             jobDependency = new SelfRelianceDependencyHandler(keyPreStr, currentTaskShade, scheduleJobService, taskShadeList, jobDependency);
+            jobDependency.setBuildContext(buildContext);
         } else if (DependencyType.PRE_PERIOD_CHILD_DEPENDENCY_SUCCESS.getType().equals(scheduleConf.getSelfReliance())
                 || DependencyType.PRE_PERIOD_CHILD_DEPENDENCY_END.getType().equals(scheduleConf.getSelfReliance())) {
             if (CollectionUtils.isNotEmpty(taskShadeList)) {
                 // 依赖下游任务的上一个周期 对jobDependency进行增强
                 jobDependency = new UpstreamNextJobDependencyHandler(keyPreStr, currentTaskShade, scheduleJobService, taskShadeList,jobDependency);
+                jobDependency.setBuildContext(buildContext);
             }
         }
 
@@ -0,0 +1,226 @@
+package com.dtstack.taier.scheduler.server.builder.dependency;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 任务依赖关系(schedule_task_task_shade)的内存邻接表，构建后不可修改，
+ * 依赖关系变化时整体替换。所有查询都是 O(V+E)，不再逐层查询数据库
+ */
+public class TaskDag {
+
+    private final long version;
+
+    private final String edgeVersion;
+
+    /**
+     * parentTaskId -> 下游 taskId
+     */
+    private final Map<Long, List<Long>> children;
+
+    /**
+     * taskId -> 上游 parentTaskId
+     */
+    private final Map<Long, List<Long>> parents;
+
+    private final int edgeSize;
+
+    private TaskDag(long version, String edgeVersion, Map<Long, List<Long>> children, Map<Long, List<Long>> parents, int edgeSize) {
+        this.version = version;
+        this.edgeVersion = edgeVersion;
+        this.children = children;
+        this.parents = parents;
+        this.edgeSize = edgeSize;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public String getEdgeVersion() {
+        return edgeVersion;
+    }
+
+    public int getNodeSize() {
+        Set<Long> nodes = Sets.newHashSet(children.keySet());
+        nodes.addAll(parents.keySet());
+        return nodes.size();
+    }
+
+    public int getEdgeSize() {
+        return edgeSize;
+    }
+
+    /**
+     * 直接下游
+     */
+    public List<Long> getChildren(Long taskId) {
+        return children.getOrDefault(taskId, Collections.emptyList());
+    }
+
+    /**
+     * 直接上游
+     */
+    public List<Long> getParents(Long taskId) {
+        return parents.getOrDefault(taskId, Collections.emptyList());
+    }
+
+    /**
+     * 查询 roots 及其所有下游，按层级遍历
+     *
+     * @param roots    起始任务
+     * @param maxLevel 最大层级，防止依赖成环时无限遍历
+     * @return 包含 roots 的所有下游任务
+     */
+    public Set<Long> getDescendants(Collection<Long> roots, int maxLevel) {
+        return traverse(roots, children, maxLevel);
+    }
+
+    /**
+     * 查询 roots 及其所有上游
+     *
+     * @param roots    起始任务
+     * @param maxLevel 最大层级
+     * @return 包含 roots 的所有上游任务
+     */
+    public Set<Long> getAncestors(Collection<Long> roots, int maxLevel) {
+        return traverse(roots, parents, maxLevel);
+    }
+
+    /**
+     * 有效路径上的节点：R 集合中任意两个节点之间的路径经过的节点，
+     * 即 R 的下游和 R 的上游的交集，再加上 R 本身
+     *
+     * @param run R集合
+     * @return A集合
+     */
+    public Set<Long> getEffectivePathNodes(Set<Long> run) {
+        Set<Long> descendants = getDescendants(run, Integer.MAX_VALUE);
+        Set<Long> effective = new LinkedHashSet<>(run);
+        // 反向遍历只走下游集合内的节点，两次遍历合计 O(V+E)
+        Deque<Long> queue = new ArrayDeque<>(run);
+        Set<Long> visited = Sets.newHashSet(run);
+        while (!queue.isEmpty()) {
+            Long taskId = queue.poll();
+            for (Long parentTaskId : getParents(taskId)) {
+                if (descendants.contains(parentTaskId) && visited.add(parentTaskId)) {
+                    effective.add(parentTaskId);
+                    queue.add(parentTaskId);
+                }
+            }
+        }
+        return effective;
+    }
+
+    /**
+     * 按依赖关系对任务排序，上游在前。成环的任务无法排序，按原顺序放在最后
+     *
+     * @param taskIds 任务
+     * @return 排序后的任务
+     */
+    public Set<Long> topologicalSort(Collection<Long> taskIds) {
+        Set<Long> nodes = new LinkedHashSet<>(taskIds);
+        Map<Long, Integer> inDegree = Maps.newHashMapWithExpectedSize(nodes.size());
+        for (Long taskId : nodes) {
+            int degree = 0;
+            for (Long parentTaskId : getParents(taskId)) {
+                if (nodes.contains(parentTaskId) && !parentTaskId.equals(taskId)) {
+                    degree++;
+                }
+            }
+            inDegree.put(taskId, degree);
+        }
+
+        Deque<Long> queue = new ArrayDeque<>();
+        for (Long taskId : nodes) {
+            if (inDegree.get(taskId) == 0) {
+                queue.add(taskId);
+            }
+        }
+
+        Set<Long> sorted = new LinkedHashSet<>(nodes.size());
+        while (!queue.isEmpty()) {
+            Long taskId = queue.poll();
+            sorted.add(taskId);
+            for (Long childTaskId : getChildren(taskId)) {
+                Integer degree = inDegree.get(childTaskId);
+                if (degree == null || childTaskId.equals(taskId)) {
+                    continue;
+                }
+                inDegree.put(childTaskId, degree - 1);
+                if (degree - 1 == 0) {
+                    queue.add(childTaskId);
+                }
+            }
+        }
+
+        if (sorted.size() < nodes.size()) {
+            sorted.addAll(nodes);
+        }
+        return sorted;
+    }
+
+    private Set<Long> traverse(Collection<Long> roots, Map<Long, List<Long>> sides, int maxLevel) {
+        Set<Long> visited = new LinkedHashSet<>(roots);
+        List<Long> current = Lists.newArrayList(roots);
+        int level = 0;
+        while (!current.isEmpty() && level < maxLevel) {
+            List<Long> next = Lists.newArrayList();
+            for (Long taskId : current) {
+                for (Long side : sides.getOrDefault(taskId, Collections.emptyList())) {
+                    if (visited.add(side)) {
+                        next.add(side);
+                    }
+                }
+            }
+            current = next;
+            level++;
+        }
+        return visited;
+    }
+
+    /**
+     * 构建依赖关系邻接表
+     */
+    public static class Builder {
+
+        private final Map<Long, List<Long>> children = new HashMap<>();
+
+        private final Map<Long, List<Long>> parents = new HashMap<>();
+
+        private int edgeSize = 0;
+
+        public Builder addEdge(Long parentTaskId, Long taskId) {
+            if (parentTaskId == null || taskId == null) {
+                return this;
+            }
+            children.computeIfAbsent(parentTaskId, k -> Lists.newArrayList()).add(taskId);
+            parents.computeIfAbsent(taskId, k -> Lists.newArrayList()).add(parentTaskId);
+            edgeSize++;
+            return this;
+        }
+
+        public TaskDag build(long version, String edgeVersion) {
+            return new TaskDag(version, edgeVersion, unmodifiable(children), unmodifiable(parents), edgeSize);
+        }
+
+        private static Map<Long, List<Long>> unmodifiable(Map<Long, List<Long>> sides) {
+            Map<Long, List<Long>> result = Maps.newHashMapWithExpectedSize(sides.size());
+            for (Map.Entry<Long, List<Long>> entry : sides.entrySet()) {
+                result.put(entry.getKey(), Collections.unmodifiableList(entry.getValue()));
+            }
+            return Collections.unmodifiableMap(result);
+        }
+    }
+}
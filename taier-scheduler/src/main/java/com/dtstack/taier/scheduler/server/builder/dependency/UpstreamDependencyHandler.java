@@ -8,7 +8,6 @@ import com.dtstack.taier.pluginapi.util.DateUtil;
 import com.dtstack.taier.scheduler.enums.RelyRule;
 import com.dtstack.taier.scheduler.enums.RelyType;
 import com.dtstack.taier.scheduler.server.builder.ScheduleConf;
-import com.dtstack.taier.scheduler.server.builder.cron.ScheduleConfManager;
 import com.dtstack.taier.scheduler.server.builder.cron.ScheduleCorn;
 import com.dtstack.taier.scheduler.service.ScheduleJobService;
 import com.dtstack.taier.scheduler.utils.JobKeyUtils;
@@ -75,7 +74,7 @@ public class UpstreamDependencyHandler extends AbstractJobDependency {
      * @return jobKey
      */
     public String getJobKey(ScheduleTaskShade scheduleTaskShade, Date currentDate) throws Exception {
-        ScheduleCorn corn = ScheduleConfManager.parseFromJson(scheduleTaskShade.getScheduleConf());
+        ScheduleCorn corn = getCorn(scheduleTaskShade);
 
         ScheduleConf scheduleConf = corn.getScheduleConf();
         Date beginDate = scheduleConf.getBeginDate();
@@ -7,7 +7,6 @@ import com.dtstack.taier.dao.domain.ScheduleTaskShade;
 import com.dtstack.taier.pluginapi.util.DateUtil;
 import com.dtstack.taier.scheduler.enums.RelyType;
 import com.dtstack.taier.scheduler.server.builder.ScheduleConf;
-import com.dtstack.taier.scheduler.server.builder.cron.ScheduleConfManager;
 import com.dtstack.taier.scheduler.server.builder.cron.ScheduleCorn;
 import com.dtstack.taier.scheduler.service.ScheduleJobService;
 import com.dtstack.taier.scheduler.utils.JobKeyUtils;
@@ -66,7 +65,7 @@ public class UpstreamNextJobDependencyHandler extends DecoratorJobDependency {
     }
 
     private String getJobKey(ScheduleTaskShade scheduleTaskShade, Date currentDate) throws Exception {
-        ScheduleCorn corn = ScheduleConfManager.parseFromJson(scheduleTaskShade.getScheduleConf());
+        ScheduleCorn corn = getCorn(scheduleTaskShade);
 
         ScheduleConf scheduleConf = corn.getScheduleConf();
         Date beginDate = scheduleConf.getBeginDate();
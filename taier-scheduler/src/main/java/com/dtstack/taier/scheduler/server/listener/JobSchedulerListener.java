@@ -22,14 +22,12 @@ import com.dtstack.taier.common.enums.EScheduleType;
 import com.dtstack.taier.common.env.EnvironmentContext;
 import com.dtstack.taier.dao.mapper.ScheduleJobMapper;
 import com.dtstack.taier.pluginapi.CustomThreadFactory;
-import com.dtstack.taier.scheduler.server.queue.QueueInfo;
 import com.dtstack.taier.scheduler.server.scheduler.AbstractJobSummitScheduler;
 import com.dtstack.taier.scheduler.server.scheduler.CycleJobScheduler;
 import com.dtstack.taier.scheduler.server.scheduler.FillDataJobScheduler;
 import com.dtstack.taier.scheduler.server.scheduler.RestartJobScheduler;
 import com.dtstack.taier.scheduler.zookeeper.ZkService;
 import com.google.common.collect.Maps;
-import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
@@ -84,33 +82,25 @@ public class JobSchedulerListener implements DisposableBean, ApplicationListener
 
 
     /**
-     * 同步所有节点的 type类型下的 job实例信息
-     * key1: nodeAddress,
-     * key2: scheduleType
+     * 本节点各 type 类型下待调度的实例数，由本节点发布到 zk
+     * key: scheduleType
      */
-    public Map<String, Map<Integer, QueueInfo>> getAllNodesJobQueueInfo() {
+    public Map<Integer, Integer> getLocalJobQueueInfo() {
+        return getJobQueueInfo(environmentContext.getLocalAddress());
+    }
 
-        List<String> allNodeAddress = zkService.getAliveBrokersChildren();
+    /**
+     * 指定节点各 type 类型下待调度的实例数，用于宕机节点容灾完成前保留其队列信息
+     * key: scheduleType
+     */
+    public Map<Integer, Integer> getJobQueueInfo(String nodeAddress) {
         Pair<String, String> cycTime = getCycTimeLimit();
-        Map<String, Map<Integer, QueueInfo>> allNodeJobInfo = Maps.newHashMap();
-        for (String nodeAddress : allNodeAddress) {
-            if (StringUtils.isBlank(nodeAddress)) {
-                continue;
-            }
-            allNodeJobInfo.computeIfAbsent(nodeAddress, na -> {
-                Map<Integer, QueueInfo> nodeJobInfo = Maps.newHashMap();
-                for (EScheduleType scheduleType : EScheduleType.values()) {
-                    executors.forEach(executor -> nodeJobInfo.computeIfAbsent(scheduleType.getType(), k -> {
-                        int queueSize = scheduleJobMapper.countTasksByCycTimeTypeAndAddress(nodeAddress,scheduleType.getType(), cycTime.getLeft(), cycTime.getRight());
-                        QueueInfo queueInfo = new QueueInfo();
-                        queueInfo.setSize(queueSize);
-                        return queueInfo;
-                    }));
-                }
-                return nodeJobInfo;
-            });
+        Map<Integer, Integer> nodeJobInfo = Maps.newHashMap();
+        for (EScheduleType scheduleType : EScheduleType.values()) {
+            int queueSize = scheduleJobMapper.countTasksByCycTimeTypeAndAddress(nodeAddress, scheduleType.getType(), cycTime.getLeft(), cycTime.getRight());
+            nodeJobInfo.put(scheduleType.getType(), queueSize);
         }
-        return allNodeJobInfo;
+        return nodeJobInfo;
     }
 
     public Pair<String, String> getCycTimeLimit() {
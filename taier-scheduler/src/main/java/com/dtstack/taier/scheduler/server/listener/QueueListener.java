@@ -24,6 +24,8 @@ import com.dtstack.taier.pluginapi.CustomThreadFactory;
 import com.dtstack.taier.scheduler.jobdealer.JobDealer;
 import com.dtstack.taier.scheduler.server.queue.GroupInfo;
 import com.dtstack.taier.scheduler.server.queue.QueueInfo;
+import com.dtstack.taier.scheduler.zookeeper.ZkService;
+import com.dtstack.taier.scheduler.zookeeper.data.QueueInfoNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.InitializingBean;
@@ -32,12 +34,18 @@ import org.springframework.stereotype.Component;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 
 /**
+ * 每个节点定时计算本节点的队列信息，有变化时发布到 zk 的临时节点，
+ * 所有节点监听 zk 上各节点的队列信息，得到整个集群近实时的队列快照。
+ * 节点宕机后 zk 临时节点消失，但其实例在容灾完成前仍归属该节点，
+ * 此时从数据库统计该节点剩余的队列信息，直到实例全部迁移完成
+ *
  * company: www.dtstack.com
  * author: toutian
  * create: 2019/10/22
@@ -49,7 +57,11 @@ public class QueueListener implements InitializingBean, Runnable {
 
     private int logOutput = 0;
     private final static int MULTIPLES = 10;
-    private final static int CHECK_INTERVAL = 5000;
+
+    /**
+     * 队列信息没有变化时，每隔多少个周期也重新发布一次，用于刷新发布时间
+     */
+    private final static int REFRESH_MULTIPLES = 10;
 
     @Autowired
     private JobSchedulerListener jobExecutorTrigger;
@@ -57,6 +69,9 @@ public class QueueListener implements InitializingBean, Runnable {
     @Autowired
     private JobDealer jobDealer;
 
+    @Autowired
+    private ZkService zkService;
+
     @Autowired
     private EnvironmentContext environmentContext;
 
@@ -64,18 +79,39 @@ public class QueueListener implements InitializingBean, Runnable {
 
     private ScheduledExecutorService scheduledService;
 
+    private QueueInfoNode lastPublished;
+
+    private int publishRound = 0;
+
+    private boolean watching = false;
+
+    /**
+     * nodeAddress -> 节点发布的队列信息
+     */
+    private final Map<String, QueueInfoNode> nodeQueueInfos = new ConcurrentHashMap<>();
+
+    /**
+     * nodeAddress -> zk 节点已经消失、但实例还没有迁移完成的节点队列信息
+     */
+    private final Map<String, QueueInfoNode> departedQueueInfos = new ConcurrentHashMap<>();
+
+    /**
+     * nodeAddress -> 收到该节点最新队列信息的时间
+     */
+    private final Map<String, Long> nodeReceiveTimes = new ConcurrentHashMap<>();
+
     private volatile Map<Integer, Map<String, QueueInfo>> allNodesJobQueueTypes = new HashMap<>();
     private volatile Map<String, Map<String, GroupInfo>> allNodesGroupQueueJobResources = new HashMap<>();
 
     @Override
     public void afterPropertiesSet() throws Exception {
         checkJobMaxPriorityStrategy = environmentContext.isCheckJobMaxPriorityStrategy();
-
+        long publishInterval = environmentContext.getQueueInfoPublishInterval();
         scheduledService = new ScheduledThreadPoolExecutor(1, new CustomThreadFactory(this.getClass().getSimpleName()));
         scheduledService.scheduleWithFixedDelay(
                 this,
                 0,
-                CHECK_INTERVAL,
+                publishInterval,
                 TimeUnit.MILLISECONDS);
     }
 
@@ -86,51 +122,101 @@ public class QueueListener implements InitializingBean, Runnable {
             LOGGER.info("QueueListener start again....");
         }
         try {
-            Map<String, Map<Integer, QueueInfo>> allNodesJobQueueInfo = jobExecutorTrigger.getAllNodesJobQueueInfo();
-            if (allNodesJobQueueInfo != null) {
-                Map<Integer, Map<String, QueueInfo>> tmpAllNodesJobQueueTypes = new HashMap<>();
-                allNodesJobQueueInfo.forEach((address, typeJobQueueInfo) -> {
-                    typeJobQueueInfo.forEach((type, queueInfo) -> {
-                        Map<String, QueueInfo> nodesJobQueue = tmpAllNodesJobQueueTypes.computeIfAbsent(type, k -> {
-                            Map<String, QueueInfo> value = new HashMap<>();
-                            value.put(address, queueInfo);
-                            return value;
-                        });
-                        nodesJobQueue.put(address, queueInfo);
-                    });
-                });
-                this.allNodesJobQueueTypes = tmpAllNodesJobQueueTypes;
+            if (!watching) {
+                // zk 客户端初始化完成后才能监听
+                zkService.watchQueueInfo(this::onQueueInfoChange);
+                watching = true;
             }
+            publishLocalQueueInfo();
         } catch (Throwable e) {
-            LOGGER.error("allNodesJobQueueInfo error:", e);
+            LOGGER.error("publish local queue info error:", e);
         }
+        try {
+            refreshDepartedQueueInfo();
+        } catch (Throwable e) {
+            LOGGER.error("refresh departed node queue info error:", e);
+        }
+    }
 
-        if (checkJobMaxPriorityStrategy) {
-            computeAllNodesGroupQueueJobResources();
+    private void publishLocalQueueInfo() {
+        publishRound++;
+        boolean refresh = lastPublished == null || publishRound >= REFRESH_MULTIPLES;
+        QueueInfoNode queueInfoNode = new QueueInfoNode();
+        queueInfoNode.setJobQueueSize(jobExecutorTrigger.getLocalJobQueueInfo());
+        // 未开启优先级检查时分组信息只在容灾时使用，随定期刷新一起计算即可
+        queueInfoNode.setGroupQueue(checkJobMaxPriorityStrategy || refresh ? jobDealer.getLocalGroupQueueInfo() : lastPublished.getGroupQueue());
+
+        // 只发布变化的队列信息，没有变化时定期刷新一次
+        if (!refresh && queueInfoNode.sameQueue(lastPublished)) {
+            return;
         }
+        queueInfoNode.setTimestamp(System.currentTimeMillis());
+        zkService.publishQueueInfo(queueInfoNode);
+        lastPublished = queueInfoNode;
+        publishRound = 0;
     }
 
+    /**
+     * 宕机节点的实例在容灾时逐步迁移，每个周期从数据库重新统计其剩余的队列信息，没有剩余实例后移除
+     */
+    private void refreshDepartedQueueInfo() {
+        for (String address : departedQueueInfos.keySet()) {
+            QueueInfoNode queueInfoNode = new QueueInfoNode();
+            queueInfoNode.setJobQueueSize(jobExecutorTrigger.getJobQueueInfo(address));
+            queueInfoNode.setGroupQueue(jobDealer.getGroupQueueInfo(address));
+            updateDepartedQueueInfo(address, queueInfoNode);
+        }
+    }
 
-    private void computeAllNodesGroupQueueJobResources() {
-        try {
-            Map<String, Map<String, GroupInfo>> allNodesGroupQueueInfo = jobDealer.getAllNodesGroupQueueInfo();
-            if (allNodesGroupQueueInfo != null) {
-                Map<String, Map<String, GroupInfo>> tmpAllNodesGroupQueueJobResources = new HashMap<>();
-                allNodesGroupQueueInfo.forEach((address, jobResourceGroupQueueInfo) -> {
-                    jobResourceGroupQueueInfo.forEach((jobResource, groupInfo) -> {
-                        Map<String, GroupInfo> nodesGroupQueue = tmpAllNodesGroupQueueJobResources.computeIfAbsent(jobResource, k -> {
-                            Map<String, GroupInfo> value = new HashMap<>();
-                            value.put(address, groupInfo);
-                            return value;
-                        });
-                        nodesGroupQueue.put(address, groupInfo);
-                    });
-                });
-                this.allNodesGroupQueueJobResources = tmpAllNodesGroupQueueJobResources;
+    private synchronized void updateDepartedQueueInfo(String address, QueueInfoNode queueInfoNode) {
+        QueueInfoNode last = departedQueueInfos.get(address);
+        // 统计期间节点已经恢复
+        if (last == null) {
+            return;
+        }
+        if (queueInfoNode.hasPending()) {
+            queueInfoNode.setTimestamp(last.getTimestamp());
+            departedQueueInfos.put(address, queueInfoNode);
+        } else {
+            departedQueueInfos.remove(address);
+            LOGGER.info("node {} failover finished, remove its queue info", address);
+        }
+        rebuildQueueInfo();
+    }
+
+    private synchronized void onQueueInfoChange(String address, QueueInfoNode queueInfoNode) {
+        if (queueInfoNode == null) {
+            QueueInfoNode last = nodeQueueInfos.remove(address);
+            nodeReceiveTimes.remove(address);
+            // 容灾完成前保留最后一次的队列信息，JobPartitioner 分配实例时仍把这部分实例计入总数
+            if (last != null && last.hasPending()) {
+                departedQueueInfos.put(address, last);
             }
-        } catch (Throwable e) {
-            LOGGER.error("allNodesGroupQueueInfo error:", e);
+        } else {
+            nodeQueueInfos.put(address, queueInfoNode);
+            nodeReceiveTimes.put(address, System.currentTimeMillis());
+            departedQueueInfos.remove(address);
         }
+        rebuildQueueInfo();
+    }
+
+    private void rebuildQueueInfo() {
+        Map<String, QueueInfoNode> allQueueInfos = new HashMap<>(departedQueueInfos);
+        allQueueInfos.putAll(nodeQueueInfos);
+
+        Map<Integer, Map<String, QueueInfo>> tmpAllNodesJobQueueTypes = new HashMap<>();
+        Map<String, Map<String, GroupInfo>> tmpAllNodesGroupQueueJobResources = new HashMap<>();
+        allQueueInfos.forEach((nodeAddress, nodeQueueInfo) -> {
+            nodeQueueInfo.getJobQueueSize().forEach((type, size) -> {
+                QueueInfo queueInfo = new QueueInfo();
+                queueInfo.setSize(size);
+                tmpAllNodesJobQueueTypes.computeIfAbsent(type, k -> new HashMap<>()).put(nodeAddress, queueInfo);
+            });
+            nodeQueueInfo.getGroupQueue().forEach((jobResource, groupInfo) ->
+                    tmpAllNodesGroupQueueJobResources.computeIfAbsent(jobResource, k -> new HashMap<>()).put(nodeAddress, groupInfo));
+        });
+        this.allNodesJobQueueTypes = tmpAllNodesJobQueueTypes;
+        this.allNodesGroupQueueJobResources = tmpAllNodesGroupQueueJobResources;
     }
 
     public Map<Integer, Map<String, QueueInfo>> getAllNodesJobQueueInfo() {
@@ -138,10 +224,35 @@ public class QueueListener implements InitializingBean, Runnable {
     }
 
     public Map<String, Map<String, GroupInfo>> getAllNodesGroupQueueInfo() {
-        //默认false，在获取 allNodesGroupQueueJobResources 之前需要先计算一次
-        if (!checkJobMaxPriorityStrategy) {
-            computeAllNodesGroupQueueJobResources();
+        // 调用方会过滤掉不存活的节点，返回副本避免修改共享快照
+        Map<String, Map<String, GroupInfo>> copy = new HashMap<>(allNodesGroupQueueJobResources.size());
+        allNodesGroupQueueJobResources.forEach((jobResource, nodesGroupQueue) -> copy.put(jobResource, new HashMap<>(nodesGroupQueue)));
+        return copy;
+    }
+
+    /**
+     * 各节点队列信息的陈旧程度：staleness 为距离该节点最近一次发布的时间，
+     * 队列没有变化时最多为 REFRESH_MULTIPLES 个发布周期
+     */
+    public Map<String, Object> getQueueInfoMetrics() {
+        long now = System.currentTimeMillis();
+        long maxStaleness = 0L;
+        Map<String, Object> nodes = new HashMap<>(nodeQueueInfos.size());
+        for (Map.Entry<String, QueueInfoNode> entry : nodeQueueInfos.entrySet()) {
+            Long timestamp = entry.getValue().getTimestamp();
+            long staleness = timestamp == null ? -1L : Math.max(0L, now - timestamp);
+            maxStaleness = Math.max(maxStaleness, staleness);
+            Map<String, Object> node = new HashMap<>(4);
+            node.put("publishTime", timestamp);
+            node.put("receiveTime", nodeReceiveTimes.get(entry.getKey()));
+            node.put("staleness", staleness);
+            nodes.put(entry.getKey(), node);
         }
-        return allNodesGroupQueueJobResources;
+        Map<String, Object> metrics = new HashMap<>(4);
+        metrics.put("publishInterval", environmentContext.getQueueInfoPublishInterval());
+        metrics.put("maxStaleness", maxStaleness);
+        metrics.put("nodes", nodes);
+        metrics.put("departedNodes", departedQueueInfos.keySet());
+        return metrics;
     }
 }
@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dtstack.taier.scheduler.server.pipeline;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 由 pipeline 配置编译出的处理链，各节点只依赖 actionParam 和 pipelineParam，不保存执行状态。
+ * 编译结果缓存后在多个线程间共享，对外返回的是共用节点的新实例，调用方可以继续 setNextPipeline
+ */
+public final class CompiledPipeline extends IPipeline.AbstractPipeline {
+
+    private final IPipeline[] stages;
+
+    /**
+     * 配置中的 params
+     */
+    private final List<String> params;
+
+    CompiledPipeline(List<IPipeline> stages, List<String> params) {
+        super(null);
+        this.stages = stages.toArray(new IPipeline[0]);
+        this.params = Collections.unmodifiableList(params);
+    }
+
+    private CompiledPipeline(CompiledPipeline compiled) {
+        super(null);
+        this.stages = compiled.stages;
+        this.params = compiled.params;
+    }
+
+    /**
+     * 共用处理节点的新实例，nextPipeline 只对新实例生效，不影响缓存中的处理链
+     */
+    public CompiledPipeline copy() {
+        return new CompiledPipeline(this);
+    }
+
+    public boolean isEmpty() {
+        return stages.length == 0;
+    }
+
+    public boolean containsParam(String param) {
+        return params.contains(param);
+    }
+
+    @Override
+    public void pipeline(Map<String, Object> actionParam, Map<String, Object> pipelineParam) throws Exception {
+        for (IPipeline stage : stages) {
+            stage.pipeline(actionParam, pipelineParam);
+        }
+    }
+}
@@ -25,7 +25,11 @@ import org.apache.commons.collections.CollectionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -50,32 +54,64 @@ public class JobParamReplace {
     private final static String VAR_COMPONENT = "@@{%s}";
 
 
+    /**
+     * 嵌套变量最多展开的层数
+     */
+    private final static int MAX_RENDER_DEPTH = 10;
+
+    /**
+     * 一次扫描完成替换，每个出现的变量只计算一次，未配置的变量保持原样；
+     * 变量的值中引用的其他变量递归展开，循环引用或超过 {@link #MAX_RENDER_DEPTH} 层时保持原样
+     */
     public static String paramReplace(String sql, List<ScheduleTaskParamShade> paramList, String cycTime) {
 
         if (CollectionUtils.isEmpty(paramList)) {
             return sql;
         }
 
-        Matcher matcher = PARAM_PATTERN.matcher(sql);
-        if (!matcher.find()) {
+        if (!PARAM_PATTERN.matcher(sql).find()) {
             return sql;
         }
 
-        for (Object param : paramList) {
-            Integer type;
-            String paramName;
-            String paramCommand;
-            type = ((ScheduleTaskParamShade) param).getType();
-            paramName = ((ScheduleTaskParamShade) param).getParamName();
-            paramCommand = ((ScheduleTaskParamShade) param).getParamCommand();
-
-            String targetVal = convertParam(type, paramName, paramCommand, cycTime, ((ScheduleTaskParamShade) param).getTaskId());
-            String parseSymbol = convertSymbol(type);
-            String replaceStr = String.format(parseSymbol, paramName);
-            sql = sql.replace(replaceStr, targetVal);
+        // 同名变量以第一个为准，与逐个替换时的结果一致
+        Map<String, ScheduleTaskParamShade> params = new HashMap<>(paramList.size());
+        for (ScheduleTaskParamShade param : paramList) {
+            params.putIfAbsent(String.format(convertSymbol(param.getType()), param.getParamName()), param);
         }
 
-        return sql;
+        return render(sql, params, new HashMap<>(), new HashSet<>(), cycTime, 0);
+    }
+
+    private static String render(String text, Map<String, ScheduleTaskParamShade> params, Map<String, String> values,
+                                 Set<String> rendering, String cycTime, int depth) {
+        Matcher matcher = PARAM_PATTERN.matcher(text);
+        if (!matcher.find()) {
+            return text;
+        }
+
+        StringBuilder result = new StringBuilder(text.length());
+        int last = 0;
+        do {
+            String symbol = matcher.group();
+            String targetVal = values.get(symbol);
+            if (targetVal == null) {
+                ScheduleTaskParamShade param = params.get(symbol);
+                if (param == null || depth >= MAX_RENDER_DEPTH || !rendering.add(symbol)) {
+                    continue;
+                }
+                try {
+                    String paramVal = convertParam(param.getType(), param.getParamName(), param.getParamCommand(), cycTime, param.getTaskId());
+                    targetVal = render(paramVal, params, values, rendering, cycTime, depth + 1);
+                } finally {
+                    rendering.remove(symbol);
+                }
+                values.put(symbol, targetVal);
+            }
+            result.append(text, last, matcher.start()).append(targetVal);
+            last = matcher.end();
+        } while (matcher.find());
+
+        return result.append(text, last, text.length()).toString();
     }
 
     private static String convertSymbol(Integer type) {
@@ -28,8 +28,11 @@ import com.dtstack.taier.scheduler.server.pipeline.params.FileParamPipeline;
 import com.dtstack.taier.scheduler.server.pipeline.params.JobIdParamPipeline;
 import com.dtstack.taier.scheduler.server.pipeline.params.UploadParamPipeline;
 import org.apache.commons.collections.CollectionUtils;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.apache.commons.lang.StringUtils;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -52,6 +55,27 @@ public class PipelineBuilder {
     private static final String operatorKey = "operator";
     public static final String pipelineKey = "pipeline";
 
+    private static final String DEFAULT_SQL_PIPELINE_CONFIG = "{\n" +
+            "    \"params\":[\n" +
+            "        \"jobId\"\n" +
+            "    ],\n" +
+            "    \"operator\":[\n" +
+            "        {\n" +
+            "            \"sqlText\":[\n" +
+            "                \"jobParam\",\n" +
+            "                \"replace\"\n" +
+            "            ]\n" +
+            "        }\n" +
+            "    ]\n" +
+            "}";
+
+    /**
+     * pipeline 配置 -> 编译后的处理链
+     */
+    private static final Cache<String, CompiledPipeline> PIPELINE_CACHE = CacheBuilder.newBuilder()
+            .maximumSize(256)
+            .build();
+
     /**
      * {
      * "params":[
@@ -94,26 +118,37 @@ public class PipelineBuilder {
         if (StringUtils.isBlank(pipelineConfig)) {
             return null;
         }
+        CompiledPipeline pipeline = getCompiledPipeline(pipelineConfig);
+        return pipeline.isEmpty() ? null : pipeline.copy();
+    }
+
+    /**
+     * 相同配置只编译一次，缓存中的处理链在多个线程间共享，不能直接返回给调用方修改
+     */
+    private static CompiledPipeline getCompiledPipeline(String pipelineConfig) {
+        CompiledPipeline pipeline = PIPELINE_CACHE.getIfPresent(pipelineConfig);
+        if (null == pipeline) {
+            pipeline = compile(pipelineConfig);
+            PIPELINE_CACHE.put(pipelineConfig, pipeline);
+        }
+        return pipeline;
+    }
+
+    private static CompiledPipeline compile(String pipelineConfig) {
         JSONObject config = JSONObject.parseObject(pipelineConfig);
-        JSONArray params = config.getJSONArray(paramKey);
-        IPipeline firstPipeline = null;
-        IPipeline currentPipeline = null;
+        List<IPipeline> stages = new ArrayList<>();
+        List<String> paramNames = new ArrayList<>();
+        JSONArray params = null == config ? null : config.getJSONArray(paramKey);
         if (CollectionUtils.isNotEmpty(params)) {
             for (int i = 0; i < params.size(); i++) {
+                paramNames.add(params.getString(i));
                 IPipeline.AbstractPipeline pipeline = getPipelineByPipelineKey(params.getString(i), null);
-                if (null == pipeline) {
-                    continue;
-                }
-                if (null == currentPipeline) {
-                    firstPipeline = pipeline;
-                    currentPipeline = pipeline;
-                } else {
-                    currentPipeline.setNextPipeline(pipeline);
-                    currentPipeline = currentPipeline.getNextPipeline();
+                if (null != pipeline) {
+                    stages.add(pipeline);
                 }
             }
         }
-        JSONArray operatorConfig = config.getJSONArray(operatorKey);
+        JSONArray operatorConfig = null == config ? null : config.getJSONArray(operatorKey);
         if (CollectionUtils.isNotEmpty(operatorConfig)) {
             for (int i = 0; i < operatorConfig.size(); i++) {
                 JSONObject operatorObj = operatorConfig.getJSONObject(i);
@@ -124,25 +159,17 @@ public class PipelineBuilder {
                     }
                     for (int j = 0; j < configValue.size(); j++) {
                         IPipeline.AbstractPipeline pipeline = getPipelineByPipelineKey(configValue.getString(j), operatorKey);
-                        if (null == pipeline) {
-                            continue;
-                        }
-                        if (null == firstPipeline) {
-                            firstPipeline = pipeline;
-                            currentPipeline = firstPipeline;
-                        } else {
-                            currentPipeline.setNextPipeline(pipeline);
-                            currentPipeline = currentPipeline.getNextPipeline();
+                        if (null != pipeline) {
+                            stages.add(pipeline);
                         }
                     }
                 }
             }
-
         }
-        if (null != currentPipeline) {
-            currentPipeline.setNextPipeline(new MergeOperatorPipeline());
+        if (!stages.isEmpty()) {
+            stages.add(new MergeOperatorPipeline());
         }
-        return firstPipeline;
+        return new CompiledPipeline(stages, paramNames);
     }
 
 
@@ -183,15 +210,10 @@ public class PipelineBuilder {
         pipelineMap.put(IPipeline.AbstractPipeline.scheduleJobKey, scheduleJob);
         pipelineMap.put(IPipeline.AbstractPipeline.taskShadeKey, scheduleTaskShade);
         pipelineMap.put(IPipeline.AbstractPipeline.taskParamsToReplaceKey, taskParamsToReplace);
-        JSONObject config = JSONObject.parseObject(pipelineConfig);
-        if (null == config || config.size() == 0 || !config.containsKey(paramKey)) {
-            return pipelineMap;
-        }
-        List<String> params = config.getJSONArray(paramKey).toJavaList(String.class);
-        if (CollectionUtils.isEmpty(params)) {
+        if (StringUtils.isBlank(pipelineConfig)) {
             return pipelineMap;
         }
-        if (params.contains(UploadParamPipeline.pipelineKey)) {
+        if (getCompiledPipeline(pipelineConfig).containsParam(UploadParamPipeline.pipelineKey)) {
             //填充upload必要的参数
             uploadConsumer.accept(pipelineMap);
         }
@@ -218,21 +240,7 @@ public class PipelineBuilder {
      * @return
      */
     public static IPipeline buildDefaultSqlPipeline() {
-        String defaultSqlPipeConfig = "{\n" +
-                "    \"params\":[\n" +
-                "        \"jobId\"\n" +
-                "    ],\n" +
-                "    \"operator\":[\n" +
-                "        {\n" +
-                "            \"sqlText\":[\n" +
-                "                \"jobParam\",\n" +
-                "                \"replace\"\n" +
-                "            ]\n" +
-                "        }\n" +
-                "    ]\n" +
-                "}";
-        return buildPipeline(defaultSqlPipeConfig);
+        return buildPipeline(DEFAULT_SQL_PIPELINE_CONFIG);
     }
 
 }
-
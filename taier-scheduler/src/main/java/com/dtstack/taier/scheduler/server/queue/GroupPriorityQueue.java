@@ -38,6 +38,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationContext;
 
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -108,6 +109,10 @@ public class GroupPriorityQueue {
         return jobSubmitDealer.tryPutRestartJob(jobClient);
     }
 
+    public void addDelayJob(JobClient jobClient, int stage, long delay) {
+        jobSubmitDealer.putDelayJob(jobClient, stage, delay);
+    }
+
     public PriorityBlockingQueue<JobClient> getQueue() {
         return queue;
     }
@@ -124,7 +129,11 @@ public class GroupPriorityQueue {
     }
 
     private long priorityQueueSize() {
-        return queue.size() + (long)jobSubmitDealer.getDelayJobQueueSize();
+        return queue.size() + (long)jobSubmitDealer.getDelayJobQueueSize() + jobSubmitDealer.getParkedJobSize();
+    }
+
+    public Map<String, Object> getSubmitMetrics() {
+        return jobSubmitDealer.getSubmitMetrics();
     }
 
     public String getJobResource() {
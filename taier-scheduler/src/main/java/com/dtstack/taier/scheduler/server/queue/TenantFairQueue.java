@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dtstack.taier.scheduler.server.queue;
+
+import com.dtstack.taier.pluginapi.JobClient;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 按租户轮询出队的有界队列，避免单个租户的大量任务占满提交线程
+ */
+public class TenantFairQueue {
+
+    private static final Long DEFAULT_TENANT = 0L;
+
+    private final int capacity;
+
+    private final Map<Long, Deque<SubmitTask>> tenantTasks = new HashMap<>();
+
+    /**
+     * 有待提交任务的租户，按轮询顺序排列
+     */
+    private final Deque<Long> tenantOrder = new ArrayDeque<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    private int size = 0;
+
+    public TenantFairQueue(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public void put(JobClient jobClient) throws InterruptedException {
+        Long tenantId = jobClient.getTenantId() == null ? DEFAULT_TENANT : jobClient.getTenantId();
+        lock.lockInterruptibly();
+        try {
+            while (size >= capacity) {
+                notFull.await();
+            }
+            Deque<SubmitTask> tasks = tenantTasks.get(tenantId);
+            if (tasks == null) {
+                tasks = new ArrayDeque<>();
+                tenantTasks.put(tenantId, tasks);
+                tenantOrder.addLast(tenantId);
+            }
+            tasks.addLast(new SubmitTask(jobClient, System.currentTimeMillis()));
+            size++;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public SubmitTask take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (size == 0) {
+                notEmpty.await();
+            }
+            Long tenantId = tenantOrder.pollFirst();
+            Deque<SubmitTask> tasks = tenantTasks.get(tenantId);
+            SubmitTask task = tasks.pollFirst();
+            if (tasks.isEmpty()) {
+                tenantTasks.remove(tenantId);
+            } else {
+                tenantOrder.addLast(tenantId);
+            }
+            size--;
+            notFull.signal();
+            return task;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public static class SubmitTask {
+
+        private final JobClient jobClient;
+
+        /**
+         * 进入队列的时间，用于统计等待提交的时间
+         */
+        private final long enqueueTime;
+
+        public SubmitTask(JobClient jobClient, long enqueueTime) {
+            this.jobClient = jobClient;
+            this.enqueueTime = enqueueTime;
+        }
+
+        public JobClient getJobClient() {
+            return jobClient;
+        }
+
+        public long getEnqueueTime() {
+            return enqueueTime;
+        }
+    }
+}
@@ -7,6 +7,7 @@ import com.dtstack.taier.dao.domain.ScheduleJob;
 import com.dtstack.taier.dao.domain.ScheduleTaskShade;
 import com.dtstack.taier.pluginapi.CustomThreadFactory;
 import com.dtstack.taier.pluginapi.enums.TaskStatus;
+import com.dtstack.taier.scheduler.jobdealer.cache.JobDependencyCache;
 import com.dtstack.taier.scheduler.server.ScheduleJobDetails;
 import com.dtstack.taier.scheduler.server.scheduler.interceptor.InterceptorInvocation;
 import com.dtstack.taier.scheduler.server.scheduler.interceptor.SubmitInterceptor;
@@ -49,6 +50,9 @@ public abstract class AbstractJobScanningScheduler implements Scheduler, Initial
     @Autowired
     protected ScheduleTaskShadeService scheduleTaskService;
 
+    @Autowired
+    protected JobDependencyCache jobDependencyCache;
+
     /**
      * 获得实例列表
      * @param startSort 开始id
@@ -91,6 +95,9 @@ public abstract class AbstractJobScanningScheduler implements Scheduler, Initial
             // 3. 扫描实例
             List<ScheduleJobDetails> scheduleJobDetails = listExecJob(minSort, nodeAddress, Boolean.TRUE);
             while (CollectionUtils.isNotEmpty(scheduleJobDetails)) {
+                // 登记实例依赖，已登记的实例由状态事件驱动，不再查询父实例
+                jobDependencyCache.register(scheduleJobDetails);
+
                 // 查询任务
                 List<Long> taskIds = scheduleJobDetails.stream().map(ScheduleJobDetails::getScheduleJob).map(ScheduleJob::getTaskId).collect(Collectors.toList());
                 Map<Long, ScheduleTaskShade> scheduleTaskShadeMap = scheduleTaskService.lambdaQuery()
@@ -8,7 +8,9 @@ import com.dtstack.taier.dao.domain.ScheduleJobJob;
 import com.dtstack.taier.pluginapi.enums.TaskStatus;
 import com.dtstack.taier.scheduler.enums.RelyRule;
 import com.dtstack.taier.scheduler.enums.RelyType;
+import com.dtstack.taier.scheduler.jobdealer.cache.JobDependencyCache;
 import com.dtstack.taier.scheduler.server.ScheduleJobDetails;
+import com.dtstack.taier.scheduler.service.ScheduleJobArchiveService;
 import com.dtstack.taier.scheduler.service.ScheduleJobService;
 import org.apache.commons.collections.CollectionUtils;
 import org.slf4j.Logger;
@@ -34,6 +36,12 @@ public class JobUpStreamSubmitInterceptor extends SubmitInterceptorAdapter {
     @Autowired
     private ScheduleJobService scheduleJobService;
 
+    @Autowired
+    private JobDependencyCache jobDependencyCache;
+
+    @Autowired
+    private ScheduleJobArchiveService scheduleJobArchiveService;
+
     @Override
     public Integer getSort() {
         return 0;
@@ -45,6 +53,11 @@ public class JobUpStreamSubmitInterceptor extends SubmitInterceptorAdapter {
         ScheduleJob scheduleJob = scheduleJobDetails.getScheduleJob();
 
         if (CollectionUtils.isNotEmpty(jobJobList)) {
+            // 还有父实例没有结束，不需要查询父实例状态
+            if (!jobDependencyCache.isReady(scheduleJob.getJobKey())) {
+                return Boolean.FALSE;
+            }
+
             List<String> parentJobKeys = jobJobList.stream()
                     .map(ScheduleJobJob::getParentJobKey)
                     .collect(Collectors.toList());
@@ -56,6 +69,15 @@ public class JobUpStreamSubmitInterceptor extends SubmitInterceptorAdapter {
                     .eq(ScheduleJob::getIsDeleted, Deleted.NORMAL.getStatus())
                     .list().stream().collect(Collectors.toMap(ScheduleJob::getJobKey, g -> (g)));
 
+            // 在线表查不到的父实例可能已经归档
+            if (scheduleJobMap.size() < parentJobKeys.size()) {
+                List<String> missingJobKeys = parentJobKeys.stream()
+                        .filter(jobKey -> !scheduleJobMap.containsKey(jobKey))
+                        .collect(Collectors.toList());
+                scheduleJobArchiveService.listJobByJobKeys(missingJobKeys)
+                        .forEach(archiveJob -> scheduleJobMap.putIfAbsent(archiveJob.getJobKey(), archiveJob));
+            }
+
 
             for (ScheduleJobJob scheduleJobJob : jobJobList) {
                 ScheduleJob parentScheduleJob = scheduleJobMap.get(scheduleJobJob.getParentJobKey());
@@ -71,6 +93,7 @@ public class JobUpStreamSubmitInterceptor extends SubmitInterceptorAdapter {
                                         scheduleJob.getJobName(),
                                         scheduleJob.getJobId(),
                                         scheduleJobJob.getParentJobKey()));
+                        jobDependencyCache.remove(scheduleJob.getJobKey());
                         return Boolean.FALSE;
                     } else {
                         continue;
@@ -93,6 +116,7 @@ public class JobUpStreamSubmitInterceptor extends SubmitInterceptorAdapter {
                                 String.format(JobCheckStatus.FATHER_JOB_EXCEPTION.getMsg(),
                                         parentScheduleJob.getJobName(),
                                         parentScheduleJob.getJobId()));
+                        jobDependencyCache.remove(scheduleJob.getJobKey());
                         return Boolean.FALSE;
                     }
 
@@ -104,6 +128,7 @@ public class JobUpStreamSubmitInterceptor extends SubmitInterceptorAdapter {
                                 String.format(JobCheckStatus.FATHER_JOB_FROZEN.getMsg(),
                                         parentScheduleJob.getJobName(),
                                         parentScheduleJob.getJobId()));
+                        jobDependencyCache.remove(scheduleJob.getJobKey());
                         return Boolean.FALSE;
                     }
 
@@ -118,15 +143,19 @@ public class JobUpStreamSubmitInterceptor extends SubmitInterceptorAdapter {
                                         scheduleJob.getJobId(),
                                         parentScheduleJob.getJobName(),
                                         parentScheduleJob.getJobId()));
+                        jobDependencyCache.remove(scheduleJob.getJobKey());
                         return Boolean.FALSE;
                     }
                 }
 
                 if (!TaskStatus.FINISHED.getStatus().equals(status) &&
                         !TaskStatus.MANUALSUCCESS.getStatus().equals(status)) {
+                    // 父实例还在运行，等待父实例状态变更
+                    jobDependencyCache.await(scheduleJob.getJobKey(), parentScheduleJob);
                     return Boolean.FALSE;
                 }
             }
+            jobDependencyCache.remove(scheduleJob.getJobKey());
         }
 
         return super.beforeSubmit(scheduleJobDetails);
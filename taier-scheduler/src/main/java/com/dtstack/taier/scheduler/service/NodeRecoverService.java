@@ -26,6 +26,7 @@ import com.dtstack.taier.pluginapi.exception.ExceptionUtil;
 import com.dtstack.taier.pluginapi.pojo.ParamAction;
 import com.dtstack.taier.pluginapi.util.PublicUtil;
 import com.dtstack.taier.scheduler.jobdealer.JobDealer;
+import com.dtstack.taier.scheduler.jobdealer.cache.JobDependencyCache;
 import com.dtstack.taier.scheduler.server.listener.JobSchedulerListener;
 import org.apache.commons.collections.CollectionUtils;
 import org.slf4j.Logger;
@@ -58,6 +59,9 @@ public class NodeRecoverService {
     @Autowired
     private JobDealer jobDealer;
 
+    @Autowired
+    private JobDependencyCache jobDependencyCache;
+
     /**
      * 接收 master 节点容灾后的消息
      */
@@ -66,6 +70,8 @@ public class NodeRecoverService {
         try {
             jobExecutorTrigger.recoverOtherNode();
             LOGGER.info("--- deal recoverOtherNode done ------");
+            // 容灾后实例归属发生变化，依赖索引在下一次扫描时根据 schedule_job_job 重建
+            jobDependencyCache.clear();
             recoverJobCaches();
         } catch (Exception e) {
             LOGGER.error("", e);
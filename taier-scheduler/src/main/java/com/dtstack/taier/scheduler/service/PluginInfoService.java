@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dtstack.taier.scheduler.service;
+
+import com.dtstack.taier.common.enums.EComponentType;
+import com.dtstack.taier.common.enums.EScheduleJobType;
+import com.dtstack.taier.common.env.EnvironmentContext;
+import com.dtstack.taier.common.util.MD5Util;
+import com.dtstack.taier.dao.domain.ConsolePluginInfo;
+import com.dtstack.taier.dao.mapper.ClusterTenantMapper;
+import com.dtstack.taier.dao.mapper.ConsolePluginInfoMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import static com.dtstack.taier.pluginapi.constrant.ConfigConstant.DEFAULT_CLUSTER_ID;
+
+/**
+ * 按 (集群, 组件, 版本, 运行模式, 内容 md5) 保存提交任务使用的集群配置，实例只记录 md5 引用。
+ * 每个节点在内存中缓存 md5 -> pluginInfo，相同配置只查询一次数据库。
+ * 只用于同一次提交在队列中重新加载时复用配置，停止、状态、日志等操作使用集群当前配置
+ */
+@Service
+public class PluginInfoService implements InitializingBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PluginInfoService.class);
+
+    @Autowired
+    private ConsolePluginInfoMapper consolePluginInfoMapper;
+
+    @Autowired
+    private ClusterTenantMapper clusterTenantMapper;
+
+    @Autowired
+    private EnvironmentContext environmentContext;
+
+    /**
+     * md5 -> pluginInfo, 内容不可变，只按容量淘汰
+     */
+    private Cache<String, String> pluginInfoCache;
+
+    @Override
+    public void afterPropertiesSet() {
+        pluginInfoCache = CacheBuilder.newBuilder()
+                .maximumSize(environmentContext.getPluginInfoCacheMaxSize())
+                .build();
+    }
+
+    /**
+     * 保存集群配置，相同内容只保存一次
+     *
+     * @return pluginInfo 的 md5
+     */
+    public String save(Long tenantId, Integer taskType, Integer deployMode, String componentVersion, String pluginInfo) {
+        String md5 = MD5Util.getMD5String(pluginInfo);
+        if (pluginInfoCache.getIfPresent(md5) == null) {
+            Long clusterId = clusterTenantMapper.getClusterIdByTenantId(tenantId);
+            EComponentType componentType = EScheduleJobType.getByTaskType(taskType).getComponentType();
+            ConsolePluginInfo consolePluginInfo = new ConsolePluginInfo();
+            consolePluginInfo.setClusterId(clusterId == null ? DEFAULT_CLUSTER_ID : clusterId);
+            consolePluginInfo.setComponentTypeCode(componentType.getTypeCode());
+            consolePluginInfo.setComponentVersion(StringUtils.defaultString(componentVersion));
+            consolePluginInfo.setDeployMode(deployMode);
+            consolePluginInfo.setMd5(md5);
+            consolePluginInfo.setPluginInfo(pluginInfo);
+            consolePluginInfoMapper.insertIgnore(consolePluginInfo);
+            pluginInfoCache.put(md5, pluginInfo);
+        }
+        return md5;
+    }
+
+    /**
+     * 根据 md5 获取集群配置，不存在时返回 null
+     */
+    public String getPluginInfo(String md5) {
+        if (StringUtils.isBlank(md5)) {
+            return null;
+        }
+        String pluginInfo = pluginInfoCache.getIfPresent(md5);
+        if (pluginInfo == null) {
+            pluginInfo = consolePluginInfoMapper.getPluginInfoByMd5(md5);
+            if (pluginInfo == null) {
+                LOGGER.warn("pluginInfo md5:{} not exist", md5);
+                return null;
+            }
+            pluginInfoCache.put(md5, pluginInfo);
+        }
+        return pluginInfo;
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dtstack.taier.scheduler.service;
+
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.dtstack.taier.common.enums.EScheduleType;
+import com.dtstack.taier.common.env.EnvironmentContext;
+import com.dtstack.taier.dao.domain.ScheduleJob;
+import com.dtstack.taier.dao.domain.ScheduleJobJob;
+import com.dtstack.taier.dao.mapper.ScheduleJobArchiveMapper;
+import com.dtstack.taier.pluginapi.enums.TaskStatus;
+import com.google.common.collect.Lists;
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.joda.time.DateTime;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 周期实例归档。计划时间超过保留天数且已经结束的周期实例及其依赖关系，
+ * 从 schedule_job、schedule_job_job 移到结构相同的归档表，历史查询同时查询归档表
+ */
+@Service
+public class ScheduleJobArchiveService {
+
+    public static final String JOB_TABLE = "schedule_job";
+
+    public static final String JOB_JOB_TABLE = "schedule_job_job";
+
+    public static final String JOB_ARCHIVE_TABLE = "schedule_job_archive";
+
+    public static final String JOB_JOB_ARCHIVE_TABLE = "schedule_job_job_archive";
+
+    /**
+     * 可以归档的状态，冻结的实例还可能解冻，不归档
+     */
+    private static final List<Integer> ARCHIVE_STATUS = TaskStatus.getStoppedStatus().stream()
+            .filter(status -> !TaskStatus.FROZEN.getStatus().equals(status))
+            .collect(Collectors.toList());
+
+    private static final String CYC_TIME_FORMAT = "yyyyMMdd000000";
+
+    @Autowired
+    private ScheduleJobArchiveMapper scheduleJobArchiveMapper;
+
+    @Autowired
+    private EnvironmentContext environmentContext;
+
+    /**
+     * 计划时间早于该时间的实例可以归档
+     */
+    public String getArchiveCycEndTime() {
+        return new DateTime().minusDays(environmentContext.getJobArchiveRetentionDays()).toString(CYC_TIME_FORMAT);
+    }
+
+    /**
+     * 是否需要同时查询归档实例。调用方明确要求，或者开始计划时间早于归档时间时才查询归档表
+     *
+     * @param cycStartTime   开始计划时间 yyyyMMddHHmmss，为空表示不限制
+     * @param includeArchive 调用方是否要求查询归档实例
+     */
+    public boolean mayContainArchived(String cycStartTime, Boolean includeArchive) {
+        if (Boolean.TRUE.equals(includeArchive)) {
+            return true;
+        }
+        return StringUtils.isNotBlank(cycStartTime) && cycStartTime.compareTo(getArchiveCycEndTime()) < 0;
+    }
+
+    /**
+     * 按 id 游标查询一批可以归档的周期实例
+     */
+    public List<ScheduleJob> listArchivableJob(Long startId, String cycEndTime, int limit) {
+        return scheduleJobArchiveMapper.listArchivableJob(startId, cycEndTime, EScheduleType.NORMAL_SCHEDULE.getType(), ARCHIVE_STATUS, limit);
+    }
+
+    /**
+     * 把实例和实例作为子节点的依赖关系复制到归档表后从在线表删除。
+     * 事务内先重新检查状态、计划时间并加行锁，只归档锁定的实例，
+     * 查询之后被重跑或者状态变化的实例留在在线表
+     *
+     * @param scheduleJobs 实例
+     * @param cycEndTime   计划时间早于该时间的实例可以归档
+     * @return 归档的实例数
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public int archiveBatch(List<ScheduleJob> scheduleJobs, String cycEndTime) {
+        if (CollectionUtils.isEmpty(scheduleJobs)) {
+            return 0;
+        }
+        Integer type = EScheduleType.NORMAL_SCHEDULE.getType();
+        List<Long> candidateIds = scheduleJobs.stream().map(ScheduleJob::getId).collect(Collectors.toList());
+        List<ScheduleJob> lockedJobs = scheduleJobArchiveMapper.lockArchivableJob(candidateIds, cycEndTime, type, ARCHIVE_STATUS);
+        if (CollectionUtils.isEmpty(lockedJobs)) {
+            return 0;
+        }
+        List<Long> ids = lockedJobs.stream().map(ScheduleJob::getId).collect(Collectors.toList());
+        List<String> jobKeys = lockedJobs.stream().map(ScheduleJob::getJobKey).collect(Collectors.toList());
+        scheduleJobArchiveMapper.copyJob(ids, cycEndTime, type, ARCHIVE_STATUS);
+        scheduleJobArchiveMapper.copyJobJob(jobKeys);
+        scheduleJobArchiveMapper.deleteJobJob(jobKeys);
+        return scheduleJobArchiveMapper.deleteJob(ids, cycEndTime, type, ARCHIVE_STATUS);
+    }
+
+    /**
+     * 查询归档实例，条件和在线表相同
+     */
+    public List<ScheduleJob> listJob(Wrapper<ScheduleJob> wrapper) {
+        return scheduleJobArchiveMapper.selectJobList(wrapper);
+    }
+
+    public Long countJob(Wrapper<ScheduleJob> wrapper) {
+        Long count = scheduleJobArchiveMapper.selectJobCount(wrapper);
+        return count == null ? 0L : count;
+    }
+
+    /**
+     * 查询归档的实例依赖关系，条件和在线表相同
+     */
+    public List<ScheduleJobJob> listJobJob(Wrapper<ScheduleJobJob> wrapper) {
+        return scheduleJobArchiveMapper.selectJobJobList(wrapper);
+    }
+
+    /**
+     * 根据 jobKey 查询归档实例的状态
+     */
+    public List<ScheduleJob> listJobByJobKeys(Collection<String> jobKeys) {
+        if (CollectionUtils.isEmpty(jobKeys)) {
+            return Lists.newArrayList();
+        }
+        return listJob(Wrappers.lambdaQuery(ScheduleJob.class)
+                .select(ScheduleJob::getStatus, ScheduleJob::getJobId, ScheduleJob::getJobKey, ScheduleJob::getJobName)
+                .in(ScheduleJob::getJobKey, jobKeys));
+    }
+
+    /**
+     * 在线表和归档表的估算行数
+     */
+    public Map<String, Object> getTableRows() {
+        Map<String, Object> tableRows = new HashMap<>(8);
+        for (String table : Lists.newArrayList(JOB_TABLE, JOB_JOB_TABLE, JOB_ARCHIVE_TABLE, JOB_JOB_ARCHIVE_TABLE)) {
+            tableRows.put(table, scheduleJobArchiveMapper.getTableRows(table));
+        }
+        return tableRows;
+    }
+}
@@ -2,8 +2,10 @@ package com.dtstack.taier.scheduler.service;
 
 import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.dtstack.taier.common.env.EnvironmentContext;
 import com.dtstack.taier.dao.domain.ScheduleEngineJobCache;
 import com.dtstack.taier.dao.mapper.ScheduleEngineJobCacheMapper;
+import com.dtstack.taier.scheduler.jobdealer.cache.ShardCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -16,12 +18,19 @@ public class ScheduleJobCacheService extends ServiceImpl<ScheduleEngineJobCacheM
     @Autowired
     private ScheduleEngineJobCacheMapper scheduleEngineJobCacheMapper;
 
+    @Autowired
+    private ShardCache shardCache;
+
+    @Autowired
+    private EnvironmentContext environmentContext;
+
     public ScheduleEngineJobCache getJobCacheByJobId(String jobId) {
         return scheduleEngineJobCacheMapper.selectOne(Wrappers.lambdaQuery(ScheduleEngineJobCache.class)
                 .eq(ScheduleEngineJobCache::getJobId, jobId));
     }
 
     public int deleteByJobId(String jobId) {
+        shardCache.removeJobResource(jobId);
         return scheduleEngineJobCacheMapper.delete(Wrappers.lambdaQuery(ScheduleEngineJobCache.class)
                 .eq(ScheduleEngineJobCache::getJobId, jobId));
     }
@@ -31,12 +40,25 @@ public class ScheduleJobCacheService extends ServiceImpl<ScheduleEngineJobCacheM
     }
 
     public int updateStage(String jobId, int stage, String nodeAddress, long priority, String waitReason) {
+        return updateStage(jobId, stage, nodeAddress, priority, waitReason, null);
+    }
+
+    /**
+     * 更新任务所处阶段
+     *
+     * @param delayExpireTime 延迟队列的到期时间(ms)，节点重启后按剩余时间重新放入延迟队列
+     */
+    public int updateStage(String jobId, int stage, String nodeAddress, long priority, String waitReason, Long delayExpireTime) {
         ScheduleEngineJobCache engineJobCache = new ScheduleEngineJobCache();
         engineJobCache.setJobId(jobId);
         engineJobCache.setNodeAddress(nodeAddress);
         engineJobCache.setStage(stage);
         engineJobCache.setJobPriority(priority);
         engineJobCache.setWaitReason(waitReason);
+        engineJobCache.setDelayExpireTime(delayExpireTime);
+        if (!isLocalAddress(nodeAddress)) {
+            shardCache.removeJobResource(jobId);
+        }
         return scheduleEngineJobCacheMapper.update(engineJobCache, Wrappers.lambdaQuery(ScheduleEngineJobCache.class)
                 .eq(ScheduleEngineJobCache::getJobId, jobId));
     }
@@ -61,10 +83,20 @@ public class ScheduleJobCacheService extends ServiceImpl<ScheduleEngineJobCacheM
         ScheduleEngineJobCache engineJobCache = new ScheduleEngineJobCache();
         engineJobCache.setNodeAddress(nodeAddress);
         engineJobCache.setStage(stage);
+        if (!isLocalAddress(nodeAddress)) {
+            shardCache.removeJobResources(jobIds);
+        }
         return scheduleEngineJobCacheMapper.update(engineJobCache, Wrappers.lambdaQuery(ScheduleEngineJobCache.class)
                 .in(ScheduleEngineJobCache::getJobId, jobIds));
     }
 
+    /**
+     * 任务迁移到其他节点后本节点的 jobId -> jobResource 索引不再有效
+     */
+    private boolean isLocalAddress(String nodeAddress) {
+        return nodeAddress != null && nodeAddress.equals(environmentContext.getLocalAddress());
+    }
+
     public void insert(String jobId, Integer computeType, int stage, String jobInfo, String nodeAddress, String jobName, long priority, String jobResource, Long tenantId) {
         ScheduleEngineJobCache engineJobCache = new ScheduleEngineJobCache();
         engineJobCache.setJobId(jobId);
@@ -94,6 +126,9 @@ public class ScheduleJobCacheService extends ServiceImpl<ScheduleEngineJobCacheM
         ScheduleEngineJobCache jobCache = new ScheduleEngineJobCache();
         jobCache.setNodeAddress(nodeAddress);
         jobCache.setStage(stage);
+        if (!isLocalAddress(nodeAddress)) {
+            shardCache.removeJobResources(jobIds);
+        }
         return getBaseMapper()
                 .update(jobCache, Wrappers.lambdaQuery(ScheduleEngineJobCache.class)
                         .in(ScheduleEngineJobCache::getJobId, jobIds));
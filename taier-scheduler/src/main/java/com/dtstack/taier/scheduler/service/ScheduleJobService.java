@@ -18,6 +18,8 @@ import com.dtstack.taier.pluginapi.enums.TaskStatus;
 import com.dtstack.taier.pluginapi.util.RetryUtil;
 import com.dtstack.taier.scheduler.dto.scheduler.SimpleScheduleJobDTO;
 import com.dtstack.taier.scheduler.enums.JobPhaseStatus;
+import com.dtstack.taier.scheduler.event.ScheduleJobBatchEvent;
+import com.dtstack.taier.scheduler.event.ScheduleJobEventPublisher;
 import com.dtstack.taier.scheduler.impl.pojo.ParamActionExt;
 import com.dtstack.taier.scheduler.mapstruct.ScheduleJobMapStruct;
 import com.dtstack.taier.scheduler.server.JobPartitioner;
@@ -32,6 +34,8 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
@@ -72,6 +76,9 @@ public class ScheduleJobService extends ServiceImpl<ScheduleJobMapper, ScheduleJ
     @Autowired
     private ScheduleTaskShadeInfoService scheduleTaskShadeInfoService;
 
+    @Autowired
+    private ScheduleJobStatusJournal scheduleJobStatusJournal;
+
     /**
      * 开始运行实例
      *
@@ -136,10 +143,13 @@ public class ScheduleJobService extends ServiceImpl<ScheduleJobMapper, ScheduleJ
                 scheduleJob.setRetryNum(0);
 
                 // 更新状态
-                 this.lambdaUpdate()
+                boolean update = scheduleJobStatusJournal.writeDirect(jobIds, () -> this.lambdaUpdate()
                         .eq(ScheduleJob::getIsDeleted, Deleted.NORMAL.getStatus())
                         .in(ScheduleJob::getJobId, jobIds)
-                        .update(scheduleJob);
+                        .update(scheduleJob));
+                if (update) {
+                    publishStatusEvent(new ArrayList<>(jobIds), TaskStatus.UNSUBMIT.getStatus());
+                }
 
                  // 清除日志
                 scheduleJobExpandService.clearData(jobIds);
@@ -279,10 +289,14 @@ public class ScheduleJobService extends ServiceImpl<ScheduleJobMapper, ScheduleJ
         ScheduleJob scheduleJob = new ScheduleJob();
         scheduleJob.setStatus(status);
         scheduleJob.setVersionId(versionId);
-        return this.lambdaUpdate()
+        boolean update = scheduleJobStatusJournal.writeDirect(Lists.newArrayList(jobId), () -> this.lambdaUpdate()
                 .eq(ScheduleJob::getJobId,jobId)
                 .eq(ScheduleJob::getIsDeleted,Deleted.NORMAL.getStatus())
-                .update(scheduleJob);
+                .update(scheduleJob));
+        if (update) {
+            publishStatusEvent(Lists.newArrayList(jobId), status);
+        }
+        return update;
     }
 
     /**
@@ -317,7 +331,12 @@ public class ScheduleJobService extends ServiceImpl<ScheduleJobMapper, ScheduleJ
      */
     public Integer updateJobStatusAndExecTime(String jobId, Integer status) {
         if (StringUtils.isNotBlank(jobId) && status != null) {
-            return this.baseMapper.updateJobStatusAndExecTime(jobId, status);
+            Integer update = scheduleJobStatusJournal.writeDirect(Lists.newArrayList(jobId),
+                    () -> this.baseMapper.updateJobStatusAndExecTime(jobId, status));
+            if (update != null && update > 0) {
+                publishStatusEvent(Lists.newArrayList(jobId), status);
+            }
+            return update;
         }
         return 0;
     }
@@ -331,6 +350,10 @@ public class ScheduleJobService extends ServiceImpl<ScheduleJobMapper, ScheduleJ
         if (StringUtils.isBlank(jobId)) {
             return null;
         }
+        Integer pendingStatus = scheduleJobStatusJournal.getPendingStatus(jobId);
+        if (pendingStatus != null) {
+            return pendingStatus;
+        }
         ScheduleJob scheduleJob = this.lambdaQuery().eq(ScheduleJob::getJobId, jobId).eq(ScheduleJob::getIsDeleted, Deleted.NORMAL.getStatus()).one();
 
         if (scheduleJob == null) {
@@ -471,8 +494,12 @@ public class ScheduleJobService extends ServiceImpl<ScheduleJobMapper, ScheduleJ
         ScheduleJob scheduleJob = new ScheduleJob();
         scheduleJob.setStatus(status);
         scheduleJob.setPhaseStatus(phaseStatus);
-        return this.baseMapper.update(scheduleJob,Wrappers.lambdaQuery(ScheduleJob.class)
-                .in(ScheduleJob::getJobId, jobIds));
+        int update = scheduleJobStatusJournal.writeDirect(jobIds, () -> this.baseMapper.update(scheduleJob,Wrappers.lambdaQuery(ScheduleJob.class)
+                .in(ScheduleJob::getJobId, jobIds)));
+        if (update > 0) {
+            publishStatusEvent(jobIds, status);
+        }
+        return update;
     }
 
     /**
@@ -516,8 +543,11 @@ public class ScheduleJobService extends ServiceImpl<ScheduleJobMapper, ScheduleJ
         ScheduleJob updateScheduleJob = new ScheduleJob();
         updateScheduleJob.setJobId(jobId);
         updateScheduleJob.setStatus(status);
-        this.baseMapper.update(updateScheduleJob, Wrappers.lambdaQuery(ScheduleJob.class)
-                .eq(ScheduleJob::getJobId, jobId));
+        int update = scheduleJobStatusJournal.writeDirect(Lists.newArrayList(jobId), () -> this.baseMapper.update(updateScheduleJob, Wrappers.lambdaQuery(ScheduleJob.class)
+                .eq(ScheduleJob::getJobId, jobId)));
+        if (update > 0) {
+            publishStatusEvent(Lists.newArrayList(jobId), status);
+        }
     }
 
     /**
@@ -535,12 +565,63 @@ public class ScheduleJobService extends ServiceImpl<ScheduleJobMapper, ScheduleJ
     }
 
 
+    /**
+     * 分页加载计划时间范围内的所有实例key
+     *
+     * @param cycStartTime 开始计划时间(包含)，格式 yyyyMMddHHmmss
+     * @param cycEndTime   结束计划时间(不包含)，格式 yyyyMMddHHmmss
+     * @param type         实例类型
+     * @param pageSize     每页大小
+     * @return 实例key
+     */
+    public Set<String> listJobKeyByCycTime(String cycStartTime, String cycEndTime, Integer type, Integer pageSize) {
+        Set<String> jobKeys = new HashSet<>();
+        Long startId = 0L;
+        List<ScheduleJob> scheduleJobs = this.baseMapper.listJobKeyByCycTime(startId, cycStartTime, cycEndTime, type, pageSize);
+        while (CollectionUtils.isNotEmpty(scheduleJobs)) {
+            for (ScheduleJob scheduleJob : scheduleJobs) {
+                jobKeys.add(scheduleJob.getJobKey());
+            }
+            startId = scheduleJobs.get(scheduleJobs.size() - 1).getId();
+            scheduleJobs = this.baseMapper.listJobKeyByCycTime(startId, cycStartTime, cycEndTime, type, pageSize);
+        }
+        return jobKeys;
+    }
+
     public void clearInterruptJob(Long startExecuteOrder) {
         this.baseMapper.delete(Wrappers.lambdaQuery(ScheduleJob.class).ge(ScheduleJob::getJobExecuteOrder,startExecuteOrder)
                 .eq(ScheduleJob::getType, EScheduleType.NORMAL_SCHEDULE.getType())
                 .eq(ScheduleJob::getIsDeleted,Deleted.NORMAL.getStatus()));
     }
 
+    /**
+     * 发布实例状态变更事件，驱动依赖就绪索引等监听者。
+     * 在事务中更新时等事务提交后再发布，回滚的状态不会被监听者看到
+     *
+     * @param jobIds 实例id
+     * @param status 变更后的状态
+     */
+    public void publishStatusEvent(List<String> jobIds, Integer status) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    doPublishStatusEvent(jobIds, status);
+                }
+            });
+        } else {
+            doPublishStatusEvent(jobIds, status);
+        }
+    }
+
+    private void doPublishStatusEvent(List<String> jobIds, Integer status) {
+        try {
+            ScheduleJobEventPublisher.getInstance().publishBatchEvent(new ScheduleJobBatchEvent(jobIds, status));
+        } catch (Exception e) {
+            LOGGER.error("jobIds:{} status:{} publish status event error:", jobIds, status, e);
+        }
+    }
+
     /**
      * 扫描实例，用于容灾
      *
@@ -0,0 +1,338 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dtstack.taier.scheduler.service;
+
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.dtstack.taier.common.enums.Deleted;
+import com.dtstack.taier.common.env.EnvironmentContext;
+import com.dtstack.taier.dao.domain.ScheduleJobStatusCount;
+import com.dtstack.taier.dao.domain.po.JobStatusCountChangePO;
+import com.dtstack.taier.dao.domain.po.JobsStatusStatisticsPO;
+import com.dtstack.taier.dao.domain.po.StatusCountPO;
+import com.dtstack.taier.dao.mapper.ScheduleJobStatusCountMapper;
+import com.dtstack.taier.pluginapi.CustomThreadFactory;
+import com.dtstack.taier.scheduler.enums.FillJobTypeEnum;
+import com.dtstack.taier.scheduler.event.ScheduleJobBatchEvent;
+import com.dtstack.taier.scheduler.event.ScheduleJobEventLister;
+import com.dtstack.taier.scheduler.event.ScheduleJobEventPublisher;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.joda.time.DateTime;
+import org.joda.time.format.DateTimeFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 实例状态计数。实例状态变化时按 旧状态 -1、新状态 +1 增量调整计数，实例表的 counted_status 记录已经计入的状态，
+ * 同一个实例的变化只会被计一次。实例生成和部分状态更新没有事件，由主节点定时重新统计最近几天校正。
+ * 状态统计查询只读取计数表，还没有计数的日期由调用方直接统计实例表，同时异步补齐计数
+ */
+@Service
+public class ScheduleJobStatusCountService extends ServiceImpl<ScheduleJobStatusCountMapper, ScheduleJobStatusCount> implements ScheduleJobEventLister, InitializingBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScheduleJobStatusCountService.class);
+
+    /**
+     * 计数表只统计周期实例和可执行补数据实例
+     */
+    public static final List<Integer> COUNT_FILL_TYPE = Lists.newArrayList(FillJobTypeEnum.DEFAULT.getType(), FillJobTypeEnum.RUN_JOB.getType());
+
+    private static final String DAY_FORMAT = "yyyyMMdd";
+
+    private static final String DAY_START_TIME = "000000";
+
+    private static final String DAY_END_TIME = "235959";
+
+    private static final int BATCH_SIZE = 500;
+
+    @Autowired
+    private EnvironmentContext environmentContext;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * 状态发生变化、还没有调整计数的实例
+     */
+    private final Set<String> dirtyJobIds = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 查询时发现还没有计数的 (租户, 计划日期)，异步补齐
+     */
+    private final Set<String> missingTenantDays = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean isMaster = false;
+
+    @Override
+    public void publishBatchEvent(ScheduleJobBatchEvent event) {
+        // 记录不下的实例由主节点定时重新统计时校正
+        if (dirtyJobIds.size() >= environmentContext.getJobStatusCountDirtyMaxSize()) {
+            return;
+        }
+        dirtyJobIds.addAll(event.getJobIds());
+    }
+
+    /**
+     * 主节点负责定时重新统计最近几天
+     */
+    public void dealMaster(boolean isMaster) {
+        this.isMaster = isMaster;
+    }
+
+    /**
+     * 从计数表汇总实例状态
+     *
+     * @param statistics 查询条件
+     * @return 各状态实例数，查询条件无法用计数表满足或有日期还没有计数时返回 null，由调用方直接统计实例表
+     */
+    public List<StatusCountPO> queryStatusCount(JobsStatusStatisticsPO statistics) {
+        if (!canQueryFromCount(statistics)) {
+            return null;
+        }
+        String startDay = statistics.getCycStartTime().substring(0, DAY_FORMAT.length());
+        String endDay = statistics.getCycEndTime().substring(0, DAY_FORMAT.length());
+
+        Set<String> countedDays = new HashSet<>(this.baseMapper.listCountedDay(statistics.getTenantId(), startDay, endDay));
+        boolean missing = false;
+        DateTime day = DateTimeFormat.forPattern(DAY_FORMAT).parseDateTime(startDay);
+        for (String cycDay = startDay; cycDay.compareTo(endDay) <= 0; day = day.plusDays(1), cycDay = day.toString(DAY_FORMAT)) {
+            if (!countedDays.contains(cycDay)) {
+                missingTenantDays.add(statistics.getTenantId() + "_" + cycDay);
+                missing = true;
+            }
+        }
+        if (missing) {
+            return null;
+        }
+        return this.baseMapper.sumStatusCount(statistics, startDay, endDay);
+    }
+
+    /**
+     * 从实例表重新统计计划日期为 day 的计数，统计前把实例标记为已计数，
+     * 同一事务内锁住这些实例，统计期间的状态变化在提交后按增量处理
+     *
+     * @param tenantId 租户id，为空时统计所有租户
+     * @param day      计划日期 yyyyMMdd
+     */
+    public void refresh(Long tenantId, String day) {
+        transactionTemplate.execute(transactionStatus -> {
+            this.baseMapper.markCountedByCycTime(tenantId, day + DAY_START_TIME, day + DAY_END_TIME, COUNT_FILL_TYPE);
+            List<ScheduleJobStatusCount> counts = this.baseMapper.countFromScheduleJob(tenantId, day + DAY_START_TIME, day + DAY_END_TIME, COUNT_FILL_TYPE);
+            Map<String, ScheduleJobStatusCount> existCounts = this.lambdaQuery()
+                    .select(ScheduleJobStatusCount::getId, ScheduleJobStatusCount::getTenantId, ScheduleJobStatusCount::getCycDay,
+                            ScheduleJobStatusCount::getType, ScheduleJobStatusCount::getTaskType, ScheduleJobStatusCount::getPeriodType,
+                            ScheduleJobStatusCount::getStatus)
+                    .eq(tenantId != null, ScheduleJobStatusCount::getTenantId, tenantId)
+                    .eq(ScheduleJobStatusCount::getCycDay, day)
+                    .ne(ScheduleJobStatusCount::getJobCount, 0)
+                    .eq(ScheduleJobStatusCount::getIsDeleted, Deleted.NORMAL.getStatus())
+                    .list()
+                    .stream()
+                    .collect(Collectors.toMap(this::countKey, g -> (g), (o, n) -> n));
+
+            for (List<ScheduleJobStatusCount> partition : Lists.partition(counts, BATCH_SIZE)) {
+                this.baseMapper.upsertBatch(partition);
+            }
+
+            // 实例表里已经没有的组合计数置 0
+            for (ScheduleJobStatusCount count : counts) {
+                existCounts.remove(countKey(count));
+            }
+            if (!existCounts.isEmpty()) {
+                List<Long> staleIds = existCounts.values().stream().map(ScheduleJobStatusCount::getId).collect(Collectors.toList());
+                for (List<Long> partition : Lists.partition(staleIds, BATCH_SIZE)) {
+                    this.lambdaUpdate()
+                            .set(ScheduleJobStatusCount::getJobCount, 0)
+                            .in(ScheduleJobStatusCount::getId, partition)
+                            .update();
+                }
+            }
+            return null;
+        });
+    }
+
+    private boolean canQueryFromCount(JobsStatusStatisticsPO statistics) {
+        if (statistics.getTenantId() == null || statistics.getUserId() != null || statistics.getFillId() != null
+                || CollectionUtils.isNotEmpty(statistics.getTaskIdList())) {
+            return false;
+        }
+        if (statistics.getFillTypeList() == null || !Sets.newHashSet(COUNT_FILL_TYPE).equals(Sets.newHashSet(statistics.getFillTypeList()))) {
+            return false;
+        }
+        // 计数按天汇总，只能满足整天的计划时间范围
+        String cycStartTime = statistics.getCycStartTime();
+        String cycEndTime = statistics.getCycEndTime();
+        return StringUtils.length(cycStartTime) == DAY_FORMAT.length() + DAY_START_TIME.length()
+                && StringUtils.length(cycEndTime) == DAY_FORMAT.length() + DAY_END_TIME.length()
+                && cycStartTime.endsWith(DAY_START_TIME)
+                && cycEndTime.endsWith(DAY_END_TIME)
+                && cycStartTime.compareTo(cycEndTime) <= 0;
+    }
+
+    private String countKey(ScheduleJobStatusCount count) {
+        return countKey(count.getTenantId(), count.getCycDay(), count.getType(), count.getTaskType(), count.getPeriodType(), count.getStatus());
+    }
+
+    private String countKey(Long tenantId, String cycDay, Integer type, Integer taskType, Integer periodType, Integer status) {
+        return tenantId + "_" + cycDay + "_" + type + "_" + taskType + "_" + periodType + "_" + status;
+    }
+
+    /**
+     * 状态发生变化的实例按增量调整计数
+     */
+    private void flushDirty() {
+        try {
+            if (dirtyJobIds.isEmpty()) {
+                return;
+            }
+            List<String> jobIds = new ArrayList<>(dirtyJobIds.size());
+            Iterator<String> iterator = dirtyJobIds.iterator();
+            while (iterator.hasNext()) {
+                jobIds.add(iterator.next());
+                iterator.remove();
+            }
+            for (List<String> partition : Lists.partition(jobIds, BATCH_SIZE)) {
+                transactionTemplate.execute(transactionStatus -> {
+                    applyDelta(partition);
+                    return null;
+                });
+            }
+            LOGGER.debug("flush job status count jobs:{}", jobIds.size());
+        } catch (Throwable e) {
+            LOGGER.error("flush job status count error", e);
+        }
+    }
+
+    private void applyDelta(List<String> jobIds) {
+        // 按 key 排序写入，多个节点同时调整计数时加锁顺序一致
+        Map<String, ScheduleJobStatusCount> deltas = new TreeMap<>();
+        Map<String, Boolean> countedTenantDays = new HashMap<>();
+        for (JobStatusCountChangePO change : this.baseMapper.listCountChange(jobIds, COUNT_FILL_TYPE)) {
+            // 还没有计数的日期不能只加这一个实例，整天重新统计
+            String tenantDay = change.getTenantId() + "_" + change.getCycDay();
+            boolean counted = countedTenantDays.computeIfAbsent(tenantDay,
+                    k -> !this.baseMapper.listCountedDay(change.getTenantId(), change.getCycDay(), change.getCycDay()).isEmpty());
+            if (!counted) {
+                missingTenantDays.add(tenantDay);
+                continue;
+            }
+            if (this.baseMapper.markCounted(change.getJobId(), change.getCountedStatus(), change.getStatus()) == 0) {
+                // 读取后状态又发生了变化，下次再处理
+                dirtyJobIds.add(change.getJobId());
+                continue;
+            }
+            if (change.getCountedStatus() != null) {
+                addDelta(deltas, change, change.getCountedStatus(), -1);
+            }
+            addDelta(deltas, change, change.getStatus(), 1);
+        }
+        List<ScheduleJobStatusCount> changed = deltas.values().stream().filter(count -> count.getJobCount() != 0).collect(Collectors.toList());
+        for (List<ScheduleJobStatusCount> partition : Lists.partition(changed, BATCH_SIZE)) {
+            this.baseMapper.addBatch(partition);
+        }
+    }
+
+    private void addDelta(Map<String, ScheduleJobStatusCount> deltas, JobStatusCountChangePO change, Integer status, int delta) {
+        String key = countKey(change.getTenantId(), change.getCycDay(), change.getType(), change.getTaskType(), change.getPeriodType(), status);
+        ScheduleJobStatusCount count = deltas.computeIfAbsent(key, k -> {
+            ScheduleJobStatusCount newCount = new ScheduleJobStatusCount();
+            newCount.setTenantId(change.getTenantId());
+            newCount.setCycDay(change.getCycDay());
+            newCount.setType(change.getType());
+            newCount.setTaskType(change.getTaskType());
+            newCount.setPeriodType(change.getPeriodType());
+            newCount.setStatus(status);
+            newCount.setJobCount(0);
+            return newCount;
+        });
+        count.setJobCount(count.getJobCount() + delta);
+    }
+
+    /**
+     * 补齐查询时发现还没有计数的日期
+     */
+    private void refreshMissingDays() {
+        if (missingTenantDays.isEmpty()) {
+            return;
+        }
+        Iterator<String> iterator = missingTenantDays.iterator();
+        while (iterator.hasNext()) {
+            String tenantDay = iterator.next();
+            iterator.remove();
+            try {
+                String[] split = tenantDay.split("_");
+                refresh(Long.valueOf(split[0]), split[1]);
+            } catch (Throwable e) {
+                LOGGER.error("refresh job status count {} error", tenantDay, e);
+            }
+        }
+    }
+
+    /**
+     * 实例生成和部分状态更新没有事件，主节点定时逐天重新统计昨天、今天、明天
+     */
+    private void refreshRecentDays() {
+        if (!isMaster) {
+            return;
+        }
+        DateTime today = new DateTime();
+        for (int i = -1; i <= 1; i++) {
+            String day = today.plusDays(i).toString(DAY_FORMAT);
+            try {
+                refresh(null, day);
+            } catch (Throwable e) {
+                LOGGER.error("refresh recent job status count {} error", day, e);
+            }
+        }
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        ScheduleJobEventPublisher.getInstance().register(this);
+        long flushInterval = environmentContext.getJobStatusCountFlushInterval();
+        long refreshInterval = environmentContext.getJobStatusCountRefreshInterval();
+        ScheduledExecutorService scheduledService = new ScheduledThreadPoolExecutor(1, new CustomThreadFactory(this.getClass().getSimpleName()));
+        scheduledService.scheduleWithFixedDelay(() -> {
+            flushDirty();
+            refreshMissingDays();
+        }, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+        scheduledService.scheduleWithFixedDelay(this::refreshRecentDays, refreshInterval, refreshInterval, TimeUnit.MILLISECONDS);
+        LOGGER.info("Initializing ScheduleJobStatusCountService flushInterval:{} refreshInterval:{}", flushInterval, refreshInterval);
+    }
+}
@@ -0,0 +1,356 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dtstack.taier.scheduler.service;
+
+import com.dtstack.taier.common.env.EnvironmentContext;
+import com.dtstack.taier.dao.mapper.ScheduleJobMapper;
+import com.dtstack.taier.pluginapi.CustomThreadFactory;
+import com.dtstack.taier.pluginapi.enums.TaskStatus;
+import com.dtstack.taier.scheduler.event.ScheduleJobBatchEvent;
+import com.dtstack.taier.scheduler.event.ScheduleJobEventPublisher;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Striped;
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Supplier;
+
+/**
+ * 实例状态延迟写入。中间状态先记录在内存里，同一个实例在刷新间隔内的多次变更只保留最后一次，
+ * 定时按状态分组批量更新 schedule_job；结束状态同步写入，调用方返回时已经落库。
+ * <p>
+ * 同一个实例的记录中间状态、刷新和其他地方直接写状态持有该实例的锁(按 jobId 分段)，本节点上旧的中间状态不会在直接写之后落库；
+ * 刷新时实例已经是结束状态或者未提交（其他节点停止、重跑）时也不覆盖。
+ * 刷新只尝试加锁，锁被占用或者实例在未结束的事务中被直接写过时留给下一次刷新，不会和持有行锁的事务互相等待
+ */
+@Service
+public class ScheduleJobStatusJournal implements InitializingBean, DisposableBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScheduleJobStatusJournal.class);
+
+    private static final int BATCH_SIZE = 500;
+
+    private static final int JOB_LOCK_STRIPES = 1 << 16;
+
+    /**
+     * 延迟写入的中间状态不能覆盖的状态：结束状态和重跑后的未提交状态
+     */
+    private static final List<Integer> NOT_OVERWRITE_STATUS = ImmutableList.<Integer>builder()
+            .addAll(TaskStatus.getStoppedStatus())
+            .add(TaskStatus.UNSUBMIT.getStatus())
+            .build();
+
+    @Autowired
+    private EnvironmentContext environmentContext;
+
+    @Autowired
+    private ScheduleJobMapper scheduleJobMapper;
+
+    /**
+     * jobId -> 还没有写入的最新状态
+     */
+    private final ConcurrentHashMap<String, Integer> pending = new ConcurrentHashMap<>();
+
+    /**
+     * 同一个实例的记录中间状态、刷新、同步写入、直接写入互斥，保证实例的状态按提交顺序落库
+     */
+    private final Striped<Lock> jobLocks = Striped.lazyWeakLock(JOB_LOCK_STRIPES);
+
+    /**
+     * 在未结束的事务中被直接写入的实例 -> 事务数，事务结束前行锁未释放，刷新时跳过
+     */
+    private final ConcurrentHashMap<String, Integer> transactionJobs = new ConcurrentHashMap<>();
+
+    private final AtomicLong submitCount = new AtomicLong(0);
+
+    private final AtomicLong writeCount = new AtomicLong(0);
+
+    private final AtomicLong flushCount = new AtomicLong(0);
+
+    private final AtomicLong flushCostTotal = new AtomicLong(0);
+
+    private final AtomicLong flushErrorCount = new AtomicLong(0);
+
+    private volatile long lastFlushCost = 0L;
+
+    private volatile long maxFlushCost = 0L;
+
+    private volatile long lastFlushSize = 0L;
+
+    private ScheduledExecutorService scheduledService;
+
+    /**
+     * 更新实例状态，结束状态同步写入，其他状态延迟批量写入
+     *
+     * @param jobId  实例id
+     * @param status 状态
+     */
+    public void updateStatus(String jobId, Integer status) {
+        if (StringUtils.isBlank(jobId) || status == null) {
+            return;
+        }
+        submitCount.incrementAndGet();
+        Lock lock = jobLocks.get(jobId);
+        if (!environmentContext.isOpenJobStatusJournal() || TaskStatus.getStoppedStatus().contains(status)) {
+            lock.lock();
+            try {
+                pending.remove(jobId);
+                write(Lists.newArrayList(jobId), status);
+            } finally {
+                lock.unlock();
+            }
+            return;
+        }
+
+        lock.lock();
+        try {
+            pending.put(jobId, status);
+        } finally {
+            lock.unlock();
+        }
+        if (pending.size() >= environmentContext.getJobStatusJournalMaxPending()) {
+            // 积压太多时由调用方直接刷新，限制内存里未落库的状态数
+            flush();
+        }
+    }
+
+    /**
+     * 其他地方直接更新实例状态。持有这些实例的锁丢弃还没有写入的旧状态后执行写入，
+     * 写入完成前这些实例不会有新的中间状态记录或者刷新，旧状态不会覆盖新状态
+     *
+     * @param jobIds 实例id
+     * @param writer 直接写入
+     * @return 写入结果
+     */
+    public <T> T writeDirect(Collection<String> jobIds, Supplier<T> writer) {
+        if (CollectionUtils.isEmpty(jobIds)) {
+            return writer.get();
+        }
+        // 按分段顺序加锁，多个直接写入之间不会死锁
+        List<Lock> locks = Lists.newArrayList(jobLocks.bulkGet(jobIds));
+        for (Lock lock : locks) {
+            lock.lock();
+        }
+        try {
+            for (String jobId : jobIds) {
+                pending.remove(jobId);
+            }
+            registerTransactionJobs(jobIds);
+            return writer.get();
+        } finally {
+            for (Lock lock : locks) {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 在事务中直接写入时，事务结束前这些实例的行锁一直被持有，记录下来让刷新跳过，
+     * 避免刷新等待行锁时持有事务后续要用的实例锁
+     */
+    private void registerTransactionJobs(Collection<String> jobIds) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        List<String> registered = new ArrayList<>(jobIds);
+        for (String jobId : registered) {
+            transactionJobs.merge(jobId, 1, Integer::sum);
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(int status) {
+                for (String jobId : registered) {
+                    transactionJobs.computeIfPresent(jobId, (key, count) -> count > 1 ? count - 1 : null);
+                }
+            }
+        });
+    }
+
+    /**
+     * 获得实例还没有写入的状态
+     *
+     * @param jobId 实例id
+     * @return 没有待写入的状态时返回 null
+     */
+    public Integer getPendingStatus(String jobId) {
+        return jobId == null ? null : pending.get(jobId);
+    }
+
+    /**
+     * 把待写入的状态按状态分组批量写入
+     */
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        Map<Integer, List<String>> statusJobIds = new HashMap<>(16);
+        for (Map.Entry<String, Integer> entry : pending.entrySet()) {
+            statusJobIds.computeIfAbsent(entry.getValue(), k -> new ArrayList<>()).add(entry.getKey());
+        }
+
+        int size = 0;
+        for (Map.Entry<Integer, List<String>> entry : statusJobIds.entrySet()) {
+            for (List<String> partition : Lists.partition(entry.getValue(), BATCH_SIZE)) {
+                size += flushPartition(partition, entry.getKey());
+            }
+        }
+
+        long cost = System.currentTimeMillis() - startTime;
+        flushCount.incrementAndGet();
+        flushCostTotal.addAndGet(cost);
+        lastFlushCost = cost;
+        lastFlushSize = size;
+        if (cost > maxFlushCost) {
+            maxFlushCost = cost;
+        }
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("flush job status size:{} statuses:{} cost:{}ms", size, statusJobIds.size(), cost);
+        }
+    }
+
+    /**
+     * 写入一批相同状态的实例，写入期间持有这些实例的锁，只尝试加锁不等待
+     *
+     * @return 写入的实例数
+     */
+    private int flushPartition(List<String> jobIds, Integer status) {
+        List<Lock> locked = new ArrayList<>(jobIds.size());
+        List<String> writeJobIds = new ArrayList<>(jobIds.size());
+        try {
+            for (String jobId : jobIds) {
+                Lock lock = jobLocks.get(jobId);
+                if (!lock.tryLock()) {
+                    continue;
+                }
+                locked.add(lock);
+                if (transactionJobs.containsKey(jobId)) {
+                    continue;
+                }
+                // 取出后又有新状态或者已经被直接写入丢弃时跳过
+                if (pending.remove(jobId, status)) {
+                    writeJobIds.add(jobId);
+                }
+            }
+            if (writeJobIds.isEmpty()) {
+                return 0;
+            }
+            try {
+                writeJournal(writeJobIds, status);
+            } catch (Throwable e) {
+                flushErrorCount.incrementAndGet();
+                LOGGER.error("flush job status:{} size:{} error, retry next time", status, writeJobIds.size(), e);
+                for (String jobId : writeJobIds) {
+                    pending.putIfAbsent(jobId, status);
+                }
+            }
+            return writeJobIds.size();
+        } finally {
+            for (Lock lock : locked) {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void write(List<String> jobIds, Integer status) {
+        scheduleJobMapper.updateJobStatusByJobIds(jobIds, status);
+        writeCount.addAndGet(jobIds.size());
+        publish(jobIds, status);
+    }
+
+    private void writeJournal(List<String> jobIds, Integer status) {
+        Integer update = scheduleJobMapper.updateJournalStatusByJobIds(jobIds, status, NOT_OVERWRITE_STATUS);
+        writeCount.addAndGet(jobIds.size());
+        if (update != null && update > 0) {
+            publish(jobIds, status);
+        }
+    }
+
+    private void publish(List<String> jobIds, Integer status) {
+        try {
+            ScheduleJobEventPublisher.getInstance().publishBatchEvent(new ScheduleJobBatchEvent(jobIds, status));
+        } catch (Exception e) {
+            LOGGER.error("jobIds:{} status:{} publish status event error:", jobIds, status, e);
+        }
+    }
+
+    private void scheduleFlush() {
+        try {
+            flush();
+        } catch (Throwable e) {
+            LOGGER.error("flush job status error", e);
+        }
+    }
+
+    public Map<String, Object> getJournalMetrics() {
+        long submit = submitCount.get();
+        long write = writeCount.get();
+        long flush = flushCount.get();
+        Map<String, Object> metrics = new HashMap<>(16);
+        metrics.put("open", environmentContext.isOpenJobStatusJournal());
+        metrics.put("pendingSize", pending.size());
+        metrics.put("submitCount", submit);
+        metrics.put("writeCount", write);
+        metrics.put("coalesceRatio", submit == 0 ? 0D : (double) (submit - write - pending.size()) / submit);
+        metrics.put("flushCount", flush);
+        metrics.put("flushErrorCount", flushErrorCount.get());
+        metrics.put("lastFlushSize", lastFlushSize);
+        metrics.put("lastFlushCost", lastFlushCost);
+        metrics.put("maxFlushCost", maxFlushCost);
+        metrics.put("avgFlushCost", flush == 0 ? 0L : flushCostTotal.get() / flush);
+        return metrics;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        long flushInterval = environmentContext.getJobStatusJournalFlushInterval();
+        scheduledService = new ScheduledThreadPoolExecutor(1, new CustomThreadFactory(this.getClass().getSimpleName()));
+        scheduledService.scheduleWithFixedDelay(this::scheduleFlush, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+        LOGGER.info("Initializing ScheduleJobStatusJournal open:{} flushInterval:{}", environmentContext.isOpenJobStatusJournal(), flushInterval);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (scheduledService != null) {
+            scheduledService.shutdown();
+        }
+        flush();
+        LOGGER.info("ScheduleJobStatusJournal flushed on destroy");
+    }
+}
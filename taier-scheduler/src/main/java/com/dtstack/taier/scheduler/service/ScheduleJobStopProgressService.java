@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dtstack.taier.scheduler.service;
+
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.dtstack.taier.common.enums.Deleted;
+import com.dtstack.taier.dao.domain.ScheduleJobStopProgress;
+import com.dtstack.taier.dao.mapper.ScheduleJobStopProgressMapper;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 批量停止进度，保存在数据库中，任何节点都可以查询，停止记录迁移到其他节点后由该节点继续累加
+ */
+@Service
+public class ScheduleJobStopProgressService extends ServiceImpl<ScheduleJobStopProgressMapper, ScheduleJobStopProgress> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScheduleJobStopProgressService.class);
+
+    private static final int ERROR_MSG_MAX_LENGTH = 1000;
+
+    public void create(String stopId, String name, String nodeAddress) {
+        ScheduleJobStopProgress progress = new ScheduleJobStopProgress();
+        progress.setStopId(stopId);
+        progress.setName(name);
+        progress.setNodeAddress(nodeAddress);
+        this.save(progress);
+    }
+
+    public void addSelected(String stopId, int total, int canceled, int stopping) {
+        this.baseMapper.addSelected(stopId, total, canceled, stopping);
+    }
+
+    /**
+     * 一条停止记录处理结束，停止流程不因为进度更新失败而中断
+     */
+    public void finishStopping(String stopId, boolean success) {
+        if (StringUtils.isBlank(stopId)) {
+            return;
+        }
+        try {
+            this.baseMapper.addStopped(stopId, success ? 1 : 0, success ? 0 : 1);
+        } catch (Throwable e) {
+            LOGGER.error("stopId:{} update stop progress error", stopId, e);
+        }
+    }
+
+    public void selectFinish(String stopId, String errorMsg) {
+        this.baseMapper.selectFinish(stopId, StringUtils.abbreviate(errorMsg, ERROR_MSG_MAX_LENGTH));
+    }
+
+    public Map<String, Object> getProgress(String stopId) {
+        ScheduleJobStopProgress progress = this.lambdaQuery()
+                .eq(ScheduleJobStopProgress::getStopId, stopId)
+                .eq(ScheduleJobStopProgress::getIsDeleted, Deleted.NORMAL.getStatus())
+                .one();
+        if (progress == null) {
+            return null;
+        }
+        Map<String, Object> result = new HashMap<>(16);
+        result.put("stopId", progress.getStopId());
+        result.put("name", progress.getName());
+        result.put("nodeAddress", progress.getNodeAddress());
+        result.put("total", progress.getTotal());
+        result.put("canceled", progress.getCanceled());
+        result.put("stopping", progress.getStopping());
+        result.put("stopped", progress.getStopped());
+        result.put("failed", progress.getFailed());
+        result.put("selectFinished", Integer.valueOf(1).equals(progress.getSelectFinished()));
+        result.put("finished", progress.getFinishTime() != null);
+        result.put("errorMsg", progress.getErrorMsg());
+        result.put("startTime", progress.getGmtCreate() == null ? 0L : progress.getGmtCreate().getTime());
+        result.put("finishTime", progress.getFinishTime() == null ? 0L : progress.getFinishTime().getTime());
+        return result;
+    }
+
+    /**
+     * 清理超过保留时间的进度
+     */
+    public int deleteExpired(long timeout) {
+        Integer deleted = this.baseMapper.deleteExpired(new Timestamp(System.currentTimeMillis() - timeout));
+        return deleted == null ? 0 : deleted;
+    }
+}
@@ -1,12 +1,19 @@
 package com.dtstack.taier.scheduler.service;
 
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.dtstack.taier.common.env.EnvironmentContext;
 import com.dtstack.taier.dao.domain.ScheduleTaskTaskShade;
 import com.dtstack.taier.dao.mapper.ScheduleTaskTaskShadeMapper;
+import com.dtstack.taier.scheduler.server.builder.dependency.TaskDag;
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+
 /**
  * @Auther: dazhi
  * @Date: 2021/12/9 11:01 AM
@@ -16,4 +23,68 @@ import org.springframework.stereotype.Service;
 @Service
 public class ScheduleTaskTaskService extends ServiceImpl<ScheduleTaskTaskShadeMapper, ScheduleTaskTaskShade> {
     private static final Logger LOGGER = LoggerFactory.getLogger(ScheduleTaskTaskService.class);
+
+    @Autowired
+    private EnvironmentContext environmentContext;
+
+    private final Object loadLock = new Object();
+
+    private volatile TaskDag taskDag;
+
+    /**
+     * 上次检查依赖关系版本的时间
+     */
+    private volatile long lastCheckTime = 0L;
+
+    /**
+     * 获得任务依赖关系的内存索引。
+     * 超过检查间隔时查询一次依赖表的版本标识，其他节点发布任务导致依赖变化时重新加载
+     *
+     * @return 依赖关系
+     */
+    public TaskDag getTaskDag() {
+        TaskDag current = taskDag;
+        if (current != null && System.currentTimeMillis() - lastCheckTime < environmentContext.getTaskDagCheckInterval()) {
+            return current;
+        }
+        synchronized (loadLock) {
+            current = taskDag;
+            if (current != null && System.currentTimeMillis() - lastCheckTime < environmentContext.getTaskDagCheckInterval()) {
+                return current;
+            }
+            String edgeVersion = this.baseMapper.getEdgeVersion();
+            if (current == null || !StringUtils.equals(current.getEdgeVersion(), edgeVersion)) {
+                current = load(current == null ? 1L : current.getVersion() + 1, edgeVersion);
+                taskDag = current;
+            }
+            lastCheckTime = System.currentTimeMillis();
+            return current;
+        }
+    }
+
+    /**
+     * 任务发布或删除修改了依赖关系，下次查询时重新加载
+     */
+    public void invalidateTaskDag() {
+        lastCheckTime = 0L;
+    }
+
+    private TaskDag load(long version, String edgeVersion) {
+        long startTime = System.currentTimeMillis();
+        TaskDag.Builder builder = new TaskDag.Builder();
+        int limit = environmentContext.getTaskDagLoadBatchSize();
+        long startId = 0L;
+        List<ScheduleTaskTaskShade> edges = this.baseMapper.listEdgeByStartId(startId, limit);
+        while (CollectionUtils.isNotEmpty(edges)) {
+            for (ScheduleTaskTaskShade edge : edges) {
+                builder.addEdge(edge.getParentTaskId(), edge.getTaskId());
+            }
+            startId = edges.get(edges.size() - 1).getId();
+            edges = edges.size() < limit ? null : this.baseMapper.listEdgeByStartId(startId, limit);
+        }
+        TaskDag dag = builder.build(version, edgeVersion);
+        LOGGER.info("load task dag version:{} edgeVersion:{} nodes:{} edges:{} cost:{}ms", version, edgeVersion,
+                dag.getNodeSize(), dag.getEdgeSize(), System.currentTimeMillis() - startTime);
+        return dag;
+    }
 }
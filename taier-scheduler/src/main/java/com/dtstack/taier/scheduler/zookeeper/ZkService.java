@@ -32,13 +32,19 @@ import com.dtstack.taier.scheduler.server.listener.MasterListener;
 import com.dtstack.taier.scheduler.utils.PathUtil;
 import com.dtstack.taier.scheduler.zookeeper.data.BrokerHeartNode;
 import com.dtstack.taier.scheduler.zookeeper.data.BrokersNode;
+import com.dtstack.taier.scheduler.zookeeper.data.QueueInfoNode;
 import com.google.common.collect.Lists;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.CuratorFrameworkFactory;
 import org.apache.curator.framework.api.CuratorWatcher;
+import org.apache.curator.framework.recipes.cache.ChildData;
+import org.apache.curator.framework.recipes.cache.PathChildrenCache;
 import org.apache.curator.framework.recipes.locks.InterProcessMutex;
 import org.apache.curator.retry.ExponentialBackoffRetry;
+import org.apache.curator.utils.ZKPaths;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
 import org.apache.zookeeper.data.Stat;
 import org.codehaus.jackson.map.ObjectMapper;
 import org.slf4j.Logger;
@@ -50,6 +56,7 @@ import org.springframework.stereotype.Component;
 
 import java.util.*;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 
 /**
  * company: www.dtstack.com
@@ -65,6 +72,7 @@ public class ZkService implements InitializingBean, DisposableBean {
     private final static String HEART_NODE = "heart";
     private final static String WORKER_NODE = "workers";
     private final static String LOCK_NODE = "locks";
+    private final static String QUEUE_NODE = "queues";
 
     private ZkConfig zkConfig;
     private String zkAddress;
@@ -74,6 +82,9 @@ public class ZkService implements InitializingBean, DisposableBean {
     private String localNode;
     private String workersNode;
     private String lockNode;
+    private String queuesNode;
+    private String localQueueNode;
+    private PathChildrenCache queueInfoCache;
 
     private CuratorFramework zkClient;
     private static ObjectMapper objectMapper = new ObjectMapper();
@@ -177,6 +188,7 @@ public class ZkService implements InitializingBean, DisposableBean {
         createNodeIfNotExists(this.workersNode, new HashSet<>());
         // 初始化分布式锁节点
         createNodeIfNotExists(this.lockNode, null);
+        createNodeIfNotExists(this.queuesNode, null);
         createLocalBrokerHeartNode();
         initScheduledExecutorService();
         LOGGER.warn("init zk server success...");
@@ -240,6 +252,9 @@ public class ZkService implements InitializingBean, DisposableBean {
         this.workersNode = String.format("%s/%s", this.localNode, WORKER_NODE);
         // 初始化分布式锁节点名称
         this.lockNode = String.format("%s/%s", this.distributeRootNode, LOCK_NODE);
+        // 各节点发布队列信息的临时节点
+        this.queuesNode = String.format("%s/%s", this.distributeRootNode, QUEUE_NODE);
+        this.localQueueNode = String.format("%s/%s", this.queuesNode, this.localAddress);
     }
 
     public BrokerHeartNode getBrokerHeartNode(String node) {
@@ -300,6 +315,63 @@ public class ZkService implements InitializingBean, DisposableBean {
         return localAddress;
     }
 
+    /**
+     * 发布本节点的队列信息，临时节点随会话失效自动删除
+     *
+     * @param queueInfoNode 队列信息
+     */
+    public void publishQueueInfo(QueueInfoNode queueInfoNode) {
+        try {
+            byte[] data = objectMapper.writeValueAsBytes(queueInfoNode);
+            try {
+                zkClient.setData().forPath(localQueueNode, data);
+            } catch (KeeperException.NoNodeException e) {
+                // 首次发布或会话过期后临时节点已被删除
+                zkClient.create().withMode(CreateMode.EPHEMERAL).forPath(localQueueNode, data);
+            }
+        } catch (Exception e) {
+            LOGGER.error("{}:publishQueueInfo error:", localQueueNode, e);
+        }
+    }
+
+    /**
+     * 监听所有节点发布的队列信息
+     *
+     * @param consumer 回调，参数为节点地址和队列信息，节点下线时队列信息为 null
+     */
+    public synchronized void watchQueueInfo(BiConsumer<String, QueueInfoNode> consumer) throws Exception {
+        if (queueInfoCache != null) {
+            return;
+        }
+        if (zkClient == null) {
+            throw new RdosDefineException("zk client is not initialized");
+        }
+        queueInfoCache = new PathChildrenCache(zkClient, queuesNode, true);
+        queueInfoCache.getListenable().addListener((client, event) -> {
+            ChildData childData = event.getData();
+            if (childData == null) {
+                return;
+            }
+            String address = ZKPaths.getNodeFromPath(childData.getPath());
+            switch (event.getType()) {
+                case CHILD_ADDED:
+                case CHILD_UPDATED:
+                    try {
+                        consumer.accept(address, objectMapper.readValue(childData.getData(), QueueInfoNode.class));
+                    } catch (Exception e) {
+                        LOGGER.error("{}:read queue info error:", childData.getPath(), e);
+                    }
+                    break;
+                case CHILD_REMOVED:
+                    consumer.accept(address, null);
+                    break;
+                default:
+                    break;
+            }
+        });
+        queueInfoCache.start();
+    }
+
     public void disableBrokerHeartNode(String localAddress, boolean stopHealthCheck) {
         BrokerHeartNode disableBrokerHeartNode = BrokerHeartNode.initNullBrokerHeartNode();
         if (stopHealthCheck) {
@@ -311,6 +383,9 @@ public class ZkService implements InitializingBean, DisposableBean {
     @Override
     public void destroy() throws Exception {
         disableBrokerHeartNode(this.localAddress, false);
+        if (queueInfoCache != null) {
+            queueInfoCache.close();
+        }
         for (Listener listener : listeners) {
             try {
                 listener.close();
@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dtstack.taier.scheduler.zookeeper.data;
+
+import com.dtstack.taier.scheduler.server.queue.GroupInfo;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 节点发布到 zk 的队列信息
+ */
+public class QueueInfoNode {
+
+    /**
+     * 发布时间
+     */
+    private Long timestamp;
+
+    /**
+     * scheduleType -> 待调度实例数
+     */
+    private Map<Integer, Integer> jobQueueSize = new HashMap<>();
+
+    /**
+     * jobResource -> 待提交任务数及最小优先级
+     */
+    private Map<String, GroupInfo> groupQueue = new HashMap<>();
+
+    public Long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(Long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public Map<Integer, Integer> getJobQueueSize() {
+        return jobQueueSize;
+    }
+
+    public void setJobQueueSize(Map<Integer, Integer> jobQueueSize) {
+        this.jobQueueSize = jobQueueSize;
+    }
+
+    public Map<String, GroupInfo> getGroupQueue() {
+        return groupQueue;
+    }
+
+    public void setGroupQueue(Map<String, GroupInfo> groupQueue) {
+        this.groupQueue = groupQueue;
+    }
+
+    /**
+     * 是否还有待调度的实例或待提交的任务，不使用 is 前缀，避免被序列化到 zk
+     */
+    public boolean hasPending() {
+        for (Integer size : jobQueueSize.values()) {
+            if (size != null && size > 0) {
+                return true;
+            }
+        }
+        for (GroupInfo groupInfo : groupQueue.values()) {
+            if (groupInfo.getSize() > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 队列信息是否相同，不比较发布时间
+     */
+    public boolean sameQueue(QueueInfoNode other) {
+        if (other == null || !Objects.equals(jobQueueSize, other.jobQueueSize)) {
+            return false;
+        }
+        if (groupQueue.size() != other.groupQueue.size()) {
+            return false;
+        }
+        for (Map.Entry<String, GroupInfo> entry : groupQueue.entrySet()) {
+            GroupInfo otherGroup = other.groupQueue.get(entry.getKey());
+            if (otherGroup == null || otherGroup.getSize() != entry.getValue().getSize()
+                    || otherGroup.getPriority() != entry.getValue().getPriority()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
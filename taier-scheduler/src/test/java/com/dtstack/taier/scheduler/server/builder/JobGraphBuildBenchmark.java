@@ -0,0 +1,116 @@
+package com.dtstack.taier.scheduler.server.builder;
+
+import com.dtstack.taier.dao.domain.ScheduleJob;
+import com.dtstack.taier.scheduler.server.ScheduleJobDetails;
+import com.dtstack.taier.scheduler.server.builder.cron.ScheduleConfManager;
+import com.dtstack.taier.scheduler.server.builder.cron.ScheduleCorn;
+import com.google.common.collect.Lists;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 周期实例生成压测，不依赖数据库：
+ * 1. 每个实例重新解析上游调度配置 与 共用 JobGraphBuildContext 缓存的对比
+ * 2. JobGraphWriter 在空写入下的吞吐，衡量队列和批量合并本身的开销
+ * <p>
+ * 运行：在 IDE 中执行 main 方法，或 mvn test-compile 后通过 org.openjdk.jmh.Main 运行
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JobGraphBuildBenchmark {
+
+    private static final String MIN_CONF = "{\"periodType\":0,\"beginDate\":\"2001-01-01\",\"endDate\":\"2121-01-01\"," +
+            "\"beginHour\":0,\"endHour\":23,\"beginMin\":0,\"endMin\":59,\"gapMin\":5}";
+
+    private static final String DAY_CONF = "{\"periodType\":2,\"beginDate\":\"2001-01-01\",\"endDate\":\"2121-01-01\",\"hour\":0,\"min\":0}";
+
+    /**
+     * 5分钟一次的任务一天的实例数
+     */
+    private static final int INSTANCE_PER_TASK = 288;
+
+    private static final int TASK_SIZE = 200;
+
+    private List<Date> fireTimes;
+
+    private List<List<ScheduleJobDetails>> taskJobs;
+
+    @Setup
+    public void setup() throws Exception {
+        ScheduleCorn corn = ScheduleConfManager.parseFromJson(MIN_CONF);
+        Date start = new Date(1640966400000L);
+        fireTimes = corn.fireTimes(start, new Date(start.getTime() + TimeUnit.DAYS.toMillis(1) - 1));
+
+        taskJobs = Lists.newArrayListWithCapacity(TASK_SIZE);
+        for (int i = 0; i < TASK_SIZE; i++) {
+            List<ScheduleJobDetails> jobs = Lists.newArrayListWithCapacity(INSTANCE_PER_TASK);
+            for (int j = 0; j < INSTANCE_PER_TASK; j++) {
+                ScheduleJobDetails details = new ScheduleJobDetails();
+                ScheduleJob scheduleJob = new ScheduleJob();
+                scheduleJob.setTaskId((long) i);
+                details.setScheduleJob(scheduleJob);
+                jobs.add(details);
+            }
+            taskJobs.add(jobs);
+        }
+    }
+
+    /**
+     * 优化前：每个实例生成依赖时都重新解析上游任务的调度配置
+     */
+    @Benchmark
+    public void parseUpstreamPerInstance(Blackhole blackhole) throws Exception {
+        for (Date fireTime : fireTimes) {
+            ScheduleCorn upstream = ScheduleConfManager.parseFromJson(DAY_CONF);
+            blackhole.consume(upstream.last(fireTime));
+        }
+    }
+
+    /**
+     * 优化后：同一次生成过程中共用上下文缓存的 ScheduleCorn
+     */
+    @Benchmark
+    public void parseUpstreamWithContext(Blackhole blackhole) throws Exception {
+        JobGraphBuildContext buildContext = new JobGraphBuildContext();
+        for (Date fireTime : fireTimes) {
+            ScheduleCorn upstream = buildContext.getCorn(DAY_CONF);
+            blackhole.consume(upstream.last(fireTime));
+        }
+    }
+
+    @Benchmark
+    public long writerThroughput() throws Exception {
+        JobGraphWriter writer = new JobGraphWriter("benchmark", 4, 2000, 200, scheduleJobDetails -> {
+        });
+        for (List<ScheduleJobDetails> jobs : taskJobs) {
+            writer.put(jobs);
+        }
+        writer.finish();
+        return writer.getWrittenCount();
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(JobGraphBuildBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
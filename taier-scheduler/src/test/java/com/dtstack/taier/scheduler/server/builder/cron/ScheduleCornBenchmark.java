@@ -0,0 +1,136 @@
+package com.dtstack.taier.scheduler.server.builder.cron;
+
+import com.cronutils.model.definition.CronDefinition;
+import com.cronutils.model.definition.CronDefinitionBuilder;
+import com.cronutils.model.time.ExecutionTime;
+import com.cronutils.parser.CronParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.cronutils.model.CronType.QUARTZ;
+
+/**
+ * 调度周期解析和展开一天执行时间的压测，覆盖分钟、小时、天、周、月和自定义 cron：
+ * 1. 每次计算都重新解析 cron(优化前) 与共享编译结果的对比
+ * 2. 逐个 next 展开一天 与 fireTimes 一次展开的对比
+ * <p>
+ * 运行：在 IDE 中执行 main 方法，或 mvn test-compile 后通过 org.openjdk.jmh.Main 运行
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScheduleCornBenchmark {
+
+    private static final String DATE_RANGE = "\"beginDate\":\"2001-01-01\",\"endDate\":\"2121-01-01\"";
+
+    private static final Map<String, String> CONFS = new HashMap<>(8);
+
+    static {
+        CONFS.put("min", "{\"periodType\":0," + DATE_RANGE + ",\"beginHour\":0,\"endHour\":23,\"beginMin\":0,\"endMin\":59,\"gapMin\":5}");
+        CONFS.put("hour", "{\"periodType\":1," + DATE_RANGE + ",\"beginHour\":0,\"endHour\":23,\"beginMin\":0,\"gapHour\":1}");
+        CONFS.put("day", "{\"periodType\":2," + DATE_RANGE + ",\"hour\":0,\"min\":0}");
+        CONFS.put("week", "{\"periodType\":3," + DATE_RANGE + ",\"weekDay\":\"2,4,6\",\"hour\":2,\"min\":30}");
+        CONFS.put("month", "{\"periodType\":4," + DATE_RANGE + ",\"day\":\"1,3\",\"hour\":2,\"min\":30}");
+        CONFS.put("custom", "{\"periodType\":5," + DATE_RANGE + ",\"corn\":\"0 0/10 * * * ?\"}");
+    }
+
+    private static final CronDefinition CRON_DEFINITION = CronDefinitionBuilder.instanceDefinitionFor(QUARTZ);
+
+    @Param({"min", "hour", "day", "week", "month", "custom"})
+    private String periodType;
+
+    private String scheduleConf;
+
+    private ScheduleCorn corn;
+
+    private Date dayStart;
+
+    private Date dayEnd;
+
+    @Setup
+    public void setup() throws Exception {
+        scheduleConf = CONFS.get(periodType);
+        corn = ScheduleConfManager.parseFromJson(scheduleConf);
+        // 2022-01-03 是周一(quartz 中为 2)，也是配置中的月调度日，周、月调度也能展开出执行时间
+        dayStart = Date.from(ZonedDateTime.of(2022, 1, 3, 0, 0, 0, 0, ZoneId.systemDefault()).toInstant());
+        dayEnd = new Date(dayStart.getTime() + TimeUnit.DAYS.toMillis(1) - 1);
+    }
+
+    /**
+     * 调度配置 json 解析成 cron
+     */
+    @Benchmark
+    public ScheduleCorn parseFromJson() throws Exception {
+        return ScheduleConfManager.parseFromJson(scheduleConf);
+    }
+
+    /**
+     * 优化前：每次 next 都重新解析 cron，展开一天时每个实例调用两次
+     */
+    @Benchmark
+    public void expandDayReparse(Blackhole blackhole) {
+        ZonedDateTime end = ZonedDateTime.ofInstant(dayEnd.toInstant(), ZoneId.systemDefault());
+        ZonedDateTime current = ZonedDateTime.ofInstant(dayStart.toInstant(), ZoneId.systemDefault()).minusSeconds(1);
+        while (true) {
+            current = reparse(corn.getCron()).nextExecution(current).orElse(null);
+            if (current == null || current.isAfter(end)) {
+                break;
+            }
+            blackhole.consume(reparse(corn.getCron()).nextExecution(current).orElse(null));
+        }
+    }
+
+    /**
+     * 共享编译结果，逐个 next 展开一天
+     */
+    @Benchmark
+    public void expandDayNext(Blackhole blackhole) {
+        Date current = corn.next(new Date(dayStart.getTime() - 1000));
+        while (current != null && !current.after(dayEnd)) {
+            Date next = corn.next(current);
+            blackhole.consume(next);
+            current = next;
+        }
+    }
+
+    /**
+     * 共享编译结果，fireTimes 一次展开一天
+     */
+    @Benchmark
+    public List<Date> expandDayFireTimes() {
+        return corn.fireTimes(dayStart, dayEnd);
+    }
+
+    private static ExecutionTime reparse(String cron) {
+        return ExecutionTime.forCron(new CronParser(CRON_DEFINITION).parse(cron));
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(ScheduleCornBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,112 @@
+package com.dtstack.taier.scheduler.server.pipeline;
+
+import com.dtstack.taier.common.enums.EParamType;
+import com.dtstack.taier.dao.dto.ScheduleTaskParamShade;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 实例提交时 pipeline 构建和变量替换的压测，paramReplaceLegacy 为原来逐个参数 contains + replace 的实现，作为对比
+ * <p>
+ * 运行：在 IDE 中执行 main 方法，或 mvn test-compile 后通过 org.openjdk.jmh.Main 运行
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JobParamReplaceBenchmark {
+
+    private static final String CYC_TIME = "20220101000000";
+
+    /**
+     * 任务配置的参数数量，sql 中只引用其中一部分
+     */
+    @Param({"30", "300"})
+    private int paramSize;
+
+    /**
+     * sql 中每个被引用的参数出现的次数，用来放大 sql 长度
+     */
+    @Param({"1", "50"})
+    private int repeat;
+
+    private static final int USED_PARAM_SIZE = 5;
+
+    private List<ScheduleTaskParamShade> params;
+
+    private String sql;
+
+    @Setup
+    public void setup() {
+        params = new ArrayList<>(paramSize);
+        StringBuilder sqlBuilder = new StringBuilder("insert overwrite table t_result partition(ds='${bizdate}') select ");
+        for (int i = 0; i < paramSize; i++) {
+            ScheduleTaskParamShade param = new ScheduleTaskParamShade();
+            param.setTaskId(1L);
+            param.setType(EParamType.CUSTOMIZE_TYPE.getType());
+            param.setParamName("param" + i);
+            param.setParamCommand("$[yyyyMMdd-" + i + "]");
+            params.add(param);
+            if (i < USED_PARAM_SIZE) {
+                for (int j = 0; j < repeat; j++) {
+                    sqlBuilder.append("'${param").append(i).append("}' as c").append(i).append('_').append(j).append(", ");
+                }
+            }
+        }
+        ScheduleTaskParamShade bizdate = new ScheduleTaskParamShade();
+        bizdate.setTaskId(1L);
+        bizdate.setType(EParamType.SYS_TYPE.getType());
+        bizdate.setParamName("bizdate");
+        bizdate.setParamCommand("yyyyMMdd");
+        params.add(bizdate);
+        sql = sqlBuilder.append("id from t_source where ds = '${bizdate}'").toString();
+    }
+
+    @Benchmark
+    public String paramReplace() {
+        return JobParamReplace.paramReplace(sql, params, CYC_TIME);
+    }
+
+    @Benchmark
+    public String paramReplaceLegacy() {
+        String result = sql;
+        for (ScheduleTaskParamShade param : params) {
+            String symbol = EParamType.COMPONENT.getType().equals(param.getType()) ? "@@{%s}" : "${%s}";
+            String replaceStr = String.format(symbol, param.getParamName());
+            if (!result.contains(replaceStr)) {
+                continue;
+            }
+            String targetVal = JobParamReplace.convertParam(param.getType(), param.getParamName(), param.getParamCommand(), CYC_TIME, param.getTaskId());
+            result = result.replace(replaceStr, targetVal);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public IPipeline buildDefaultSqlPipeline() {
+        return PipelineBuilder.buildDefaultSqlPipeline();
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(JobParamReplaceBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
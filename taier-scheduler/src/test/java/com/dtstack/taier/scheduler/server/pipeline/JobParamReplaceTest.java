@@ -0,0 +1,77 @@
+package com.dtstack.taier.scheduler.server.pipeline;
+
+import com.dtstack.taier.common.enums.EParamType;
+import com.dtstack.taier.dao.dto.ScheduleTaskParamShade;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+public class JobParamReplaceTest {
+
+    private static final String CYC_TIME = "20220101000000";
+
+    @Test
+    public void testNestedParam() {
+        ScheduleTaskParamShade component = buildParam(EParamType.COMPONENT, "table", "t_${bizdate}");
+        ScheduleTaskParamShade bizdate = buildParam(EParamType.SYS_TYPE, "bizdate", "yyyyMMdd");
+        String expectDate = JobParamReplace.paramReplace("${bizdate}", Collections.singletonList(bizdate), CYC_TIME);
+
+        String sql = JobParamReplace.paramReplace("select * from @@{table}", Arrays.asList(component, bizdate), CYC_TIME);
+        Assert.assertEquals("select * from t_" + expectDate, sql);
+    }
+
+    @Test
+    public void testNestedParamDefinedBefore() {
+        ScheduleTaskParamShade bizdate = buildParam(EParamType.SYS_TYPE, "bizdate", "yyyyMMdd");
+        ScheduleTaskParamShade component = buildParam(EParamType.COMPONENT, "table", "t_${bizdate}");
+        String expectDate = JobParamReplace.paramReplace("${bizdate}", Collections.singletonList(bizdate), CYC_TIME);
+
+        String sql = JobParamReplace.paramReplace("select * from @@{table} where ds = '${bizdate}'", Arrays.asList(bizdate, component), CYC_TIME);
+        Assert.assertEquals("select * from t_" + expectDate + " where ds = '" + expectDate + "'", sql);
+    }
+
+    @Test
+    public void testCycleParamKept() {
+        ScheduleTaskParamShade first = buildParam(EParamType.COMPONENT, "a", "a_@@{b}");
+        ScheduleTaskParamShade second = buildParam(EParamType.COMPONENT, "b", "b_@@{a}");
+        ScheduleTaskParamShade self = buildParam(EParamType.COMPONENT, "c", "c_@@{c}");
+
+        String sql = JobParamReplace.paramReplace("@@{a} @@{c}", Arrays.asList(first, second, self), CYC_TIME);
+        Assert.assertEquals("a_b_@@{a} c_@@{c}", sql);
+    }
+
+    @Test
+    public void testUnknownParamKept() {
+        ScheduleTaskParamShade component = buildParam(EParamType.COMPONENT, "table", "t1");
+        String sql = JobParamReplace.paramReplace("select ${unknown} from @@{table}", Collections.singletonList(component), CYC_TIME);
+        Assert.assertEquals("select ${unknown} from t1", sql);
+    }
+
+    @Test
+    public void testCompiledPipelineCanChain() throws Exception {
+        IPipeline first = PipelineBuilder.buildDefaultSqlPipeline();
+        IPipeline second = PipelineBuilder.buildDefaultSqlPipeline();
+        Assert.assertNotSame(first, second);
+
+        first.setNextPipeline(new IPipeline.AbstractPipeline("next") {
+            @Override
+            public void pipeline(Map<String, Object> actionParam, Map<String, Object> pipelineParam) {
+            }
+        });
+        // 缓存中的处理链不受调用方设置的 nextPipeline 影响
+        Assert.assertNull(second.getNextPipeline());
+        Assert.assertNotNull(first.getNextPipeline());
+    }
+
+    private ScheduleTaskParamShade buildParam(EParamType type, String name, String command) {
+        ScheduleTaskParamShade param = new ScheduleTaskParamShade();
+        param.setType(type.getType());
+        param.setParamName(name);
+        param.setParamCommand(command);
+        param.setTaskId(1L);
+        return param;
+    }
+}
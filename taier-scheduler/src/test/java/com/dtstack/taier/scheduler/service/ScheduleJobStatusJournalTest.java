@@ -0,0 +1,123 @@
+package com.dtstack.taier.scheduler.service;
+
+import com.dtstack.taier.common.env.EnvironmentContext;
+import com.dtstack.taier.dao.mapper.ScheduleJobMapper;
+import com.dtstack.taier.pluginapi.enums.TaskStatus;
+import com.google.common.util.concurrent.Striped;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+import static org.mockito.Mockito.anyList;
+import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ScheduleJobStatusJournalTest {
+
+    private static final Integer RUNNING = TaskStatus.RUNNING.getStatus();
+
+    private ScheduleJobStatusJournal journal;
+
+    private ScheduleJobMapper scheduleJobMapper;
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        EnvironmentContext environmentContext = Mockito.mock(EnvironmentContext.class);
+        when(environmentContext.isOpenJobStatusJournal()).thenReturn(true);
+        when(environmentContext.getJobStatusJournalMaxPending()).thenReturn(10000);
+        scheduleJobMapper = Mockito.mock(ScheduleJobMapper.class);
+        when(scheduleJobMapper.updateJournalStatusByJobIds(anyList(), Mockito.anyInt(), anyList())).thenReturn(1);
+
+        journal = new ScheduleJobStatusJournal();
+        ReflectionTestUtils.setField(journal, "environmentContext", environmentContext);
+        ReflectionTestUtils.setField(journal, "scheduleJobMapper", scheduleJobMapper);
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void testFlushNotWaitLockedJob() throws Exception {
+        journal.updateStatus("a", RUNNING);
+        journal.updateStatus("b", RUNNING);
+
+        // 其他线程持有实例 a 的锁(如正在直接写入)，刷新不等待，a 留给下一次刷新
+        Striped<Lock> jobLocks = (Striped<Lock>) ReflectionTestUtils.getField(journal, "jobLocks");
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<?> holder = executor.submit(() -> {
+            Lock lock = jobLocks.get("a");
+            lock.lock();
+            try {
+                locked.countDown();
+                release.await();
+            } finally {
+                lock.unlock();
+            }
+            return null;
+        });
+        Assert.assertTrue(locked.await(5, TimeUnit.SECONDS));
+
+        journal.flush();
+        verify(scheduleJobMapper).updateJournalStatusByJobIds(eq(Collections.singletonList("b")), eq(RUNNING), anyList());
+        Assert.assertEquals(RUNNING, journal.getPendingStatus("a"));
+
+        release.countDown();
+        holder.get(5, TimeUnit.SECONDS);
+        journal.flush();
+        verify(scheduleJobMapper).updateJournalStatusByJobIds(eq(Collections.singletonList("a")), eq(RUNNING), anyList());
+        Assert.assertNull(journal.getPendingStatus("a"));
+    }
+
+    @Test
+    public void testWriteDirectDropPending() {
+        journal.updateStatus("a", RUNNING);
+        Integer update = journal.writeDirect(Collections.singletonList("a"), () -> 1);
+        Assert.assertEquals(Integer.valueOf(1), update);
+        Assert.assertNull(journal.getPendingStatus("a"));
+
+        journal.flush();
+        verify(scheduleJobMapper, never()).updateJournalStatusByJobIds(anyList(), Mockito.anyInt(), anyList());
+    }
+
+    @Test
+    public void testFlushSkipJobInTransaction() {
+        TransactionSynchronizationManager.initSynchronization();
+        // 事务中直接写入后，事务结束前实例的行锁未释放，刷新跳过该实例
+        journal.writeDirect(Collections.singletonList("a"), () -> 1);
+        journal.updateStatus("a", RUNNING);
+        journal.flush();
+        verify(scheduleJobMapper, never()).updateJournalStatusByJobIds(anyList(), Mockito.anyInt(), anyList());
+
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        }
+        TransactionSynchronizationManager.clearSynchronization();
+
+        journal.flush();
+        verify(scheduleJobMapper).updateJournalStatusByJobIds(eq(Collections.singletonList("a")), eq(RUNNING), anyList());
+    }
+}
@@ -132,6 +132,11 @@ public class JobClient implements Serializable {
 
     private String pluginInfo;
 
+    /**
+     * pluginInfo 的 md5 引用，随 jobInfo 持久化，完整配置不落到 engine_job_cache
+     */
+    private String pluginInfoMd5;
+
     private Long userId;
 
     private Integer taskType;
@@ -161,6 +166,14 @@ public class JobClient implements Serializable {
         this.pluginInfo = pluginInfo;
     }
 
+    public String getPluginInfoMd5() {
+        return pluginInfoMd5;
+    }
+
+    public void setPluginInfoMd5(String pluginInfoMd5) {
+        this.pluginInfoMd5 = pluginInfoMd5;
+    }
+
     public Long getUserId() {
         return userId;
     }
@@ -191,6 +204,7 @@ public class JobClient implements Serializable {
         this.retryIntervalTime = paramAction.getRetryIntervalTime();
         this.componentVersion = paramAction.getComponentVersion();
         this.taskType = paramAction.getTaskType();
+        this.pluginInfoMd5 = paramAction.getPluginInfoMd5();
 
         this.maxRetryNum = paramAction.getMaxRetryNum() == null ? 0 : paramAction.getMaxRetryNum();
         if (taskParams != null) {
@@ -239,6 +253,7 @@ public class JobClient implements Serializable {
         action.setSubmitExpiredTime(submitExpiredTime);
         action.setComponentVersion(componentVersion);
         action.setTaskType(taskType);
+        action.setPluginInfoMd5(pluginInfoMd5);
         return action;
     }
 
@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dtstack.taier.pluginapi.client;
+
+import com.dtstack.taier.pluginapi.exception.PluginDefineException;
+import com.dtstack.taier.pluginapi.pojo.QueryOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * 按行读取查询结果，负责行数、字节数上限和取消，子类只需要实现单行读取
+ */
+public abstract class AbstractQueryCursor implements QueryCursor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AbstractQueryCursor.class);
+
+    protected final QueryOptions options;
+
+    private List<Object> nextRow;
+
+    private boolean end = false;
+
+    private boolean truncated = false;
+
+    private volatile boolean cancelled = false;
+
+    private long readRows = 0L;
+
+    private long readBytes = 0L;
+
+    public AbstractQueryCursor(QueryOptions options) {
+        this.options = options == null ? new QueryOptions() : options;
+    }
+
+    /**
+     * @return 下一行数据，没有数据时返回 null
+     */
+    protected abstract List<Object> fetchRow() throws Exception;
+
+    /**
+     * 取消数据库端正在执行的查询
+     */
+    protected void doCancel() throws Exception {
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (nextRow != null) {
+            return true;
+        }
+        if (end) {
+            return false;
+        }
+        if (cancelled) {
+            finish();
+            return false;
+        }
+
+        List<Object> row;
+        try {
+            row = fetchRow();
+        } catch (Exception e) {
+            if (cancelled) {
+                finish();
+                return false;
+            }
+            close();
+            throw new PluginDefineException(e);
+        }
+        if (row == null) {
+            finish();
+            return false;
+        }
+
+        long rowBytes = estimateBytes(row);
+        if ((options.getMaxRows() > 0 && readRows >= options.getMaxRows())
+                || (options.getMaxBytes() > 0 && readBytes + rowBytes > options.getMaxBytes())) {
+            truncated = true;
+            LOGGER.warn("query result truncated, readRows:{}, readBytes:{}, {}", readRows, readBytes, options);
+            finish();
+            return false;
+        }
+        readRows++;
+        readBytes += rowBytes;
+        nextRow = row;
+        return true;
+    }
+
+    @Override
+    public List<Object> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        List<Object> row = nextRow;
+        nextRow = null;
+        return row;
+    }
+
+    @Override
+    public void cancel() {
+        cancelled = true;
+        try {
+            doCancel();
+        } catch (Exception e) {
+            LOGGER.warn("cancel query error: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 读完后立即释放连接，不等调用方 close
+     */
+    private void finish() {
+        end = true;
+        close();
+    }
+
+    @Override
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    @Override
+    public long getReadRows() {
+        return readRows;
+    }
+
+    @Override
+    public long getReadBytes() {
+        return readBytes;
+    }
+
+    /**
+     * 估算一行数据占用的字节数，字符串按 UTF-16 计算
+     */
+    public static long estimateBytes(List<?> row) {
+        long bytes = 0L;
+        for (Object value : row) {
+            if (value == null) {
+                continue;
+            }
+            if (value instanceof byte[]) {
+                bytes += ((byte[]) value).length;
+            } else if (value instanceof Number || value instanceof Boolean) {
+                bytes += 8;
+            } else {
+                bytes += 2L * value.toString().length();
+            }
+        }
+        return bytes;
+    }
+}
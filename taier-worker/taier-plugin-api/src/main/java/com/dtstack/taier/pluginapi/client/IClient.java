@@ -24,7 +24,9 @@ import com.dtstack.taier.pluginapi.enums.TaskStatus;
 import com.dtstack.taier.pluginapi.pojo.*;
 
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 /**
@@ -42,6 +44,20 @@ public interface IClient {
 
     TaskStatus getJobStatus(JobIdentifier jobIdentifier) throws IOException;
 
+    /**
+     * 批量获取任务状态，插件可以覆盖此方法用一次请求查询所有任务
+     *
+     * @param jobIdentifiers 同一集群配置下的任务
+     * @return jobId -> 任务状态
+     */
+    default Map<String, TaskStatus> getJobStatusBatch(List<JobIdentifier> jobIdentifiers) throws IOException {
+        Map<String, TaskStatus> statusMap = new HashMap<>(jobIdentifiers.size());
+        for (JobIdentifier jobIdentifier : jobIdentifiers) {
+            statusMap.put(jobIdentifier.getJobId(), getJobStatus(jobIdentifier));
+        }
+        return statusMap;
+    }
+
 	String getJobMaster(JobIdentifier jobIdentifier);
 
 	String getMessageByHttp(String path);
@@ -56,6 +72,19 @@ public interface IClient {
 
     List<List<Object>> executeQuery(String sql,String database);
 
+    /**
+     * 流式查询，结果按 fetchSize 分批从数据库拉取，超过行数或字节数上限后截断。
+     * 默认实现仍然一次性读取全部结果，只限制返回的数据量，插件需要覆盖此方法才能真正流式读取
+     *
+     * @param sql      查询sql
+     * @param database 库名
+     * @param options  读取限制
+     * @return 查询游标，使用完必须 close
+     */
+    default QueryCursor executeQueryCursor(String sql, String database, QueryOptions options) {
+        return new ListQueryCursor(executeQuery(sql, database), options);
+    }
+
 	String uploadStringToHdfs(String bytes, String hdfsPath);
 
 	ClusterResource getClusterResource();
@@ -65,4 +94,10 @@ public interface IClient {
 	CheckResult grammarCheck(JobClient jobClient);
 
 	List<FileResult> listFile(String path,boolean isPathPattern);
+
+    /**
+     * 客户端被缓存淘汰时调用，释放持有的 yarn/hdfs 连接等资源
+     */
+    default void close() {
+    }
 }
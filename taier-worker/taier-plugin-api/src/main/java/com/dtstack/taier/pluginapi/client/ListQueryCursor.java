@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dtstack.taier.pluginapi.client;
+
+import com.dtstack.taier.pluginapi.pojo.QueryOptions;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 基于已经读取到内存的结果的游标，用于没有实现流式查询的插件，只保证返回结果受上限约束
+ */
+public class ListQueryCursor extends AbstractQueryCursor {
+
+    private final List<Object> columns;
+
+    private final List<List<Object>> result;
+
+    private int index = 1;
+
+    /**
+     * @param result 第一行为字段名，与 {@link IClient#executeQuery} 的返回一致
+     */
+    public ListQueryCursor(List<List<Object>> result, QueryOptions options) {
+        super(options);
+        this.result = result == null ? Collections.emptyList() : result;
+        this.columns = this.result.isEmpty() ? Collections.emptyList() : this.result.get(0);
+    }
+
+    @Override
+    protected List<Object> fetchRow() {
+        return index < result.size() ? result.get(index++) : null;
+    }
+
+    @Override
+    public List<Object> getColumns() {
+        return columns;
+    }
+
+    @Override
+    public void close() {
+    }
+}
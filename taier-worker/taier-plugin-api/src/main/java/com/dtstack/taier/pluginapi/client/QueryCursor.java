@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dtstack.taier.pluginapi.client;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * 流式查询结果，按行读取，读完或不再使用时必须 close 释放连接
+ */
+public interface QueryCursor extends Iterator<List<Object>>, Closeable {
+
+    /**
+     * @return 字段名
+     */
+    List<Object> getColumns();
+
+    /**
+     * @return 是否因为达到行数或字节数上限而没有读完
+     */
+    boolean isTruncated();
+
+    /**
+     * @return 已读取的行数
+     */
+    long getReadRows();
+
+    /**
+     * @return 已读取的字节数(估算值)
+     */
+    long getReadBytes();
+
+    /**
+     * 取消正在执行的查询，可以在其他线程调用
+     */
+    void cancel();
+
+    @Override
+    void close();
+
+    /**
+     * 读取剩余的全部数据并关闭游标
+     *
+     * @return 第一行为字段名，与 {@link IClient#executeQuery} 的返回一致；没有结果集(如 DDL)时返回空列表
+     */
+    default List<List<Object>> readAll() {
+        List<List<Object>> result = new ArrayList<>();
+        try {
+            List<Object> columns = getColumns();
+            if (columns == null || columns.isEmpty()) {
+                return result;
+            }
+            result.add(columns);
+            while (hasNext()) {
+                result.add(next());
+            }
+        } finally {
+            close();
+        }
+        return result;
+    }
+}
@@ -90,6 +90,11 @@ public class ParamAction {
 
 	private Map<String, Object> pluginInfo;
 
+	/**
+	 * 集群配置的 md5 引用，完整配置保存在 console_plugin_info
+	 */
+	private String pluginInfoMd5;
+
 	private Integer type;
 
 	public Integer getType() {
@@ -108,6 +113,14 @@ public class ParamAction {
 		this.pluginInfo = pluginInfo;
 	}
 
+	public String getPluginInfoMd5() {
+		return pluginInfoMd5;
+	}
+
+	public void setPluginInfoMd5(String pluginInfoMd5) {
+		this.pluginInfoMd5 = pluginInfoMd5;
+	}
+
 	public String getJobId() {
 		return jobId;
 	}
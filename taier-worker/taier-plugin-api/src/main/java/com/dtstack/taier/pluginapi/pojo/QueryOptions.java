@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dtstack.taier.pluginapi.pojo;
+
+import java.io.Serializable;
+
+/**
+ * 查询结果读取限制，超过行数或字节数上限后不再读取，结果标记为截断
+ */
+public class QueryOptions implements Serializable {
+
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+
+    public static final int DEFAULT_MAX_ROWS = 100000;
+
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    /**
+     * 每次从数据库拉取的行数
+     */
+    private int fetchSize = DEFAULT_FETCH_SIZE;
+
+    /**
+     * 最多读取的行数，不包含字段行，小于等于0表示不限制
+     */
+    private int maxRows = DEFAULT_MAX_ROWS;
+
+    /**
+     * 最多读取的字节数(估算值)，小于等于0表示不限制
+     */
+    private long maxBytes = DEFAULT_MAX_BYTES;
+
+    public QueryOptions() {
+    }
+
+    public QueryOptions(int fetchSize, int maxRows, long maxBytes) {
+        this.fetchSize = fetchSize;
+        this.maxRows = maxRows;
+        this.maxBytes = maxBytes;
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    public int getMaxRows() {
+        return maxRows;
+    }
+
+    public void setMaxRows(int maxRows) {
+        this.maxRows = maxRows;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "QueryOptions{" +
+                "fetchSize=" + fetchSize +
+                ", maxRows=" + maxRows +
+                ", maxBytes=" + maxBytes +
+                '}';
+    }
+}
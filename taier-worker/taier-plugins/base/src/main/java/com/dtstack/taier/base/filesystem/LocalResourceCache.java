@@ -0,0 +1,348 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dtstack.taier.base.filesystem;
+
+import com.dtstack.taier.pluginapi.util.MD5Util;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.Striped;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 节点级的远程资源缓存，按文件内容的 md5 存放:
+ * <pre>
+ *     cacheDir/md5/fileName
+ * </pre>
+ * 相同内容的 jar/资源文件只下载、保存一份，通过硬链接放到任务的工作目录中，
+ * 总大小超过上限时按最近访问时间淘汰。
+ * <p>
+ * hdfs 上的文件以 路径+长度+修改时间 作为版本，版本不变时不会重新下载；
+ * 其他文件(sftp 等)在 validity 时间内复用上一次下载的内容。
+ */
+public class LocalResourceCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LocalResourceCache.class);
+
+    private static final String TMP_DIR_NAME = ".tmp";
+
+    private static final String HDFS_SCHEME = "hdfs";
+
+    private final FilesystemManager filesystemManager;
+
+    private final Configuration hadoopConf;
+
+    private final File cacheDir;
+
+    private final File tmpDir;
+
+    private final long maxSize;
+
+    private final long validity;
+
+    /**
+     * 远程文件版本 -> 内容摘要
+     */
+    private final Cache<String, Digest> digestIndex = CacheBuilder.newBuilder()
+            .maximumSize(10000)
+            .build();
+
+    /**
+     * 工作目录中的链接 -> 缓存文件，链接释放前对应的缓存不会被淘汰
+     */
+    private final Map<String, File> links = new ConcurrentHashMap<>();
+
+    private final Striped<Lock> downloadLocks = Striped.lock(64);
+
+    /**
+     * 链接缓存文件时持有读锁，淘汰时持有写锁
+     */
+    private final ReadWriteLock cacheLock = new ReentrantReadWriteLock();
+
+    public LocalResourceCache(FilesystemManager filesystemManager, Configuration hadoopConf,
+                              String cacheDir, long maxSize, long validity) {
+        this.filesystemManager = filesystemManager;
+        this.hadoopConf = hadoopConf;
+        this.cacheDir = new File(cacheDir);
+        this.tmpDir = new File(cacheDir, TMP_DIR_NAME);
+        this.maxSize = maxSize;
+        this.validity = validity;
+        // 清理上次进程退出时未完成的下载
+        FileUtils.deleteQuietly(tmpDir);
+        if (!tmpDir.exists() && !tmpDir.mkdirs()) {
+            LOG.warn("create resource cache dir {} failed", tmpDir);
+        }
+    }
+
+    public File getCacheDir() {
+        return cacheDir;
+    }
+
+    /**
+     * 获取远程文件，命中缓存时直接链接到 target，否则下载后放入缓存
+     *
+     * @param remotePath 远程文件路径
+     * @param target     工作目录中的目标文件
+     * @return target
+     */
+    public File fetch(String remotePath, File target) throws IOException {
+        String fileName = target.getName();
+        String version = getVersion(remotePath);
+        Lock lock = downloadLocks.get(version);
+        lock.lock();
+        try {
+            cacheLock.readLock().lock();
+            try {
+                File cacheFile = getCacheFile(version, fileName);
+                if (cacheFile != null) {
+                    LOG.info("resource cache hit remotePath:{} cacheFile:{}", remotePath, cacheFile);
+                    link(cacheFile, target);
+                    links.put(target.getAbsolutePath(), cacheFile);
+                    return target;
+                }
+            } finally {
+                cacheLock.readLock().unlock();
+            }
+
+            File downloadDir = new File(tmpDir, UUID.randomUUID().toString());
+            try {
+                File downloadFile = new File(downloadDir, fileName);
+                filesystemManager.downloadFile(remotePath, downloadFile.getAbsolutePath(), true);
+                String md5 = MD5Util.getFileMd5String(downloadFile);
+                if (StringUtils.isEmpty(md5)) {
+                    throw new IOException("compute md5 of " + downloadFile + " failed");
+                }
+
+                cacheLock.readLock().lock();
+                try {
+                    File cacheFile = store(downloadFile, md5);
+                    digestIndex.put(version, new Digest(md5, !version.equals(remotePath)));
+                    LOG.info("resource cache download remotePath:{} cacheFile:{}", remotePath, cacheFile);
+                    link(cacheFile, target);
+                    links.put(target.getAbsolutePath(), cacheFile);
+                } finally {
+                    cacheLock.readLock().unlock();
+                }
+            } finally {
+                FileUtils.deleteQuietly(downloadDir);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        evictIfNecessary();
+        return target;
+    }
+
+    /**
+     * 工作目录中的文件如果来自缓存，返回缓存中的文件，否则返回原文件
+     */
+    public File resolve(File file) {
+        File cacheFile = links.get(file.getAbsolutePath());
+        if (cacheFile != null && cacheFile.exists()) {
+            return cacheFile;
+        }
+        return file;
+    }
+
+    /**
+     * 任务提交结束，释放工作目录下的链接
+     */
+    public void release(String workspace) {
+        String prefix = new File(workspace).getAbsolutePath() + File.separator;
+        links.keySet().removeIf(path -> path.startsWith(prefix));
+    }
+
+    private File getCacheFile(String version, String fileName) {
+        Digest digest = digestIndex.getIfPresent(version);
+        if (digest == null || !digest.isValid(validity)) {
+            return null;
+        }
+
+        File digestDir = new File(cacheDir, digest.md5);
+        File cacheFile = new File(digestDir, fileName);
+        if (!cacheFile.exists()) {
+            // 相同内容的文件以另一个文件名缓存过
+            File[] files = digestDir.listFiles();
+            if (files == null || files.length == 0) {
+                return null;
+            }
+            try {
+                link(files[0], cacheFile);
+            } catch (IOException e) {
+                LOG.warn("link {} to {} failed", files[0], cacheFile, e);
+                return null;
+            }
+        }
+        touch(digestDir);
+        return cacheFile;
+    }
+
+    private File store(File downloadFile, String md5) throws IOException {
+        File digestDir = new File(cacheDir, md5);
+        File cacheFile = new File(digestDir, downloadFile.getName());
+        if (!digestDir.exists() && !digestDir.mkdirs() && !digestDir.exists()) {
+            throw new IOException("create resource cache dir " + digestDir + " failed");
+        }
+        if (!cacheFile.exists()) {
+            Files.move(downloadFile.toPath(), cacheFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        }
+        touch(digestDir);
+        return cacheFile;
+    }
+
+    /**
+     * hdfs 文件的版本为 路径@长度@修改时间，获取不到时为路径本身
+     */
+    private String getVersion(String remotePath) {
+        if (hadoopConf == null) {
+            return remotePath;
+        }
+        try {
+            Path path = new Path(remotePath);
+            String scheme = path.toUri().getScheme();
+            if (scheme != null && !HDFS_SCHEME.equalsIgnoreCase(scheme)) {
+                return remotePath;
+            }
+            FileSystem fs = FileSystem.get(path.toUri(), hadoopConf);
+            if (!HDFS_SCHEME.equalsIgnoreCase(fs.getScheme())) {
+                return remotePath;
+            }
+            FileStatus status = fs.getFileStatus(path);
+            return remotePath + "@" + status.getLen() + "@" + status.getModificationTime();
+        } catch (Exception e) {
+            LOG.debug("get version of {} failed", remotePath, e);
+            return remotePath;
+        }
+    }
+
+    /**
+     * 优先使用硬链接，缓存被淘汰后工作目录中的文件仍然可用；跨文件系统等不支持时复制
+     */
+    private void link(File source, File target) throws IOException {
+        File parent = target.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs() && !parent.exists()) {
+            throw new IOException("create dir " + parent + " failed");
+        }
+        Files.deleteIfExists(target.toPath());
+        try {
+            Files.createLink(target.toPath(), source.toPath());
+        } catch (IOException | UnsupportedOperationException e) {
+            LOG.debug("create link {} failed, copy instead", target, e);
+            Files.copy(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void touch(File digestDir) {
+        if (!digestDir.setLastModified(System.currentTimeMillis())) {
+            LOG.debug("touch {} failed", digestDir);
+        }
+    }
+
+    private void evictIfNecessary() {
+        cacheLock.writeLock().lock();
+        try {
+            File[] digestDirs = cacheDir.listFiles(file -> file.isDirectory() && !TMP_DIR_NAME.equals(file.getName()));
+            if (digestDirs == null) {
+                return;
+            }
+
+            long totalSize = 0L;
+            List<File> candidates = new ArrayList<>(digestDirs.length);
+            for (File digestDir : digestDirs) {
+                totalSize += sizeOf(digestDir);
+                candidates.add(digestDir);
+            }
+            if (totalSize <= maxSize) {
+                return;
+            }
+
+            Set<File> inUse = new HashSet<>();
+            for (File cacheFile : links.values()) {
+                inUse.add(cacheFile.getParentFile());
+            }
+            candidates.sort(Comparator.comparingLong(File::lastModified));
+            for (File digestDir : candidates) {
+                if (totalSize <= maxSize) {
+                    break;
+                }
+                if (inUse.contains(digestDir)) {
+                    continue;
+                }
+                long size = sizeOf(digestDir);
+                FileUtils.deleteQuietly(digestDir);
+                totalSize -= size;
+                LOG.info("resource cache evict {} size:{}", digestDir.getName(), size);
+            }
+        } finally {
+            cacheLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 同一个目录下的文件内容相同，只计算一次
+     */
+    private static long sizeOf(File digestDir) {
+        File[] files = digestDir.listFiles();
+        return files == null || files.length == 0 ? 0L : files[0].length();
+    }
+
+    private static class Digest {
+
+        private final String md5;
+
+        /**
+         * 是否带有远程文件版本，带版本时不会过期
+         */
+        private final boolean versioned;
+
+        private final long createTime = System.currentTimeMillis();
+
+        Digest(String md5, boolean versioned) {
+            this.md5 = md5;
+            this.versioned = versioned;
+        }
+
+        boolean isValid(long validity) {
+            return versioned || System.currentTimeMillis() - createTime < validity;
+        }
+    }
+}
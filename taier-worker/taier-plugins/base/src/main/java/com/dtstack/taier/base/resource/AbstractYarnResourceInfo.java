@@ -186,12 +186,7 @@ public abstract class AbstractYarnResourceInfo implements EngineResourceInfo {
                 int freeCores = totalCores - usedCores;
                 int freeMem = totalMem - usedMem;
 
-                if (freeCores > containerCoreMax) {
-                    containerCoreMax = freeCores;
-                }
-                if (freeMem > containerMemoryMax) {
-                    containerMemoryMax = freeMem;
-                }
+                updateContainerMax(freeCores, freeMem);
                 this.addNodeResource(new NodeResourceDetail(report.getNodeId().toString(), totalCores, usedCores, freeCores, totalMem, usedMem, freeMem));
             }
 
@@ -202,6 +197,54 @@ public abstract class AbstractYarnResourceInfo implements EngineResourceInfo {
         }
     }
 
+    /**
+     * 基于集群共享的资源快照判断，不再单独请求 ResourceManager；判断通过后在快照上预占本任务的资源
+     */
+    public JudgeResult judgeYarnResource(YarnResourceSnapshot snapshot, String queueName, int yarnAccepterTaskNumber, List<InstanceInfo> instanceInfos) {
+        snapshot.ensureFresh();
+        synchronized (snapshot) {
+            if (!snapshot.isReady()) {
+                return JudgeResult.notOk("yarn resource snapshot is not ready");
+            }
+            int acceptedCount = snapshot.getAcceptedCount(queueName);
+            if (acceptedCount > yarnAccepterTaskNumber) {
+                logger.info("queueName:{} acceptedApps:{} >= yarnAccepterTaskNumber:{}", queueName, acceptedCount, yarnAccepterTaskNumber);
+                return JudgeResult.notOk("queueName:" + queueName + " acceptedApps:" + acceptedCount + " >= yarnAccepterTaskNumber:" + yarnAccepterTaskNumber);
+            }
+            if (!elasticCapacity) {
+                getQueueRemainCapacity(1, queueName, snapshot.getRootQueueInfos());
+            }
+            for (NodeResourceDetail nodeResource : snapshot.getNodeResources()) {
+                updateContainerMax(nodeResource.coresFree, nodeResource.memoryFree);
+                this.addNodeResource(nodeResource);
+            }
+            calc();
+
+            int[] freeCoreBefore = nmFreeCore.clone();
+            int[] freeMemBefore = nmFreeMem.clone();
+            JudgeResult judgeResult = judgeYarnResource(instanceInfos);
+            if (judgeResult.available()) {
+                int[] reserveCores = new int[nmFreeCore.length];
+                int[] reserveMem = new int[nmFreeMem.length];
+                for (int i = 0; i < nmFreeCore.length; i++) {
+                    reserveCores[i] = freeCoreBefore[i] - nmFreeCore[i];
+                    reserveMem[i] = freeMemBefore[i] - nmFreeMem[i];
+                }
+                snapshot.reserve(queueName, reserveCores, reserveMem);
+            }
+            return judgeResult;
+        }
+    }
+
+    private void updateContainerMax(int freeCores, int freeMem) {
+        if (freeCores > containerCoreMax) {
+            containerCoreMax = freeCores;
+        }
+        if (freeMem > containerMemoryMax) {
+            containerMemoryMax = freeMem;
+        }
+    }
+
     private float getQueueRemainCapacity(float coefficient, String queueName, List<QueueInfo> queueInfos) {
         float capacity = 0;
         for (QueueInfo queueInfo : queueInfos) {
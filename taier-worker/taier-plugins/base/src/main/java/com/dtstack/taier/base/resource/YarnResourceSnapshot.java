@@ -0,0 +1,401 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dtstack.taier.base.resource;
+
+import com.dtstack.taier.base.BaseConfig;
+import com.dtstack.taier.base.util.KerberosUtils;
+import com.dtstack.taier.pluginapi.CustomThreadFactory;
+import com.dtstack.taier.pluginapi.exception.PluginDefineException;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.yarn.api.records.ApplicationReport;
+import org.apache.hadoop.yarn.api.records.NodeReport;
+import org.apache.hadoop.yarn.api.records.NodeState;
+import org.apache.hadoop.yarn.api.records.QueueInfo;
+import org.apache.hadoop.yarn.api.records.Resource;
+import org.apache.hadoop.yarn.api.records.YarnApplicationState;
+import org.apache.hadoop.yarn.client.api.YarnClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 同一个 yarn 集群共享的资源快照，定时异步刷新，所有待提交任务的 judgeSlots 都基于快照判断，
+ * 不再每个任务单独请求 ResourceManager。
+ * 两次刷新之间通过判断的任务会在快照上预占资源，避免突发提交把队列资源超分；
+ * 预占一直保留到 ResourceManager 中出现对应队列的新任务，或者超时。
+ * <p>
+ * 同一个插件的所有快照共用一个刷新线程，长时间没有任务判断资源时停止刷新，没有快照需要刷新时线程退出。
+ */
+public class YarnResourceSnapshot {
+
+    private static final Logger LOG = LoggerFactory.getLogger(YarnResourceSnapshot.class);
+
+    /**
+     * 超过多少个刷新周期没有刷新成功，认为快照过期，需要同步刷新
+     */
+    private static final int EXPIRE_INTERVALS = 3;
+
+    /**
+     * 超过多少个刷新周期没有任务判断资源，停止定时刷新，下次判断时同步刷新并恢复
+     */
+    private static final int IDLE_INTERVALS = 60;
+
+    /**
+     * 预占资源最少保留的时间，任务提交到 yarn 后需要一段时间才能在 ResourceManager 中看到
+     */
+    private static final long MIN_RESERVE_TIMEOUT = 120000L;
+
+    private static final ScheduledThreadPoolExecutor REFRESH_SERVICE = createRefreshService();
+
+    private final String name;
+
+    private final BaseConfig config;
+
+    private final Configuration yarnConf;
+
+    private final Supplier<YarnClient> yarnClientSupplier;
+
+    private final long refreshInterval;
+
+    private final long reserveTimeout;
+
+    private final Object refreshLock = new Object();
+
+    private final Object scheduleLock = new Object();
+
+    private volatile ScheduledFuture<?> refreshFuture;
+
+    private volatile boolean closed = false;
+
+    private volatile long lastRefreshTime = 0L;
+
+    private volatile long lastAccessTime = System.currentTimeMillis();
+
+    private List<String> acceptedQueues;
+
+    private List<String> nodeIds;
+
+    private int[] coresTotal;
+
+    private int[] coresUsed;
+
+    private int[] memoryTotal;
+
+    private int[] memoryUsed;
+
+    private List<QueueInfo> rootQueueInfos;
+
+    /**
+     * 上次刷新时 ResourceManager 中 ACCEPTED 和 RUNNING 的任务，用于识别新出现的任务
+     */
+    private Set<String> knownAppIds;
+
+    private Set<String> runningAppIds;
+
+    /**
+     * 按判断通过的先后顺序保存的预占
+     */
+    private final LinkedList<Reservation> reservations = new LinkedList<>();
+
+    public YarnResourceSnapshot(String name, BaseConfig config, Configuration yarnConf, Supplier<YarnClient> yarnClientSupplier, long refreshInterval) {
+        this.name = name;
+        this.config = config;
+        this.yarnConf = yarnConf;
+        this.yarnClientSupplier = yarnClientSupplier;
+        this.refreshInterval = refreshInterval;
+        this.reserveTimeout = Math.max(MIN_RESERVE_TIMEOUT, refreshInterval * EXPIRE_INTERVALS);
+    }
+
+    private static ScheduledThreadPoolExecutor createRefreshService() {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new CustomThreadFactory("YarnResourceSnapshot"));
+        executor.setKeepAliveTime(60, TimeUnit.SECONDS);
+        executor.allowCoreThreadTimeOut(true);
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
+    /**
+     * 从 ResourceManager 重新加载资源，并释放已经在 ResourceManager 中出现或者超时的预占
+     */
+    public void refresh() {
+        synchronized (refreshLock) {
+            try {
+                KerberosUtils.login(config, () -> {
+                    try {
+                        YarnClient yarnClient = yarnClientSupplier.get();
+                        List<ApplicationReport> apps = yarnClient.getApplications(EnumSet.of(YarnApplicationState.ACCEPTED, YarnApplicationState.RUNNING));
+                        List<NodeReport> nodeReports = yarnClient.getNodeReports(NodeState.RUNNING);
+                        List<QueueInfo> queueInfos = yarnClient.getRootQueueInfos();
+                        update(apps, nodeReports, queueInfos);
+                        return null;
+                    } catch (Exception e) {
+                        throw new PluginDefineException(e);
+                    }
+                }, yarnConf);
+            } catch (Exception e) {
+                LOG.error("refresh {} yarn resource snapshot error", name, e);
+            }
+        }
+    }
+
+    private synchronized void update(List<ApplicationReport> apps, List<NodeReport> nodeReports, List<QueueInfo> queueInfos) {
+        List<String> queues = new ArrayList<>();
+        Set<String> appIds = new HashSet<>(apps.size());
+        Set<String> running = new HashSet<>();
+        // 新进入 ACCEPTED 的任务占用了队列的 ACCEPTED 名额，新进入 RUNNING 的任务已经分配了 container
+        List<String> acceptedQueuesSinceLast = new ArrayList<>();
+        List<String> runningQueuesSinceLast = new ArrayList<>();
+        for (ApplicationReport report : apps) {
+            String appId = report.getApplicationId().toString();
+            boolean isRunning = YarnApplicationState.RUNNING == report.getYarnApplicationState();
+            appIds.add(appId);
+            if (isRunning) {
+                running.add(appId);
+            } else {
+                queues.add(report.getQueue());
+            }
+            if (knownAppIds == null) {
+                continue;
+            }
+            if (isRunning && !runningAppIds.contains(appId)) {
+                runningQueuesSinceLast.add(report.getQueue());
+            } else if (!isRunning && !knownAppIds.contains(appId)) {
+                acceptedQueuesSinceLast.add(report.getQueue());
+            }
+        }
+        int size = nodeReports.size();
+        List<String> ids = new ArrayList<>(size);
+        coresTotal = new int[size];
+        coresUsed = new int[size];
+        memoryTotal = new int[size];
+        memoryUsed = new int[size];
+        for (int i = 0; i < size; i++) {
+            NodeReport report = nodeReports.get(i);
+            Resource capability = report.getCapability();
+            Resource used = report.getUsed();
+            ids.add(report.getNodeId().toString());
+            coresTotal[i] = capability.getVirtualCores();
+            coresUsed[i] = used.getVirtualCores();
+            memoryTotal[i] = capability.getMemory();
+            memoryUsed[i] = used.getMemory();
+        }
+        acceptedQueues = queues;
+        nodeIds = ids;
+        rootQueueInfos = queueInfos;
+        releaseReservations(acceptedQueuesSinceLast, runningQueuesSinceLast);
+        knownAppIds = appIds;
+        runningAppIds = running;
+        lastRefreshTime = System.currentTimeMillis();
+    }
+
+    /**
+     * 预占按队列先进先出释放：
+     * 队列中新出现 ACCEPTED 任务时，最早的预占不再计入 ACCEPTED 数；新出现 RUNNING 任务时，最早的预占整体释放。
+     * 无法区分任务是否由本插件提交，其他来源的任务也会释放预占，超时兜底保证预占不会一直保留
+     */
+    private void releaseReservations(List<String> acceptedQueuesSinceLast, List<String> runningQueuesSinceLast) {
+        long now = System.currentTimeMillis();
+        reservations.removeIf(reservation -> now - reservation.createTime > reserveTimeout);
+        for (String queue : runningQueuesSinceLast) {
+            Reservation reservation = findReservation(queue, true);
+            if (reservation == null) {
+                reservation = findReservation(queue, false);
+            }
+            if (reservation != null) {
+                reservations.remove(reservation);
+            }
+        }
+        for (String queue : acceptedQueuesSinceLast) {
+            Reservation reservation = findReservation(queue, false);
+            if (reservation != null) {
+                reservation.accepted = true;
+            }
+        }
+    }
+
+    private Reservation findReservation(String queue, boolean accepted) {
+        for (Reservation reservation : reservations) {
+            if (reservation.accepted == accepted && queue.endsWith(reservation.queueName)) {
+                return reservation;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 记录访问时间，恢复定时刷新；快照过期(首次使用、停止刷新后或异步刷新持续失败)时同步刷新一次
+     */
+    public void ensureFresh() {
+        lastAccessTime = System.currentTimeMillis();
+        if (refreshFuture == null) {
+            schedule();
+        }
+        if (!isExpired()) {
+            return;
+        }
+        synchronized (refreshLock) {
+            if (isExpired()) {
+                refresh();
+            }
+        }
+    }
+
+    private void schedule() {
+        synchronized (scheduleLock) {
+            if (closed || refreshFuture != null) {
+                return;
+            }
+            refreshFuture = REFRESH_SERVICE.scheduleWithFixedDelay(this::scheduledRefresh, refreshInterval, refreshInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void scheduledRefresh() {
+        try {
+            if (System.currentTimeMillis() - lastAccessTime > refreshInterval * IDLE_INTERVALS) {
+                LOG.info("{} yarn resource snapshot is idle, stop refresh", name);
+                cancel();
+                return;
+            }
+            refresh();
+        } catch (Throwable e) {
+            LOG.error("refresh {} yarn resource snapshot error", name, e);
+        }
+    }
+
+    private void cancel() {
+        synchronized (scheduleLock) {
+            if (refreshFuture != null) {
+                refreshFuture.cancel(false);
+                refreshFuture = null;
+            }
+        }
+    }
+
+    private boolean isExpired() {
+        return System.currentTimeMillis() - lastRefreshTime > refreshInterval * EXPIRE_INTERVALS;
+    }
+
+    public synchronized boolean isReady() {
+        return nodeIds != null;
+    }
+
+    /**
+     * 队列中处于 ACCEPTED 状态的任务数，包含已通过判断但还未出现在 ResourceManager 中的任务
+     */
+    public synchronized int getAcceptedCount(String queueName) {
+        int count = 0;
+        for (Reservation reservation : reservations) {
+            if (!reservation.accepted && reservation.queueName.equals(queueName)) {
+                count++;
+            }
+        }
+        for (String queue : acceptedQueues) {
+            if (queue.endsWith(queueName)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public synchronized List<QueueInfo> getRootQueueInfos() {
+        return rootQueueInfos;
+    }
+
+    /**
+     * 扣除预占资源后的节点资源，顺序与 {@link #reserve} 的数组下标一致
+     */
+    public synchronized List<AbstractYarnResourceInfo.NodeResourceDetail> getNodeResources() {
+        Map<String, int[]> reserved = new HashMap<>();
+        for (Reservation reservation : reservations) {
+            for (Map.Entry<String, int[]> entry : reservation.nodeResources.entrySet()) {
+                int[] nodeReserved = reserved.computeIfAbsent(entry.getKey(), key -> new int[2]);
+                nodeReserved[0] += entry.getValue()[0];
+                nodeReserved[1] += entry.getValue()[1];
+            }
+        }
+        List<AbstractYarnResourceInfo.NodeResourceDetail> nodeResources = new ArrayList<>(nodeIds.size());
+        for (int i = 0; i < nodeIds.size(); i++) {
+            int[] nodeReserved = reserved.get(nodeIds.get(i));
+            int usedCores = coresUsed[i] + (nodeReserved == null ? 0 : nodeReserved[0]);
+            int usedMem = memoryUsed[i] + (nodeReserved == null ? 0 : nodeReserved[1]);
+            nodeResources.add(new AbstractYarnResourceInfo.NodeResourceDetail(nodeIds.get(i),
+                    coresTotal[i], usedCores, coresTotal[i] - usedCores,
+                    memoryTotal[i], usedMem, memoryTotal[i] - usedMem));
+        }
+        return nodeResources;
+    }
+
+    /**
+     * 任务通过判断后预占资源
+     *
+     * @param queueName 队列
+     * @param cores     每个节点预占的 core
+     * @param memory    每个节点预占的内存
+     */
+    public synchronized void reserve(String queueName, int[] cores, int[] memory) {
+        Map<String, int[]> nodeResources = new HashMap<>();
+        for (int i = 0; i < cores.length && i < nodeIds.size(); i++) {
+            if (cores[i] > 0 || memory[i] > 0) {
+                nodeResources.put(nodeIds.get(i), new int[]{cores[i], memory[i]});
+            }
+        }
+        reservations.add(new Reservation(queueName, nodeResources));
+    }
+
+    public void close() {
+        synchronized (scheduleLock) {
+            closed = true;
+        }
+        cancel();
+    }
+
+    private static class Reservation {
+
+        private final String queueName;
+
+        /**
+         * nodeId -> [core, memory]
+         */
+        private final Map<String, int[]> nodeResources;
+
+        private final long createTime = System.currentTimeMillis();
+
+        /**
+         * ResourceManager 中已经出现对应的 ACCEPTED 任务，不再计入 ACCEPTED 数，但资源继续预占
+         */
+        private boolean accepted = false;
+
+        private Reservation(String queueName, Map<String, int[]> nodeResources) {
+            this.queueName = queueName;
+            this.nodeResources = nodeResources;
+        }
+    }
+}
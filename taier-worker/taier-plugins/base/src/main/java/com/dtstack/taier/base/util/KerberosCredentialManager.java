@@ -0,0 +1,290 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dtstack.taier.base.util;
+
+import com.dtstack.taier.base.BaseConfig;
+import com.dtstack.taier.pluginapi.CustomThreadFactory;
+import com.dtstack.taier.pluginapi.util.MD5Util;
+import com.google.common.collect.Maps;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.security.UserGroupInformation;
+import org.apache.hadoop.util.Time;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.security.auth.kerberos.KerberosTicket;
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * kerberos 凭证管理。
+ * 同一个 (principal, keytab, krb5 摘要) 只登录一次，所有线程共享同一个 UGI，
+ * 后台线程在 TGT 生命周期到达 80% 之前重新登录并替换 UGI。
+ * 调用方通过 {@link #get(BaseConfig)} 无锁获取凭证，不做文件检查也不打印日志
+ */
+public class KerberosCredentialManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(KerberosCredentialManager.class);
+
+    private static final float RENEW_WINDOW = 0.80f;
+
+    /**
+     * 后台检查 TGT 的间隔
+     */
+    private static final long RENEW_CHECK_INTERVAL = 60 * 1000L;
+
+    /**
+     * 登录后取不到 TGT 时重试间隔的上限，间隔从检查间隔开始按 2 倍递增
+     */
+    private static final long MISSING_TGT_MAX_BACKOFF = 60 * 60 * 1000L;
+
+    /**
+     * 超过该时间未使用的凭证不再续期
+     */
+    private static final long IDLE_EXPIRE_TIME = 24 * 60 * 60 * 1000L;
+
+    private static final String KEY_SEPARATOR = "|";
+
+    private static final KerberosCredentialManager INSTANCE = new KerberosCredentialManager();
+
+    /**
+     * 配置标识 -> 凭证，配置标识包含 kerberos 文件的上传时间，重新上传后自然失效
+     */
+    private final Map<String, Credential> configCredentials = Maps.newConcurrentMap();
+
+    /**
+     * principal + keytab + krb5 摘要 -> 凭证
+     */
+    private final Map<String, Credential> credentials = Maps.newConcurrentMap();
+
+    private final ScheduledExecutorService renewService;
+
+    private KerberosCredentialManager() {
+        renewService = new ScheduledThreadPoolExecutor(1, new CustomThreadFactory("kerberosRenew"));
+        renewService.scheduleWithFixedDelay(this::renew, RENEW_CHECK_INTERVAL, RENEW_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    public static KerberosCredentialManager getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * 获取已登录且 TGT 未过期的凭证，没有时返回 null，由调用方准备 kerberos 文件后调用 {@link #register}
+     */
+    public Credential get(BaseConfig config) {
+        Credential credential = configCredentials.get(configKey(config));
+        if (credential == null || !credential.isValid()) {
+            return null;
+        }
+        credential.lastAccessTime = Time.now();
+        return credential;
+    }
+
+    /**
+     * 登录并注册凭证，同一个 principal、keytab、krb5 的配置共享一个凭证
+     *
+     * @param config             任务外层配置
+     * @param principal          principal
+     * @param keytabPath         本地 keytab 路径
+     * @param krb5ConfPath       本地 krb5.conf 路径
+     * @param configuration      集群如yarn配置信息
+     * @param forceLogin         kerberos 文件重新下载过，需要重新登录
+     * @return 凭证
+     */
+    Credential register(BaseConfig config, String principal, String keytabPath, String krb5ConfPath,
+                        Configuration configuration, boolean forceLogin) {
+        String krb5Digest = MD5Util.getFileMd5String(new File(krb5ConfPath));
+        String credentialKey = String.join(KEY_SEPARATOR, principal, keytabPath, krb5Digest);
+        Credential credential = credentials.compute(credentialKey, (key, exist) -> {
+            if (exist != null && !forceLogin && exist.isValid()) {
+                return exist;
+            }
+            Credential created = exist != null ? exist
+                    : new Credential(principal, keytabPath, krb5ConfPath, config.getKrbName(), StringUtils.isNotEmpty(config.getMergeKrbContent()), configuration);
+            synchronized (created) {
+                created.relogin();
+            }
+            return created;
+        });
+        credential.lastAccessTime = Time.now();
+        if (forceLogin) {
+            String prefix = config.getRemoteDir() + KEY_SEPARATOR;
+            configCredentials.keySet().removeIf(key -> key.startsWith(prefix));
+        }
+        configCredentials.put(configKey(config), credential);
+        return credential;
+    }
+
+    /**
+     * 认证失败时强制重新登录
+     */
+    UserGroupInformation relogin(Credential credential) {
+        synchronized (credential) {
+            credential.relogin();
+            return credential.getUgi();
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>(4);
+        metrics.put("credentials", credentials.size());
+        metrics.put("configs", configCredentials.size());
+        return metrics;
+    }
+
+    private void renew() {
+        long now = Time.now();
+        for (Map.Entry<String, Credential> entry : credentials.entrySet()) {
+            Credential credential = entry.getValue();
+            try {
+                if (now - credential.lastAccessTime > IDLE_EXPIRE_TIME) {
+                    credentials.remove(entry.getKey(), credential);
+                    configCredentials.values().removeIf(c -> c == credential);
+                    logger.info("remove idle kerberos credential, principal: {}", credential.principal);
+                    continue;
+                }
+                if (now + RENEW_CHECK_INTERVAL >= credential.renewTime) {
+                    boolean hasTgt;
+                    synchronized (credential) {
+                        hasTgt = credential.relogin();
+                    }
+                    if (hasTgt) {
+                        logger.info("renew kerberos credential, principal: {}, next renew time: {}", credential.principal, credential.renewTime);
+                    } else if (credential.missingTgtCount == 1) {
+                        logger.warn("renew kerberos credential without TGT, principal: {}, retry with backoff, next retry time: {}", credential.principal, credential.renewTime);
+                    } else {
+                        logger.debug("renew kerberos credential without TGT, principal: {}, times: {}, next retry time: {}", credential.principal, credential.missingTgtCount, credential.renewTime);
+                    }
+                }
+            } catch (Throwable e) {
+                logger.error("renew kerberos credential error, principal: {}", credential.principal, e);
+            }
+        }
+    }
+
+    /**
+     * 连续第 missingTgtCount 次取不到 TGT 后的下一次重试时间
+     */
+    static long missingTgtRenewTime(int missingTgtCount, long now) {
+        long backoff = RENEW_CHECK_INTERVAL << Math.min(Math.max(missingTgtCount - 1, 0), 16);
+        return now + Math.min(backoff, MISSING_TGT_MAX_BACKOFF);
+    }
+
+    private static String configKey(BaseConfig config) {
+        String mergeKrbContent = config.getMergeKrbContent();
+        return config.getRemoteDir() + KEY_SEPARATOR
+                + config.getPrincipalFile() + KEY_SEPARATOR
+                + config.getKrbName() + KEY_SEPARATOR
+                + config.getPrincipal() + KEY_SEPARATOR
+                + (mergeKrbContent == null ? 0 : mergeKrbContent.hashCode()) + KEY_SEPARATOR
+                + (config.getKerberosFileTimestamp() == null ? 0L : config.getKerberosFileTimestamp().getTime());
+    }
+
+    /**
+     * 一个 principal 的登录凭证，UGI 被替换时通过 volatile 对所有线程可见
+     */
+    public static class Credential {
+
+        private final String principal;
+
+        private final String keytabPath;
+
+        private final String krb5ConfPath;
+
+        private final String defaultKrb5Name;
+
+        private final boolean isMergeKrb5;
+
+        private final Configuration configuration;
+
+        private volatile UserGroupInformation ugi;
+
+        private volatile long renewTime;
+
+        private volatile long endTime;
+
+        private volatile long lastAccessTime = Time.now();
+
+        /**
+         * 连续登录后取不到 TGT 的次数
+         */
+        private volatile int missingTgtCount;
+
+        private Credential(String principal, String keytabPath, String krb5ConfPath, String defaultKrb5Name,
+                           boolean isMergeKrb5, Configuration configuration) {
+            this.principal = principal;
+            this.keytabPath = keytabPath;
+            this.krb5ConfPath = krb5ConfPath;
+            this.defaultKrb5Name = defaultKrb5Name;
+            this.isMergeKrb5 = isMergeKrb5;
+            this.configuration = configuration;
+        }
+
+        /**
+         * 重新登录
+         *
+         * @return 是否取到了 TGT
+         */
+        private boolean relogin() {
+            UserGroupInformation newUgi = KerberosUtils.retryCreateUGIIfMerge(krb5ConfPath, configuration, principal, keytabPath, defaultKrb5Name, isMergeKrb5);
+            KerberosTicket ticket = KerberosUtils.getTGT(newUgi);
+            ugi = newUgi;
+            if (ticket == null) {
+                // 登录成功但取不到 TGT，UGI 继续使用，按退避间隔重试，避免每轮检查都重新登录
+                missingTgtCount++;
+                endTime = Long.MAX_VALUE;
+                renewTime = missingTgtRenewTime(missingTgtCount, Time.now());
+                return false;
+            }
+            missingTgtCount = 0;
+            long start = ticket.getStartTime().getTime();
+            long end = ticket.getEndTime().getTime();
+            endTime = end;
+            renewTime = start + (long) ((end - start) * RENEW_WINDOW);
+            return true;
+        }
+
+        /**
+         * 新建一个 UGI，不替换共享的 UGI
+         */
+        UserGroupInformation createUgi(Configuration configuration) {
+            return KerberosUtils.retryCreateUGIIfMerge(krb5ConfPath, configuration, principal, keytabPath, defaultKrb5Name, isMergeKrb5);
+        }
+
+        private boolean isValid() {
+            return ugi != null && Time.now() < endTime;
+        }
+
+        public UserGroupInformation getUgi() {
+            return ugi;
+        }
+
+        public String getPrincipal() {
+            return principal;
+        }
+
+        long getRenewTime() {
+            return renewTime;
+        }
+    }
+}
@@ -29,7 +29,6 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.security.HadoopKerberosName;
 import org.apache.hadoop.security.UserGroupInformation;
-import org.apache.hadoop.util.Time;
 import org.apache.kerby.kerberos.kerb.keytab.Keytab;
 import org.apache.kerby.kerberos.kerb.type.base.PrincipalName;
 import org.slf4j.Logger;
@@ -59,7 +58,6 @@ public class KerberosUtils {
     private static final String KERBEROS_AUTH_TYPE = "kerberos";
     private static final String SECURITY_TO_LOCAL_DEFAULT = "RULE:[1:$1] RULE:[2:$1]";
 
-    private static Map<String, UserGroupInformation> ugiMap = Maps.newConcurrentMap();
     private static Map<String, String> segment = Maps.newConcurrentMap();
 
     private static final String TIME_FILE = ".lock";
@@ -86,32 +84,24 @@ public class KerberosUtils {
      * @see HadoopKerberosName#setConfiguration(org.apache.hadoop.conf.Configuration)
      * @param ugi
      * @param supplier
-     * @param finalKrb5ConfPath
+     * @param credential
      * @param configuration
-     * @param finalPrincipal
-     * @param finalKeytabPath
-     * @param threadName
-     * @param defaultKrb5Name
-     * @param isMergeKrb5
+     * @param isCreateNewUGI
      * @param <T>
      * @return
      */
     private static <T> T retryLoginKerberosWithCallBack(UserGroupInformation ugi,
                                                         Supplier<T> supplier,
-                                                        String finalKrb5ConfPath,
+                                                        KerberosCredentialManager.Credential credential,
                                                         Configuration configuration,
-                                                        String finalPrincipal,
-                                                        String finalKeytabPath,
-                                                        String threadName,
-                                                        String defaultKrb5Name,
-                                                        Boolean isMergeKrb5) {
+                                                        boolean isCreateNewUGI) {
         try {
             return loginKerberosWithCallBack(ugi, supplier);
         } catch (Exception e) {
             if (Arrays.stream(VALID_CREDENTIALS_MSG).anyMatch(e.toString()::contains)) {
-                UserGroupInformation retryUgi = retryCreateUGIIfMerge(finalKrb5ConfPath, configuration, finalPrincipal, finalKeytabPath, defaultKrb5Name, isMergeKrb5);
-                ugiMap.put(threadName, retryUgi);
-                return loginKerberosWithCallBack(ugi, supplier);
+                UserGroupInformation retryUgi = isCreateNewUGI ? credential.createUgi(configuration)
+                        : KerberosCredentialManager.getInstance().relogin(credential);
+                return loginKerberosWithCallBack(retryUgi, supplier);
             }
             logger.error("retryLoginKerberosWithCallBack: ", e);
             throw new PluginDefineException("doAs error: " + e);
@@ -120,6 +110,7 @@ public class KerberosUtils {
 
     /**
      * 重载login方法 ，增加IsCreateNewUGI 来检查是否重新create ugi
+     * 凭证已登录时直接使用共享的 UGI，不加锁、不检查本地文件
      * @param config
      * @param supplier
      * @param configuration
@@ -133,85 +124,78 @@ public class KerberosUtils {
             return supplier.get();
         }
 
-        String fileName = config.getPrincipalFile();
-        String remoteDir = config.getRemoteDir();
-        String localDir = ConfigConstant.LOCAL_KEYTAB_DIR_PARENT + remoteDir;
-        String finalKrb5ConfPath;
-        String finalPrincipal;
-        String finalKeytabPath;
-        String threadName;
-        Boolean isMergeKrb5;
+        try {
+            KerberosCredentialManager.Credential credential = KerberosCredentialManager.getInstance().get(config);
+            if (credential == null) {
+                credential = registerCredential(config, configuration);
+            }
 
-        File localDirPath = new File(localDir);
-        if (!localDirPath.exists()) {
-            localDirPath.mkdirs();
+            /*
+             * 如果用已经带有token的ugi进行认证时，在HDFS DELEGATION TOKEN那里会出现认证错误
+             * 如果是SPARK 在这里先每次创建UGI进行避开
+             */
+            UserGroupInformation ugi = isCreateNewUGI ? credential.createUgi(configuration) : credential.getUgi();
+            Preconditions.checkNotNull(ugi, "UserGroupInformation is null");
+            return KerberosUtils.retryLoginKerberosWithCallBack(ugi, supplier, credential, configuration, isCreateNewUGI);
+        } catch (Exception e) {
+            throw new PluginDefineException(e.getMessage());
         }
+    }
 
-        logger.info("fileName:{}, remoteDir:{}, localDir:{}, sftpConf:{}", fileName, remoteDir, localDir, config.getSftpConf());
+    /**
+     * 准备本地 kerberos 文件并登录，同一个 remoteDir 串行执行
+     */
+    private static KerberosCredentialManager.Credential registerCredential(BaseConfig config, Configuration configuration) throws IOException {
+        String fileName = config.getPrincipalFile();
+        String remoteDir = config.getRemoteDir();
+        String localDir = ConfigConstant.LOCAL_KEYTAB_DIR_PARENT + remoteDir;
+        KerberosCredentialManager credentialManager = KerberosCredentialManager.getInstance();
 
-        try {
-            UserGroupInformation ugi;
-            String segmentName = segment.computeIfAbsent(remoteDir, key -> {return new String(remoteDir);});
-            synchronized (segmentName) {
-                String keytabPath = "";
-                String krb5ConfPath = "";
-                String krb5ConfName = config.getKrbName();
-                isMergeKrb5 = StringUtils.isNotEmpty(config.getMergeKrbContent());
-
-                //本地文件是否和服务器时间一致 一致使用本地缓存
-                boolean isOverrideDownLoad = checkLocalCache(config.getKerberosFileTimestamp(), localDirPath);
-                if (isOverrideDownLoad) {
-                    SftpFileManage sftpFileManage = SftpFileManage.getSftpManager(config.getSftpConf());
-                    keytabPath = sftpFileManage.cacheOverloadFile(fileName, remoteDir, localDir);
-                    krb5ConfPath = sftpFileManage.cacheOverloadFile(krb5ConfName, config.getRemoteDir(), localDir);
-                    if (isMergeKrb5) {
-                        krb5ConfPath = localDir + ConfigConstant.SP + ConfigConstant.MERGE_KRB5_NAME;
-                        Files.write(Paths.get(krb5ConfPath), Collections.singleton(config.getMergeKrbContent()));
-                    }
-                    writeTimeLockFile(config.getKerberosFileTimestamp(),localDir);
-                } else {
-                    keytabPath = localDir + File.separator + fileName;
-                    if (isMergeKrb5) {
-                        krb5ConfPath = localDir + ConfigConstant.SP + ConfigConstant.MERGE_KRB5_NAME;
-                    } else {
-                        krb5ConfPath = localDir + ConfigConstant.SP + krb5ConfName;
-                    }
-                }
+        String segmentName = segment.computeIfAbsent(remoteDir, key -> {return new String(remoteDir);});
+        synchronized (segmentName) {
+            KerberosCredentialManager.Credential credential = credentialManager.get(config);
+            if (credential != null) {
+                return credential;
+            }
 
-                finalKrb5ConfPath = krb5ConfPath;
-                finalKeytabPath = keytabPath;
-                threadName = Thread.currentThread().getName();
-                String principal = config.getPrincipal();
-                if (StringUtils.isEmpty(principal)) {
-                    principal = segment.computeIfAbsent(threadName, k -> {return KerberosUtils.getPrincipal(finalKeytabPath);});
+            File localDirPath = new File(localDir);
+            if (!localDirPath.exists()) {
+                localDirPath.mkdirs();
+            }
+            logger.info("fileName:{}, remoteDir:{}, localDir:{}, sftpConf:{}", fileName, remoteDir, localDir, config.getSftpConf());
+
+            String keytabPath = "";
+            String krb5ConfPath = "";
+            String krb5ConfName = config.getKrbName();
+            boolean isMergeKrb5 = StringUtils.isNotEmpty(config.getMergeKrbContent());
+
+            //本地文件是否和服务器时间一致 一致使用本地缓存
+            boolean isOverrideDownLoad = checkLocalCache(config.getKerberosFileTimestamp(), localDirPath);
+            if (isOverrideDownLoad) {
+                SftpFileManage sftpFileManage = SftpFileManage.getSftpManager(config.getSftpConf());
+                keytabPath = sftpFileManage.cacheOverloadFile(fileName, remoteDir, localDir);
+                krb5ConfPath = sftpFileManage.cacheOverloadFile(krb5ConfName, config.getRemoteDir(), localDir);
+                if (isMergeKrb5) {
+                    krb5ConfPath = localDir + ConfigConstant.SP + ConfigConstant.MERGE_KRB5_NAME;
+                    Files.write(Paths.get(krb5ConfPath), Collections.singleton(config.getMergeKrbContent()));
                 }
-                finalPrincipal = principal;
-                logger.info("kerberos login, principal:{}, keytabPath:{}, krb5ConfPath:{}", principal, keytabPath, krb5ConfPath);
-
-                /*
-                 * 如果用已经带有token的ugi进行认证时，在HDFS DELEGATION TOKEN那里会出现认证错误
-                 * 如果是SPARK 在这里先每次创建UGI进行避开
-                 */
-                if (isCreateNewUGI) {
-                    ugi = retryCreateUGIIfMerge(finalKrb5ConfPath, configuration, finalPrincipal, finalKeytabPath, config.getKrbName(), isMergeKrb5);
+                writeTimeLockFile(config.getKerberosFileTimestamp(),localDir);
+            } else {
+                keytabPath = localDir + File.separator + fileName;
+                if (isMergeKrb5) {
+                    krb5ConfPath = localDir + ConfigConstant.SP + ConfigConstant.MERGE_KRB5_NAME;
                 } else {
-                    ugi = ugiMap.computeIfAbsent(threadName, k -> retryCreateUGIIfMerge(finalKrb5ConfPath, configuration, finalPrincipal, finalKeytabPath, config.getKrbName(), isMergeKrb5));
+                    krb5ConfPath = localDir + ConfigConstant.SP + krb5ConfName;
                 }
+            }
 
-                KerberosTicket ticket = getTGT(ugi);
-                if (!checkTGT(ticket) || isOverrideDownLoad) {
-                    logger.info("Relogin after the ticket expired, principal: {}, current thread: {}", principal, Thread.currentThread().getName());
-                    ugi = retryCreateUGIIfMerge(finalKrb5ConfPath, configuration, finalPrincipal, finalKeytabPath, config.getKrbName(), isMergeKrb5);
-                    if (!isCreateNewUGI) {
-                        ugiMap.put(threadName, ugi);
-                    }
-                }
-                logger.info("userGroupInformation current user = {} ugi user  = {} ", UserGroupInformation.getCurrentUser(), ugi.getUserName());
+            String principal = config.getPrincipal();
+            if (StringUtils.isEmpty(principal)) {
+                principal = KerberosUtils.getPrincipal(keytabPath);
             }
-            Preconditions.checkNotNull(ugi, "UserGroupInformation is null");
-            return KerberosUtils.retryLoginKerberosWithCallBack(ugi, supplier, finalKrb5ConfPath, configuration, finalPrincipal, finalKeytabPath, threadName, config.getKrbName(), isMergeKrb5);
-        } catch (Exception e) {
-            throw new PluginDefineException(e.getMessage());
+            checkParams(principal, krb5ConfPath, keytabPath);
+            logger.info("kerberos login, principal:{}, keytabPath:{}, krb5ConfPath:{}", principal, keytabPath, krb5ConfPath);
+            return credentialManager.register(config, principal, keytabPath, krb5ConfPath, configuration, isOverrideDownLoad);
         }
     }
 
@@ -275,7 +259,7 @@ public class KerberosUtils {
         return isOverrideDownLoad;
     }
 
-    private synchronized static UserGroupInformation retryCreateUGIIfMerge(String krb5ConfPath, Configuration config, String principal, String keytabPath, String defaultKrb5Name, Boolean isMergeKrb5) {
+    synchronized static UserGroupInformation retryCreateUGIIfMerge(String krb5ConfPath, Configuration config, String principal, String keytabPath, String defaultKrb5Name, Boolean isMergeKrb5) {
         Boolean isRetry = isMergeKrb5;
         if (isRetry) {
             try {
@@ -313,24 +297,17 @@ public class KerberosUtils {
         }
     }
 
-    private static boolean checkTGT(KerberosTicket ticket) {
-        if (ticket == null) {
-            return false;
-        }
-        long start = ticket.getStartTime().getTime();
-        long end = ticket.getEndTime().getTime();
-        boolean expired = Time.now() < start + (long) ((end - start) * 0.80f);
-        if (expired) {
-            return true;
+    static KerberosTicket getTGT(UserGroupInformation ugi) {
+        Subject subject;
+        try {
+            Class<? extends UserGroupInformation> ugiClass = ugi.getClass();
+            Field subjectField = ugiClass.getDeclaredField("subject");
+            subjectField.setAccessible(true);
+            subject = (Subject)subjectField.get(ugi);
+        } catch (Exception e) {
+            logger.warn("Get subject error, userName: {}", ugi.getUserName(), e);
+            return null;
         }
-        return false;
-    }
-
-    private static KerberosTicket getTGT(UserGroupInformation ugi) throws Exception {
-        Class<? extends UserGroupInformation> ugiClass = ugi.getClass();
-        Field subjectField = ugiClass.getDeclaredField("subject");
-        subjectField.setAccessible(true);
-        Subject subject = (Subject)subjectField.get(ugi);
 
         Set<KerberosTicket> tickets = subject
                 .getPrivateCredentials(KerberosTicket.class);
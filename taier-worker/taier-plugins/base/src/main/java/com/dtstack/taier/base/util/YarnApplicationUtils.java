@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dtstack.taier.base.util;
+
+import com.dtstack.taier.pluginapi.enums.TaskStatus;
+import com.dtstack.taier.pluginapi.exception.PluginDefineException;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.hadoop.yarn.api.records.ApplicationReport;
+import org.apache.hadoop.yarn.api.records.FinalApplicationStatus;
+import org.apache.hadoop.yarn.api.records.YarnApplicationState;
+import org.apache.hadoop.yarn.client.api.YarnClient;
+import org.apache.hadoop.yarn.exceptions.ApplicationNotFoundException;
+import org.apache.hadoop.yarn.exceptions.YarnException;
+import org.apache.hadoop.yarn.util.ConverterUtils;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * yarn application 状态查询工具
+ */
+public class YarnApplicationUtils {
+
+    /**
+     * 不超过该数量时逐个查询，不拉取整个 application 列表
+     */
+    private static final int SINGLE_QUERY_LIMIT = 10;
+
+    /**
+     * application 列表的缓存时间，小于状态轮询间隔，同一轮轮询的多个批次共用一次 getApplications 请求
+     */
+    private static final long LISTING_EXPIRE = 3000L;
+
+    private static final Cache<ListingKey, Map<String, ApplicationReport>> LISTINGS = CacheBuilder.newBuilder()
+            .expireAfterWrite(LISTING_EXPIRE, TimeUnit.MILLISECONDS)
+            .build();
+
+    /**
+     * 获取 application 信息，数量较多时按 applicationType 拉取一次列表，只返回需要的部分，
+     * 已经被 ResourceManager 清理掉的 application 不会出现在结果里
+     *
+     * @param yarnClient       yarn client
+     * @param applicationTypes 任务提交时的 applicationType，只拉取这些类型的 application
+     * @param applicationIds   需要查询的 applicationId
+     * @return applicationId -> ApplicationReport
+     */
+    public static Map<String, ApplicationReport> getApplicationReports(YarnClient yarnClient, Set<String> applicationTypes, Collection<String> applicationIds) throws IOException, YarnException {
+        Map<String, ApplicationReport> reports = new HashMap<>(applicationIds.size());
+        if (applicationIds.isEmpty()) {
+            return reports;
+        }
+        if (applicationIds.size() <= SINGLE_QUERY_LIMIT) {
+            for (String applicationId : applicationIds) {
+                try {
+                    reports.put(applicationId, yarnClient.getApplicationReport(ConverterUtils.toApplicationId(applicationId)));
+                } catch (ApplicationNotFoundException e) {
+                    // 已经被清理，由调用方逐个处理
+                }
+            }
+            return reports;
+        }
+        Map<String, ApplicationReport> listing = getApplications(yarnClient, applicationTypes);
+        for (String applicationId : applicationIds) {
+            ApplicationReport report = listing.get(applicationId);
+            if (report != null) {
+                reports.put(applicationId, report);
+            }
+        }
+        return reports;
+    }
+
+    private static Map<String, ApplicationReport> getApplications(YarnClient yarnClient, Set<String> applicationTypes) throws IOException, YarnException {
+        try {
+            return LISTINGS.get(new ListingKey(yarnClient, applicationTypes), () -> {
+                Map<String, ApplicationReport> listing = new HashMap<>();
+                for (ApplicationReport report : yarnClient.getApplications(applicationTypes)) {
+                    listing.put(report.getApplicationId().toString(), report);
+                }
+                return listing;
+            });
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof YarnException) {
+                throw (YarnException) e.getCause();
+            }
+            throw new PluginDefineException(e.getCause());
+        }
+    }
+
+    /**
+     * application 状态转换为任务状态
+     *
+     * @param report application 信息
+     * @return 任务状态
+     */
+    public static TaskStatus convertTaskStatus(ApplicationReport report) {
+        YarnApplicationState applicationState = report.getYarnApplicationState();
+        switch (applicationState) {
+            case KILLED:
+                return TaskStatus.KILLED;
+            case NEW:
+            case NEW_SAVING:
+                return TaskStatus.CREATED;
+            case SUBMITTED:
+                //FIXME 特殊逻辑,认为已提交到计算引擎的状态为等待资源状态
+                return TaskStatus.WAITCOMPUTE;
+            case ACCEPTED:
+                return TaskStatus.SCHEDULED;
+            case RUNNING:
+                return TaskStatus.RUNNING;
+            case FINISHED:
+                //state 为finished状态下需要兼顾判断finalStatus.
+                FinalApplicationStatus finalApplicationStatus = report.getFinalApplicationStatus();
+                if (finalApplicationStatus == FinalApplicationStatus.FAILED) {
+                    return TaskStatus.FAILED;
+                } else if (finalApplicationStatus == FinalApplicationStatus.SUCCEEDED) {
+                    return TaskStatus.FINISHED;
+                } else if (finalApplicationStatus == FinalApplicationStatus.KILLED) {
+                    return TaskStatus.KILLED;
+                } else {
+                    return TaskStatus.RUNNING;
+                }
+            case FAILED:
+                return TaskStatus.FAILED;
+            default:
+                throw new PluginDefineException("Unsupported application state");
+        }
+    }
+
+    /**
+     * 同一个 yarnClient 实例、相同 applicationType 的列表共用
+     */
+    private static class ListingKey {
+
+        private final YarnClient yarnClient;
+
+        private final Set<String> applicationTypes;
+
+        ListingKey(YarnClient yarnClient, Set<String> applicationTypes) {
+            this.yarnClient = yarnClient;
+            this.applicationTypes = applicationTypes;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ListingKey)) {
+                return false;
+            }
+            ListingKey that = (ListingKey) o;
+            return yarnClient == that.yarnClient && Objects.equals(applicationTypes, that.applicationTypes);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(yarnClient) + Objects.hashCode(applicationTypes);
+        }
+    }
+}
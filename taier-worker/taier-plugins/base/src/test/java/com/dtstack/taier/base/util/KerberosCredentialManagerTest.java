@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dtstack.taier.base.util;
+
+import com.dtstack.taier.base.BaseConfig;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.minikdc.MiniKdc;
+import org.apache.hadoop.security.UserGroupInformation;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.sql.Timestamp;
+import java.util.Properties;
+
+public class KerberosCredentialManagerTest {
+
+    private static final long RENEW_CHECK_INTERVAL = 60 * 1000L;
+
+    private static final long MISSING_TGT_MAX_BACKOFF = 60 * 60 * 1000L;
+
+    @ClassRule
+    public static TemporaryFolder folder = new TemporaryFolder();
+
+    private static MiniKdc kdc;
+
+    private static String principal;
+
+    private static String keytabPath;
+
+    private static String krb5ConfPath;
+
+    @BeforeClass
+    public static void startKdc() throws Exception {
+        Properties kdcConf = MiniKdc.createConf();
+        kdc = new MiniKdc(kdcConf, folder.newFolder("kdc"));
+        kdc.start();
+
+        File keytab = new File(folder.getRoot(), "taier.keytab");
+        kdc.createPrincipal(keytab, "taier/localhost");
+        principal = "taier/localhost@" + kdc.getRealm();
+        keytabPath = keytab.getAbsolutePath();
+        krb5ConfPath = kdc.getKrb5conf().getAbsolutePath();
+    }
+
+    @AfterClass
+    public static void stopKdc() {
+        if (kdc != null) {
+            kdc.stop();
+        }
+    }
+
+    @Test
+    public void testRegisterShareCredential() {
+        KerberosCredentialManager manager = KerberosCredentialManager.getInstance();
+        BaseConfig config = buildConfig("shareCredential");
+
+        KerberosCredentialManager.Credential credential = manager.register(config, principal, keytabPath, krb5ConfPath, new Configuration(), false);
+        UserGroupInformation ugi = credential.getUgi();
+        Assert.assertNotNull(ugi);
+        Assert.assertTrue(ugi.hasKerberosCredentials());
+        Assert.assertNotNull(KerberosUtils.getTGT(ugi));
+        Assert.assertTrue(credential.getRenewTime() > System.currentTimeMillis());
+
+        // 相同 principal、keytab、krb5 共享凭证，不重新登录
+        KerberosCredentialManager.Credential again = manager.register(buildConfig("otherConfig"), principal, keytabPath, krb5ConfPath, new Configuration(), false);
+        Assert.assertSame(credential, again);
+        Assert.assertSame(ugi, again.getUgi());
+        Assert.assertSame(credential, manager.get(config));
+    }
+
+    @Test
+    public void testForceLogin() {
+        KerberosCredentialManager manager = KerberosCredentialManager.getInstance();
+        BaseConfig config = buildConfig("forceLogin");
+        KerberosCredentialManager.Credential credential = manager.register(config, principal, keytabPath, krb5ConfPath, new Configuration(), false);
+        UserGroupInformation ugi = credential.getUgi();
+
+        // kerberos 文件重新上传后重新登录，凭证对象不变，UGI 被替换
+        KerberosCredentialManager.Credential relogin = manager.register(config, principal, keytabPath, krb5ConfPath, new Configuration(), true);
+        Assert.assertSame(credential, relogin);
+        Assert.assertNotSame(ugi, relogin.getUgi());
+        Assert.assertNotNull(KerberosUtils.getTGT(relogin.getUgi()));
+    }
+
+    @Test
+    public void testReloginAfterAuthFailure() {
+        KerberosCredentialManager manager = KerberosCredentialManager.getInstance();
+        KerberosCredentialManager.Credential credential = manager.register(buildConfig("authFailure"), principal, keytabPath, krb5ConfPath, new Configuration(), false);
+        UserGroupInformation ugi = credential.getUgi();
+
+        UserGroupInformation newUgi = manager.relogin(credential);
+        Assert.assertNotSame(ugi, newUgi);
+        Assert.assertSame(newUgi, credential.getUgi());
+    }
+
+    @Test
+    public void testMissingTgtBackoff() {
+        long now = System.currentTimeMillis();
+        Assert.assertEquals(now + RENEW_CHECK_INTERVAL, KerberosCredentialManager.missingTgtRenewTime(1, now));
+        Assert.assertEquals(now + 2 * RENEW_CHECK_INTERVAL, KerberosCredentialManager.missingTgtRenewTime(2, now));
+        Assert.assertEquals(now + 4 * RENEW_CHECK_INTERVAL, KerberosCredentialManager.missingTgtRenewTime(3, now));
+        // 达到上限后不再增加，也不会溢出
+        Assert.assertEquals(now + MISSING_TGT_MAX_BACKOFF, KerberosCredentialManager.missingTgtRenewTime(10, now));
+        Assert.assertEquals(now + MISSING_TGT_MAX_BACKOFF, KerberosCredentialManager.missingTgtRenewTime(Integer.MAX_VALUE, now));
+    }
+
+    private static BaseConfig buildConfig(String remoteDir) {
+        BaseConfig config = new BaseConfig();
+        config.setOpenKerberos(true);
+        config.setRemoteDir(remoteDir);
+        config.setPrincipal(principal);
+        config.setPrincipalFile("taier.keytab");
+        config.setKrbName("krb5.conf");
+        config.setKerberosFileTimestamp(new Timestamp(System.currentTimeMillis()));
+        return config;
+    }
+}
@@ -3,9 +3,12 @@ package com.dtstack.taier.flink;
 import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
 import com.dtstack.taier.base.filesystem.FilesystemManager;
+import com.dtstack.taier.base.filesystem.LocalResourceCache;
+import com.dtstack.taier.base.resource.YarnResourceSnapshot;
 import com.dtstack.taier.base.util.HadoopUtils;
 import com.dtstack.taier.base.util.HttpClientUtil;
 import com.dtstack.taier.base.util.KerberosUtils;
+import com.dtstack.taier.base.util.YarnApplicationUtils;
 import com.dtstack.taier.flink.base.enums.ClusterMode;
 import com.dtstack.taier.flink.client.AbstractClientManager;
 import com.dtstack.taier.flink.client.ClientManagerBuilder;
@@ -93,6 +96,8 @@ public class FlinkClient extends AbstractClient {
 
     static final Logger LOG = LoggerFactory.getLogger(FlinkClient.class);
 
+    private static final Set<String> APPLICATION_TYPES = Collections.singleton("Apache Flink");
+
     private FlinkConfig flinkConfig;
 
     private Properties flinkExtProp;
@@ -104,6 +109,12 @@ public class FlinkClient extends AbstractClient {
 
     private FilesystemManager filesystemManager;
 
+    /** node-level jar/resource cache shared by all submissions, null when disabled */
+    private LocalResourceCache resourceCache;
+
+    /** yarn resource snapshot shared by judgeSlots of all jobs */
+    private YarnResourceSnapshot resourceSnapshot;
+
     private final Map<String, List<String>> cacheFile = Maps.newConcurrentMap();
 
     private final static Predicate<TaskStatus> IS_END_STATUS =
@@ -128,6 +139,21 @@ public class FlinkClient extends AbstractClient {
         filesystemManager = new FilesystemManager(
                 clientManager.getHadoopConfig().getCoreConfiguration(),
                 flinkConfig.getSftpConf());
+        if (flinkConfig.getResourceCacheEnable()) {
+            resourceCache = new LocalResourceCache(filesystemManager,
+                    clientManager.getHadoopConfig().getCoreConfiguration(),
+                    flinkConfig.getResourceCacheDir(),
+                    flinkConfig.getResourceCacheMaxSize(),
+                    flinkConfig.getResourceCacheValidity());
+            clientManager.setResourceCache(resourceCache);
+        }
+        if (flinkConfig.getYarnResourceRefreshInterval() > 0
+                && !ClusterMode.isStandalone(ClusterMode.getClusteMode(flinkConfig.getClusterMode()))) {
+            resourceSnapshot = new YarnResourceSnapshot("flink", flinkConfig,
+                    clientManager.getHadoopConfig().getYarnConfiguration(),
+                    clientManager::getYarnClient,
+                    flinkConfig.getYarnResourceRefreshInterval());
+        }
         LOG.info("<== init Flink client");
     }
 
@@ -167,7 +193,16 @@ public class FlinkClient extends AbstractClient {
                 String remoteFile = resourceFile.getAbsolutePath();
                 String localFile = localResourceDir + ConfigConstant.SP + resourceFileName;
                 //download file and close
-                File downloadFile = filesystemManager.downloadFile(remoteFile, localFile);
+                File downloadFile;
+                if (resourceCache != null) {
+                    try {
+                        downloadFile = resourceCache.fetch(remoteFile, new File(localFile));
+                    } catch (IOException e) {
+                        throw new PluginDefineException(jobClient.getJobId() + " failed", e);
+                    }
+                } else {
+                    downloadFile = filesystemManager.downloadFile(remoteFile, localFile);
+                }
                 LOG.info("Download Resource File : " + downloadFile.getAbsolutePath());
             } else if (FileParserHelper.verifyJar(tmpSql)) {
                 sqlIterator.remove();
@@ -185,7 +220,9 @@ public class FlinkClient extends AbstractClient {
 
                 File jarFile;
                 try {
-                    jarFile = FlinkUtil.downloadJar(addFilePath, tmpJarDir, filesystemManager, false);
+                    jarFile = resourceCache != null
+                            ? FlinkUtil.downloadJar(addFilePath, tmpJarDir, resourceCache)
+                            : FlinkUtil.downloadJar(addFilePath, tmpJarDir, filesystemManager, false);
                     LOG.info("Download Resource File : " + jarFile.getAbsolutePath());
                 } catch (Exception e) {
                     throw new PluginDefineException(
@@ -448,6 +485,9 @@ public class FlinkClient extends AbstractClient {
         try {
             String taskWorkspace = FlinkUtil.getTaskWorkspace(jobClient.getJobId());
             cacheFile.remove(taskWorkspace);
+            if (resourceCache != null) {
+                resourceCache.release(taskWorkspace);
+            }
             File localDir = new File(taskWorkspace);
             if (localDir.exists()){
                 FileUtils.deleteDirectory(localDir);
@@ -475,6 +515,7 @@ public class FlinkClient extends AbstractClient {
                         .withQueueName(flinkConfig.getQueue())
                         .withYarnAccepterTaskNumber(flinkConfig.getYarnAccepterTaskNumber())
                         .withProperties(flinkExtProp)
+                        .withResourceSnapshot(resourceSnapshot)
                         .build();
 
                 return perJobResourceInfo.judgeSlots(jobClient);
@@ -608,43 +649,7 @@ public class FlinkClient extends AbstractClient {
                 ApplicationId appId = ConverterUtils.toApplicationId(applicationId);
                 try {
                     ApplicationReport report = clientManager.getYarnClient().getApplicationReport(appId);
-                    YarnApplicationState applicationState = report.getYarnApplicationState();
-                    switch (applicationState) {
-                        case KILLED:
-                            return TaskStatus.KILLED;
-                        case NEW:
-                        case NEW_SAVING:
-                            return TaskStatus.CREATED;
-                        case SUBMITTED:
-                            //FIXME 特殊逻辑,认为已提交到计算引擎的状态为等待资源状态
-                            return TaskStatus.WAITCOMPUTE;
-                        case ACCEPTED:
-                            return TaskStatus.SCHEDULED;
-                        case RUNNING:
-                            return TaskStatus.RUNNING;
-                        case FINISHED:
-                            //state 为finished状态下需要兼顾判断finalStatus.
-                            FinalApplicationStatus finalApplicationStatus = report.getFinalApplicationStatus();
-                            switch (finalApplicationStatus){
-                                case FAILED:
-                                case UNDEFINED: {
-                                    return TaskStatus.FAILED;
-                                }
-                                case SUCCEEDED:{
-                                    return TaskStatus.FINISHED;
-                                }
-                                case KILLED:{
-                                    return TaskStatus.KILLED;
-                                }
-                                default:{
-                                    return TaskStatus.RUNNING;
-                                }
-                            }
-                        case FAILED:
-                            return TaskStatus.FAILED;
-                        default:
-                            throw new PluginDefineException("Unsupported application state");
-                    }
+                    return convertPerJobStatus(report);
                 } catch (YarnException | IOException e) {
                     LOG.error("appId: {}, getPerJobStatus with yarnClient error: ", applicationId, e);
                     return TaskStatus.NOTFOUND;
@@ -657,6 +662,146 @@ public class FlinkClient extends AbstractClient {
         }
     }
 
+    private TaskStatus convertPerJobStatus(ApplicationReport report) {
+        YarnApplicationState applicationState = report.getYarnApplicationState();
+        switch (applicationState) {
+            case KILLED:
+                return TaskStatus.KILLED;
+            case NEW:
+            case NEW_SAVING:
+                return TaskStatus.CREATED;
+            case SUBMITTED:
+                //FIXME 特殊逻辑,认为已提交到计算引擎的状态为等待资源状态
+                return TaskStatus.WAITCOMPUTE;
+            case ACCEPTED:
+                return TaskStatus.SCHEDULED;
+            case RUNNING:
+                return TaskStatus.RUNNING;
+            case FINISHED:
+                //state 为finished状态下需要兼顾判断finalStatus.
+                FinalApplicationStatus finalApplicationStatus = report.getFinalApplicationStatus();
+                switch (finalApplicationStatus){
+                    case FAILED:
+                    case UNDEFINED: {
+                        return TaskStatus.FAILED;
+                    }
+                    case SUCCEEDED:{
+                        return TaskStatus.FINISHED;
+                    }
+                    case KILLED:{
+                        return TaskStatus.KILLED;
+                    }
+                    default:{
+                        return TaskStatus.RUNNING;
+                    }
+                }
+            case FAILED:
+                return TaskStatus.FAILED;
+            default:
+                throw new PluginDefineException("Unsupported application state");
+        }
+    }
+
+    /**
+     * per-job 任务通过一次 yarn getApplications 获取状态, 已结束的任务仍走单任务查询以便从 jobArchive 获取准确状态;
+     * session/standalone 任务按集群调用一次 /jobs/overview, 未命中的任务回退到单任务查询
+     */
+    @Override
+    public Map<String, TaskStatus> getJobStatusBatch(List<JobIdentifier> jobIdentifiers) {
+        Map<String, TaskStatus> statusMap = new HashMap<>(jobIdentifiers.size());
+        List<JobIdentifier> perJobIdentifiers = new ArrayList<>();
+        Map<String, List<JobIdentifier>> sessionIdentifiers = new HashMap<>();
+        for (JobIdentifier jobIdentifier : jobIdentifiers) {
+            if (StringUtils.isEmpty(jobIdentifier.getEngineJobId())) {
+                continue;
+            }
+            if (EDeployMode.PERJOB.getType().equals(jobIdentifier.getDeployMode())) {
+                if (StringUtils.isNotEmpty(jobIdentifier.getApplicationId())) {
+                    perJobIdentifiers.add(jobIdentifier);
+                }
+                continue;
+            }
+            try {
+                String webInterfaceUrl = clientManager.getClusterClient(jobIdentifier).getWebInterfaceURL();
+                sessionIdentifiers.computeIfAbsent(webInterfaceUrl, k -> new ArrayList<>()).add(jobIdentifier);
+            } catch (Exception e) {
+                LOG.error("taskId: {}, get clusterClient error:", jobIdentifier.getJobId(), e);
+            }
+        }
+
+        if (CollectionUtils.isNotEmpty(perJobIdentifiers)) {
+            fillPerJobStatus(perJobIdentifiers, statusMap);
+        }
+        for (Map.Entry<String, List<JobIdentifier>> entry : sessionIdentifiers.entrySet()) {
+            fillSessionJobStatus(entry.getKey(), entry.getValue(), statusMap);
+        }
+
+        for (JobIdentifier jobIdentifier : jobIdentifiers) {
+            if (!statusMap.containsKey(jobIdentifier.getJobId())) {
+                statusMap.put(jobIdentifier.getJobId(), getJobStatus(jobIdentifier));
+            }
+        }
+        return statusMap;
+    }
+
+    private void fillPerJobStatus(List<JobIdentifier> jobIdentifiers, Map<String, TaskStatus> statusMap) {
+        try {
+            Map<String, ApplicationReport> reports = KerberosUtils.login(flinkConfig, () -> {
+                Set<String> appIds = jobIdentifiers.stream().map(JobIdentifier::getApplicationId).collect(Collectors.toSet());
+                try {
+                    return YarnApplicationUtils.getApplicationReports(clientManager.getYarnClient(), APPLICATION_TYPES, appIds);
+                } catch (YarnException | IOException e) {
+                    throw new PluginDefineException(e);
+                }
+            }, clientManager.getHadoopConfig().getYarnConfiguration());
+            for (JobIdentifier jobIdentifier : jobIdentifiers) {
+                ApplicationReport report = reports.get(jobIdentifier.getApplicationId());
+                if (report == null) {
+                    continue;
+                }
+                TaskStatus status = convertPerJobStatus(report);
+                if (!TaskStatus.isStopped(status.getStatus())) {
+                    statusMap.put(jobIdentifier.getJobId(), status);
+                }
+            }
+        } catch (Exception e) {
+            LOG.error("batch getPerJobStatus with yarnClient error, fallback to single query", e);
+        }
+    }
+
+    private void fillSessionJobStatus(String webInterfaceUrl, List<JobIdentifier> jobIdentifiers, Map<String, TaskStatus> statusMap) {
+        try {
+            String response = PoolHttpClient.get(webInterfaceUrl + ConfigConstant.JOBS_OVERVIEW_URL);
+            if (StringUtils.isEmpty(response)) {
+                return;
+            }
+            JSONArray jobs = JSONObject.parseObject(response).getJSONArray("jobs");
+            if (jobs == null) {
+                return;
+            }
+            Map<String, String> jobStates = new HashMap<>(jobs.size());
+            for (int i = 0; i < jobs.size(); i++) {
+                JSONObject job = jobs.getJSONObject(i);
+                jobStates.put(job.getString("jid"), job.getString("state"));
+            }
+            for (JobIdentifier jobIdentifier : jobIdentifiers) {
+                TaskStatus status = TaskStatus.getTaskStatus(StringUtils.upperCase(jobStates.get(jobIdentifier.getEngineJobId())));
+                if (status != null) {
+                    statusMap.put(jobIdentifier.getJobId(), status);
+                }
+            }
+        } catch (Exception e) {
+            LOG.error("webInterfaceUrl: {}, get jobs overview error, fallback to single query", webInterfaceUrl, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (resourceSnapshot != null) {
+            resourceSnapshot.close();
+        }
+    }
+
     @Override
     public String getJobLog(JobIdentifier jobIdentifier) {
         String taskId = jobIdentifier.getJobId();
@@ -1,6 +1,7 @@
 package com.dtstack.taier.flink.client;
 
 
+import com.dtstack.taier.base.filesystem.LocalResourceCache;
 import com.dtstack.taier.base.util.KerberosUtils;
 import com.dtstack.taier.flink.base.enums.ClusterMode;
 import com.dtstack.taier.flink.config.FlinkConfig;
@@ -64,6 +65,11 @@ public class AbstractClientManager implements IClientManager {
 
     private final ThreadPoolExecutor threadPoolExecutor;
 
+    /**
+     * node-level jar/resource cache, null when disabled
+     */
+    protected volatile LocalResourceCache resourceCache;
+
     public AbstractClientManager(FlinkConfig flinkConfig, HadoopConfig hadoopConf) {
         this.hadoopConfig = hadoopConf;
         this.flinkConfig = flinkConfig;
@@ -76,6 +82,18 @@ public class AbstractClientManager implements IClientManager {
                 new LinkedBlockingQueue<>(), new CustomThreadFactory("flink_yarnclient"));
     }
 
+    public void setResourceCache(LocalResourceCache resourceCache) {
+        this.resourceCache = resourceCache;
+    }
+
+    /**
+     * 工作目录中来自资源缓存的文件替换为缓存文件，提交时按摘要上传到hdfs共享目录
+     */
+    protected File resolveCachedFile(File file) {
+        LocalResourceCache cache = resourceCache;
+        return cache == null ? file : cache.resolve(file);
+    }
+
     @Override
     public ClusterClient getClusterClient(JobIdentifier jobIdentifier) {
         throw new PluginDefineException("subClass must override getClusterClient method");
@@ -218,6 +236,12 @@ public class AbstractClientManager implements IClientManager {
             flinkConfiguration.setString(ConfigConstant.FLINK_LIB_DIR, flinkConfig.getFlinkLibDir());
             flinkConfiguration.setString(ConfigConstant.FLINKX_DIST_DIR, flinkConfig.getFlinkxDistDir());
         }
+        //资源缓存中的文件上传到hdfs共享目录
+        String remoteResourceCacheDir = flinkConfig.getRemoteResourceCacheDir();
+        if (flinkConfig.getResourceCacheEnable() && StringUtils.startsWith(remoteResourceCacheDir, ConfigConstant.PREFIX_HDFS)) {
+            flinkConfiguration.setString(ConfigConstant.REMOTE_RESOURCE_CACHE_DIR, remoteResourceCacheDir);
+            flinkConfiguration.setString(ConfigConstant.RESOURCE_CACHE_DIR, new File(flinkConfig.getResourceCacheDir()).getAbsolutePath());
+        }
         return flinkConfiguration;
     }
 }
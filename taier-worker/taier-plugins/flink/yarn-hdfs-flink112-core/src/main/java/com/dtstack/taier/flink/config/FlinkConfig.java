@@ -55,6 +55,26 @@ public class FlinkConfig extends BaseConfig {
 
     private String yarnAccepterTaskNumber;
 
+    /**
+     * yarn 资源快照刷新间隔(ms)，小于等于 0 时每个任务单独请求 yarn
+     */
+    private long yarnResourceRefreshInterval = 5000L;
+
+    /** 是否开启节点级的 jar/资源文件缓存 */
+    private boolean resourceCacheEnable = false;
+
+    /** 本地缓存目录，默认 tmp/resource-cache */
+    private String resourceCacheDir;
+
+    /** 本地缓存总大小上限(byte) */
+    private long resourceCacheMaxSize = 10L * 1024 * 1024 * 1024;
+
+    /** 非 hdfs 文件缓存的有效时间(ms) */
+    private long resourceCacheValidity = 5 * 60 * 1000L;
+
+    /** 缓存文件在 hdfs 上的共享目录，每个文件只上传一次，per job 提交时不再重复上传 */
+    private String remoteResourceCacheDir;
+
     private int asyncCheckYarnClientThreadNum = 3;
 
     private Map<String, String> kerberosConfig;
@@ -264,6 +284,57 @@ public class FlinkConfig extends BaseConfig {
         return StringUtils.isBlank(yarnAccepterTaskNumber) ? 1: NumberUtils.toInt(yarnAccepterTaskNumber,2);
     }
 
+    public long getYarnResourceRefreshInterval() {
+        return yarnResourceRefreshInterval;
+    }
+
+    public void setYarnResourceRefreshInterval(long yarnResourceRefreshInterval) {
+        this.yarnResourceRefreshInterval = yarnResourceRefreshInterval;
+    }
+
+    public boolean getResourceCacheEnable() {
+        return resourceCacheEnable;
+    }
+
+    public void setResourceCacheEnable(boolean resourceCacheEnable) {
+        this.resourceCacheEnable = resourceCacheEnable;
+    }
+
+    public String getResourceCacheDir() {
+        if (StringUtils.isBlank(resourceCacheDir)) {
+            return ConfigConstant.TMP_DIR + ConfigConstant.SP + "resource-cache";
+        }
+        return resourceCacheDir;
+    }
+
+    public void setResourceCacheDir(String resourceCacheDir) {
+        this.resourceCacheDir = resourceCacheDir;
+    }
+
+    public long getResourceCacheMaxSize() {
+        return resourceCacheMaxSize;
+    }
+
+    public void setResourceCacheMaxSize(long resourceCacheMaxSize) {
+        this.resourceCacheMaxSize = resourceCacheMaxSize;
+    }
+
+    public long getResourceCacheValidity() {
+        return resourceCacheValidity;
+    }
+
+    public void setResourceCacheValidity(long resourceCacheValidity) {
+        this.resourceCacheValidity = resourceCacheValidity;
+    }
+
+    public String getRemoteResourceCacheDir() {
+        return remoteResourceCacheDir;
+    }
+
+    public void setRemoteResourceCacheDir(String remoteResourceCacheDir) {
+        this.remoteResourceCacheDir = remoteResourceCacheDir;
+    }
+
     public static List<String> getEngineFlinkConfigs() {
         return ENGINE_FLINK_CONFIGS;
     }
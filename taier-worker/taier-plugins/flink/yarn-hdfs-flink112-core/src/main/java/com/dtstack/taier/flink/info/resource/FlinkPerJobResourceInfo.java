@@ -6,6 +6,7 @@ import com.dtstack.taier.pluginapi.JobClient;
 import com.dtstack.taier.flink.constant.ConfigConstant;
 import com.dtstack.taier.flink.util.FlinkUtil;
 import com.dtstack.taier.base.resource.AbstractYarnResourceInfo;
+import com.dtstack.taier.base.resource.YarnResourceSnapshot;
 import com.google.common.collect.Lists;
 import org.apache.flink.configuration.JobManagerOptions;
 import org.apache.flink.configuration.MemorySize;
@@ -34,12 +35,14 @@ public class FlinkPerJobResourceInfo extends AbstractYarnResourceInfo {
     private final String queueName;
     private final int yarnAccepterTaskNumber;
     private final Properties envProperties;
+    private final YarnResourceSnapshot resourceSnapshot;
 
-    private FlinkPerJobResourceInfo(YarnClient yarnClient, String queueName, int yarnAccepterTaskNumber, Properties envProperties) {
+    private FlinkPerJobResourceInfo(YarnClient yarnClient, String queueName, int yarnAccepterTaskNumber, Properties envProperties, YarnResourceSnapshot resourceSnapshot) {
         this.yarnClient = yarnClient;
         this.queueName = queueName;
         this.yarnAccepterTaskNumber = yarnAccepterTaskNumber;
         this.envProperties = envProperties;
+        this.resourceSnapshot = resourceSnapshot;
     }
 
     @Override
@@ -49,19 +52,25 @@ public class FlinkPerJobResourceInfo extends AbstractYarnResourceInfo {
 
     private JudgeResult judgePerJobResource(JobClient jobClient) {
 
+        if (resourceSnapshot != null) {
+            return judgeYarnResource(resourceSnapshot, queueName, yarnAccepterTaskNumber, buildInstanceInfos(jobClient));
+        }
+
         JudgeResult jr = getYarnSlots(yarnClient, queueName, yarnAccepterTaskNumber);
         if (!jr.available()) {
             return jr;
         }
 
+        return judgeYarnResource(buildInstanceInfos(jobClient));
+    }
+
+    private List<InstanceInfo> buildInstanceInfos(JobClient jobClient) {
         setTaskResourceInfo(jobClient);
 
-        List<InstanceInfo> instanceInfos = Lists.newArrayList(
+        return Lists.newArrayList(
                 //作为启动 am 和 jobManager
                 InstanceInfo.newRecord(1, 1, jobManagerMemoryMb),
                 InstanceInfo.newRecord(numberTaskManagers, slotsPerTaskManager, taskManagerMemoryMb));
-
-        return judgeYarnResource(instanceInfos);
     }
 
     /**
@@ -107,6 +116,7 @@ public class FlinkPerJobResourceInfo extends AbstractYarnResourceInfo {
         private String queueName;
         private Integer yarnAccepterTaskNumber;
         private Properties envProperties;
+        private YarnResourceSnapshot resourceSnapshot;
 
         public FlinkPerJobResourceInfoBuilder withYarnClient(YarnClient yarnClient) {
             this.yarnClient = yarnClient;
@@ -128,8 +138,13 @@ public class FlinkPerJobResourceInfo extends AbstractYarnResourceInfo {
             return this;
         }
 
+        public FlinkPerJobResourceInfoBuilder withResourceSnapshot(YarnResourceSnapshot resourceSnapshot) {
+            this.resourceSnapshot = resourceSnapshot;
+            return this;
+        }
+
         public FlinkPerJobResourceInfo build() {
-            return new FlinkPerJobResourceInfo(yarnClient, queueName, yarnAccepterTaskNumber, envProperties);
+            return new FlinkPerJobResourceInfo(yarnClient, queueName, yarnAccepterTaskNumber, envProperties, resourceSnapshot);
         }
     }
 
@@ -127,7 +127,7 @@ public class PerJobClientManager extends AbstractClientManager {
 
         if (CollectionUtils.isNotEmpty(jobClient.getAttachJarInfos())) {
             for (JarFileInfo jarFileInfo : jobClient.getAttachJarInfos()) {
-                classPaths.add(new File(jarFileInfo.getJarPath()).toURI().toURL());
+                classPaths.add(resolveCachedFile(new File(jarFileInfo.getJarPath())).toURI().toURL());
             }
         }
 
@@ -206,7 +206,7 @@ public class PerJobClientManager extends AbstractClientManager {
         if (taskResourceDirFiles != null && taskResourceDirFiles.length > 0) {
             for (File file : taskResourceDirFiles) {
                 String fileName = file.getName();
-                resources.put(fileName, file);
+                resources.put(fileName, resolveCachedFile(file));
             }
         }
 
@@ -2,6 +2,7 @@ package com.dtstack.taier.flink.util;
 
 import com.dtstack.taier.base.enums.ClassLoaderType;
 import com.dtstack.taier.base.filesystem.FilesystemManager;
+import com.dtstack.taier.base.filesystem.LocalResourceCache;
 import com.dtstack.taier.pluginapi.JarFileInfo;
 import com.dtstack.taier.pluginapi.JobClient;
 import com.dtstack.taier.pluginapi.enums.EJobType;
@@ -176,17 +177,32 @@ public class FlinkUtil {
         File downloadFile = filesystemManager.downloadFile(remotePath, localJarPath);
         logger.info("downloadFile remotePath:{} localJarPath:{}", remotePath, localJarPath);
 
+        checkJarFile(downloadFile);
+        return downloadFile;
+    }
+
+    /**
+     * 通过节点级资源缓存获取远程jar，相同内容的jar只下载一次
+     */
+    public static File downloadJar(String remotePath, String localDir, LocalResourceCache resourceCache) throws IOException {
+        String localJarPath = FlinkUtil.getTmpFileName(remotePath, localDir);
+        File downloadFile = resourceCache.fetch(remotePath, new File(localJarPath));
+        logger.info("fetch cached file remotePath:{} localJarPath:{}", remotePath, localJarPath);
+
+        checkJarFile(downloadFile);
+        return downloadFile;
+    }
+
+    private static void checkJarFile(File jarFile) throws IOException {
         URL jarFileUrl;
 
         try {
-            jarFileUrl = downloadFile.getAbsoluteFile().toURI().toURL();
+            jarFileUrl = jarFile.getAbsoluteFile().toURI().toURL();
         } catch (MalformedURLException e1) {
             throw new IllegalArgumentException("The jar file path is invalid.");
         }
 
         JarUtils.checkJarFile(jarFileUrl);
-
-        return downloadFile;
     }
 
     private static String getTmpFileName(String fileUrl, String toPath){
@@ -213,7 +213,7 @@ class YarnApplicationFileUploader implements AutoCloseable {
                         remoteFileInfo.f0,
                         localFile.length(),
                         remoteFileInfo.f1,
-                        LocalResourceVisibility.APPLICATION,
+                        getVisibility(remoteFileInfo.f0),
                         resourceType);
         addToEnvShipResourceList(whetherToAddToEnvShipResourceList, descriptor);
         localResources.put(key, descriptor.toLocalResource());
@@ -448,6 +448,27 @@ class YarnApplicationFileUploader implements AutoCloseable {
             }
         }
 
+        // 资源缓存中的文件按摘要上传到共享目录，已经上传过的不再重复上传
+        String remoteResourceCacheDir = flinkConfiguration.getString(ConfigConstant.REMOTE_RESOURCE_CACHE_DIR, null);
+        String resourceCacheDir = flinkConfiguration.getString(ConfigConstant.RESOURCE_CACHE_DIR, null);
+        if (remoteResourceCacheDir != null && resourceCacheDir != null) {
+            String path = localSrcPath.toUri().getPath();
+            if (path.startsWith(resourceCacheDir + File.separator)) {
+                Path dst = new Path(remoteResourceCacheDir, path.substring(resourceCacheDir.length() + 1));
+                if (!fileSystem.exists(dst)) {
+                    Path tmp = new Path(dst.getParent(), "." + dst.getName() + "." + applicationId);
+                    fileSystem.copyFromLocalFile(false, true, localSrcPath, tmp);
+                    fileSystem.setPermission(tmp, new FsPermission(FsAction.READ_WRITE, FsAction.READ, FsAction.READ));
+                    // 其他任务同时上传了相同的文件
+                    if (!fileSystem.rename(tmp, dst)) {
+                        fileSystem.delete(tmp, false);
+                    }
+                }
+                LOG.debug("Using resource cache file {} for {}", dst, localSrcPath);
+                return dst;
+            }
+        }
+
         final Path applicationDir = getApplicationDirPath(homeDir, applicationId);
         final String suffix =
                 (relativeDstPath.isEmpty() ? "" : relativeDstPath + "/") + localSrcPath.getName();
@@ -464,6 +485,28 @@ class YarnApplicationFileUploader implements AutoCloseable {
         return dst;
     }
 
+    /**
+     * 共享目录中的缓存文件对所有用户可读时注册为 PUBLIC，由 NodeManager 在节点上缓存并在任务间复用
+     */
+    private LocalResourceVisibility getVisibility(Path remotePath) throws IOException {
+        String remoteResourceCacheDir = flinkConfiguration == null
+                ? null : flinkConfiguration.getString(ConfigConstant.REMOTE_RESOURCE_CACHE_DIR, null);
+        if (remoteResourceCacheDir == null
+                || !remotePath.toString().startsWith(new Path(remoteResourceCacheDir).toString())) {
+            return LocalResourceVisibility.APPLICATION;
+        }
+
+        if (!fileSystem.getFileStatus(remotePath).getPermission().getOtherAction().implies(FsAction.READ)) {
+            return LocalResourceVisibility.APPLICATION;
+        }
+        for (Path parent = remotePath.getParent(); parent != null; parent = parent.getParent()) {
+            if (!fileSystem.getFileStatus(parent).getPermission().getOtherAction().implies(FsAction.EXECUTE)) {
+                return LocalResourceVisibility.APPLICATION;
+            }
+        }
+        return LocalResourceVisibility.PUBLIC;
+    }
+
     private FileStatus[] waitForTransferToComplete(Path dst) throws IOException {
         final int noOfRetries = 3;
         final int retryDelayMs = 100;
@@ -27,6 +27,7 @@ import com.dtstack.taier.pluginapi.pojo.ParamAction;
 import com.dtstack.taier.base.resource.EngineResourceInfo;
 import com.dtstack.taier.base.util.HadoopConfTool;
 import com.dtstack.taier.base.util.KerberosUtils;
+import com.dtstack.taier.base.util.YarnApplicationUtils;
 import com.dtstack.taier.pluginapi.JarFileInfo;
 import com.dtstack.taier.pluginapi.JobClient;
 import com.dtstack.taier.pluginapi.JobIdentifier;
@@ -78,6 +79,7 @@ public class HadoopClient extends AbstractClient {
     private static final String HDFS_PREFIX = "hdfs://";
     private static final String HADOOP_USER_NAME = "HADOOP_USER_NAME";
     private static final String QUEUE = "queue";
+    private static final Set<String> APPLICATION_TYPES = Collections.singleton("MAPREDUCE");
     private EngineResourceInfo resourceInfo = new HadoopResourceInfo();
     private Configuration conf = new Configuration();
     private volatile YarnClient yarnClient;
@@ -164,38 +166,7 @@ public class HadoopClient extends AbstractClient {
 
                 try {
                     ApplicationReport report = getYarnClient().getApplicationReport(appId);
-                    YarnApplicationState applicationState = report.getYarnApplicationState();
-                    switch(applicationState) {
-                        case KILLED:
-                            return TaskStatus.KILLED;
-                        case NEW:
-                        case NEW_SAVING:
-                            return TaskStatus.CREATED;
-                        case SUBMITTED:
-                            //FIXME 特殊逻辑,认为已提交到计算引擎的状态为等待资源状态
-                            return TaskStatus.WAITCOMPUTE;
-                        case ACCEPTED:
-                            return TaskStatus.SCHEDULED;
-                        case RUNNING:
-                            return TaskStatus.RUNNING;
-                        case FINISHED:
-                            //state 为finished状态下需要兼顾判断finalStatus.
-                            FinalApplicationStatus finalApplicationStatus = report.getFinalApplicationStatus();
-                            if(finalApplicationStatus == FinalApplicationStatus.FAILED){
-                                return TaskStatus.FAILED;
-                            }else if(finalApplicationStatus == FinalApplicationStatus.SUCCEEDED){
-                                return TaskStatus.FINISHED;
-                            }else if(finalApplicationStatus == FinalApplicationStatus.KILLED){
-                                return TaskStatus.KILLED;
-                            }else{
-                                return TaskStatus.RUNNING;
-                            }
-
-                        case FAILED:
-                            return TaskStatus.FAILED;
-                        default:
-                            throw new PluginDefineException("Unsupported application state");
-                    }
+                    return YarnApplicationUtils.convertTaskStatus(report);
                 } catch (Exception e) {
                     return TaskStatus.NOTFOUND;
                 }
@@ -206,6 +177,39 @@ public class HadoopClient extends AbstractClient {
         }
     }
 
+    @Override
+    public Map<String, TaskStatus> getJobStatusBatch(List<JobIdentifier> jobIdentifiers) throws IOException {
+        Map<String, TaskStatus> statusMap = new HashMap<>(jobIdentifiers.size());
+        try {
+            Map<String, ApplicationReport> reports = KerberosUtils.login(config, () -> {
+                Set<String> appIds = new HashSet<>(jobIdentifiers.size());
+                for (JobIdentifier jobIdentifier : jobIdentifiers) {
+                    appIds.add(generateApplicationId(jobIdentifier.getEngineJobId()).toString());
+                }
+                try {
+                    return YarnApplicationUtils.getApplicationReports(getYarnClient(), APPLICATION_TYPES, appIds);
+                } catch (Exception e) {
+                    throw new PluginDefineException(e);
+                }
+            }, conf);
+            for (JobIdentifier jobIdentifier : jobIdentifiers) {
+                ApplicationReport report = reports.get(generateApplicationId(jobIdentifier.getEngineJobId()).toString());
+                if (report != null) {
+                    statusMap.put(jobIdentifier.getJobId(), YarnApplicationUtils.convertTaskStatus(report));
+                }
+            }
+        } catch (Exception e) {
+            LOG.error("batch get job status error, fallback to single query", e);
+        }
+        // 列表中没有的任务(已被 RM 清理或批量查询失败)逐个查询
+        for (JobIdentifier jobIdentifier : jobIdentifiers) {
+            if (!statusMap.containsKey(jobIdentifier.getJobId())) {
+                statusMap.put(jobIdentifier.getJobId(), getJobStatus(jobIdentifier));
+            }
+        }
+        return statusMap;
+    }
+
     @Override
     public String getJobMaster(JobIdentifier jobIdentifier) {
         throw new PluginDefineException("hadoop client not support method 'getJobMaster'");
@@ -304,6 +308,17 @@ public class HadoopClient extends AbstractClient {
 
     }
 
+    @Override
+    public void close() {
+        if (yarnClient != null) {
+            try {
+                yarnClient.stop();
+            } catch (Exception e) {
+                LOG.error("stop yarnClient error", e);
+            }
+        }
+    }
+
     private void setHadoopUserName(Config config){
         if(Strings.isNullOrEmpty(config.getHadoopUserName())){
             return;
@@ -23,27 +23,26 @@ import com.dtstack.taier.base.resource.EngineResourceInfo;
 import com.dtstack.taier.pluginapi.JobClient;
 import com.dtstack.taier.pluginapi.JobIdentifier;
 import com.dtstack.taier.pluginapi.client.AbstractClient;
+import com.dtstack.taier.pluginapi.client.QueryCursor;
 import com.dtstack.taier.pluginapi.enums.EJobType;
 import com.dtstack.taier.pluginapi.enums.TaskStatus;
 import com.dtstack.taier.pluginapi.exception.ExceptionUtil;
 import com.dtstack.taier.pluginapi.exception.PluginDefineException;
 import com.dtstack.taier.pluginapi.pojo.JobResult;
 import com.dtstack.taier.pluginapi.pojo.JudgeResult;
+import com.dtstack.taier.pluginapi.pojo.QueryOptions;
 import com.dtstack.taier.pluginapi.util.MathUtil;
 import com.dtstack.taier.pluginapi.util.PublicUtil;
 import com.dtstack.taier.rdbs.common.constant.ConfigConstant;
 import com.dtstack.taier.rdbs.common.executor.AbstractConnFactory;
+import com.dtstack.taier.rdbs.common.executor.JdbcQueryCursor;
 import com.dtstack.taier.rdbs.common.executor.RdbsExeQueue;
-import com.google.common.collect.Lists;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.sql.Connection;
-import java.sql.ResultSet;
-import java.sql.Statement;
-import java.text.SimpleDateFormat;
 import java.util.List;
 import java.util.Properties;
 
@@ -66,6 +65,11 @@ public abstract class AbstractRdbsClient extends AbstractClient {
 
     protected String dbType = "rdbs";
 
+    /**
+     * executeQuery 的默认读取限制，避免大结果集一次性读入内存
+     */
+    private QueryOptions queryOptions = new QueryOptions();
+
     protected abstract AbstractConnFactory getConnFactory();
 
     @Override
@@ -78,6 +82,10 @@ public abstract class AbstractRdbsClient extends AbstractClient {
                 MathUtil.getIntegerVal(prop.get(ConfigConstant.MIN_JOB_POOL_KEY)));
         exeQueue.init();
         resourceInfo = new RdbsResourceInfo(exeQueue);
+        queryOptions = new QueryOptions(
+                MathUtil.getIntegerVal(prop.get(ConfigConstant.QUERY_FETCH_SIZE_KEY), QueryOptions.DEFAULT_FETCH_SIZE),
+                MathUtil.getIntegerVal(prop.get(ConfigConstant.QUERY_MAX_ROWS_KEY), QueryOptions.DEFAULT_MAX_ROWS),
+                MathUtil.getLongVal(prop.get(ConfigConstant.QUERY_MAX_BYTES_KEY), QueryOptions.DEFAULT_MAX_BYTES));
         LOG.warn("-------init {} plugin success-----, properties={}", dbType, prop.toString());
     }
 
@@ -166,73 +174,37 @@ public abstract class AbstractRdbsClient extends AbstractClient {
         return componentTestResult;
     }
 
+    @Override
+    public void close() {
+        if (connFactory != null) {
+            connFactory.close();
+        }
+    }
+
     @Override
     public List<List<Object>> executeQuery(String sql, String database) {
-        Statement statement = null;
-        ResultSet res = null;
+        if (StringUtils.isBlank(sql)) {
+            return null;
+        }
+        QueryCursor cursor = executeQueryCursor(sql, database, queryOptions);
+        List<List<Object>> result = cursor.readAll();
+        // 一次性返回的结果不能静默截断，超过上限时报错，需要大结果集的调用方使用 executeQueryCursor
+        if (cursor.isTruncated()) {
+            throw new PluginDefineException(String.format("query result exceeds the limit(%s), readRows:%s, readBytes:%s, please add a limit to the sql: %s",
+                    queryOptions, cursor.getReadRows(), cursor.getReadBytes(), sql));
+        }
+        return result;
+    }
+
+    @Override
+    public QueryCursor executeQueryCursor(String sql, String database, QueryOptions options) {
         Connection conn = null;
-        List<List<Object>> result = Lists.newArrayList();
         try {
-            if (StringUtils.isBlank(sql)) {
-                return null;
-            }
             conn = connFactory.getConn();
-            statement = conn.createStatement();
-            if (StringUtils.isNotBlank(database)) {
-                statement.execute("use " + database);
-            }
-
-            if (statement.execute(sql)) {
-                res = statement.getResultSet();
-                int columns = res.getMetaData().getColumnCount();
-                List<Object> cloumnName = Lists.newArrayList();
-                int timeStamp = 0;
-                SimpleDateFormat dateFormat = null;
-
-                for (int i = 1; i <= columns; ++i) {
-                    String name = res.getMetaData().getColumnName(i);
-                    if (name.contains(".")) {
-                        name = name.split("\\.")[1];
-                    }
-                    cloumnName.add(name);
-                }
-
-                result.add(cloumnName);
-
-                while (res.next()) {
-                    List<Object> objects = Lists.newArrayList();
-
-                    for (int i = 1; i <= columns; ++i) {
-                        if (i == timeStamp && null != dateFormat) {
-                            objects.add(dateFormat.format(res.getObject(i)));
-                        } else {
-                            objects.add(res.getObject(i));
-                        }
-                    }
-
-                    result.add(objects);
-                }
-            }
+            return new JdbcQueryCursor(conn, sql, database, options == null ? queryOptions : options);
         } catch (Exception e) {
-            LOG.error("execue sql {} error",sql,e);
+            LOG.error("execue sql {} error", sql, e);
             throw new PluginDefineException(e);
-        } finally {
-            try {
-                if (res != null) {
-                    res.close();
-                }
-
-                if (statement != null) {
-                    statement.close();
-                }
-
-                if (null != conn){
-                    conn.close();;
-                }
-            } catch (Throwable var18) {
-                LOG.error("", var18);
-            }
         }
-        return result;
     }
 }
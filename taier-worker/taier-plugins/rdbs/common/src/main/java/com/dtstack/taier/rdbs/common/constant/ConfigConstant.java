@@ -36,4 +36,13 @@ public class ConfigConstant {
     public static final String MAX_JOB_POOL_KEY = "maxJobPoolSize";
     public static final String MIN_JOB_POOL_KEY = "minJobPoolSize";
 
+    public static final String QUERY_FETCH_SIZE_KEY = "queryFetchSize";
+    public static final String QUERY_MAX_ROWS_KEY = "queryMaxRows";
+    public static final String QUERY_MAX_BYTES_KEY = "queryMaxBytes";
+
+    public static final String CONN_POOL_MAX_SIZE_KEY = "connPoolMaxSize";
+    public static final String CONN_POOL_MAX_IDLE_TIME_KEY = "connPoolMaxIdleTime";
+    public static final String CONN_POOL_MAX_LIFETIME_KEY = "connPoolMaxLifetime";
+    public static final String CONN_POOL_VALIDATION_INTERVAL_KEY = "connPoolValidationInterval";
+
 }
@@ -48,6 +48,13 @@ public abstract class AbstractConnFactory {
 
     private static final Logger LOG = LoggerFactory.getLogger(AbstractConnFactory.class);
 
+    /**
+     * 默认保留的空闲连接数，与执行队列默认的最大并发数一致
+     */
+    private static final int DEFAULT_CONN_POOL_MAX_SIZE = 20;
+
+    private static final String DEFAULT_CONN_KEY = "default";
+
     private AtomicBoolean isFirstLoaded = new AtomicBoolean(true);
 
     protected String jdbcUrl;
@@ -64,6 +71,11 @@ public abstract class AbstractConnFactory {
 
     protected BaseConfig baseConfig = new BaseConfig();
 
+    /**
+     * 连接池，maxSize 为最多保留的空闲连接数，配置小于等于0时不使用连接池
+     */
+    private volatile RdbsConnPool connPool;
+
     public void init(Properties properties) throws ClassNotFoundException {
         synchronized (AbstractConnFactory.class) {
             if (isFirstLoaded.get()) {
@@ -86,6 +98,7 @@ public abstract class AbstractConnFactory {
                 Map<String, Object> yarnMap = (Map<String, Object>) properties.get("yarnConf");
                 yarnConf = KerberosUtils.convertMapConfToConfiguration(yarnMap);
             }
+            initConnPool(properties);
             testConn();
         } catch (Exception e) {
             throw new PluginDefineException("get conn exception:" + e.toString());
@@ -118,7 +131,64 @@ public abstract class AbstractConnFactory {
 
     }
 
+    private void initConnPool(Properties properties) {
+        RdbsConnPool oldPool = connPool;
+        // 未配置时空闲连接数不小于执行队列的并发数，任务结束后归还的连接都可以复用
+        int defaultMaxSize = Math.max(DEFAULT_CONN_POOL_MAX_SIZE,
+                MathUtil.getIntegerVal(properties.get(ConfigConstant.MAX_JOB_POOL_KEY), DEFAULT_CONN_POOL_MAX_SIZE));
+        int maxSize = MathUtil.getIntegerVal(properties.get(ConfigConstant.CONN_POOL_MAX_SIZE_KEY), defaultMaxSize);
+        if (maxSize > 0) {
+            connPool = new RdbsConnPool(getClass().getSimpleName(), maxSize,
+                    MathUtil.getLongVal(properties.get(ConfigConstant.CONN_POOL_MAX_IDLE_TIME_KEY), 10 * 60 * 1000L),
+                    MathUtil.getLongVal(properties.get(ConfigConstant.CONN_POOL_MAX_LIFETIME_KEY), 60 * 60 * 1000L),
+                    MathUtil.getLongVal(properties.get(ConfigConstant.CONN_POOL_VALIDATION_INTERVAL_KEY), 30 * 1000L));
+        } else {
+            connPool = null;
+        }
+        if (oldPool != null) {
+            oldPool.close();
+        }
+    }
+
+    /**
+     * 从连接池获取连接，没有启用连接池时直接建连
+     *
+     * @param key     建连参数标识，参数不同的连接不会复用
+     * @param creator 建连方法
+     */
+    protected Connection getPooledConn(String key, RdbsConnPool.ConnCreator creator) throws SQLException {
+        RdbsConnPool pool = connPool;
+        try {
+            return pool == null ? creator.create() : pool.getConn(key, creator);
+        } catch (SQLException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new PluginDefineException(e);
+        }
+    }
+
+    protected boolean isConnPoolEnabled() {
+        return connPool != null;
+    }
+
+    public Map<String, Object> getConnPoolMetrics() {
+        RdbsConnPool pool = connPool;
+        return pool == null ? Collections.emptyMap() : pool.getMetrics();
+    }
+
+    public void close() {
+        RdbsConnPool pool = connPool;
+        connPool = null;
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
     public Connection getConn() throws Exception {
+        return getPooledConn(DEFAULT_CONN_KEY, this::createConn);
+    }
+
+    protected Connection createConn() throws Exception {
         return KerberosUtils.login(baseConfig, () -> {
             Connection conn = null;
             try {
@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dtstack.taier.rdbs.common.executor;
+
+import com.dtstack.taier.pluginapi.client.AbstractQueryCursor;
+import com.dtstack.taier.pluginapi.pojo.QueryOptions;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 基于 jdbc ResultSet 的流式查询结果，按 fetchSize 分批拉取，连接在读完或 close 时释放
+ */
+public class JdbcQueryCursor extends AbstractQueryCursor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JdbcQueryCursor.class);
+
+    private final Connection conn;
+
+    private final Statement statement;
+
+    private ResultSet res;
+
+    private int columnCount = 0;
+
+    private List<Object> columns = Collections.emptyList();
+
+    private volatile boolean closed = false;
+
+    public JdbcQueryCursor(Connection conn, String sql, String database, QueryOptions options) throws Exception {
+        super(options);
+        this.conn = conn;
+        try {
+            this.statement = conn.createStatement();
+            if (StringUtils.isNotBlank(database)) {
+                statement.execute("use " + database);
+            }
+            if (this.options.getFetchSize() > 0) {
+                statement.setFetchSize(this.options.getFetchSize());
+            }
+            if (this.options.getMaxRows() > 0 && this.options.getMaxRows() < Integer.MAX_VALUE) {
+                // 多取一行用于判断结果是否被截断
+                statement.setMaxRows(this.options.getMaxRows() + 1);
+            }
+            RdbsConnPool.discardIfSessionChanged(conn, sql);
+            if (statement.execute(sql)) {
+                res = statement.getResultSet();
+                columnCount = res.getMetaData().getColumnCount();
+                columns = new ArrayList<>(columnCount);
+                for (int i = 1; i <= columnCount; ++i) {
+                    String name = res.getMetaData().getColumnName(i);
+                    if (name.contains(".")) {
+                        name = name.split("\\.")[1];
+                    }
+                    columns.add(name);
+                }
+            }
+        } catch (Exception e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    protected List<Object> fetchRow() throws Exception {
+        if (res == null || closed || !res.next()) {
+            return null;
+        }
+        List<Object> row = new ArrayList<>(columnCount);
+        for (int i = 1; i <= columnCount; ++i) {
+            row.add(res.getObject(i));
+        }
+        return row;
+    }
+
+    @Override
+    protected void doCancel() throws Exception {
+        if (statement != null && !closed) {
+            statement.cancel();
+        }
+    }
+
+    @Override
+    public List<Object> getColumns() {
+        return columns;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (res != null) {
+                res.close();
+            }
+            if (statement != null) {
+                statement.close();
+            }
+        } catch (Throwable e) {
+            LOG.error("", e);
+        } finally {
+            try {
+                conn.close();
+            } catch (Throwable e) {
+                LOG.error("", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,401 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dtstack.taier.rdbs.common.executor;
+
+import com.dtstack.taier.pluginapi.CustomThreadFactory;
+import com.dtstack.taier.pluginapi.exception.PluginDefineException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * connFactory 使用的连接池，hive 等建连需要 kerberos 认证的数据源每次建连耗时较长，连接用完后放回池中复用。
+ * 连接按 key 区分，建连参数不同(如不同的 taskParams)的连接不会混用；
+ * 归还时恢复自动提交和建连时的 schema，无法恢复的连接直接关闭不再复用。
+ * 只限制池中空闲连接数，不限制借出的连接数：任务执行期间一直持有连接，借出数由执行队列的并发度决定，
+ * 在这里限制会让超出的任务等待后失败
+ */
+public class RdbsConnPool {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RdbsConnPool.class);
+
+    private static final int VALID_TIMEOUT_SECONDS = 5;
+
+    /**
+     * set、add jar、创建临时函数会修改会话状态，执行过的连接不再放回池中，避免影响后续使用者
+     */
+    private static final Pattern SESSION_CHANGE_SQL = Pattern.compile("(?i)^\\s*(set|add|create\\s+temporary)\\s+.*", Pattern.DOTALL);
+
+    /**
+     * 最多保留的空闲连接数
+     */
+    private final int maxIdleSize;
+
+    private final long maxIdleTime;
+
+    private final long maxLifetime;
+
+    private final long validationInterval;
+
+    private final Map<String, Deque<PooledConn>> idleConns = new HashMap<>();
+
+    private final ScheduledExecutorService evictService;
+
+    private int idleSize = 0;
+
+    private volatile boolean closed = false;
+
+    private long lastLoggedBorrowCount = 0L;
+
+    private final AtomicLong borrowCount = new AtomicLong();
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong createCount = new AtomicLong();
+
+    private final AtomicInteger activeSize = new AtomicInteger();
+
+    private final AtomicLong invalidCount = new AtomicLong();
+
+    public RdbsConnPool(String name, int maxIdleSize, long maxIdleTime, long maxLifetime, long validationInterval) {
+        this.maxIdleSize = maxIdleSize;
+        this.maxIdleTime = maxIdleTime;
+        this.maxLifetime = maxLifetime;
+        this.validationInterval = validationInterval;
+        long evictInterval = Math.max(1000L, Math.min(maxIdleTime, 60 * 1000L));
+        this.evictService = new ScheduledThreadPoolExecutor(1, new CustomThreadFactory(name + "_RdbsConnPool"));
+        this.evictService.scheduleWithFixedDelay(this::evict, evictInterval, evictInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 获取连接，连接 close 时放回池中
+     *
+     * @param key     连接参数标识
+     * @param creator 池中没有可用连接时的建连方法
+     */
+    public Connection getConn(String key, ConnCreator creator) throws SQLException {
+        if (closed) {
+            throw new PluginDefineException("conn pool is closed");
+        }
+        borrowCount.incrementAndGet();
+        activeSize.incrementAndGet();
+
+        try {
+            PooledConn pooledConn;
+            while ((pooledConn = pollIdle(key)) != null) {
+                if (validate(pooledConn)) {
+                    hitCount.incrementAndGet();
+                    return pooledConn.borrow();
+                }
+                invalidCount.incrementAndGet();
+                closeQuietly(pooledConn.conn);
+            }
+
+            Connection conn = creator.create();
+            createCount.incrementAndGet();
+            return new PooledConn(key, conn).borrow();
+        } catch (SQLException | RuntimeException e) {
+            activeSize.decrementAndGet();
+            throw e;
+        } catch (Exception e) {
+            activeSize.decrementAndGet();
+            throw new PluginDefineException(e);
+        }
+    }
+
+    private synchronized PooledConn pollIdle(String key) {
+        Deque<PooledConn> conns = idleConns.get(key);
+        if (conns == null) {
+            return null;
+        }
+        // 优先使用最近归还的连接，空闲太久的连接留给驱逐线程关闭
+        PooledConn pooledConn = conns.pollLast();
+        if (conns.isEmpty()) {
+            idleConns.remove(key);
+        }
+        if (pooledConn != null) {
+            idleSize--;
+        }
+        return pooledConn;
+    }
+
+    private boolean validate(PooledConn pooledConn) {
+        long now = System.currentTimeMillis();
+        if (now - pooledConn.createTime > maxLifetime) {
+            return false;
+        }
+        if (now - pooledConn.lastUsedTime < validationInterval) {
+            return true;
+        }
+        try {
+            return pooledConn.conn.isValid(VALID_TIMEOUT_SECONDS);
+        } catch (Throwable e) {
+            // 驱动不支持 isValid 时只判断是否已关闭
+            try {
+                return !pooledConn.conn.isClosed();
+            } catch (Throwable ex) {
+                return false;
+            }
+        }
+    }
+
+    private void giveBack(PooledConn pooledConn) {
+        try {
+            if (closed || !pooledConn.reset()) {
+                closeQuietly(pooledConn.conn);
+                return;
+            }
+            pooledConn.lastUsedTime = System.currentTimeMillis();
+            boolean pooled = false;
+            synchronized (this) {
+                if (idleSize < maxIdleSize) {
+                    idleConns.computeIfAbsent(pooledConn.key, k -> new ArrayDeque<>()).addLast(pooledConn);
+                    idleSize++;
+                    pooled = true;
+                }
+            }
+            if (!pooled) {
+                closeQuietly(pooledConn.conn);
+            }
+        } finally {
+            activeSize.decrementAndGet();
+        }
+    }
+
+    /**
+     * 关闭空闲太久或超过最大存活时间的连接
+     */
+    private void evict() {
+        List<Connection> evicted = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            Iterator<Map.Entry<String, Deque<PooledConn>>> entryIterator = idleConns.entrySet().iterator();
+            while (entryIterator.hasNext()) {
+                Deque<PooledConn> conns = entryIterator.next().getValue();
+                Iterator<PooledConn> iterator = conns.iterator();
+                while (iterator.hasNext()) {
+                    PooledConn pooledConn = iterator.next();
+                    if (now - pooledConn.lastUsedTime > maxIdleTime || now - pooledConn.createTime > maxLifetime) {
+                        iterator.remove();
+                        idleSize--;
+                        evicted.add(pooledConn.conn);
+                    }
+                }
+                if (conns.isEmpty()) {
+                    entryIterator.remove();
+                }
+            }
+        }
+        evicted.forEach(this::closeQuietly);
+        // 有连接被驱逐或者期间有借用时输出一次统计
+        long borrow = borrowCount.get();
+        if (!evicted.isEmpty() || borrow != lastLoggedBorrowCount) {
+            lastLoggedBorrowCount = borrow;
+            LOG.info("conn pool evict {} idle conn, metrics:{}", evicted.size(), getMetrics());
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        long borrow = borrowCount.get();
+        metrics.put("maxIdleSize", maxIdleSize);
+        metrics.put("activeSize", activeSize.get());
+        synchronized (this) {
+            metrics.put("idleSize", idleSize);
+        }
+        metrics.put("borrowCount", borrow);
+        metrics.put("hitCount", hitCount.get());
+        metrics.put("hitRatio", borrow == 0 ? 0D : (double) hitCount.get() / borrow);
+        metrics.put("createCount", createCount.get());
+        metrics.put("invalidCount", invalidCount.get());
+        return metrics;
+    }
+
+    public void close() {
+        closed = true;
+        evictService.shutdownNow();
+        List<Connection> conns = new ArrayList<>();
+        synchronized (this) {
+            idleConns.values().forEach(deque -> deque.forEach(pooledConn -> conns.add(pooledConn.conn)));
+            idleConns.clear();
+            idleSize = 0;
+        }
+        conns.forEach(this::closeQuietly);
+    }
+
+    private void closeQuietly(Connection conn) {
+        try {
+            conn.close();
+        } catch (Throwable e) {
+            LOG.warn("close conn error: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * sql 会修改会话参数时，连接 close 后直接关闭不再复用
+     *
+     * @param conn 连接池获取的连接
+     * @param sql  在该连接上执行的 sql
+     */
+    public static void discardIfSessionChanged(Connection conn, String sql) {
+        if (conn instanceof Discardable && sql != null && SESSION_CHANGE_SQL.matcher(sql).matches()) {
+            ((Discardable) conn).discard();
+        }
+    }
+
+    interface Discardable {
+        void discard();
+    }
+
+    @FunctionalInterface
+    public interface ConnCreator {
+        Connection create() throws Exception;
+    }
+
+    private class PooledConn {
+
+        private final String key;
+
+        private final Connection conn;
+
+        private final long createTime;
+
+        /**
+         * 建连时的 schema，用于归还时恢复 use db 的修改，为 null 时连接不复用
+         */
+        private final String schema;
+
+        private volatile long lastUsedTime;
+
+        private volatile boolean discarded = false;
+
+        private PooledConn(String key, Connection conn) {
+            this.key = key;
+            this.conn = conn;
+            this.createTime = System.currentTimeMillis();
+            this.lastUsedTime = createTime;
+            String currentSchema = null;
+            try {
+                currentSchema = conn.getSchema();
+            } catch (Throwable e) {
+                LOG.debug("driver not support getSchema, conn will not be reused: {}", e.getMessage());
+            }
+            this.schema = currentSchema;
+        }
+
+        private Connection borrow() {
+            return (Connection) Proxy.newProxyInstance(RdbsConnPool.class.getClassLoader(),
+                    new Class[]{Connection.class, Discardable.class}, new ConnHandler(this));
+        }
+
+        /**
+         * @return 是否可以放回池中
+         */
+        private boolean reset() {
+            if (schema == null || discarded) {
+                return false;
+            }
+            try {
+                if (conn.isClosed()) {
+                    return false;
+                }
+                if (!conn.getAutoCommit()) {
+                    conn.rollback();
+                    conn.setAutoCommit(true);
+                }
+                conn.setSchema(schema);
+                return true;
+            } catch (Throwable e) {
+                LOG.warn("reset conn error, conn will be closed: {}", e.getMessage());
+                return false;
+            }
+        }
+    }
+
+    /**
+     * 拦截 close，把连接放回池中，其他方法直接调用原连接
+     */
+    private class ConnHandler implements InvocationHandler {
+
+        private final PooledConn pooledConn;
+
+        private boolean returned = false;
+
+        private ConnHandler(PooledConn pooledConn) {
+            this.pooledConn = pooledConn;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (method.getDeclaringClass() == Object.class) {
+                if ("equals".equals(name)) {
+                    return proxy == args[0];
+                }
+                if ("hashCode".equals(name)) {
+                    return System.identityHashCode(proxy);
+                }
+                return "Pooled" + pooledConn.conn;
+            }
+            if ("close".equals(name)) {
+                synchronized (this) {
+                    if (!returned) {
+                        returned = true;
+                        giveBack(pooledConn);
+                    }
+                }
+                return null;
+            }
+            if ("discard".equals(name)) {
+                pooledConn.discarded = true;
+                return null;
+            }
+            if ("isClosed".equals(name) && returned) {
+                return true;
+            }
+            if (returned) {
+                throw new SQLException("connection has been returned to pool");
+            }
+            try {
+                return method.invoke(pooledConn.conn, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+    }
+}
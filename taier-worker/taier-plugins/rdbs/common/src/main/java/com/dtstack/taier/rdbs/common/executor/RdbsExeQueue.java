@@ -249,6 +249,7 @@ public class RdbsExeQueue {
                     }
 
                     long sqlStart = System.currentTimeMillis();
+                    RdbsConnPool.discardIfSessionChanged(conn, currentSql);
                     simpleStmt.execute(currentSql);
                     LOG.info("exe {} line success,jobId={},jobName={},cost={}ms", i++, engineJobId, jobName, (System.currentTimeMillis() - sqlStart));
                     if (isCancel.get()) {
@@ -24,8 +24,10 @@ import com.dtstack.taier.pluginapi.JobClient;
 import com.dtstack.taier.pluginapi.JobIdentifier;
 import com.dtstack.taier.pluginapi.enums.EJobType;
 import com.dtstack.taier.pluginapi.enums.TaskStatus;
+import com.dtstack.taier.pluginapi.exception.PluginDefineException;
 import com.dtstack.taier.pluginapi.pojo.JobResult;
 import com.dtstack.taier.pluginapi.pojo.JudgeResult;
+import com.dtstack.taier.pluginapi.pojo.QueryOptions;
 import com.dtstack.taier.rdbs.common.executor.RdbsExeQueue;
 import org.junit.Assert;
 import org.junit.Before;
@@ -200,4 +202,43 @@ public class AbstractRdbsClientTest {
         List<List<Object>> execRes = testRdbsClient.executeQuery(sql, database);
         Assert.assertNotNull(execRes);
     }
+
+    @Test
+    public void testExecuteDdl() throws Exception {
+        TestConnFactory connFactory = PowerMockito.mock(TestConnFactory.class);
+        Connection connection = PowerMockito.mock(Connection.class);
+        Statement stmt = PowerMockito.mock(Statement.class);
+        when(stmt.execute(any(String.class))).thenReturn(false);
+        when(connection.createStatement()).thenReturn(stmt);
+        when(connFactory.getConn()).thenReturn(connection);
+        MemberModifier.field(TestRdbsClient.class, "connFactory").set(testRdbsClient, connFactory);
+
+        List<List<Object>> execRes = testRdbsClient.executeQuery("create table t1(id int)", "default");
+        Assert.assertNotNull(execRes);
+        Assert.assertTrue(execRes.isEmpty());
+    }
+
+    @Test(expected = PluginDefineException.class)
+    public void testExecuteQueryExceedLimit() throws Exception {
+        TestConnFactory connFactory = PowerMockito.mock(TestConnFactory.class);
+        Connection connection = PowerMockito.mock(Connection.class);
+        Statement stmt = PowerMockito.mock(Statement.class);
+        when(stmt.execute(any(String.class))).thenReturn(true);
+
+        ResultSet res = PowerMockito.mock(ResultSet.class);
+        ResultSetMetaData metaData = PowerMockito.mock(ResultSetMetaData.class);
+        when(metaData.getColumnCount()).thenReturn(1);
+        when(metaData.getColumnName(any(int.class))).thenReturn("name");
+        when(res.getMetaData()).thenReturn(metaData);
+        when(res.next()).thenReturn(true);
+        when(res.getObject(any(int.class))).thenReturn("value");
+        when(stmt.getResultSet()).thenReturn(res);
+
+        when(connection.createStatement()).thenReturn(stmt);
+        when(connFactory.getConn()).thenReturn(connection);
+        MemberModifier.field(TestRdbsClient.class, "connFactory").set(testRdbsClient, connFactory);
+        MemberModifier.field(AbstractRdbsClient.class, "queryOptions").set(testRdbsClient, new QueryOptions(10, 2, 0));
+
+        testRdbsClient.executeQuery("select * from tables", "default");
+    }
 }
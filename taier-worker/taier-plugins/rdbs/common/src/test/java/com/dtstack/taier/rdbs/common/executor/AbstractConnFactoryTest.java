@@ -33,6 +33,8 @@ import org.powermock.modules.junit4.PowerMockRunner;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -70,6 +72,43 @@ public class AbstractConnFactoryTest {
         testConnFactory.init(props);
     }
 
+    @Test
+    public void testConnPoolMaxSize() throws Exception {
+        MemberModifier.field(TestConnFactory.class, "driverName").set(testConnFactory, "com.mysql.jdbc.Driver");
+        MemberModifier.field(TestConnFactory.class, "isFirstLoaded").set(testConnFactory, new AtomicBoolean(true));
+
+        PowerMockito.mockStatic(DriverManager.class);
+        Connection conn = PowerMockito.mock(Connection.class);
+        Statement stmt = PowerMockito.mock(Statement.class);
+        when(stmt.execute(any(String.class))).thenReturn(true);
+        when(conn.createStatement()).thenReturn(stmt);
+        when(DriverManager.getConnection(any(String.class), any(String.class), any(String.class))).thenReturn(conn);
+
+        Properties props = new Properties();
+        props.put("jdbcUrl", "jdbcUrl");
+        props.put("username", "username");
+        props.put("password", "password");
+        testConnFactory.init(props);
+        // 默认空闲连接数与执行队列默认并发数一致
+        Assert.assertEquals(20, testConnFactory.getConnPoolMetrics().get("maxIdleSize"));
+
+        // 并发借出数超过空闲上限时不等待
+        List<Connection> conns = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            conns.add(testConnFactory.getConn());
+        }
+        Assert.assertEquals(30, testConnFactory.getConnPoolMetrics().get("activeSize"));
+        for (Connection borrowed : conns) {
+            borrowed.close();
+        }
+        Assert.assertEquals(0, testConnFactory.getConnPoolMetrics().get("activeSize"));
+
+        props.put("maxJobPoolSize", "30");
+        testConnFactory.init(props);
+        Assert.assertEquals(30, testConnFactory.getConnPoolMetrics().get("maxIdleSize"));
+        testConnFactory.close();
+    }
+
     @Test
     public void testSupportProcedure() {
         String sql = "begin \n select * from stu;\n end";
@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dtstack.taier.rdbs.common.executor;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.when;
+
+public class RdbsConnPoolTest {
+
+    private static final int MAX_IDLE_SIZE = 5;
+
+    private RdbsConnPool pool;
+
+    private List<Connection> created;
+
+    @Before
+    public void setUp() {
+        pool = new RdbsConnPool("test", MAX_IDLE_SIZE, 10 * 60 * 1000L, 60 * 60 * 1000L, 30 * 1000L);
+        created = new ArrayList<>();
+    }
+
+    @After
+    public void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    public void testBorrowMoreThanMaxIdleSize() throws Exception {
+        int borrowers = MAX_IDLE_SIZE * 4;
+        ExecutorService executor = Executors.newFixedThreadPool(borrowers);
+        CountDownLatch allBorrowed = new CountDownLatch(borrowers);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < borrowers; i++) {
+                futures.add(executor.submit(() -> {
+                    // 模拟执行中的任务一直持有连接
+                    Connection conn = pool.getConn("default", this::createConn);
+                    allBorrowed.countDown();
+                    release.await();
+                    conn.close();
+                    return null;
+                }));
+            }
+            // 借出数超过空闲上限时不需要等待
+            Assert.assertTrue(allBorrowed.await(5, TimeUnit.SECONDS));
+            Assert.assertEquals(borrowers, pool.getMetrics().get("activeSize"));
+
+            release.countDown();
+            for (Future<?> future : futures) {
+                future.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assert.assertEquals(0, pool.getMetrics().get("activeSize"));
+        Assert.assertEquals(MAX_IDLE_SIZE, pool.getMetrics().get("idleSize"));
+        // 超出空闲上限的连接归还时直接关闭
+        int closedCount = 0;
+        for (Connection conn : created) {
+            if (Mockito.mockingDetails(conn).getInvocations().stream().anyMatch(i -> "close".equals(i.getMethod().getName()))) {
+                closedCount++;
+            }
+        }
+        Assert.assertEquals(borrowers - MAX_IDLE_SIZE, closedCount);
+    }
+
+    @Test
+    public void testReuseIdleConn() throws Exception {
+        Connection first = pool.getConn("default", this::createConn);
+        first.close();
+        Connection second = pool.getConn("default", this::createConn);
+        second.close();
+        Connection other = pool.getConn("other", this::createConn);
+        other.close();
+
+        Assert.assertEquals(2, created.size());
+        Assert.assertEquals(1L, pool.getMetrics().get("hitCount"));
+    }
+
+    @Test
+    public void testCreateFailedNotCountedActive() {
+        AtomicInteger attempts = new AtomicInteger();
+        try {
+            pool.getConn("default", () -> {
+                attempts.incrementAndGet();
+                throw new IllegalStateException("connect refused");
+            });
+            Assert.fail();
+        } catch (Exception e) {
+            Assert.assertTrue(e.getMessage().contains("connect refused"));
+        }
+        Assert.assertEquals(1, attempts.get());
+        Assert.assertEquals(0, pool.getMetrics().get("activeSize"));
+    }
+
+    private synchronized Connection createConn() throws Exception {
+        Connection conn = Mockito.mock(Connection.class);
+        when(conn.getSchema()).thenReturn("default");
+        when(conn.getAutoCommit()).thenReturn(true);
+        when(conn.isValid(anyInt())).thenReturn(true);
+        created.add(conn);
+        return conn;
+    }
+}
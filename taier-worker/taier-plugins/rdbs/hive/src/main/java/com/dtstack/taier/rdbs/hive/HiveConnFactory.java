@@ -33,6 +33,7 @@ import java.io.IOException;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
@@ -50,6 +51,8 @@ public class HiveConnFactory extends AbstractConnFactory {
 
     private static final String HIVE_CONF_PREFIX = "hiveconf:";
     private static final String HIVE_JOBNAME_PROPERTY = "hiveconf:mapreduce.job.name";
+    private static final String SET_JOB_NAME = "set mapreduce.job.name=";
+    private static final String TASK_PARAMS_CONN_KEY_PREFIX = "taskParams:";
     private static final String HIVECONF_MAPREDUCE_MAP_JAVA_OPTS = "hiveconf:mapreduce.map.java.opts";
     private static final String HIVECONF_MAPREDUCE_REDUCE_JAVA_OPTS = "hiveconf:mapreduce.reduce.java.opts";
 
@@ -81,10 +84,28 @@ public class HiveConnFactory extends AbstractConnFactory {
 
     @Override
     public Connection getConnByTaskParams(String taskParams, String jobName) throws ClassNotFoundException, SQLException, IOException {
+        if (!isConnPoolEnabled()) {
+            return createConnByTaskParams(taskParams, jobName);
+        }
+        // 池中的连接按 taskParams 复用，任务名在每次获取连接后重新设置
+        Connection conn = getPooledConn(TASK_PARAMS_CONN_KEY_PREFIX + StringUtils.defaultString(taskParams),
+                () -> createConnByTaskParams(taskParams, null));
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(SET_JOB_NAME + jobName);
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+        return conn;
+    }
+
+    private Connection createConnByTaskParams(String taskParams, String jobName) throws ClassNotFoundException, SQLException, IOException {
         Properties properties = new Properties();;
         Connection conn;
 
-        properties.setProperty(HIVE_JOBNAME_PROPERTY , jobName);
+        if (jobName != null) {
+            properties.setProperty(HIVE_JOBNAME_PROPERTY, jobName);
+        }
 
         if (StringUtils.isNotEmpty(taskParams)) {
             for (String line : taskParams.split("\n")) {
@@ -22,6 +22,10 @@ import com.dtstack.taier.base.util.Splitter;
 import com.dtstack.taier.sql.main.util.ZipUtil;
 import com.google.common.base.Charsets;
 import org.apache.commons.lang.StringUtils;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.permission.FsPermission;
 import org.apache.log4j.Level;
 import org.apache.spark.SparkConf;
 import org.apache.spark.sql.SparkSession;
@@ -29,8 +33,11 @@ import org.codehaus.jackson.map.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.UnsupportedEncodingException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.URLDecoder;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -58,6 +65,16 @@ public class SqlProxy {
 
     private static final String SPARK_SESSION_CONF_KEY = "sparkSessionConf";
 
+    private static final String SESSION_MODE_KEY = "sessionMode";
+
+    private static final String SESSION_TOKEN_KEY = "sessionToken";
+
+    private static final String SESSION_IDLE_TIMEOUT_KEY = "sessionIdleTimeout";
+
+    private static final String SESSION_ADDRESS_DIR_KEY = "sessionAddressDir";
+
+    private static final long DEFAULT_SESSION_IDLE_TIMEOUT = 30 * 60 * 1000L;
+
     public void runJob(String submitSql, String appName, String logLevel, SparkConf conf){
 
         if(appName == null){
@@ -89,7 +106,54 @@ public class SqlProxy {
         spark.close();
     }
 
-    public static void main(String[] args) throws UnsupportedEncodingException {
+    /**
+     * 常驻会话模式，driver 启动后把访问地址写到 addressDir/applicationId，由插件侧的会话池提交 sql
+     */
+    public void runSession(String appName, String logLevel, SparkConf conf, String token, long idleTimeout, String addressDir) throws Exception {
+        if(appName == null){
+            appName = DEFAULT_APP_NAME;
+        }
+
+        SparkSession spark = SparkSession
+                .builder()
+                .config(conf)
+                .appName(appName)
+                .enableHiveSupport()
+                .getOrCreate();
+
+        setLogLevel(spark, logLevel);
+        SqlSessionServer sessionServer = new SqlSessionServer(spark, token, idleTimeout);
+        Path path = StringUtils.isBlank(addressDir) ? null : new Path(addressDir, spark.sparkContext().applicationId());
+        FileSystem fs = path == null ? null : path.getFileSystem(spark.sparkContext().hadoopConfiguration());
+        try {
+            InetSocketAddress address = sessionServer.start(0);
+            String host = spark.conf().get("spark.driver.host", InetAddress.getLocalHost().getHostName());
+            if (fs != null) {
+                writeAddress(fs, path, host, address.getPort(), token);
+            }
+            logger.info("spark sql session started, host:{}, port:{}", host, address.getPort());
+            sessionServer.awaitIdle();
+        } finally {
+            sessionServer.stop();
+            if (fs != null) {
+                fs.delete(path, false);
+            }
+            spark.close();
+        }
+    }
+
+    private static void writeAddress(FileSystem fs, Path path, String host, int port, String token) throws IOException {
+        Map<String, Object> address = new HashMap<>(4);
+        address.put("host", host);
+        address.put("port", port);
+        address.put("token", token);
+        try (FSDataOutputStream out = fs.create(path, true)) {
+            out.write(OBJECT_MAPPER.writeValueAsBytes(address));
+        }
+        fs.setPermission(path, new FsPermission((short) 0600));
+    }
+
+    public static void main(String[] args) throws Exception {
 
         if(args.length < 1){
             logger.error("must set args for sql job!!!");
@@ -114,6 +178,14 @@ public class SqlProxy {
 
         SparkConf sparkConf = getSparkSessionConf(argsMap);
 
+        if (Boolean.TRUE.equals(argsMap.get(SESSION_MODE_KEY))) {
+            String token = (String) argsMap.get(SESSION_TOKEN_KEY);
+            long idleTimeout = argsMap.get(SESSION_IDLE_TIMEOUT_KEY) == null ? DEFAULT_SESSION_IDLE_TIMEOUT
+                    : ((Number) argsMap.get(SESSION_IDLE_TIMEOUT_KEY)).longValue();
+            sqlProxy.runSession(appName, logLevel, sparkConf, token, idleTimeout, (String) argsMap.get(SESSION_ADDRESS_DIR_KEY));
+            return;
+        }
+
         sqlProxy.runJob(sql, appName, logLevel, sparkConf);
     }
 
@@ -0,0 +1,246 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dtstack.taier.sql.main;
+
+import com.dtstack.taier.base.util.Splitter;
+import com.dtstack.taier.sql.main.util.ZipUtil;
+import com.google.common.base.Charsets;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.spark.sql.SparkSession;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 常驻的 spark sql 会话
+ * 通过 http 接收 sql 语句并在同一个 SparkContext 中执行，由插件侧的会话池复用，
+ * 每条语句使用独立的 SparkSession，临时表和 session 配置互不影响
+ */
+public class SqlSessionServer {
+
+    private static final Logger logger = LoggerFactory.getLogger(SqlSessionServer.class);
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final int MAX_STATEMENT_NUM = 1000;
+
+    private static final long IDLE_CHECK_INTERVAL = 10 * 1000L;
+
+    public static final String STATUS_RUNNING = "RUNNING";
+
+    public static final String STATUS_FINISHED = "FINISHED";
+
+    public static final String STATUS_FAILED = "FAILED";
+
+    public static final String STATUS_CANCELED = "CANCELED";
+
+    public static final String STATUS_NOTFOUND = "NOTFOUND";
+
+    private final SparkSession spark;
+
+    private final String token;
+
+    private final long idleTimeout;
+
+    private final ExecutorService statementExecutor = Executors.newSingleThreadExecutor();
+
+    /**
+     * statementId -> 执行状态，只保留最近的语句
+     */
+    private final Map<String, Statement> statements = Collections.synchronizedMap(new LinkedHashMap<String, Statement>(16, 0.75f, false) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Statement> eldest) {
+            return size() > MAX_STATEMENT_NUM;
+        }
+    });
+
+    private volatile long lastActiveTime = System.currentTimeMillis();
+
+    private final AtomicInteger runningNum = new AtomicInteger();
+
+    private HttpServer server;
+
+    public SqlSessionServer(SparkSession spark, String token, long idleTimeout) {
+        this.spark = spark;
+        this.token = token;
+        this.idleTimeout = idleTimeout;
+    }
+
+    public InetSocketAddress start(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/submit", exchange -> handle(exchange, this::submit));
+        server.createContext("/status", exchange -> handle(exchange, this::status));
+        server.createContext("/cancel", exchange -> handle(exchange, this::cancel));
+        server.setExecutor(Executors.newFixedThreadPool(2));
+        server.start();
+        logger.info("sql session server started, port:{}, idleTimeout:{}", server.getAddress().getPort(), idleTimeout);
+        return server.getAddress();
+    }
+
+    /**
+     * 阻塞直到空闲超时，插件侧异常退出时 driver 也能自行释放 yarn 资源
+     */
+    public void awaitIdle() throws InterruptedException {
+        while (runningNum.get() > 0 || System.currentTimeMillis() - lastActiveTime < idleTimeout) {
+            TimeUnit.MILLISECONDS.sleep(IDLE_CHECK_INTERVAL);
+        }
+        logger.info("sql session server idle for {}ms, stop", idleTimeout);
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+        }
+        statementExecutor.shutdownNow();
+    }
+
+    private Map<String, Object> submit(Map<String, Object> request) {
+        String statementId = (String) request.get("statementId");
+        String sql = ZipUtil.unzip((String) request.get("sql"));
+        String appName = (String) request.get("appName");
+        Map<String, String> sessionConf = (Map<String, String>) request.get("sparkSessionConf");
+
+        Statement statement = new Statement();
+        // http 客户端重试时同一条语句只执行一次
+        Statement exist = statements.putIfAbsent(statementId, statement);
+        if (exist != null) {
+            return result(exist.status, exist.message);
+        }
+        runningNum.incrementAndGet();
+        statementExecutor.execute(() -> {
+            try {
+                if (statement.status.equals(STATUS_CANCELED)) {
+                    return;
+                }
+                runStatement(statementId, sql, appName, sessionConf);
+                if (!statement.status.equals(STATUS_CANCELED)) {
+                    statement.status = STATUS_FINISHED;
+                }
+            } catch (Throwable e) {
+                logger.error("statement {} execute error", statementId, e);
+                if (!statement.status.equals(STATUS_CANCELED)) {
+                    statement.message = e.toString();
+                    statement.status = STATUS_FAILED;
+                }
+            } finally {
+                runningNum.decrementAndGet();
+                lastActiveTime = System.currentTimeMillis();
+            }
+        });
+        return result(STATUS_RUNNING, null);
+    }
+
+    private void runStatement(String statementId, String sql, String appName, Map<String, String> sessionConf) {
+        SparkSession session = spark.newSession();
+        if (sessionConf != null) {
+            sessionConf.forEach((key, val) -> session.conf().set(key, val));
+        }
+        spark.sparkContext().setJobGroup(statementId, appName == null ? statementId : appName, true);
+        try {
+            //屏蔽引号内的 分号
+            Splitter splitter = new Splitter(';');
+            List<String> sqlArray = splitter.splitEscaped(sql);
+            for (String statementSql : sqlArray) {
+                if (statementSql == null || statementSql.trim().length() == 0) {
+                    continue;
+                }
+                logger.info("statement {} processed sql statement {}", statementId, statementSql);
+                session.sql(statementSql);
+            }
+        } finally {
+            spark.sparkContext().clearJobGroup();
+        }
+    }
+
+    private Map<String, Object> status(Map<String, Object> request) {
+        Statement statement = statements.get((String) request.get("statementId"));
+        if (statement == null) {
+            return result(STATUS_NOTFOUND, null);
+        }
+        return result(statement.status, statement.message);
+    }
+
+    private Map<String, Object> cancel(Map<String, Object> request) {
+        String statementId = (String) request.get("statementId");
+        Statement statement = statements.get(statementId);
+        if (statement == null) {
+            return result(STATUS_NOTFOUND, null);
+        }
+        if (statement.status.equals(STATUS_RUNNING)) {
+            statement.status = STATUS_CANCELED;
+            spark.sparkContext().cancelJobGroup(statementId);
+        }
+        return result(statement.status, statement.message);
+    }
+
+    private void handle(HttpExchange exchange, Function<Map<String, Object>, Map<String, Object>> action) throws IOException {
+        int code = 200;
+        Map<String, Object> response;
+        try (InputStream in = exchange.getRequestBody()) {
+            Map<String, Object> request = OBJECT_MAPPER.readValue(in, Map.class);
+            if (token != null && !token.equals(request.get("token"))) {
+                code = 403;
+                response = result(STATUS_FAILED, "invalid token");
+            } else {
+                lastActiveTime = System.currentTimeMillis();
+                response = action.apply(request);
+            }
+        } catch (Exception e) {
+            logger.error("handle request {} error", exchange.getRequestURI(), e);
+            code = 500;
+            response = result(STATUS_FAILED, e.toString());
+        }
+        byte[] body = OBJECT_MAPPER.writeValueAsString(response).getBytes(Charsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json;charset=UTF-8");
+        exchange.sendResponseHeaders(code, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static Map<String, Object> result(String status, String message) {
+        Map<String, Object> result = new HashMap<>(4);
+        result.put("status", status);
+        result.put("message", message);
+        return result;
+    }
+
+    private static class Statement {
+
+        private volatile String status = STATUS_RUNNING;
+
+        private volatile String message;
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dtstack.taier.sql.main;
+
+import com.dtstack.taier.pluginapi.util.DtStringUtil;
+import com.google.common.base.Charsets;
+import org.apache.spark.sql.SparkSession;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 使用 local 模式的 SparkSession 端到端验证常驻会话的提交、状态、取消和鉴权
+ */
+public class SqlSessionServerTest {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final String TOKEN = "test-token";
+
+    private static final long WAIT_TIMEOUT = 60 * 1000L;
+
+    private static SparkSession spark;
+
+    private static SqlSessionServer server;
+
+    private static String address;
+
+    @BeforeClass
+    public static void startServer() throws Exception {
+        spark = SparkSession.builder()
+                .master("local[2]")
+                .appName("SqlSessionServerTest")
+                .config("spark.ui.enabled", "false")
+                .config("spark.sql.shuffle.partitions", "2")
+                .getOrCreate();
+        server = new SqlSessionServer(spark, TOKEN, 10 * 60 * 1000L);
+        InetSocketAddress socketAddress = server.start(0);
+        address = "http://127.0.0.1:" + socketAddress.getPort();
+    }
+
+    @AfterClass
+    public static void stopServer() {
+        if (server != null) {
+            server.stop();
+        }
+        if (spark != null) {
+            spark.stop();
+        }
+    }
+
+    @Test
+    public void testSubmitFinished() throws Exception {
+        String statementId = newStatementId();
+        Map<String, Object> response = submit(statementId,
+                "create temporary view t_finished as select id from range(0, 100); cache table t_finished_count as select count(*) as cnt from t_finished",
+                null);
+        Assert.assertEquals(SqlSessionServer.STATUS_RUNNING, response.get("status"));
+        Assert.assertEquals(SqlSessionServer.STATUS_FINISHED, waitFinish(statementId).get("status"));
+    }
+
+    @Test
+    public void testSubmitFailed() throws Exception {
+        String statementId = newStatementId();
+        submit(statementId, "select * from t_not_exist", null);
+        Map<String, Object> status = waitFinish(statementId);
+        Assert.assertEquals(SqlSessionServer.STATUS_FAILED, status.get("status"));
+        Assert.assertTrue(((String) status.get("message")).contains("t_not_exist"));
+    }
+
+    @Test
+    public void testSessionIsolated() throws Exception {
+        String createId = newStatementId();
+        submit(createId, "create temporary view t_isolated as select 1 as id", null);
+        Assert.assertEquals(SqlSessionServer.STATUS_FINISHED, waitFinish(createId).get("status"));
+
+        // 每条语句使用独立的 SparkSession，临时表在下一条语句中不可见
+        String queryId = newStatementId();
+        submit(queryId, "select * from t_isolated", null);
+        Assert.assertEquals(SqlSessionServer.STATUS_FAILED, waitFinish(queryId).get("status"));
+    }
+
+    @Test
+    public void testSessionConf() throws Exception {
+        Map<String, String> sessionConf = new HashMap<>(2);
+        sessionConf.put("spark.sql.shuffle.partitions", "1");
+        String statementId = newStatementId();
+        submit(statementId, "cache table t_conf as select id % 2 as k, count(*) as cnt from range(0, 10) group by id % 2", sessionConf);
+        Assert.assertEquals(SqlSessionServer.STATUS_FINISHED, waitFinish(statementId).get("status"));
+        // session 配置不影响共享的 SparkSession
+        Assert.assertEquals("2", spark.conf().get("spark.sql.shuffle.partitions"));
+    }
+
+    @Test
+    public void testSubmitTwiceRunOnce() throws Exception {
+        String statementId = newStatementId();
+        submit(statementId, "select * from t_not_exist_twice", null);
+        Assert.assertEquals(SqlSessionServer.STATUS_FAILED, waitFinish(statementId).get("status"));
+
+        // 重试的请求直接返回已有的结果，不重新执行
+        Map<String, Object> response = submit(statementId, "select 1", null);
+        Assert.assertEquals(SqlSessionServer.STATUS_FAILED, response.get("status"));
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        String statementId = newStatementId();
+        submit(statementId, "cache table t_cancel as select count(*) as cnt from range(0, 100000000000)", null);
+        // 等 spark job 提交后再取消，确认取消的是正在运行的 job
+        long deadline = System.currentTimeMillis() + WAIT_TIMEOUT;
+        while (spark.sparkContext().statusTracker().getJobIdsForGroup(statementId).length == 0) {
+            Assert.assertTrue("statement " + statementId + " job not submitted", System.currentTimeMillis() < deadline);
+            TimeUnit.MILLISECONDS.sleep(100);
+        }
+
+        Map<String, Object> response = post("/cancel", statementRequest(statementId, TOKEN));
+        Assert.assertEquals(SqlSessionServer.STATUS_CANCELED, response.get("status"));
+        Assert.assertEquals(SqlSessionServer.STATUS_CANCELED, waitFinish(statementId).get("status"));
+
+        // 取消后后续语句可以正常执行
+        String nextId = newStatementId();
+        submit(nextId, "cache table t_after_cancel as select 1 as id", null);
+        Assert.assertEquals(SqlSessionServer.STATUS_FINISHED, waitFinish(nextId).get("status"));
+    }
+
+    @Test
+    public void testStatusNotFound() throws Exception {
+        Map<String, Object> response = post("/status", statementRequest(newStatementId(), TOKEN));
+        Assert.assertEquals(SqlSessionServer.STATUS_NOTFOUND, response.get("status"));
+    }
+
+    @Test
+    public void testInvalidToken() throws Exception {
+        HttpURLConnection connection = open("/status", statementRequest(newStatementId(), "wrong-token"));
+        Assert.assertEquals(403, connection.getResponseCode());
+        connection.disconnect();
+    }
+
+    private static String newStatementId() {
+        return UUID.randomUUID().toString();
+    }
+
+    private static Map<String, Object> submit(String statementId, String sql, Map<String, String> sessionConf) throws IOException {
+        Map<String, Object> request = statementRequest(statementId, TOKEN);
+        request.put("sql", DtStringUtil.zip(sql));
+        request.put("appName", "SqlSessionServerTest");
+        if (sessionConf != null) {
+            request.put("sparkSessionConf", sessionConf);
+        }
+        return post("/submit", request);
+    }
+
+    private static Map<String, Object> waitFinish(String statementId) throws Exception {
+        long deadline = System.currentTimeMillis() + WAIT_TIMEOUT;
+        Map<String, Object> status;
+        do {
+            status = post("/status", statementRequest(statementId, TOKEN));
+            if (!SqlSessionServer.STATUS_RUNNING.equals(status.get("status"))) {
+                return status;
+            }
+            TimeUnit.MILLISECONDS.sleep(200);
+        } while (System.currentTimeMillis() < deadline);
+        Assert.fail("statement " + statementId + " not finished in " + WAIT_TIMEOUT + "ms");
+        return status;
+    }
+
+    private static Map<String, Object> statementRequest(String statementId, String token) {
+        Map<String, Object> request = new HashMap<>(8);
+        request.put("token", token);
+        request.put("statementId", statementId);
+        return request;
+    }
+
+    private static Map<String, Object> post(String path, Map<String, Object> request) throws IOException {
+        HttpURLConnection connection = open(path, request);
+        try (InputStream in = connection.getInputStream()) {
+            return OBJECT_MAPPER.readValue(in, Map.class);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static HttpURLConnection open(String path, Map<String, Object> request) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(address + path).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "application/json;charset=UTF-8");
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(OBJECT_MAPPER.writeValueAsString(request).getBytes(Charsets.UTF_8));
+        }
+        return connection;
+    }
+}
@@ -0,0 +1,539 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dtstack.taier.sparkyarn.sparkyarn;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.dtstack.taier.base.util.KerberosUtils;
+import com.dtstack.taier.pluginapi.CustomThreadFactory;
+import com.dtstack.taier.pluginapi.JobClient;
+import com.dtstack.taier.pluginapi.enums.TaskStatus;
+import com.dtstack.taier.pluginapi.exception.PluginDefineException;
+import com.dtstack.taier.pluginapi.http.PoolHttpClient;
+import com.dtstack.taier.pluginapi.pojo.JobResult;
+import com.dtstack.taier.pluginapi.util.DtStringUtil;
+import com.google.common.collect.Lists;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.yarn.api.records.ApplicationId;
+import org.apache.hadoop.yarn.api.records.ApplicationReport;
+import org.apache.hadoop.yarn.api.records.YarnApplicationState;
+import org.apache.hadoop.yarn.conf.YarnConfiguration;
+import org.apache.hadoop.yarn.util.ConverterUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * spark sql 常驻会话池
+ * 按租户隔离，每个租户最多 sessionPoolDriverNum 个常驻 driver(SqlProxy 会话模式)，
+ * 短 sql 任务交给空闲的 driver 执行，省去每个任务启动 yarn application 的时间；
+ * 没有空闲 driver 或任务需要单独的资源配置时返回 null，由调用方按原方式单独提交
+ */
+public class SparkSessionPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(SparkSessionPool.class);
+
+    /**
+     * 会话中执行的任务 applicationId 格式: session_{driver applicationId}_{statementId}
+     */
+    public static final String SESSION_JOB_PREFIX = "session_";
+
+    private static final String SEPARATOR = "_";
+
+    private static final String LOG_LEVEL_KEY = "logLevel";
+
+    private static final String SESSION_CONF_KEY_PREFIX = "session.";
+
+    /**
+     * 任务参数中设置为 false 时不使用常驻会话
+     */
+    private static final String USE_SESSION_POOL_KEY = "useSessionPool";
+
+    private static final long CHECK_INTERVAL = 10 * 1000L;
+
+    private static final long DRIVER_START_TIMEOUT = 10 * 60 * 1000L;
+
+    private final SparkYarnClient sparkYarnClient;
+
+    private final SparkYarnConfig sparkYarnConfig;
+
+    private final YarnConfiguration yarnConf;
+
+    /**
+     * 租户 -> 该租户的 driver
+     */
+    private final Map<String, List<SessionDriver>> tenantDrivers = new ConcurrentHashMap<>();
+
+    /**
+     * driver applicationId -> driver
+     */
+    private final Map<String, SessionDriver> drivers = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService checkService;
+
+    private volatile boolean closed = false;
+
+    public SparkSessionPool(SparkYarnClient sparkYarnClient, SparkYarnConfig sparkYarnConfig, YarnConfiguration yarnConf) {
+        this.sparkYarnClient = sparkYarnClient;
+        this.sparkYarnConfig = sparkYarnConfig;
+        this.yarnConf = yarnConf;
+        this.checkService = new ScheduledThreadPoolExecutor(2, new CustomThreadFactory("spark_session_pool"));
+        this.checkService.scheduleWithFixedDelay(this::check, CHECK_INTERVAL, CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    public static boolean isSessionJob(String applicationId) {
+        return applicationId != null && applicationId.startsWith(SESSION_JOB_PREFIX);
+    }
+
+    /**
+     * sql 较短且没有单独的 spark 资源配置的任务才使用常驻会话
+     */
+    public boolean accept(JobClient jobClient) {
+        if (jobClient.getSql() == null || jobClient.getSql().length() > sparkYarnConfig.getSessionPoolMaxSqlLength()) {
+            return false;
+        }
+        Properties confProp = jobClient.getConfProperties();
+        if (confProp == null) {
+            return true;
+        }
+        for (Map.Entry<Object, Object> param : confProp.entrySet()) {
+            String key = (String) param.getKey();
+            if (USE_SESSION_POOL_KEY.equals(key)) {
+                if (!Boolean.parseBoolean((String) param.getValue())) {
+                    return false;
+                }
+            } else if (!LOG_LEVEL_KEY.equals(key) && !key.startsWith(SESSION_CONF_KEY_PREFIX)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 提交到空闲的 driver
+     *
+     * @return 提交结果，没有可用的 driver 时返回 null
+     */
+    public JobResult submit(JobClient jobClient, Map<String, String> sessionConf) {
+        SessionDriver driver = acquire(String.valueOf(jobClient.getTenantId()));
+        if (driver == null) {
+            return null;
+        }
+        String statementId = UUID.randomUUID().toString().replace("-", "");
+        Map<String, Object> request = new HashMap<>(8);
+        request.put("statementId", statementId);
+        request.put("sql", DtStringUtil.zip(jobClient.getSql()));
+        request.put("appName", jobClient.getJobName());
+        request.put("sparkSessionConf", sessionConf);
+        JSONObject response = request(driver, "/submit", request);
+        if (response == null) {
+            // driver 不可用，交给定时检查确认是否需要移除
+            driver.release();
+            return null;
+        }
+        driver.statementId = statementId;
+        logger.info("jobId:{} submit to spark session {}, statementId:{}", jobClient.getJobId(), driver.applicationId, statementId);
+        return JobResult.createSuccessResult(SESSION_JOB_PREFIX + driver.applicationId + SEPARATOR + statementId);
+    }
+
+    public TaskStatus getJobStatus(String sessionJobId) {
+        JSONObject response = statement(sessionJobId, "/status");
+        if (response == null) {
+            return isDriverAlive(parseApplicationId(sessionJobId)) ? TaskStatus.RUNNING : TaskStatus.FAILED;
+        }
+        return convertTaskStatus(response.getString("status"));
+    }
+
+    public JobResult cancelJob(String sessionJobId) {
+        JSONObject response = statement(sessionJobId, "/cancel");
+        if (response == null) {
+            return JobResult.createErrorResult("spark session of " + sessionJobId + " is not available");
+        }
+        return JobResult.createSuccessResult(sessionJobId);
+    }
+
+    public String getJobLog(String sessionJobId) {
+        SparkJobLog sparkJobLog = new SparkJobLog();
+        String applicationId = parseApplicationId(sessionJobId);
+        JSONObject response = statement(sessionJobId, "/status");
+        if (response == null) {
+            sparkJobLog.addAppLog(applicationId, "spark session is not available");
+        } else {
+            String message = response.getString("message");
+            sparkJobLog.addAppLog(applicationId, "statement " + parseStatementId(sessionJobId) + " " + response.getString("status")
+                    + (StringUtils.isEmpty(message) ? "" : ": " + message));
+        }
+        return sparkJobLog.toString();
+    }
+
+    /**
+     * 客户端关闭(配置变更、缓存淘汰)时只停止空闲和启动中的 driver；
+     * 执行中的语句继续运行，driver 空闲超时后自行退出，新的客户端从地址文件恢复 driver 查询语句状态
+     */
+    public void close() {
+        closed = true;
+        checkService.shutdownNow();
+        for (List<SessionDriver> list : tenantDrivers.values()) {
+            List<SessionDriver> stopping = Lists.newArrayList();
+            synchronized (list) {
+                for (SessionDriver driver : list) {
+                    if (driver.state == DriverState.IDLE || driver.state == DriverState.STARTING) {
+                        driver.state = DriverState.STOPPED;
+                        stopping.add(driver);
+                    }
+                }
+            }
+            for (SessionDriver driver : stopping) {
+                logger.info("close spark session pool, stop spark session {}", driver.applicationId);
+                killDriver(driver);
+            }
+        }
+        drivers.clear();
+        tenantDrivers.clear();
+    }
+
+    private SessionDriver acquire(String tenantKey) {
+        if (closed) {
+            return null;
+        }
+        List<SessionDriver> list = tenantDrivers.computeIfAbsent(tenantKey, key -> Lists.newArrayList());
+        synchronized (list) {
+            for (SessionDriver driver : list) {
+                if (driver.state == DriverState.IDLE) {
+                    driver.state = DriverState.BUSY;
+                    return driver;
+                }
+            }
+            if (list.size() < sparkYarnConfig.getSessionPoolDriverNum()) {
+                SessionDriver driver = new SessionDriver(tenantKey);
+                list.add(driver);
+                checkService.execute(() -> launch(driver));
+            }
+        }
+        return null;
+    }
+
+    private void launch(SessionDriver driver) {
+        try {
+            Map<String, Object> paramsMap = new HashMap<>(8);
+            paramsMap.put("sessionMode", true);
+            paramsMap.put("sessionToken", driver.token);
+            // driver 自身的空闲超时大于会话池，插件异常退出时由 driver 自行释放资源
+            paramsMap.put("sessionIdleTimeout", sparkYarnConfig.getSessionPoolIdleTimeout() * 2);
+            paramsMap.put("sessionAddressDir", sparkYarnConfig.getSessionPoolAddressDir());
+            String appName = "taier_spark_session_" + driver.tenantKey;
+            ApplicationId appId = KerberosUtils.login(sparkYarnConfig,
+                    () -> sparkYarnClient.submitSqlProxy(paramsMap, appName, new Properties(), Integer.MAX_VALUE),
+                    yarnConf, true);
+            driver.applicationId = appId.toString();
+            if (driver.state == DriverState.STOPPED) {
+                // 启动期间会话池已关闭
+                logger.info("spark session pool closed, stop spark session {}", driver.applicationId);
+                killDriver(driver);
+                return;
+            }
+            drivers.put(driver.applicationId, driver);
+            logger.info("launch spark session {} for tenant {}", driver.applicationId, driver.tenantKey);
+        } catch (Exception e) {
+            logger.error("launch spark session for tenant {} error", driver.tenantKey, e);
+            remove(driver);
+        }
+    }
+
+    private void check() {
+        for (List<SessionDriver> list : tenantDrivers.values()) {
+            List<SessionDriver> snapshot;
+            synchronized (list) {
+                snapshot = Lists.newArrayList(list);
+            }
+            for (SessionDriver driver : snapshot) {
+                try {
+                    checkDriver(driver);
+                } catch (Throwable e) {
+                    logger.error("check spark session {} error", driver.applicationId, e);
+                }
+            }
+        }
+    }
+
+    private void checkDriver(SessionDriver driver) {
+        long now = System.currentTimeMillis();
+        if (driver.state == DriverState.STARTING) {
+            if (driver.applicationId == null) {
+                return;
+            }
+            if (readAddress(driver)) {
+                driver.release();
+                logger.info("spark session {} started, address:{}", driver.applicationId, driver.address);
+            } else if (now - driver.createTime > DRIVER_START_TIMEOUT || !isDriverAlive(driver.applicationId)) {
+                logger.warn("spark session {} start failed", driver.applicationId);
+                killDriver(driver);
+                remove(driver);
+            }
+        } else if (driver.state == DriverState.IDLE) {
+            if (now - driver.lastActiveTime > sparkYarnConfig.getSessionPoolIdleTimeout() || !isDriverAlive(driver.applicationId)) {
+                synchronized (tenantDrivers.get(driver.tenantKey)) {
+                    if (driver.state != DriverState.IDLE) {
+                        return;
+                    }
+                    driver.state = DriverState.STOPPED;
+                }
+                logger.info("stop idle spark session {}", driver.applicationId);
+                killDriver(driver);
+                remove(driver);
+            }
+        } else if (driver.state == DriverState.BUSY && driver.statementId != null) {
+            // 调度没有继续查询状态(如任务被删除)时也能释放 driver
+            Map<String, Object> request = new HashMap<>(4);
+            request.put("statementId", driver.statementId);
+            JSONObject response = request(driver, "/status", request);
+            if (response == null) {
+                if (!isDriverAlive(driver.applicationId)) {
+                    remove(driver);
+                }
+            } else if (isStatementFinished(response.getString("status"))) {
+                driver.release();
+            }
+        }
+    }
+
+    private JSONObject statement(String sessionJobId, String path) {
+        SessionDriver driver = getDriver(parseApplicationId(sessionJobId));
+        if (driver == null) {
+            return null;
+        }
+        String statementId = parseStatementId(sessionJobId);
+        Map<String, Object> request = new HashMap<>(4);
+        request.put("statementId", statementId);
+        JSONObject response = request(driver, path, request);
+        if (response != null && statementId.equals(driver.statementId)
+                && isStatementFinished(response.getString("status"))) {
+            driver.release();
+        }
+        return response;
+    }
+
+    /**
+     * 插件重启后 driver 不在内存中，从 driver 写的地址文件恢复，恢复的 driver 只用于查询和停止已提交的语句
+     */
+    private SessionDriver getDriver(String applicationId) {
+        SessionDriver driver = drivers.get(applicationId);
+        if (driver != null) {
+            return driver;
+        }
+        SessionDriver recovered = new SessionDriver(null);
+        recovered.applicationId = applicationId;
+        if (!readAddress(recovered)) {
+            return null;
+        }
+        recovered.state = DriverState.RECOVERED;
+        driver = drivers.putIfAbsent(applicationId, recovered);
+        return driver == null ? recovered : driver;
+    }
+
+    /**
+     * 读取 driver 启动后写入的地址文件: {host, port, token}
+     */
+    private boolean readAddress(SessionDriver driver) {
+        try {
+            String content = KerberosUtils.login(sparkYarnConfig, () -> {
+                Path path = new Path(sparkYarnConfig.getSessionPoolAddressDir(), driver.applicationId);
+                try {
+                    FileSystem fs = path.getFileSystem(yarnConf);
+                    if (!fs.exists(path)) {
+                        return null;
+                    }
+                    byte[] bytes = new byte[(int) fs.getFileStatus(path).getLen()];
+                    try (FSDataInputStream in = fs.open(path)) {
+                        in.readFully(bytes);
+                    }
+                    return new String(bytes, StandardCharsets.UTF_8);
+                } catch (Exception e) {
+                    throw new PluginDefineException(e);
+                }
+            }, yarnConf, false);
+            if (StringUtils.isBlank(content)) {
+                return false;
+            }
+            JSONObject address = JSON.parseObject(content);
+            if (driver.tenantKey != null && !driver.token.equals(address.getString("token"))) {
+                logger.warn("spark session {} token mismatch", driver.applicationId);
+                return false;
+            }
+            driver.token = address.getString("token");
+            driver.address = String.format("http://%s:%s", address.getString("host"), address.getInteger("port"));
+            return true;
+        } catch (Exception e) {
+            logger.warn("read spark session {} address error", driver.applicationId, e);
+            return false;
+        }
+    }
+
+    private JSONObject request(SessionDriver driver, String path, Map<String, Object> request) {
+        if (driver.address == null) {
+            return null;
+        }
+        request.put("token", driver.token);
+        String response = PoolHttpClient.post(driver.address + path, request);
+        if (StringUtils.isBlank(response)) {
+            return null;
+        }
+        driver.lastActiveTime = System.currentTimeMillis();
+        return JSON.parseObject(response);
+    }
+
+    private boolean isDriverAlive(String applicationId) {
+        try {
+            return KerberosUtils.login(sparkYarnConfig, () -> {
+                try {
+                    ApplicationReport report = sparkYarnClient.getYarnClient().getApplicationReport(ConverterUtils.toApplicationId(applicationId));
+                    YarnApplicationState state = report.getYarnApplicationState();
+                    return state != YarnApplicationState.FINISHED && state != YarnApplicationState.FAILED && state != YarnApplicationState.KILLED;
+                } catch (Exception e) {
+                    throw new PluginDefineException(e);
+                }
+            }, yarnConf, false);
+        } catch (Exception e) {
+            logger.warn("get spark session {} report error", applicationId, e);
+            return false;
+        }
+    }
+
+    private void killDriver(SessionDriver driver) {
+        if (driver.applicationId == null) {
+            return;
+        }
+        try {
+            KerberosUtils.login(sparkYarnConfig, () -> {
+                try {
+                    sparkYarnClient.getYarnClient().killApplication(ConverterUtils.toApplicationId(driver.applicationId));
+                    return null;
+                } catch (Exception e) {
+                    throw new PluginDefineException(e);
+                }
+            }, yarnConf, false);
+        } catch (Exception e) {
+            logger.error("kill spark session {} error", driver.applicationId, e);
+        }
+    }
+
+    private void remove(SessionDriver driver) {
+        driver.state = DriverState.STOPPED;
+        if (driver.applicationId != null) {
+            drivers.remove(driver.applicationId, driver);
+        }
+        List<SessionDriver> list = tenantDrivers.get(driver.tenantKey);
+        if (list != null) {
+            synchronized (list) {
+                list.remove(driver);
+            }
+        }
+    }
+
+    private static TaskStatus convertTaskStatus(String status) {
+        if (status == null) {
+            return TaskStatus.NOTFOUND;
+        }
+        switch (status) {
+            case "RUNNING":
+                return TaskStatus.RUNNING;
+            case "FINISHED":
+                return TaskStatus.FINISHED;
+            case "FAILED":
+                return TaskStatus.FAILED;
+            case "CANCELED":
+                return TaskStatus.CANCELED;
+            default:
+                return TaskStatus.NOTFOUND;
+        }
+    }
+
+    /**
+     * 语句已结束或 driver 上已没有该语句，driver 可以分配给下一个任务
+     */
+    private static boolean isStatementFinished(String status) {
+        TaskStatus taskStatus = convertTaskStatus(status);
+        return TaskStatus.NOTFOUND == taskStatus || TaskStatus.isStopped(taskStatus.getStatus());
+    }
+
+    private static String parseApplicationId(String sessionJobId) {
+        return sessionJobId.substring(SESSION_JOB_PREFIX.length(), sessionJobId.lastIndexOf(SEPARATOR));
+    }
+
+    private static String parseStatementId(String sessionJobId) {
+        return sessionJobId.substring(sessionJobId.lastIndexOf(SEPARATOR) + 1);
+    }
+
+    private enum DriverState {
+        STARTING, IDLE, BUSY, STOPPED,
+        /**
+         * 插件重启后恢复的 driver，不再分配新的语句，由 driver 空闲超时后自行退出
+         */
+        RECOVERED
+    }
+
+    private class SessionDriver {
+
+        private final String tenantKey;
+
+        private final long createTime = System.currentTimeMillis();
+
+        private volatile String token = UUID.randomUUID().toString().replace("-", "");
+
+        private volatile String applicationId;
+
+        private volatile String address;
+
+        private volatile DriverState state = DriverState.STARTING;
+
+        private volatile String statementId;
+
+        private volatile long lastActiveTime = createTime;
+
+        private SessionDriver(String tenantKey) {
+            this.tenantKey = tenantKey;
+        }
+
+        private void release() {
+            List<SessionDriver> list = tenantKey == null ? null : tenantDrivers.get(tenantKey);
+            if (list == null) {
+                return;
+            }
+            synchronized (list) {
+                if (state == DriverState.STARTING || state == DriverState.BUSY) {
+                    state = DriverState.IDLE;
+                    statementId = null;
+                    lastActiveTime = System.currentTimeMillis();
+                }
+            }
+        }
+    }
+}
@@ -21,9 +21,11 @@ package com.dtstack.taier.sparkyarn.sparkyarn;
 import com.alibaba.fastjson.JSON;
 import com.dtstack.taier.base.filesystem.FilesystemManager;
 import com.dtstack.taier.base.monitor.AcceptedApplicationMonitor;
+import com.dtstack.taier.base.resource.YarnResourceSnapshot;
 import com.dtstack.taier.base.util.HadoopConfTool;
 import com.dtstack.taier.base.util.KerberosUtils;
 import com.dtstack.taier.base.util.Splitter;
+import com.dtstack.taier.base.util.YarnApplicationUtils;
 import com.dtstack.taier.pluginapi.*;
 import com.dtstack.taier.pluginapi.client.AbstractClient;
 import com.dtstack.taier.pluginapi.enums.ComputeType;
@@ -52,8 +54,6 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.hadoop.security.UserGroupInformation;
 import org.apache.hadoop.yarn.api.records.ApplicationId;
 import org.apache.hadoop.yarn.api.records.ApplicationReport;
-import org.apache.hadoop.yarn.api.records.FinalApplicationStatus;
-import org.apache.hadoop.yarn.api.records.YarnApplicationState;
 import org.apache.hadoop.yarn.client.api.YarnClient;
 import org.apache.hadoop.yarn.conf.YarnConfiguration;
 import org.apache.hadoop.yarn.util.ConverterUtils;
@@ -81,6 +81,8 @@ public class SparkYarnClient extends AbstractClient {
 
     private static final String HADOOP_USER_NAME = "HADOOP_USER_NAME";
 
+    private static final Set<String> APPLICATION_TYPES = Collections.singleton("SPARK");
+
     private static final String SPARK_YARN_MODE = "SPARK_YARN_MODE";
 
     private static final String IS_CARBON_SPARK_KEY = "isCarbondata";
@@ -126,6 +128,10 @@ public class SparkYarnClient extends AbstractClient {
 
     private ThreadPoolExecutor threadPoolExecutor;
 
+    private YarnResourceSnapshot resourceSnapshot;
+
+    private volatile SparkSessionPool sessionPool;
+
     private static String userDir = System.getProperty("user.dir");
 
     private static final String SPARK_CONF_DIR = "sparkconf";
@@ -157,6 +163,9 @@ public class SparkYarnClient extends AbstractClient {
                 0L, TimeUnit.MILLISECONDS,
                 new LinkedBlockingQueue<Runnable>(), new CustomThreadFactory("spark_yarnclient"));
 
+        if (sparkYarnConfig.getYarnResourceRefreshInterval() > 0) {
+            resourceSnapshot = new YarnResourceSnapshot("spark", sparkYarnConfig, yarnConf, this::getYarnClient, sparkYarnConfig.getYarnResourceRefreshInterval());
+        }
     }
 
     private void initYarnConf(SparkYarnConfig sparkConfig){
@@ -229,7 +238,7 @@ public class SparkYarnClient extends AbstractClient {
         }
 
         ClientArguments clientArguments = new ClientArguments(argList.toArray(new String[argList.size()]));
-        SparkConf sparkConf = buildBasicSparkConf(jobClient);
+        SparkConf sparkConf = buildBasicSparkConf();
         sparkConf.setAppName(appName);
         setSparkLog4jLocalFilePath(sparkConf, jobClient);
         fillExtSparkConf(sparkConf, jobClient.getConfProperties());
@@ -316,7 +325,7 @@ public class SparkYarnClient extends AbstractClient {
             pythonExtPath = pythonExtPath + "," + dependencyResource;
         }
 
-        SparkConf sparkConf = buildBasicSparkConf(jobClient);
+        SparkConf sparkConf = buildBasicSparkConf();
 
         // set  spark executor env.
         List<String> args = Arrays.asList(appArgs);
@@ -403,7 +412,6 @@ public class SparkYarnClient extends AbstractClient {
     private JobResult submitSparkSqlJobForBatch(JobClient jobClient){
 
         Properties confProp = jobClient.getConfProperties();
-        setHadoopUserName(sparkYarnConfig);
         Map<String, Object> paramsMap = new HashMap<>();
 
         String zipSql = DtStringUtil.zip(jobClient.getSql());
@@ -416,7 +424,36 @@ public class SparkYarnClient extends AbstractClient {
             paramsMap.put("logLevel", logLevel);
         }
 
+        // 短 sql 优先交给常驻会话执行，没有空闲会话时单独启动 application
+        if (sparkYarnConfig.getSessionPoolEnable()) {
+            SparkSessionPool pool = getSessionPool();
+            if (pool.accept(jobClient)) {
+                JobResult jobResult = pool.submit(jobClient, getSparkSessionConf(confProp));
+                if (jobResult != null) {
+                    return jobResult;
+                }
+            }
+        }
 
+        try {
+            ApplicationId appId = submitSqlProxy(paramsMap, jobClient.getJobName(), confProp, jobClient.getApplicationPriority());
+            return JobResult.createSuccessResult(appId.toString());
+        } catch(Exception ex) {
+            return JobResult.createErrorResult("submit job get unknown error\n" + ExceptionUtil.getErrorMessage(ex));
+        }
+
+    }
+
+    /**
+     * 启动一个运行 SqlProxy 的 yarn application
+     * @param paramsMap SqlProxy 参数
+     * @param appName
+     * @param confProp 任务参数
+     * @param priority
+     * @return
+     */
+    ApplicationId submitSqlProxy(Map<String, Object> paramsMap, String appName, Properties confProp, int priority) {
+        setHadoopUserName(sparkYarnConfig);
         String sqlExeJson = null;
         try{
             sqlExeJson = PublicUtil.objToString(paramsMap);
@@ -437,29 +474,24 @@ public class SparkYarnClient extends AbstractClient {
         argList.add(sqlExeJson);
 
         ClientArguments clientArguments = new ClientArguments(argList.toArray(new String[argList.size()]));
-        SparkConf sparkConf = buildBasicSparkConf(jobClient);
-        sparkConf.setAppName(jobClient.getJobName());
-        setSparkLog4jLocalFilePath(sparkConf, jobClient);
+        SparkConf sparkConf = buildBasicSparkConf();
+        sparkConf.setAppName(appName);
+        setSparkLog4jLocalFilePath(sparkConf, confProp);
         fillExtSparkConf(sparkConf, confProp);
         setSparkLog4jConfiguration(sparkConf);
 
-        ApplicationId appId = null;
-
         try {
             ClientExt clientExt = ClientExtFactory.getClientExt(filesystemManager, clientArguments, yarnConf, sparkConf);
             clientExt.setSparkYarnConfig(sparkYarnConfig);
             String proxyUserName = sparkYarnConfig.getDtProxyUserName();
             if (StringUtils.isNotBlank(proxyUserName)) {
                 logger.info("ugi proxyUser is {}", proxyUserName);
-                appId = UserGroupInformation.createProxyUser(proxyUserName, UserGroupInformation.getLoginUser()).doAs((PrivilegedExceptionAction<ApplicationId>) () -> clientExt.submitApplication(jobClient.getApplicationPriority()));
-            } else {
-                appId = clientExt.submitApplication(jobClient.getApplicationPriority());
+                return UserGroupInformation.createProxyUser(proxyUserName, UserGroupInformation.getLoginUser()).doAs((PrivilegedExceptionAction<ApplicationId>) () -> clientExt.submitApplication(priority));
             }
-            return JobResult.createSuccessResult(appId.toString());
-        } catch(Exception ex) {
-            return JobResult.createErrorResult("submit job get unknown error\n" + ExceptionUtil.getErrorMessage(ex));
+            return clientExt.submitApplication(priority);
+        } catch (Exception e) {
+            throw new PluginDefineException(e);
         }
-
     }
 
     private Map<String, String> getSparkSessionConf(Properties confProp){
@@ -483,7 +515,10 @@ public class SparkYarnClient extends AbstractClient {
     }
 
     private void setSparkLog4jLocalFilePath(SparkConf sparkConf, JobClient jobClient) {
-        Properties confProp = jobClient.getConfProperties();
+        setSparkLog4jLocalFilePath(sparkConf, jobClient.getConfProperties());
+    }
+
+    private void setSparkLog4jLocalFilePath(SparkConf sparkConf, Properties confProp) {
         String logLevel = MathUtil.getString(confProp.get(LOG_LEVEL_KEY), "info");
         String path = userDir + File.separator + SPARK_CONF_DIR + File.separator + logLevel.toLowerCase() + File.separator + SPARK_LOG4J_FILE_NAME;
         File file = new File(path);
@@ -492,7 +527,7 @@ public class SparkYarnClient extends AbstractClient {
         }
     }
 
-    private SparkConf buildBasicSparkConf(JobClient jobClient){
+    private SparkConf buildBasicSparkConf(){
 
         SparkConf sparkConf = new SparkConf();
         sparkConf.remove("spark.jars");
@@ -589,6 +624,9 @@ public class SparkYarnClient extends AbstractClient {
 
     @Override
     public JobResult cancelJob(JobIdentifier jobIdentifier) {
+        if (SparkSessionPool.isSessionJob(jobIdentifier.getApplicationId())) {
+            return getSessionPool().cancelJob(jobIdentifier.getApplicationId());
+        }
         try {
             return KerberosUtils.login(sparkYarnConfig, ()->{
                 String jobId = jobIdentifier.getApplicationId();
@@ -609,6 +647,9 @@ public class SparkYarnClient extends AbstractClient {
 
     @Override
     public TaskStatus getJobStatus(JobIdentifier jobIdentifier) throws IOException {
+        if (SparkSessionPool.isSessionJob(jobIdentifier.getApplicationId())) {
+            return getSessionPool().getJobStatus(jobIdentifier.getApplicationId());
+        }
         try {
             return KerberosUtils.login(sparkYarnConfig, ()->{
                 String jobId = jobIdentifier.getApplicationId();
@@ -620,38 +661,7 @@ public class SparkYarnClient extends AbstractClient {
                 ApplicationId appId = ConverterUtils.toApplicationId(jobId);
                 try {
                     ApplicationReport report = getYarnClient().getApplicationReport(appId);
-                    YarnApplicationState applicationState = report.getYarnApplicationState();
-                    switch(applicationState) {
-                        case KILLED:
-                            return TaskStatus.KILLED;
-                        case NEW:
-                        case NEW_SAVING:
-                            return TaskStatus.CREATED;
-                        case SUBMITTED:
-                            //FIXME 特殊逻辑,认为已提交到计算引擎的状态为等待资源状态
-                            return TaskStatus.WAITCOMPUTE;
-                        case ACCEPTED:
-                            return TaskStatus.SCHEDULED;
-                        case RUNNING:
-                            return TaskStatus.RUNNING;
-                        case FINISHED:
-                            //state 为finished状态下需要兼顾判断finalStatus.
-                            FinalApplicationStatus finalApplicationStatus = report.getFinalApplicationStatus();
-                            if(finalApplicationStatus == FinalApplicationStatus.FAILED){
-                                return TaskStatus.FAILED;
-                            }else if(finalApplicationStatus == FinalApplicationStatus.SUCCEEDED){
-                                return TaskStatus.FINISHED;
-                            }else if(finalApplicationStatus == FinalApplicationStatus.KILLED){
-                                return TaskStatus.KILLED;
-                            }else{
-                                return TaskStatus.RUNNING;
-                            }
-
-                        case FAILED:
-                            return TaskStatus.FAILED;
-                        default:
-                            throw new PluginDefineException("Unsupported application state");
-                    }
+                    return YarnApplicationUtils.convertTaskStatus(report);
                 } catch (Exception e) {
                     logger.error("", e);
                     return TaskStatus.NOTFOUND;
@@ -663,6 +673,44 @@ public class SparkYarnClient extends AbstractClient {
         }
     }
 
+    @Override
+    public Map<String, TaskStatus> getJobStatusBatch(List<JobIdentifier> jobIdentifiers) throws IOException {
+        Map<String, TaskStatus> statusMap = new HashMap<>(jobIdentifiers.size());
+        try {
+            Map<String, ApplicationReport> reports = KerberosUtils.login(sparkYarnConfig, () -> {
+                Set<String> appIds = new HashSet<>(jobIdentifiers.size());
+                for (JobIdentifier jobIdentifier : jobIdentifiers) {
+                    if (StringUtils.isNotEmpty(jobIdentifier.getApplicationId()) && !SparkSessionPool.isSessionJob(jobIdentifier.getApplicationId())) {
+                        appIds.add(jobIdentifier.getApplicationId());
+                    }
+                }
+                try {
+                    return YarnApplicationUtils.getApplicationReports(getYarnClient(), APPLICATION_TYPES, appIds);
+                } catch (Exception e) {
+                    throw new PluginDefineException(e);
+                }
+            }, yarnConf, false);
+            for (JobIdentifier jobIdentifier : jobIdentifiers) {
+                if (StringUtils.isEmpty(jobIdentifier.getApplicationId())) {
+                    continue;
+                }
+                ApplicationReport report = reports.get(jobIdentifier.getApplicationId());
+                if (report != null) {
+                    statusMap.put(jobIdentifier.getJobId(), YarnApplicationUtils.convertTaskStatus(report));
+                }
+            }
+        } catch (Exception e) {
+            logger.error("batch get job status error, fallback to single query", e);
+        }
+        // 列表中没有的任务(已被 RM 清理或批量查询失败)逐个查询
+        for (JobIdentifier jobIdentifier : jobIdentifiers) {
+            if (!statusMap.containsKey(jobIdentifier.getJobId())) {
+                statusMap.put(jobIdentifier.getJobId(), getJobStatus(jobIdentifier));
+            }
+        }
+        return statusMap;
+    }
+
     @Override
     public String getJobMaster(JobIdentifier jobIdentifier) {
         //解析config,获取web-address
@@ -736,6 +784,9 @@ public class SparkYarnClient extends AbstractClient {
 
     @Override
     public String getJobLog(JobIdentifier jobIdentifier) {
+        if (SparkSessionPool.isSessionJob(jobIdentifier.getApplicationId())) {
+            return getSessionPool().getJobLog(jobIdentifier.getApplicationId());
+        }
         SparkJobLog sparkJobLog = new SparkJobLog();
         try {
             return KerberosUtils.login(sparkYarnConfig, ()-> {
@@ -769,6 +820,7 @@ public class SparkYarnClient extends AbstractClient {
                             .withYarnClient(getYarnClient())
                             .withQueueName(sparkYarnConfig.getQueue())
                             .withYarnAccepterTaskNumber(sparkYarnConfig.getYarnAccepterTaskNumber())
+                            .withResourceSnapshot(resourceSnapshot)
                             .build();
                     return resourceInfo.judgeSlots(jobClient);
             }, yarnConf, false);
@@ -819,6 +871,40 @@ public class SparkYarnClient extends AbstractClient {
         jobClient.setSql(String.join(";", sqlList));
     }
 
+    @Override
+    public void close() {
+        if (sessionPool != null) {
+            sessionPool.close();
+        }
+        if (resourceSnapshot != null) {
+            resourceSnapshot.close();
+        }
+        if (threadPoolExecutor != null) {
+            threadPoolExecutor.shutdown();
+        }
+        if (yarnClient != null) {
+            try {
+                yarnClient.stop();
+            } catch (Exception e) {
+                logger.error("stop yarnClient error", e);
+            }
+        }
+    }
+
+    /**
+     * 常驻会话池，未开启时也用于查询插件重启前提交到会话中的任务
+     */
+    private SparkSessionPool getSessionPool() {
+        if (sessionPool == null) {
+            synchronized (this) {
+                if (sessionPool == null) {
+                    sessionPool = new SparkSessionPool(this, sparkYarnConfig, yarnConf);
+                }
+            }
+        }
+        return sessionPool;
+    }
+
     public YarnClient getYarnClient(){
         long startTime = System.currentTimeMillis();
         try {
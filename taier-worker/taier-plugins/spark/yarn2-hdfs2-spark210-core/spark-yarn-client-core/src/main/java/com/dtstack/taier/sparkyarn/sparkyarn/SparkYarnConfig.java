@@ -41,6 +41,8 @@ public class SparkYarnConfig extends BaseConfig {
 
     public static final String DEFAULT_CARBON_SQL_PROXY_MAINCLASS = "com.dtstack.sql.main.CarbondataSqlProxy";
 
+    private static final String DEFAULT_SESSION_POOL_ADDRESS_DIR = "%s/tmp/taier/spark-session";
+
     private static final String HDFS_FLAG = "hdfs";
 
     private String typeName;
@@ -73,6 +75,8 @@ public class SparkYarnConfig extends BaseConfig {
     private String elasticCapacity = "true";
     //在yarn队列中允许等待执行的任务数量
     private String yarnAccepterTaskNumber;
+    //yarn 资源快照刷新间隔(ms)，小于等于 0 时每个任务单独请求 yarn
+    private long yarnResourceRefreshInterval = 5000L;
 
     private String jvmOptions = "-XX:+UseConcMarkSweepGC -XX:+CMSParallelRemarkEnabled -XX:+CMSIncrementalMode -XX:+CMSIncrementalPacing";
 
@@ -83,6 +87,16 @@ public class SparkYarnConfig extends BaseConfig {
     private boolean monitorAcceptedApp = false;
 
     private int asyncCheckYarnClientThreadNum = 3;
+    //是否启用常驻的 spark sql 会话池，短 sql 任务复用已启动的 driver
+    private boolean sessionPoolEnable = false;
+    //每个租户常驻的 driver 数量
+    private int sessionPoolDriverNum = 2;
+    //driver 空闲超过该时间(ms)后释放
+    private long sessionPoolIdleTimeout = 10 * 60 * 1000L;
+    //sql 长度超过该值的任务不使用会话池
+    private int sessionPoolMaxSqlLength = 20000;
+    //driver 地址文件所在的 hdfs 目录
+    private String sessionPoolAddressDir;
     private String dtProxyUserName;
 
     public String getDtProxyUserName() {
@@ -254,6 +268,14 @@ public class SparkYarnConfig extends BaseConfig {
         this.yarnAccepterTaskNumber = yarnAccepterTaskNumber;
     }
 
+    public long getYarnResourceRefreshInterval() {
+        return yarnResourceRefreshInterval;
+    }
+
+    public void setYarnResourceRefreshInterval(long yarnResourceRefreshInterval) {
+        this.yarnResourceRefreshInterval = yarnResourceRefreshInterval;
+    }
+
     public String getCarbonStorePath() {
         return carbonStorePath;
     }
@@ -285,4 +307,53 @@ public class SparkYarnConfig extends BaseConfig {
     public void setMonitorAcceptedApp(boolean monitorAcceptedApp) {
         this.monitorAcceptedApp = monitorAcceptedApp;
     }
+
+    public boolean getSessionPoolEnable() {
+        return sessionPoolEnable;
+    }
+
+    public void setSessionPoolEnable(boolean sessionPoolEnable) {
+        this.sessionPoolEnable = sessionPoolEnable;
+    }
+
+    public int getSessionPoolDriverNum() {
+        return sessionPoolDriverNum;
+    }
+
+    public void setSessionPoolDriverNum(int sessionPoolDriverNum) {
+        this.sessionPoolDriverNum = sessionPoolDriverNum;
+    }
+
+    public long getSessionPoolIdleTimeout() {
+        return sessionPoolIdleTimeout;
+    }
+
+    public void setSessionPoolIdleTimeout(long sessionPoolIdleTimeout) {
+        this.sessionPoolIdleTimeout = sessionPoolIdleTimeout;
+    }
+
+    public int getSessionPoolMaxSqlLength() {
+        return sessionPoolMaxSqlLength;
+    }
+
+    public void setSessionPoolMaxSqlLength(int sessionPoolMaxSqlLength) {
+        this.sessionPoolMaxSqlLength = sessionPoolMaxSqlLength;
+    }
+
+    public String getSessionPoolAddressDir() {
+        if(Strings.isNullOrEmpty(sessionPoolAddressDir)){
+            return String.format(DEFAULT_SESSION_POOL_ADDRESS_DIR, defaultFs);
+        }
+
+        if(!sessionPoolAddressDir.trim().startsWith(HDFS_FLAG)){
+            sessionPoolAddressDir = sessionPoolAddressDir.trim();
+            sessionPoolAddressDir = defaultFs + sessionPoolAddressDir;
+        }
+
+        return sessionPoolAddressDir;
+    }
+
+    public void setSessionPoolAddressDir(String sessionPoolAddressDir) {
+        this.sessionPoolAddressDir = sessionPoolAddressDir;
+    }
 }
@@ -23,6 +23,7 @@ import com.dtstack.taier.pluginapi.util.MathUtil;
 import com.dtstack.taier.pluginapi.util.UnitConvertUtil;
 import com.dtstack.taier.pluginapi.JobClient;
 import com.dtstack.taier.base.resource.AbstractYarnResourceInfo;
+import com.dtstack.taier.base.resource.YarnResourceSnapshot;
 import com.google.common.collect.Lists;
 import org.apache.hadoop.yarn.client.api.YarnClient;
 
@@ -63,21 +64,35 @@ public class SparkYarnResourceInfo extends AbstractYarnResourceInfo {
     private YarnClient yarnClient;
     private String queueName;
     private Integer yarnAccepterTaskNumber;
+    private YarnResourceSnapshot resourceSnapshot;
 
     public SparkYarnResourceInfo(YarnClient yarnClient, String queueName, Integer yarnAccepterTaskNumber) {
+        this(yarnClient, queueName, yarnAccepterTaskNumber, null);
+    }
+
+    public SparkYarnResourceInfo(YarnClient yarnClient, String queueName, Integer yarnAccepterTaskNumber, YarnResourceSnapshot resourceSnapshot) {
         this.yarnClient = yarnClient;
         this.queueName = queueName;
         this.yarnAccepterTaskNumber = yarnAccepterTaskNumber;
+        this.resourceSnapshot = resourceSnapshot;
     }
 
     @Override
     public JudgeResult judgeSlots(JobClient jobClient) {
 
+        if (resourceSnapshot != null) {
+            return judgeYarnResource(resourceSnapshot, queueName, yarnAccepterTaskNumber, buildInstanceInfos(jobClient));
+        }
+
         JudgeResult jr = getYarnSlots(yarnClient, queueName, yarnAccepterTaskNumber);
         if (!jr.available()) {
             return jr;
         }
 
+        return judgeYarnResource(buildInstanceInfos(jobClient));
+    }
+
+    private List<InstanceInfo> buildInstanceInfos(JobClient jobClient) {
         Properties properties = jobClient.getConfProperties();
         int driverCores = DEFAULT_CORES;
         if(properties != null && properties.containsKey(DRIVER_CORE_KEY)){
@@ -116,10 +131,9 @@ public class SparkYarnResourceInfo extends AbstractYarnResourceInfo {
         }
         executorMem += executorMemOverhead;
 
-        List<InstanceInfo> instanceInfos = Lists.newArrayList(
+        return Lists.newArrayList(
                 InstanceInfo.newRecord(1, driverCores, driverMem),
                 InstanceInfo.newRecord(executorNum, executorCores, executorMem));
-        return judgeYarnResource(instanceInfos);
     }
 
 
@@ -131,6 +145,7 @@ public class SparkYarnResourceInfo extends AbstractYarnResourceInfo {
         private YarnClient yarnClient;
         private String queueName;
         private Integer yarnAccepterTaskNumber;
+        private YarnResourceSnapshot resourceSnapshot;
 
         public SparkYarnResourceInfoBuilder withYarnClient(YarnClient yarnClient) {
             this.yarnClient = yarnClient;
@@ -147,8 +162,13 @@ public class SparkYarnResourceInfo extends AbstractYarnResourceInfo {
             return this;
         }
 
+        public SparkYarnResourceInfoBuilder withResourceSnapshot(YarnResourceSnapshot resourceSnapshot) {
+            this.resourceSnapshot = resourceSnapshot;
+            return this;
+        }
+
         public SparkYarnResourceInfo build() {
-            return new SparkYarnResourceInfo(yarnClient, queueName, yarnAccepterTaskNumber);
+            return new SparkYarnResourceInfo(yarnClient, queueName, yarnAccepterTaskNumber, resourceSnapshot);
         }
     }
 
@@ -0,0 +1,218 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dtstack.taier.sparkyarn.sparkyarn;
+
+import com.alibaba.fastjson.JSONObject;
+import com.dtstack.taier.pluginapi.JobClient;
+import com.dtstack.taier.pluginapi.enums.TaskStatus;
+import com.dtstack.taier.pluginapi.pojo.JobResult;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.hadoop.yarn.api.records.ApplicationId;
+import org.apache.hadoop.yarn.api.records.ApplicationReport;
+import org.apache.hadoop.yarn.api.records.YarnApplicationState;
+import org.apache.hadoop.yarn.client.api.YarnClient;
+import org.apache.hadoop.yarn.conf.YarnConfiguration;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.powermock.reflect.Whitebox;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SparkSessionPoolTest {
+
+    private static final long WAIT_TIMEOUT = 5000L;
+
+    /**
+     * 模拟 driver 中 SqlSessionServer 的接口
+     */
+    private HttpServer driverServer;
+
+    private volatile String statementStatus = "RUNNING";
+
+    private File addressDir;
+
+    private SparkYarnClient sparkYarnClient;
+
+    private YarnClient yarnClient;
+
+    private SparkYarnConfig sparkYarnConfig;
+
+    private final AtomicInteger appSeq = new AtomicInteger();
+
+    private final List<ApplicationId> launchedApps = new CopyOnWriteArrayList<>();
+
+    private volatile CountDownLatch launchBlocker;
+
+    @Before
+    public void setUp() throws Exception {
+        driverServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        driverServer.createContext("/submit", exchange -> respond(exchange, "RUNNING"));
+        driverServer.createContext("/status", exchange -> respond(exchange, statementStatus));
+        driverServer.createContext("/cancel", exchange -> respond(exchange, "CANCELED"));
+        driverServer.start();
+
+        addressDir = Files.createTempDirectory("spark_session_address").toFile();
+        sparkYarnConfig = new SparkYarnConfig();
+        sparkYarnConfig.setDefaultFs("file://");
+        sparkYarnConfig.setSessionPoolAddressDir(addressDir.getAbsolutePath());
+        sparkYarnConfig.setSessionPoolDriverNum(2);
+        sparkYarnConfig.setSessionPoolIdleTimeout(10 * 60 * 1000L);
+        sparkYarnConfig.setSessionPoolMaxSqlLength(1000);
+
+        yarnClient = Mockito.mock(YarnClient.class);
+        ApplicationReport report = Mockito.mock(ApplicationReport.class);
+        when(report.getYarnApplicationState()).thenReturn(YarnApplicationState.RUNNING);
+        when(yarnClient.getApplicationReport(any(ApplicationId.class))).thenReturn(report);
+
+        sparkYarnClient = Mockito.mock(SparkYarnClient.class);
+        when(sparkYarnClient.getYarnClient()).thenReturn(yarnClient);
+        when(sparkYarnClient.submitSqlProxy(anyMap(), anyString(), any(Properties.class), anyInt())).thenAnswer(invocation -> {
+            Map<String, Object> paramsMap = invocation.getArgument(0);
+            ApplicationId appId = ApplicationId.newInstance(1L, appSeq.incrementAndGet());
+            // driver 启动后写入地址文件
+            JSONObject address = new JSONObject();
+            address.put("host", "127.0.0.1");
+            address.put("port", driverServer.getAddress().getPort());
+            address.put("token", paramsMap.get("sessionToken"));
+            Files.write(new File(addressDir, appId.toString()).toPath(), address.toJSONString().getBytes(StandardCharsets.UTF_8));
+            CountDownLatch blocker = launchBlocker;
+            if (blocker != null) {
+                Uninterruptibles.awaitUninterruptibly(blocker);
+            }
+            launchedApps.add(appId);
+            return appId;
+        });
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        driverServer.stop(0);
+        File[] files = addressDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                Files.deleteIfExists(file.toPath());
+            }
+        }
+        Files.deleteIfExists(addressDir.toPath());
+    }
+
+    @Test
+    public void testCloseKeepBusyDriver() throws Exception {
+        SparkSessionPool pool = new SparkSessionPool(sparkYarnClient, sparkYarnConfig, new YarnConfiguration());
+        JobClient jobClient = newJobClient();
+        // 没有空闲 driver 时启动新的 driver，任务按原方式提交
+        Assert.assertNull(pool.submit(jobClient, null));
+        Assert.assertNull(pool.submit(jobClient, null));
+        waitDriversLaunched(pool, 2);
+        Whitebox.invokeMethod(pool, "check");
+
+        JobResult jobResult = pool.submit(jobClient, null);
+        Assert.assertNotNull(jobResult);
+        String sessionJobId = jobResult.getData(JobResult.JOB_ID_KEY);
+        Assert.assertTrue(SparkSessionPool.isSessionJob(sessionJobId));
+        ApplicationId busyApp = launchedApps.stream().filter(appId -> sessionJobId.contains(appId.toString())).findFirst().get();
+        ApplicationId idleApp = launchedApps.stream().filter(appId -> !appId.equals(busyApp)).findFirst().get();
+
+        // 客户端从缓存淘汰时关闭会话池，执行中的 driver 不停止
+        pool.close();
+        verify(yarnClient).killApplication(idleApp);
+        verify(yarnClient, never()).killApplication(busyApp);
+
+        // 新的客户端从地址文件恢复 driver，继续查询语句状态
+        SparkSessionPool newPool = new SparkSessionPool(sparkYarnClient, sparkYarnConfig, new YarnConfiguration());
+        Assert.assertEquals(TaskStatus.RUNNING, newPool.getJobStatus(sessionJobId));
+        statementStatus = "FINISHED";
+        Assert.assertEquals(TaskStatus.FINISHED, newPool.getJobStatus(sessionJobId));
+
+        // 恢复的 driver 由自身空闲超时退出
+        newPool.close();
+        verify(yarnClient, never()).killApplication(busyApp);
+    }
+
+    @Test
+    public void testCloseStopStartingDriver() throws Exception {
+        launchBlocker = new CountDownLatch(1);
+        SparkSessionPool pool = new SparkSessionPool(sparkYarnClient, sparkYarnConfig, new YarnConfiguration());
+        Assert.assertNull(pool.submit(newJobClient(), null));
+        verify(sparkYarnClient, timeout(WAIT_TIMEOUT)).submitSqlProxy(anyMap(), anyString(), any(Properties.class), anyInt());
+
+        // driver 启动期间关闭会话池，启动完成后停止
+        pool.close();
+        launchBlocker.countDown();
+        verify(yarnClient, timeout(WAIT_TIMEOUT)).killApplication(ApplicationId.newInstance(1L, 1));
+
+        // 关闭后不再分配 driver
+        Assert.assertNull(pool.submit(newJobClient(), null));
+        verify(sparkYarnClient).submitSqlProxy(anyMap(), anyString(), any(Properties.class), anyInt());
+    }
+
+    private void waitDriversLaunched(SparkSessionPool pool, int num) throws InterruptedException {
+        Map<String, ?> drivers = Whitebox.getInternalState(pool, "drivers");
+        long deadline = System.currentTimeMillis() + WAIT_TIMEOUT;
+        while (drivers.size() < num) {
+            Assert.assertTrue("spark session not launched", System.currentTimeMillis() < deadline);
+            TimeUnit.MILLISECONDS.sleep(50);
+        }
+    }
+
+    private JobClient newJobClient() {
+        JobClient jobClient = new JobClient();
+        jobClient.setJobId("job_" + appSeq.get());
+        jobClient.setJobName("session_test");
+        jobClient.setTenantId(1L);
+        jobClient.setSql("select 1");
+        return jobClient;
+    }
+
+    private static void respond(HttpExchange exchange, String status) throws IOException {
+        JSONObject result = new JSONObject();
+        result.put("status", status);
+        byte[] body = result.toJSONString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json;charset=UTF-8");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}